@@ -0,0 +1,95 @@
+package edu.ufl.cise.plc.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ufl.cise.plc.runtime.ColorTuple;
+
+/**
+ * Throughput of ColorTuple.unpack and pack over the packed pixels of a square image, the
+ * way the pixels of an image are visited one by one by generated code that uses
+ * ColorTuples.
+ *
+ * The pixels counter reports pixels/s next to the ops/s of whole images. Run with -prof
+ * gc, and divide gc.alloc.rate.norm by size * size, to see the bytes allocated per pixel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColorTupleBenchmark {
+
+	/** Width and height of the image. */
+	@Param({ "64", "512", "2048", "8192" })
+	public int size;
+
+	int[] pixels;
+	ColorTuple[] tuples;
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Pixels {
+		public long pixels;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			pixels = 0;
+		}
+	}
+
+	@Setup
+	public void generate() {
+		Random random = new Random(1);
+		pixels = new int[size * size];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = 0xFF000000 | random.nextInt(1 << 24);
+		}
+		tuples = new ColorTuple[Math.min(pixels.length, 1 << 16)];
+		for (int i = 0; i < tuples.length; i++) {
+			tuples[i] = ColorTuple.unpack(pixels[i]);
+		}
+	}
+
+	/** Unpacks every pixel, summing the components so that the tuples are used. */
+	@Benchmark
+	public int unpack(Pixels counter) {
+		int sum = 0;
+		for (int pixel : pixels) {
+			ColorTuple tuple = ColorTuple.unpack(pixel);
+			sum += tuple.red + tuple.green + tuple.blue;
+		}
+		counter.pixels += pixels.length;
+		return sum;
+	}
+
+	/**
+	 * Packs a tuple for every pixel. The tuples are reused after the first 65536 so that
+	 * the 8192 x 8192 image does not need 64M of them.
+	 */
+	@Benchmark
+	public int pack(Pixels counter) {
+		int mask = tuples.length - 1;
+		int hash = 0;
+		for (int i = 0; i < pixels.length; i++) {
+			hash = hash * 31 + tuples[i & mask].pack();
+		}
+		counter.pixels += pixels.length;
+		return hash;
+	}
+}
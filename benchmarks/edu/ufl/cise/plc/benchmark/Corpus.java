@@ -0,0 +1,84 @@
+package edu.ufl.cise.plc.benchmark;
+
+/**
+ * PLCLang programs for the benchmarks, in three sizes. Every program lexes, parses,
+ * type checks, compiles and runs without reading the console, files or URLs, so each
+ * phase of the compiler can be measured on all of them.
+ */
+public final class Corpus {
+
+	/** A handwritten program using every type, most operators, and a pixel loop. */
+	public static final String SMALL = """
+			image small(int size)
+			int n = size * 2 + 1;
+			float f = 2.5 * n;
+			boolean b = f >= 3.0 & !(n == 4) | false;
+			string s = if (b) "yes\\n" else "no" fi;
+			color c = << n % 256, 128, 255 - n % 256 >>;
+			color d = c + << 1, 2, 3 >> * RED;
+			image[size, size] a;
+			a[x, y] = << x * 255 / size, y * 255 / size, getBlue d >>;  # gradient
+			a = a * 2 - a / 4;
+			^ a;
+			""";
+
+	/** Number of statements of the medium program. */
+	public static final int MEDIUM_STATEMENTS = 200;
+
+	/**
+	 * Number of statements of the large program. Its generated Java code is close to the
+	 * 64 KB that the JVM allows for the bytecode of one method.
+	 */
+	public static final int LARGE_STATEMENTS = 2000;
+
+	public static final String MEDIUM = generate(MEDIUM_STATEMENTS);
+
+	public static final String LARGE = generate(LARGE_STATEMENTS);
+
+	private Corpus() {
+	}
+
+	/** Returns the program of the given size: small, medium or large. */
+	public static String program(String size) {
+		return switch (size) {
+		case "small" -> SMALL;
+		case "medium" -> MEDIUM;
+		case "large" -> LARGE;
+		default -> throw new IllegalArgumentException("unknown program size " + size);
+		};
+	}
+
+	/**
+	 * Returns a program with the given number of statements, mostly integer and float
+	 * arithmetic and conditionals, with a color and a small image filled pixel by pixel
+	 * every 50 statements.
+	 */
+	public static String generate(int statements) {
+		StringBuilder source = new StringBuilder("int generated(int w)\n");
+		source.append("int v0 = w;\nfloat g = 0.5;\n");
+		for (int i = 1; i < statements; i++) {
+			String v = "v" + i;
+			String previous = "v" + (i - 1);
+			switch (i % 50) {
+			case 10 -> source.append("color c").append(i).append(" = << ").append(previous).append(" % 256, ").append(i % 256)
+					.append(", 7 >> + GREEN;\nint ").append(v).append(" = getRed c").append(i).append(" + getGreen c").append(i)
+					.append(";\n");
+			case 30 -> source.append("image[8, 8] m").append(i).append(";\nm").append(i).append("[x, y] = << x * ").append(previous)
+					.append(", y, 0 >>;\nint ").append(v).append(" = ").append(previous).append(" + getWidth m").append(i)
+					.append(";\n");
+			default -> {
+				if (i % 5 == 0) {
+					source.append("int ").append(v).append(" = if (").append(previous).append(" > ").append(i).append(" & w != 0) ")
+							.append(previous).append(" - ").append(i).append(" else ").append(previous).append(" + w fi;  # branch\n");
+				} else if (i % 5 == 3) {
+					source.append("g = g * 1.5 + ").append(previous).append(" / 3.0;\nint ").append(v).append(" = ").append(previous)
+							.append(" + 1;\n");
+				} else {
+					source.append("int ").append(v).append(" = (").append(previous).append(" * ").append(i % 7 + 2).append(" + w) % 10007;\n");
+				}
+			}
+			}
+		}
+		return source.append("^ v").append(statements - 1).append(";\n").toString();
+	}
+}
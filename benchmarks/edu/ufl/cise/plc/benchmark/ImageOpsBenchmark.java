@@ -0,0 +1,188 @@
+package edu.ufl.cise.plc.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ufl.cise.plc.runtime.FileURLIO;
+import edu.ufl.cise.plc.runtime.ImageOps;
+import edu.ufl.cise.plc.runtime.ImageOps.OP;
+
+/**
+ * Throughput of the ImageOps operations on whole images, and of reading and writing
+ * images with FileURLIO, on square images of random pixels of each size and type.
+ *
+ * The pixels counter reports pixels/s next to the ops/s of whole images; the time per
+ * pixel is its inverse. Run with -prof gc, and divide gc.alloc.rate.norm by size * size,
+ * to see the bytes allocated per pixel, for example
+ *
+ * <pre>
+ * java -jar benchmarks.jar ImageOpsBenchmark -p size=2048 -prof gc
+ * </pre>
+ *
+ * The 8192 x 8192 images take 256 MB each, so the forked JVM is given a larger heap.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g", "-Djava.awt.headless=true" })
+@State(Scope.Benchmark)
+public class ImageOpsBenchmark {
+
+	/** Width and height of the images. */
+	@Param({ "64", "512", "2048", "8192" })
+	public int size;
+
+	/** BufferedImage type of the images, without the TYPE_ prefix. */
+	@Param({ "INT_RGB", "INT_ARGB", "3BYTE_BGR" })
+	public String type;
+
+	BufferedImage left;
+	BufferedImage right;
+	BufferedImage copy;
+	int half;
+	Path directory;
+	String written;
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Pixels {
+		public long pixels;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			pixels = 0;
+		}
+	}
+
+	static int imageType(String type) {
+		return switch (type) {
+		case "INT_RGB" -> BufferedImage.TYPE_INT_RGB;
+		case "INT_ARGB" -> BufferedImage.TYPE_INT_ARGB;
+		case "3BYTE_BGR" -> BufferedImage.TYPE_3BYTE_BGR;
+		default -> throw new IllegalArgumentException("unknown image type " + type);
+		};
+	}
+
+	/** Returns an image of the given size and type with opaque random pixels. */
+	static BufferedImage randomImage(int size, int type, long seed) {
+		BufferedImage image = new BufferedImage(size, size, type);
+		Random random = new Random(seed);
+		int[] row = new int[size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				row[x] = 0xFF000000 | random.nextInt(1 << 24);
+			}
+			image.setRGB(0, y, size, 1, row, 0, size);
+		}
+		return image;
+	}
+
+	@Setup
+	public void generate() throws IOException {
+		left = randomImage(size, imageType(type), 1);
+		right = randomImage(size, imageType(type), 2);
+		copy = ImageOps.clone(left);
+		half = Math.max(1, size / 2);
+		directory = Files.createTempDirectory("ImageOpsBenchmark");
+		written = directory.resolve("image").toString();
+		//the JPEG writer does not take images with alpha, so the image read is written from an opaque copy
+		BufferedImage opaque = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+		opaque.setRGB(0, 0, size, size, left.getRGB(0, 0, size, size, null, 0, size), 0, size);
+		FileURLIO.writeImage(opaque, written);
+	}
+
+	@TearDown
+	public void delete() throws IOException {
+		try (var files = Files.list(directory)) {
+			for (Path file : files.toList()) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	BufferedImage count(Pixels counter, BufferedImage image) {
+		counter.pixels += (long) size * size;
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage extractRed(Pixels counter) {
+		return count(counter, ImageOps.extractRed(left));
+	}
+
+	@Benchmark
+	public BufferedImage extractGreen(Pixels counter) {
+		return count(counter, ImageOps.extractGreen(left));
+	}
+
+	@Benchmark
+	public BufferedImage extractBlue(Pixels counter) {
+		return count(counter, ImageOps.extractBlue(left));
+	}
+
+	@Benchmark
+	public BufferedImage binaryImageImageOp(Pixels counter) {
+		return count(counter, ImageOps.binaryImageImageOp(OP.PLUS, left, right));
+	}
+
+	@Benchmark
+	public BufferedImage binaryImageScalarOp(Pixels counter) {
+		return count(counter, ImageOps.binaryImageScalarOp(OP.TIMES, left, 3));
+	}
+
+	@Benchmark
+	public BufferedImage cloneImage(Pixels counter) {
+		return count(counter, ImageOps.clone(left));
+	}
+
+	/** Scales the image down to half its width and height; the pixels counted are those read. */
+	@Benchmark
+	public BufferedImage resize(Pixels counter) {
+		return count(counter, ImageOps.resize(left, half, half));
+	}
+
+	/** Compares the image to an equal copy, so every pixel is compared. */
+	@Benchmark
+	public boolean equalImages(Pixels counter) {
+		counter.pixels += (long) size * size;
+		return ImageOps.equals(left, copy);
+	}
+
+	/** Reads a JPEG file of the image; the image read has the type chosen by the decoder. */
+	@Benchmark
+	public BufferedImage readImage(Pixels counter) {
+		return count(counter, FileURLIO.readImage(written + ".jpeg"));
+	}
+
+	/**
+	 * Writes the image to a JPEG file. FileURLIO writes no file for INT_ARGB images, as
+	 * the JPEG writer does not take images with alpha, so that type only measures the
+	 * attempt.
+	 */
+	@Benchmark
+	public void writeImage(Pixels counter) {
+		counter.pixels += (long) size * size;
+		FileURLIO.writeImage(left, written);
+	}
+}
@@ -0,0 +1,96 @@
+package edu.ufl.cise.plc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ufl.cise.plc.ILexer;
+import edu.ufl.cise.plc.IToken;
+import edu.ufl.cise.plc.Lexer;
+import edu.ufl.cise.plc.LexicalException;
+
+/**
+ * Throughput of the Lexer, in tokens per second, on a generated PLCLang source.
+ *
+ * The tokens counter reports tokens/s next to the ops/s of whole sources. Run with
+ * -prof gc to see the bytes allocated per source. The scanner parameter compares the
+ * current Lexer with BoxedLexer, the lexer before it kept its scan position in fields,
+ * for example
+ *
+ * <pre>
+ * java -jar benchmarks.jar LexerBenchmark -p scanner=current,boxed -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+
+	/** Number of statements in the generated source. */
+	@Param({ "100", "10000" })
+	public int statements;
+
+	@Param({ "false", "true" })
+	public boolean lazy;
+
+	/** current for Lexer, boxed for BoxedLexer. */
+	@Param({ "current", "boxed" })
+	public String scanner;
+
+	String source;
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Tokens {
+		public long tokens;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			tokens = 0;
+		}
+	}
+
+	@Setup
+	public void generate() {
+		source = source(statements);
+	}
+
+	/**
+	 * Returns a program with the given number of statements, using identifiers,
+	 * reserved words, literals of every kind, operators and comments.
+	 */
+	public static String source(int statements) {
+		StringBuilder source = new StringBuilder("image f(int w, string url)\n");
+		for (int i = 0; i < statements; i++) {
+			source.append("int v").append(i).append(" = ").append(i).append(" * (getRed c + 2.5); # comment\n");
+			source.append("write if (v").append(i).append(" >= 0) \"yes\\n\" else \"no\" fi -> console;\n");
+		}
+		return source.append("^ << 255, 0, BLUE >>;\n").toString();
+	}
+
+	@Benchmark
+	public int lex(Tokens counter) throws LexicalException {
+		ILexer lexer = scanner.equals("boxed") ? new BoxedLexer(source, lazy) : new Lexer(source, lazy);
+		int count = 0;
+		while (lexer.next().getKind() != IToken.Kind.EOF) {
+			count++;
+		}
+		counter.tokens += count;
+		return count;
+	}
+}
@@ -0,0 +1,179 @@
+package edu.ufl.cise.plc.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ufl.cise.plc.CompilerComponentFactory;
+import edu.ufl.cise.plc.ILexer;
+import edu.ufl.cise.plc.IToken;
+import edu.ufl.cise.plc.Lexer;
+import edu.ufl.cise.plc.LexicalException;
+import edu.ufl.cise.plc.Parser;
+import edu.ufl.cise.plc.PLCException;
+import edu.ufl.cise.plc.ast.Program;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.BytecodeCache;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.DynamicCompiler;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.PLCLangExec;
+
+/**
+ * Throughput of each phase of the compiler, and of PLCLangExec.exec end to end, on the
+ * programs of the Corpus.
+ *
+ * Each phase is given the output of the phases before it, prepared outside of the
+ * measurement: parse reads tokens lexed beforehand, typeCheck a program parsed for each
+ * invocation (type checking decorates the AST, so it cannot check the same one twice),
+ * generateJava a type checked program, and javac the generated Java code. exec runs with
+ * the program cache and the bytecode cache disabled, so each operation lexes, parses, type
+ * checks, compiles, loads and runs the program.
+ *
+ * Run with -prof gc to see the allocation rate and the bytes allocated per operation of
+ * each phase, for example
+ *
+ * <pre>
+ * java -jar benchmarks.jar PipelineBenchmark -p size=medium -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+	static final String PACKAGE_NAME = "cop4020sp22Package";
+
+	@Param({ "small", "medium", "large" })
+	public String size;
+
+	String source;
+	List<IToken> tokens;
+	Program checked;
+	String fullyQualifiedName;
+	String javaCode;
+	Object[] params;
+
+	int cacheCapacity;
+	BytecodeCache bytecodeCache;
+
+	/** Returns the tokens it was given, as the lexer would. */
+	static class TokenReplay implements ILexer {
+		final List<IToken> tokens;
+		int next;
+
+		TokenReplay(List<IToken> tokens) {
+			this.tokens = tokens;
+		}
+
+		@Override
+		public IToken next() {
+			IToken token = tokens.get(next);
+			if (next < tokens.size() - 1) {
+				next++;
+			}
+			return token;
+		}
+
+		@Override
+		public IToken peek() {
+			return tokens.get(next);
+		}
+	}
+
+	/** A program parsed before each invocation of typeCheck. */
+	@State(Scope.Thread)
+	public static class Parsed {
+		Program program;
+
+		@Setup(Level.Invocation)
+		public void parse(PipelineBenchmark benchmark) throws PLCException {
+			program = benchmark.parse();
+		}
+	}
+
+	@Setup
+	public void prepare() throws Exception {
+		source = Corpus.program(size);
+		tokens = new ArrayList<>();
+		Lexer lexer = new Lexer(source);
+		IToken token;
+		do {
+			token = lexer.next();
+			tokens.add(token);
+		} while (token.getKind() != IToken.Kind.EOF);
+		checked = typeCheck(parse());
+		fullyQualifiedName = PACKAGE_NAME + '.' + checked.getName();
+		javaCode = generateJava(checked);
+		params = new Object[] { size.equals("small") ? 64 : 3 };
+
+		cacheCapacity = PLCLangExec.getProgramCache().getCapacity();
+		PLCLangExec.getProgramCache().setCapacity(0);
+		bytecodeCache = DynamicCompiler.getBytecodeCache();
+		DynamicCompiler.setBytecodeCache(null);
+	}
+
+	@TearDown
+	public void restore() {
+		PLCLangExec.getProgramCache().setCapacity(cacheCapacity);
+		DynamicCompiler.setBytecodeCache(bytecodeCache);
+	}
+
+	@Benchmark
+	public int lex() throws LexicalException {
+		Lexer lexer = new Lexer(source);
+		int count = 0;
+		while (lexer.next().getKind() != IToken.Kind.EOF) {
+			count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public Program parse() throws PLCException {
+		return (Program) new Parser(new TokenReplay(tokens)).parse();
+	}
+
+	@Benchmark
+	public Program typeCheck(Parsed parsed) throws Exception {
+		return typeCheck(parsed.program);
+	}
+
+	static Program typeCheck(Program program) throws Exception {
+		program.visit(CompilerComponentFactory.getTypeChecker(), null);
+		return program;
+	}
+
+	@Benchmark
+	public String generateJava() throws Exception {
+		return generateJava(checked);
+	}
+
+	static String generateJava(Program program) throws Exception {
+		return (String) program.visit(CompilerComponentFactory.getCodeGenerator(PACKAGE_NAME), null);
+	}
+
+	@Benchmark
+	public byte[] javac() throws Exception {
+		return DynamicCompiler.compile(fullyQualifiedName, javaCode);
+	}
+
+	@Benchmark
+	public Object exec() throws Exception {
+		return new PLCLangExec(PACKAGE_NAME, false).exec(source, params);
+	}
+}
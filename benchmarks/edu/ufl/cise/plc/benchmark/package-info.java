@@ -0,0 +1,16 @@
+/**
+ * JMH benchmarks of the compiler: LexerBenchmark for the lexer alone, and
+ * PipelineBenchmark for each phase and for PLCLangExec.exec on the programs of the
+ * Corpus. ImageOpsBenchmark and ColorTupleBenchmark measure the runtime operations on
+ * images and pixels that compiled programs call.
+ *
+ * The benchmarks are in their own source root, benchmarks/, so that the compiler in
+ * edu/ builds without JMH. benchmarks/README.md gives the commands that compile them
+ * against the compiler classes and package them with JMH in benchmarks.jar, which is
+ * run as
+ *
+ * <pre>
+ * java -jar benchmarks.jar PipelineBenchmark -prof gc
+ * </pre>
+ */
+package edu.ufl.cise.plc.benchmark;
@@ -0,0 +1,139 @@
+package edu.ufl.cise.plc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.ufl.cise.plc.ast.Program;
+
+//Lexes, parses and type checks many programs concurrently, and reports the errors and the time of each phase for
+//each program.
+//
+//Each program is checked by one task on the executor, with a Lexer, Parser and TypeCheckVisitor of its own. They
+//share no mutable state with those of other programs: the tables of the Lexer are built once and only read.
+public class BulkFrontEnd implements AutoCloseable {
+
+    //The outcome of checking one program: its AST, or the error that stopped it, and the nanoseconds spent in each
+    //phase. The phases after the one that failed take 0 nanoseconds.
+    public record Result(int index, Program program, Exception error, long lexNanos, long parseNanos, long typeCheckNanos) {
+
+        public boolean failed(){
+            return error != null;
+        }
+
+        public long totalNanos(){
+            return lexNanos + parseNanos + typeCheckNanos;
+        }
+    }
+
+    //The results of all programs, in the order of the inputs, and the time it took to check all of them
+    public record Report(List<Result> results, long wallNanos) {
+
+        public List<Result> failures(){
+            return results.stream().filter(Result::failed).toList();
+        }
+
+        //Time spent checking programs, summed over all programs. Divided by wallNanos, it is the speedup over
+        //checking them one at a time.
+        public long totalNanos(){
+            return results.stream().mapToLong(Result::totalNanos).sum();
+        }
+    }
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    //Checks programs on the given executor, which is not shut down by close
+    public BulkFrontEnd(ExecutorService executor){
+        this(executor, false);
+    }
+
+    private BulkFrontEnd(ExecutorService executor, boolean ownsExecutor){
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    //Checks programs on a pool of the given number of threads
+    public static BulkFrontEnd withThreads(int threads){
+        return new BulkFrontEnd(Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "PLCLang front end");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    //Checks programs on a pool with a thread per available processor
+    public static BulkFrontEnd withAvailableProcessors(){
+        return withThreads(Runtime.getRuntime().availableProcessors());
+    }
+
+    //Checks each program on a virtual thread of its own. Throws UnsupportedOperationException if the JVM has no
+    //virtual threads (before Java 21)
+    public static BulkFrontEnd withVirtualThreads(){
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new BulkFrontEnd(executor, true);
+        }
+        catch(NoSuchMethodException | IllegalAccessException | InvocationTargetException e){
+            throw new UnsupportedOperationException("Virtual threads are not available in Java " + Runtime.version().feature(), e);
+        }
+    }
+
+    //Checks all the inputs and returns their results once all of them are checked
+    public Report check(List<String> inputs) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Callable<Result>> tasks = new ArrayList<>(inputs.size());
+        for(int i = 0; i < inputs.size(); i++){
+            int index = i;
+            String input = inputs.get(i);
+            tasks.add(() -> check(index, input));
+        }
+        List<Result> results = new ArrayList<>(inputs.size());
+        for(Future<Result> future : executor.invokeAll(tasks)){
+            try {
+                results.add(future.get());
+            }
+            catch(ExecutionException e){
+                throw new IllegalStateException(e.getCause()); //check catches the exceptions of all phases
+            }
+        }
+        return new Report(results, System.nanoTime() - start);
+    }
+
+    //Checks one program, with the lexer scanning the whole input before the parser starts, so that each phase is
+    //timed on its own. The lexer reports an invalid token when the parser reaches it, so a LexicalException may be
+    //thrown in the parse phase.
+    public static Result check(int index, String input){
+        long[] nanos = new long[3]; //lex, parse, type check
+        int phase = 0;
+        long start = System.nanoTime();
+        try {
+            ILexer lexer = CompilerComponentFactory.getLexer(input);
+            nanos[phase++] = System.nanoTime() - start;
+            start = System.nanoTime();
+            Program program = (Program) new Parser(lexer).parse();
+            nanos[phase++] = System.nanoTime() - start;
+            start = System.nanoTime();
+            program.visit(CompilerComponentFactory.getTypeChecker(), null);
+            nanos[phase] = System.nanoTime() - start;
+            return new Result(index, program, null, nanos[0], nanos[1], nanos[2]);
+        }
+        catch(Exception e){
+            nanos[phase] = System.nanoTime() - start;
+            return new Result(index, null, e, nanos[0], nanos[1], nanos[2]);
+        }
+    }
+
+    //Shuts down the executor if it was created by this BulkFrontEnd
+    @Override
+    public void close(){
+        if(ownsExecutor){
+            executor.shutdown();
+        }
+    }
+}
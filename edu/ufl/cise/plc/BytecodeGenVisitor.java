@@ -0,0 +1,1198 @@
+package edu.ufl.cise.plc;
+
+import edu.ufl.cise.plc.ClassFileWriter.Code;
+import edu.ufl.cise.plc.ClassFileWriter.Label;
+import edu.ufl.cise.plc.JavaTypes.NullType;
+import edu.ufl.cise.plc.JavaTypes.Unsupported;
+import edu.ufl.cise.plc.ast.*;
+import edu.ufl.cise.plc.runtime.ColorTuple;
+import edu.ufl.cise.plc.runtime.ColorTupleFloat;
+import edu.ufl.cise.plc.runtime.ConsoleIO;
+import edu.ufl.cise.plc.runtime.FileURLIO;
+import edu.ufl.cise.plc.runtime.ImageOps;
+import edu.ufl.cise.plc.runtime.ImageRaster;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Generates the class file of a program directly, without generating Java source and running the Java compiler.
+//Each visit method produces the bytecode that javac produces for the code generated by the same method of
+//CodeGenVisitor, calling the same runtime methods. Method calls are resolved against the runtime classes with the
+//rules javac applies to the generated source, so overloads, numeric promotion and boxing are the same.
+//visitProgram returns the class file, or null if the program uses something this generator does not handle: console
+//input, parallel pixel loops, or generated Java code that javac would reject. Those programs should be compiled
+//from the Java code generated by CodeGenVisitor.
+public class BytecodeGenVisitor implements ASTVisitor {
+    private static final int ACONST_NULL = 1, ICONST_0 = 3, FCONST_0 = 11, BIPUSH = 16, SIPUSH = 17, LDC = 18, LDC_W = 19,
+            ILOAD = 21, FLOAD = 23, ALOAD = 25, ISTORE = 54, FSTORE = 56, ASTORE = 58, POP = 87, POP2 = 88, DUP = 89,
+            IADD = 96, FADD = 98, ISUB = 100, FSUB = 102, IMUL = 104, FMUL = 106, IDIV = 108, FDIV = 110, IREM = 112,
+            FREM = 114, INEG = 116, FNEG = 118, IAND = 126, IOR = 128, IXOR = 130, I2L = 133, I2F = 134, I2D = 135,
+            F2I = 139, F2D = 141, FCMPL = 149, FCMPG = 150, IFEQ = 153, IFNE = 154, IFLT = 155, IFGE = 156, IFGT = 157,
+            IFLE = 158, IF_ICMPEQ = 159, IF_ICMPNE = 160, IF_ICMPLT = 161, IF_ICMPGE = 162, IF_ICMPGT = 163,
+            IF_ICMPLE = 164, IF_ACMPEQ = 165, IF_ACMPNE = 166, GOTO = 167, IRETURN = 172, FRETURN = 174, ARETURN = 176,
+            RETURN = 177, GETSTATIC = 178, INVOKEVIRTUAL = 182, INVOKESPECIAL = 183, INVOKESTATIC = 184, NEW = 187,
+            CHECKCAST = 192;
+
+    Map<Types.Type, Class<?>> javaType = Map.of(
+            Types.Type.INT, int.class,
+            Types.Type.BOOLEAN, boolean.class,
+            Types.Type.STRING, String.class,
+            Types.Type.VOID, void.class,
+            Types.Type.FLOAT, float.class,
+            Types.Type.COLOR, ColorTuple.class,
+            Types.Type.COLORFLOAT, ColorTupleFloat.class,
+            Types.Type.IMAGE, BufferedImage.class
+    );
+
+    Map<Types.Type, Class<?>> boxedType = Map.of(
+            Types.Type.INT, Integer.class,
+            Types.Type.STRING, String.class,
+            Types.Type.BOOLEAN, Boolean.class,
+            Types.Type.FLOAT, Float.class,
+            Types.Type.COLOR, ColorTuple.class
+    );
+
+    Map<String, String> opStr = Map.of(
+            "+", "PLUS",
+            "-", "MINUS",
+            "*", "TIMES",
+            "/", "DIV",
+            "%", "MOD",
+            "getRed", "Red",
+            "getGreen", "Green",
+            "getBlue", "Blue"
+    );
+
+    private interface Emitter {
+        void emit() throws Exception;
+    }
+
+    //Code that leaves one value of the given Java type on the stack, or none if type is void
+    private record Value(Code code, Class<?> type) {
+    }
+
+    private record Local(int slot, Class<?> type) {
+    }
+
+    //the local variables holding the pixels and size of an image hoisted out of a pixel loop
+    private record Hoisted(Local pixels, Local width, Local height) {
+    }
+
+    private final String packageName;
+    private final CodeGenOptions options;
+
+    ClassFileWriter classFile;
+    //the body of apply; expressions are generated as separate Values and appended to it
+    Code code;
+    //local variables in scope, and those that are definitely assigned
+    Map<String, Local> locals = new HashMap<>();
+    Set<String> assigned = new HashSet<>();
+    int maxLocals = 0;
+    Class<?> returnType;
+    boolean returned = false;
+
+    List<NameDef> params = new ArrayList<>();
+    //names declared in the program, which CodeGenVisitor avoids when naming hoisted arrays
+    Set<String> programNames = new HashSet<>();
+    //images whose pixels are read through hoisted arrays inside the current pixel loop
+    Map<String, Hoisted> hoisted = new HashMap<>();
+
+    public BytecodeGenVisitor(String packageName){
+        this(packageName, CodeGenOptions.DEFAULT);
+    }
+
+    public BytecodeGenVisitor(String packageName, CodeGenOptions options){
+        this.packageName = packageName;
+        this.options = options;
+    }
+
+    private Value value(Expr expr) throws Exception {
+        return (Value) expr.visit(this, null);
+    }
+
+    private static Value constant(Code code, Class<?> type){
+        return new Value(code, type);
+    }
+
+    private Value intConstant(int value){
+        Code c = new Code();
+        if(value >= -1 && value <= 5){
+            c.op(ICONST_0 + value, 1);
+        }
+        else if(value == (byte) value){
+            c.op1(BIPUSH, value & 0xff, 1);
+        }
+        else if(value == (short) value){
+            c.op2(SIPUSH, value & 0xffff, 1);
+        }
+        else{
+            ldc(c, classFile.integer(value));
+        }
+        return constant(c, int.class);
+    }
+
+    private Value floatConstant(float value){
+        Code c = new Code();
+        int bits = Float.floatToRawIntBits(value);
+        if(bits == Float.floatToRawIntBits(0f) || value == 1f || value == 2f){
+            c.op(FCONST_0 + (int) value, 1);
+        }
+        else{
+            ldc(c, classFile.floatConstant(value));
+        }
+        return constant(c, float.class);
+    }
+
+    private Value stringConstant(String value){
+        Code c = new Code();
+        ldc(c, classFile.string(value));
+        return constant(c, String.class);
+    }
+
+    private static void ldc(Code c, int index){
+        if(index <= 0xff){
+            c.op1(LDC, index, 1);
+        }
+        else{
+            c.op2(LDC_W, index, 1);
+        }
+    }
+
+    private static Value nullConstant(){
+        return constant(new Code().op(ACONST_NULL, 1), NullType.class);
+    }
+
+    private static int size(Class<?> type){
+        return type == void.class ? 0 : type == long.class || type == double.class ? 2 : 1;
+    }
+
+    private static String internalName(Class<?> type){
+        return type.getName().replace('.', '/');
+    }
+
+    private Local newLocal(Class<?> type) throws Unsupported {
+        int slot = maxLocals;
+        if(slot > 0xff){
+            throw new Unsupported("too many local variables");
+        }
+        maxLocals += size(type);
+        return new Local(slot, type);
+    }
+
+    //Declares a variable of the generated code
+    private Local declare(String name, Class<?> type) throws Unsupported {
+        JavaTypes.checkName(name);
+        if(locals.containsKey(name)){
+            throw new Unsupported("variable already defined: " + name);
+        }
+        Local local = newLocal(type);
+        locals.put(name, local);
+        return local;
+    }
+
+    private static int loadOpcode(Class<?> type){
+        return type == float.class ? FLOAD : type.isPrimitive() ? ILOAD : ALOAD;
+    }
+
+    private static Value load(Local local){
+        return constant(new Code().op1(loadOpcode(local.type()), local.slot(), 1), local.type());
+    }
+
+    private static void store(Code code, Local local){
+        int opcode = local.type() == float.class ? FSTORE : local.type().isPrimitive() ? ISTORE : ASTORE;
+        code.op1(opcode, local.slot(), -1);
+    }
+
+    //Reads a variable, which javac requires to be definitely assigned
+    private Value variable(String name) throws Unsupported {
+        Local local = locals.get(name);
+        if(local == null || !assigned.contains(name)){
+            throw new Unsupported("variable not defined or not assigned: " + name);
+        }
+        return load(local);
+    }
+
+    //Generates the statement name = value;
+    private void assign(String name, Value value) throws Unsupported {
+        Local local = locals.get(name);
+        if(local == null){
+            throw new Unsupported("variable not defined: " + name);
+        }
+        code.append(convert(value, local.type()).code());
+        store(code, local);
+        assigned.add(name);
+    }
+
+    //Generates an expression statement, discarding its value
+    private void discard(Value value){
+        code.append(value.code());
+        if(size(value.type()) == 1){
+            code.op(POP, -1);
+        }
+        else if(size(value.type()) == 2){
+            code.op(POP2, -2);
+        }
+    }
+
+    private static void widen(Code c, Class<?> from, Class<?> to) throws Unsupported {
+        if(from == to){
+            return;
+        }
+        if(from == int.class && to == float.class){
+            c.op(I2F, 0);
+        }
+        else if(from == int.class && to == long.class){
+            c.op(I2L, 1);
+        }
+        else if(from == int.class && to == double.class){
+            c.op(I2D, 1);
+        }
+        else if(from == float.class && to == double.class){
+            c.op(F2D, 1);
+        }
+        else{
+            throw new Unsupported("conversion from " + from + " to " + to);
+        }
+    }
+
+    //Converts value to type as in an assignment or method invocation context
+    private Value convert(Value value, Class<?> to) throws Unsupported {
+        Class<?> from = value.type();
+        if(!JavaTypes.convertible(from, to, true)){
+            throw new Unsupported("cannot convert " + from + " to " + to);
+        }
+        if(from == to || from == NullType.class || (!from.isPrimitive() && !to.isPrimitive())){
+            return new Value(value.code(), to);
+        }
+        Code c = new Code().append(value.code());
+        if(from.isPrimitive() && to.isPrimitive()){
+            widen(c, from, to);
+        }
+        else if(from.isPrimitive()){
+            Class<?> box = JavaTypes.BOXES.get(from);
+            c.op2(INVOKESTATIC, classFile.methodRef(internalName(box), "valueOf",
+                    MethodType.methodType(box, from).toMethodDescriptorString()), 1 - size(from));
+        }
+        else{
+            Class<?> primitive = JavaTypes.unboxed(from);
+            c.op2(INVOKEVIRTUAL, classFile.methodRef(internalName(from), primitive.getName() + "Value",
+                    MethodType.methodType(primitive).toMethodDescriptorString()), size(primitive) - 1);
+            widen(c, primitive, to);
+        }
+        return new Value(c, to);
+    }
+
+    //Casts a value to the type generated by CodeGenVisitor for to, as in (float) x. Only casts between int and float,
+    //and casts that do not change the type, are generated.
+    private Value cast(Value value, Types.Type to) throws Unsupported {
+        Class<?> type = javaType.get(to);
+        if(type == null || to == Types.Type.VOID){
+            throw new Unsupported("cast to " + to);
+        }
+        if(value.type() == type){
+            return value;
+        }
+        if(value.type() == int.class && type == float.class){
+            return new Value(new Code().append(value.code()).op(I2F, 0), float.class);
+        }
+        if(value.type() == float.class && type == int.class){
+            return new Value(new Code().append(value.code()).op(F2I, 0), int.class);
+        }
+        throw new Unsupported("cast from " + value.type() + " to " + type);
+    }
+
+    //Method resolution (JLS 15.12.2), without variable arity invocation
+
+    private static Class<?>[] types(Value[] args){
+        Class<?>[] types = new Class<?>[args.length];
+        for(int i = 0; i < args.length; i++){
+            types[i] = args[i].type();
+        }
+        return types;
+    }
+
+    //Appends the arguments, converted to the parameter types of the resolved method
+    private Code arguments(Code c, Executable executable, Value[] args) throws Unsupported {
+        Class<?>[] parameters = executable.getParameterTypes();
+        for(int i = 0; i < args.length; i++){
+            c.append(convert(args[i], parameters[i]).code());
+        }
+        return c;
+    }
+
+    private static int argumentSize(Executable executable){
+        return Arrays.stream(executable.getParameterTypes()).mapToInt(BytecodeGenVisitor::size).sum();
+    }
+
+    private Value invokeStatic(Class<?> owner, String name, Value... args) throws Unsupported {
+        List<Method> candidates = Arrays.stream(owner.getMethods()).filter(m -> m.getName().equals(name)).toList();
+        Method method = JavaTypes.resolve(candidates, types(args));
+        if(!Modifier.isStatic(method.getModifiers())){
+            throw new Unsupported("not a static method: " + name);
+        }
+        Code c = arguments(new Code(), method, args);
+        String descriptor = MethodType.methodType(method.getReturnType(), method.getParameterTypes()).toMethodDescriptorString();
+        c.op2(INVOKESTATIC, classFile.methodRef(internalName(owner), name, descriptor),
+                size(method.getReturnType()) - argumentSize(method));
+        return new Value(c, method.getReturnType());
+    }
+
+    private Value invokeVirtual(Value receiver, String name, Value... args) throws Unsupported {
+        Class<?> owner = receiver.type();
+        if(owner.isPrimitive() || owner.isInterface() || owner == NullType.class){
+            throw new Unsupported("cannot invoke " + name + " on " + owner);
+        }
+        List<Method> candidates = Arrays.stream(owner.getMethods()).filter(m -> m.getName().equals(name)).toList();
+        Method method = JavaTypes.resolve(candidates, types(args));
+        if(Modifier.isStatic(method.getModifiers())){
+            throw new Unsupported("static method invoked on a value: " + name);
+        }
+        Code c = arguments(new Code().append(receiver.code()), method, args);
+        String descriptor = MethodType.methodType(method.getReturnType(), method.getParameterTypes()).toMethodDescriptorString();
+        c.op2(INVOKEVIRTUAL, classFile.methodRef(internalName(owner), name, descriptor),
+                size(method.getReturnType()) - argumentSize(method) - 1);
+        return new Value(c, method.getReturnType());
+    }
+
+    private Value construct(Class<?> type, Value... args) throws Unsupported {
+        java.lang.reflect.Constructor<?> constructor = JavaTypes.resolve(Arrays.asList(type.getConstructors()), types(args));
+        Code c = new Code().op2(NEW, classFile.classRef(internalName(type)), 1).op(DUP, 1);
+        arguments(c, constructor, args);
+        String descriptor = MethodType.methodType(void.class, constructor.getParameterTypes()).toMethodDescriptorString();
+        c.op2(INVOKESPECIAL, classFile.methodRef(internalName(type), "<init>", descriptor),
+                -argumentSize(constructor) - 1);
+        return new Value(c, type);
+    }
+
+    private Value staticField(Class<?> owner, String name) throws Unsupported {
+        Field field;
+        try {
+            field = owner.getField(name);
+        } catch (NoSuchFieldException e) {
+            throw new Unsupported("no field " + name);
+        }
+        if(!Modifier.isStatic(field.getModifiers())){
+            throw new Unsupported("not a static field: " + name);
+        }
+        Code c = new Code().op2(GETSTATIC, classFile.fieldRef(internalName(owner), name,
+                field.getType().descriptorString()), size(field.getType()));
+        return new Value(c, field.getType());
+    }
+
+    //Generates Color.name.getRGB()
+    private Value colorRGB(String name) throws Unsupported {
+        Value color = staticField(Color.class, name);
+        if(color.type() != Color.class){
+            throw new Unsupported("not a color: " + name);
+        }
+        return invokeVirtual(color, "getRGB");
+    }
+
+    private Value opConstant(String op) throws Unsupported {
+        String name = opStr.get(op);
+        if(name == null){
+            throw new Unsupported("no ImageOps.OP for " + op);
+        }
+        return staticField(ImageOps.OP.class, name);
+    }
+
+    private static Value not(Value value) throws Unsupported {
+        if(value.type() != boolean.class){
+            throw new Unsupported("! applied to " + value.type());
+        }
+        return new Value(new Code().append(value.code()).op(ICONST_0 + 1, 1).op(IXOR, -1), boolean.class);
+    }
+
+    //Generates code that leaves true on the stack if the given conditional branch is taken, and false otherwise
+    private static Value condition(Code c, int branchOpcode, int stackDelta){
+        Label isTrue = new Label();
+        Label end = new Label();
+        int depth = c.depth() + stackDelta;
+        c.branch(branchOpcode, isTrue, stackDelta);
+        c.op(ICONST_0, 1);
+        c.branch(GOTO, end, 0);
+        c.place(isTrue);
+        c.setDepth(depth);
+        c.op(ICONST_0 + 1, 1);
+        c.place(end);
+        return new Value(c, boolean.class);
+    }
+
+    //Generates left op right with the Java meaning of op (JLS 15.17 to 15.22); & and | are not short circuit
+    private Value javaBinary(String op, Value left, Value right) throws Unsupported {
+        Class<?> l = left.type();
+        Class<?> r = right.type();
+        boolean numeric = (l == int.class || l == float.class) && (r == int.class || r == float.class);
+        Class<?> promoted = l == float.class || r == float.class ? float.class : int.class;
+        Code c = new Code();
+        if(numeric){
+            c.append(left.code());
+            widen(c, l, promoted);
+            c.append(right.code());
+            widen(c, r, promoted);
+            boolean isFloat = promoted == float.class;
+            switch(op){
+                case "+" -> { return new Value(c.op(isFloat ? FADD : IADD, -1), promoted); }
+                case "-" -> { return new Value(c.op(isFloat ? FSUB : ISUB, -1), promoted); }
+                case "*" -> { return new Value(c.op(isFloat ? FMUL : IMUL, -1), promoted); }
+                case "/" -> { return new Value(c.op(isFloat ? FDIV : IDIV, -1), promoted); }
+                case "%" -> { return new Value(c.op(isFloat ? FREM : IREM, -1), promoted); }
+                case "&", "|" -> {
+                    if(isFloat){
+                        throw new Unsupported(op + " applied to float");
+                    }
+                    return new Value(c.op(op.equals("&") ? IAND : IOR, -1), int.class);
+                }
+            }
+            int intBranch;
+            int floatBranch;
+            int compare = FCMPL;
+            switch(op){
+                case "<" -> { intBranch = IF_ICMPLT; floatBranch = IFLT; compare = FCMPG; }
+                case "<=" -> { intBranch = IF_ICMPLE; floatBranch = IFLE; compare = FCMPG; }
+                case ">" -> { intBranch = IF_ICMPGT; floatBranch = IFGT; }
+                case ">=" -> { intBranch = IF_ICMPGE; floatBranch = IFGE; }
+                case "==" -> { intBranch = IF_ICMPEQ; floatBranch = IFEQ; }
+                case "!=" -> { intBranch = IF_ICMPNE; floatBranch = IFNE; }
+                default -> throw new Unsupported("operator " + op);
+            }
+            if(isFloat){
+                c.op(compare, -1);
+                return condition(c, floatBranch, -1);
+            }
+            return condition(c, intBranch, -2);
+        }
+        c.append(left.code()).append(right.code());
+        if(l == boolean.class && r == boolean.class){
+            switch(op){
+                case "&" -> { return new Value(c.op(IAND, -1), boolean.class); }
+                case "|" -> { return new Value(c.op(IOR, -1), boolean.class); }
+                case "==" -> { return condition(c, IF_ICMPEQ, -2); }
+                case "!=" -> { return condition(c, IF_ICMPNE, -2); }
+            }
+        }
+        else if(!l.isPrimitive() && !r.isPrimitive() && l != NullType.class && (l.isAssignableFrom(r) || r.isAssignableFrom(l))
+                && JavaTypes.unboxed(l) == null && JavaTypes.unboxed(r) == null){
+            switch(op){
+                case "==" -> { return condition(c, IF_ACMPEQ, -2); }
+                case "!=" -> { return condition(c, IF_ACMPNE, -2); }
+            }
+        }
+        throw new Unsupported("operator " + op + " applied to " + l + " and " + r);
+    }
+
+    @Override
+    public Object visitBooleanLitExpr(BooleanLitExpr booleanLitExpr, Object arg) throws Exception {
+        Value value = intConstant(booleanLitExpr.getValue() ? 1 : 0);
+        return new Value(value.code(), boolean.class);
+    }
+
+    @Override
+    public Object visitStringLitExpr(StringLitExpr stringLitExpr, Object arg) throws Exception {
+        //CodeGenVisitor generates a text block. Its value is the text with line terminators normalized and incidental
+        //white space removed, unless the text contains escapes or quotes that would change or end the text block.
+        String text = stringLitExpr.getValue();
+        if(text.contains("\\") || text.contains("\"\"\"") || text.endsWith("\"")){
+            throw new Unsupported("text block");
+        }
+        return stringConstant(text.replace("\r\n", "\n").replace('\r', '\n').stripIndent());
+    }
+
+    @Override
+    public Object visitIntLitExpr(IntLitExpr intLitExpr, Object arg) throws Exception {
+        int value = intLitExpr.getValue();
+        if(!intLitExpr.getText().equals(Integer.toString(value))){
+            throw new Unsupported("int literal " + intLitExpr.getText());
+        }
+        if(intLitExpr.getCoerceTo() != null && intLitExpr.getCoerceTo() == Types.Type.COLOR){
+            return construct(ColorTuple.class, intConstant(value));
+        }
+        if(intLitExpr.getCoerceTo() != null && intLitExpr.getCoerceTo() != Types.Type.INT){
+            return cast(intConstant(value), intLitExpr.getCoerceTo());
+        }
+        return intConstant(value);
+    }
+
+    @Override
+    public Object visitFloatLitExpr(FloatLitExpr floatLitExpr, Object arg) throws Exception {
+        float value = floatLitExpr.getValue();
+        if(Float.isInfinite(value) || Float.isNaN(value)){
+            throw new Unsupported("float literal " + floatLitExpr.getText());
+        }
+        if(floatLitExpr.getCoerceTo() != null && floatLitExpr.getCoerceTo() == Types.Type.COLORFLOAT){
+            //the text of the literal is used, which javac rejects if it is not a decimal or rounds to zero
+            String text = floatLitExpr.getText();
+            if(!text.matches("[0-9]+\\.[0-9]+") || (value == 0 && text.matches(".*[1-9].*"))){
+                throw new Unsupported("float literal " + text);
+            }
+            return construct(ColorTupleFloat.class, floatConstant(value));
+        }
+        if(floatLitExpr.getCoerceTo() != null && floatLitExpr.getCoerceTo() != Types.Type.FLOAT){
+            return cast(floatConstant(value), floatLitExpr.getCoerceTo());
+        }
+        return floatConstant(value);
+    }
+
+    @Override
+    public Object visitColorConstExpr(ColorConstExpr colorConstExpr, Object arg) throws Exception {
+        return invokeStatic(ColorTuple.class, "unpack", colorRGB(colorConstExpr.getFirstToken().getText()));
+    }
+
+    @Override
+    public Object visitConsoleExpr(ConsoleExpr consoleExpr, Object arg) throws Exception {
+        throw new Unsupported("console input");
+    }
+
+    @Override
+    public Object visitColorExpr(ColorExpr colorExpr, Object arg) throws Exception {
+        Class<?> type;
+        if(colorExpr.getType() == Types.Type.COLOR){
+            type = ColorTuple.class;
+        }
+        else if(colorExpr.getType() == Types.Type.COLORFLOAT){
+            type = ColorTupleFloat.class;
+        }
+        else{
+            throw new Unsupported("color expression of type " + colorExpr.getType());
+        }
+        Value red = value(colorExpr.getRed());
+        Value green = value(colorExpr.getGreen());
+        Value blue = value(colorExpr.getBlue());
+        return construct(type, red, green, blue);
+    }
+
+    @Override
+    public Object visitUnaryExpr(UnaryExpr unaryExpression, Object arg) throws Exception {
+        String op = unaryExpression.getOp().getText();
+        Expr expr = unaryExpression.getExpr();
+        if(unaryExpression.getOp().getKind() == IToken.Kind.COLOR_OP){
+            if(expr.getType() == Types.Type.IMAGE){
+                return invokeStatic(ImageOps.class, "extract" + opStr.get(op), value(expr));
+            }
+            if(expr.getType() == Types.Type.INT || expr.getType() == Types.Type.COLOR){
+                return invokeStatic(ColorTuple.class, op, value(expr));
+            }
+        }
+
+        if(unaryExpression.getOp().getKind() == IToken.Kind.IMAGE_OP){
+            return invokeVirtual(value(expr), op.equals("getWidth") ? "getWidth" : "getHeight");
+        }
+
+        //the operator is followed directly by the text of the operand, so - followed by another - would be --
+        if(op.equals("-") && expr instanceof UnaryExpr){
+            throw new Unsupported("nested unary minus");
+        }
+        Value operand = value(expr);
+        Value result;
+        if(op.equals("-") && (operand.type() == int.class || operand.type() == float.class)){
+            result = new Value(new Code().append(operand.code()).op(operand.type() == int.class ? INEG : FNEG, 0),
+                    operand.type());
+        }
+        else if(op.equals("!")){
+            result = not(operand);
+        }
+        else{
+            throw new Unsupported("unary " + op + " applied to " + operand.type());
+        }
+        if(unaryExpression.getCoerceTo() != null){
+            return cast(result, unaryExpression.getCoerceTo());
+        }
+        return result;
+    }
+
+    @Override
+    public Object visitBinaryExpr(BinaryExpr binaryExpr, Object arg) throws Exception {
+        String op = binaryExpr.getOp().getText();
+        IToken.Kind kind = binaryExpr.getOp().getKind();
+        Types.Type left = binaryExpr.getLeft().getType();
+        Types.Type right = binaryExpr.getRight().getType();
+
+        //For colors
+        if(binaryExpr.getType() == Types.Type.COLOR || binaryExpr.getType() == Types.Type.COLORFLOAT){
+            Value operation = opConstant(op);
+            return invokeStatic(ImageOps.class, "binaryTupleOp", operation, value(binaryExpr.getLeft()),
+                    value(binaryExpr.getRight()));
+        }
+
+        if(binaryExpr.getType() == Types.Type.IMAGE){
+            if(left == Types.Type.IMAGE && (right == Types.Type.INT || right == Types.Type.IMAGE)){
+                Value operation = opConstant(op);
+                String method = right == Types.Type.INT ? "binaryImageScalarOp" : "binaryImageImageOp";
+                return invokeStatic(ImageOps.class, method, operation, value(binaryExpr.getLeft()),
+                        value(binaryExpr.getRight()));
+            }
+            throw new Unsupported("image operation with " + right);
+        }
+
+        //For comparing colors
+        if(left == Types.Type.COLOR && right == Types.Type.COLOR && binaryExpr.getType() == Types.Type.BOOLEAN){
+            if(kind == IToken.Kind.EQUALS || kind == IToken.Kind.NOT_EQUALS){
+                Value equals = invokeVirtual(value(binaryExpr.getLeft()), "equals", value(binaryExpr.getRight()));
+                return kind == IToken.Kind.EQUALS ? equals : not(equals);
+            }
+        }
+
+        if(left == Types.Type.IMAGE && right == Types.Type.IMAGE && binaryExpr.getType() == Types.Type.BOOLEAN){
+            if(kind == IToken.Kind.EQUALS || kind == IToken.Kind.NOT_EQUALS){
+                Value equals = invokeStatic(ImageOps.class, "equals", value(binaryExpr.getLeft()),
+                        value(binaryExpr.getRight()));
+                return kind == IToken.Kind.EQUALS ? equals : not(equals);
+            }
+            throw new Unsupported("image comparison " + op);
+        }
+
+        Types.Type castTo = null;
+        if(binaryExpr.getCoerceTo() != null){
+            if(binaryExpr.getCoerceTo() == Types.Type.COLOR){
+                Value operation = javaBinary(op, value(binaryExpr.getLeft()), value(binaryExpr.getRight()));
+                return construct(ColorTuple.class, operation);
+            }
+            castTo = binaryExpr.getCoerceTo();
+        }
+        Value result;
+        if(left == Types.Type.STRING && right == Types.Type.STRING){
+            if(kind != IToken.Kind.EQUALS && kind != IToken.Kind.NOT_EQUALS){
+                throw new Unsupported("string operator " + op);
+            }
+            Value equals = invokeVirtual(value(binaryExpr.getLeft()), "equals", value(binaryExpr.getRight()));
+            result = kind == IToken.Kind.EQUALS ? equals : not(equals);
+        }
+        else{
+            result = javaBinary(op, value(binaryExpr.getLeft()), value(binaryExpr.getRight()));
+        }
+        return castTo == null ? result : cast(result, castTo);
+    }
+
+    @Override
+    public Object visitIdentExpr(IdentExpr identExpr, Object arg) throws Exception {
+        Value variable = variable(identExpr.getText());
+        Types.Type type = identExpr.getType();
+        Types.Type coerceTo = identExpr.getCoerceTo();
+        if(coerceTo != null && (coerceTo == Types.Type.COLOR || coerceTo == Types.Type.COLORFLOAT)){
+            if(type == Types.Type.COLOR && coerceTo == Types.Type.COLORFLOAT){
+                return construct(ColorTupleFloat.class, variable);
+            }
+            if(type == Types.Type.COLORFLOAT && coerceTo == Types.Type.COLORFLOAT){
+                return construct(ColorTuple.class, variable);
+            }
+            return variable;
+        }
+        if(type == Types.Type.COLOR && coerceTo == Types.Type.INT){
+            return variable;
+        }
+        if(coerceTo != null && coerceTo != type){
+            return cast(variable, coerceTo);
+        }
+        return variable;
+    }
+
+    @Override
+    public Object visitConditionalExpr(ConditionalExpr conditionalExpr, Object arg) throws Exception {
+        Value condition = value(conditionalExpr.getCondition());
+        Value trueCase = value(conditionalExpr.getTrueCase());
+        Value falseCase = value(conditionalExpr.getFalseCase());
+        if(condition.type() != boolean.class){
+            throw new Unsupported("condition of type " + condition.type());
+        }
+        Class<?> type;
+        if(trueCase.type() == falseCase.type() && trueCase.type() != NullType.class){
+            type = trueCase.type();
+        }
+        else if((trueCase.type() == int.class || trueCase.type() == float.class)
+                && (falseCase.type() == int.class || falseCase.type() == float.class)){
+            type = float.class;
+        }
+        else{
+            throw new Unsupported("conditional of " + trueCase.type() + " and " + falseCase.type());
+        }
+        Label isFalse = new Label();
+        Label end = new Label();
+        Code c = new Code().append(condition.code());
+        c.branch(IFEQ, isFalse, -1);
+        c.append(trueCase.code());
+        widen(c, trueCase.type(), type);
+        c.branch(GOTO, end, 0);
+        c.place(isFalse);
+        c.setDepth(0);
+        c.append(falseCase.code());
+        widen(c, falseCase.type(), type);
+        c.place(end);
+        Value result = new Value(c, type);
+        if(conditionalExpr.getCoerceTo() != null){
+            return cast(result, conditionalExpr.getCoerceTo());
+        }
+        return result;
+    }
+
+    @Override
+    public Object visitDimension(Dimension dimension, Object arg) throws Exception {
+        return new Value[]{value(dimension.getWidth()), value(dimension.getHeight())};
+    }
+
+    //Generates new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+    private Value newImage(Dimension dimension) throws Exception {
+        Value[] size = (Value[]) dimension.visit(this, null);
+        return construct(BufferedImage.class, size[0], size[1], staticField(BufferedImage.class, "TYPE_INT_RGB"));
+    }
+
+    @Override
+    public Object visitPixelSelector(PixelSelector pixelSelector, Object arg) throws Exception {
+        return new Value[]{value(pixelSelector.getX()), value(pixelSelector.getY())};
+    }
+
+    //Generates for(int x = 0; x < bound; x++) body, where bound is evaluated before every iteration
+    private void forLoop(String x, Local variable, Emitter bound, Emitter body) throws Exception {
+        Label test = new Label();
+        Label end = new Label();
+        code.op(ICONST_0, 1);
+        store(code, variable);
+        locals.put(x, variable);
+        assigned.add(x);
+        code.place(test);
+        code.append(load(variable).code());
+        bound.emit();
+        code.branch(IF_ICMPGE, end, -2);
+        body.emit();
+        code.iinc(variable.slot(), 1);
+        code.branch(GOTO, test, 0);
+        code.place(end);
+        locals.remove(x);
+        assigned.remove(x);
+    }
+
+    //Checks that the loop variables can be declared
+    private void checkLoopVariables(String x, String y) throws Unsupported {
+        JavaTypes.checkName(x);
+        JavaTypes.checkName(y);
+        if(locals.containsKey(x) || locals.containsKey(y) || x.equals(y)){
+            throw new Unsupported("loop variable already defined");
+        }
+    }
+
+    //Generates the loops CodeGenVisitor generates when the expression cannot be evaluated against hoisted arrays:
+    //ImageOps.setColor(target, x, y, expr) for every pixel, column by column.
+    private void imageLoop(String target, String x, String y, Expr expr, boolean wrapColorTuple) throws Exception {
+        checkLoopVariables(x, y);
+        Local xLocal = newLocal(int.class);
+        Local yLocal = newLocal(int.class);
+        Value image = variable(target);
+        forLoop(x, xLocal, () -> code.append(invokeVirtual(image, "getWidth").code()), () ->
+            forLoop(y, yLocal, () -> code.append(invokeVirtual(image, "getHeight").code()), () -> {
+                Value color = value(expr);
+                if(wrapColorTuple){
+                    color = construct(ColorTuple.class, color);
+                }
+                discard(invokeStatic(ImageOps.class, "setColor", image, load(xLocal), load(yLocal), color));
+            }));
+    }
+
+    //Returns a prefix for the local variables holding the hoisted pixels and size of the given image, as
+    //CodeGenVisitor names them
+    private String hoistPrefix(String image){
+        String prefix = image + "$";
+        while(programNames.contains(prefix + "px") || programNames.contains(prefix + "w")
+                || programNames.contains(prefix + "h") || programNames.contains(prefix + "row")){
+            prefix = prefix + "$";
+        }
+        return prefix;
+    }
+
+    private Hoisted hoistImage(String image, Hoisted target, String targetName, boolean mayAlias) throws Exception {
+        Hoisted hoist = new Hoisted(newLocal(int[].class), newLocal(int.class), newLocal(int.class));
+        Value imageValue = variable(image);
+        Value pixels = invokeStatic(ImageRaster.class, "pixels", imageValue);
+        if(mayAlias){
+            //image == target ? target pixels : ImageRaster.pixels(image)
+            Label other = new Label();
+            Label end = new Label();
+            Code c = new Code().append(imageValue.code()).append(variable(targetName).code());
+            c.branch(IF_ACMPNE, other, -2);
+            c.append(load(target.pixels()).code());
+            c.branch(GOTO, end, 0);
+            c.place(other);
+            c.setDepth(0);
+            c.append(pixels.code());
+            c.place(end);
+            pixels = new Value(c, int[].class);
+        }
+        code.append(pixels.code());
+        store(code, hoist.pixels());
+        code.append(invokeVirtual(imageValue, "getWidth").code());
+        store(code, hoist.width());
+        code.append(invokeVirtual(imageValue, "getHeight").code());
+        store(code, hoist.height());
+        return hoist;
+    }
+
+    //Generates the loop CodeGenVisitor.pixelLoop generates, or returns false if CodeGenVisitor would not generate one.
+    private boolean pixelLoop(String target, Declaration targetDec, String x, String y, boolean selectorVisible,
+                              Expr expr, boolean wrapColorTuple) throws Exception {
+        PixelLoopAnalysis analysis = PixelLoopAnalysis.analyze(expr, target, targetDec,
+                selectorVisible ? x : null, selectorVisible ? y : null, params);
+        if(!analysis.supported){
+            return false;
+        }
+        if(options.parallelLoops() && analysis.rowMajor){
+            throw new Unsupported("parallel pixel loop");
+        }
+        checkLoopVariables(x, y);
+        //javac rejects the loop if two of the local variables it declares have the same name
+        Set<String> names = new HashSet<>(List.of(x, y));
+        List<String> images = new ArrayList<>();
+        images.add(target);
+        for(String image: analysis.images.keySet()){
+            if(!image.equals(target)){
+                images.add(image);
+            }
+        }
+        String t = hoistPrefix(target);
+        for(String image: images){
+            String prefix = hoistPrefix(image);
+            for(String suffix: List.of("px", "w", "h")){
+                if(!names.add(prefix + suffix)){
+                    throw new Unsupported("hoisted variable already defined: " + prefix + suffix);
+                }
+            }
+        }
+        if(analysis.rowMajor && !names.add(t + "row")){
+            throw new Unsupported("hoisted variable already defined: " + t + "row");
+        }
+
+        Hoisted th = hoistImage(target, null, target, false);
+        hoisted.put(target, th);
+        for(String image: images.subList(1, images.size())){
+            hoisted.put(image, hoistImage(image, th, target, analysis.mayAlias(image)));
+        }
+        Local xLocal = newLocal(int.class);
+        Local yLocal = newLocal(int.class);
+        if(analysis.rowMajor){
+            Local row = newLocal(int.class);
+            forLoop(y, yLocal, () -> code.append(load(th.height()).code()), () -> {
+                code.append(javaBinary("*", load(yLocal), load(th.width())).code());
+                store(code, row);
+                forLoop(x, xLocal, () -> code.append(load(th.width()).code()),
+                        () -> setPixel(th, javaBinary("+", load(row), load(xLocal)), expr, wrapColorTuple));
+            });
+        }
+        else{
+            forLoop(x, xLocal, () -> code.append(load(th.width()).code()), () ->
+                forLoop(y, yLocal, () -> code.append(load(th.height()).code()), () ->
+                    setPixel(th, javaBinary("+", javaBinary("*", load(yLocal), load(th.width())), load(xLocal)),
+                            expr, wrapColorTuple)));
+        }
+        discard(invokeStatic(ImageRaster.class, "commit", variable(target), load(th.pixels())));
+        hoisted.clear();
+        return true;
+    }
+
+    //Generates ImageOps.setColor(pixels, index, expr)
+    private void setPixel(Hoisted target, Value index, Expr expr, boolean wrapColorTuple) throws Exception {
+        Value color = value(expr);
+        if(wrapColorTuple){
+            color = construct(ColorTuple.class, color);
+        }
+        discard(invokeStatic(ImageOps.class, "setColor", load(target.pixels()), index, color));
+    }
+
+    @Override
+    public Object visitAssignmentStatement(AssignmentStatement assignmentStatement, Object arg) throws Exception {
+        String name = assignmentStatement.getName();
+        Declaration targetDec = assignmentStatement.getTargetDec();
+        Expr expr = assignmentStatement.getExpr();
+        if(assignmentStatement.getSelector() == null){
+            if(targetDec.getType() == Types.Type.IMAGE){
+                if(expr.getCoerceTo() == Types.Type.COLOR || expr.getType() == Types.Type.COLOR){
+                    if(!pixelLoop(name, targetDec, "xIdx", "yIdx", false, expr, false)){
+                        imageLoop(name, "xIdx", "yIdx", expr, false);
+                    }
+                }
+                else if(expr.getType() == Types.Type.IMAGE && expr.getCoerceTo() != Types.Type.INT){
+                    Value image = value(expr);
+                    if(targetDec.getDim() != null){
+                        Value target = variable(name);
+                        assign(name, invokeStatic(ImageOps.class, "resize", image, invokeVirtual(target, "getWidth"),
+                                invokeVirtual(target, "getHeight")));
+                    }
+                    else{
+                        assign(name, invokeStatic(ImageOps.class, "clone", image));
+                    }
+                }
+                //CodeGenVisitor generates an empty statement for other expressions
+                return null;
+            }
+            if(targetDec.getType() == Types.Type.COLOR && expr.getType() == Types.Type.INT
+                    && expr.getCoerceTo() == Types.Type.COLOR){
+                throw new Unsupported("assignment without semicolon");
+            }
+            if(targetDec.getType() == Types.Type.INT && expr.getType() == Types.Type.COLOR
+                    && expr.getCoerceTo() == Types.Type.INT && expr.getFirstToken().getKind() == IToken.Kind.COLOR_CONST){
+                assign(name, colorRGB(expr.getText()));
+                return null;
+            }
+            assign(name, value(expr));
+            return null;
+        }
+        PixelSelector selector = assignmentStatement.getSelector();
+        String x = selector.getX().getText();
+        String y = selector.getY().getText();
+        if(!pixelLoop(name, targetDec, x, y, true, expr, false)){
+            imageLoop(name, x, y, expr, false);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitWriteStatement(WriteStatement writeStatement, Object arg) throws Exception {
+        Types.Type source = writeStatement.getSource().getType();
+        Types.Type dest = writeStatement.getDest().getType();
+        if(source == Types.Type.IMAGE && dest == Types.Type.CONSOLE){
+            discard(invokeStatic(ConsoleIO.class, "displayImageOnScreen", value(writeStatement.getSource())));
+        }
+        else if(source == Types.Type.IMAGE && dest == Types.Type.STRING){
+            discard(invokeStatic(FileURLIO.class, "writeImage", value(writeStatement.getSource()),
+                    value(writeStatement.getDest())));
+        }
+        else if(dest == Types.Type.STRING){
+            discard(invokeStatic(FileURLIO.class, "writeValue", value(writeStatement.getSource()),
+                    value(writeStatement.getDest())));
+        }
+        else{
+            discard(invokeVirtual(staticField(ConsoleIO.class, "console"), "println", value(writeStatement.getSource())));
+        }
+        return null;
+    }
+
+    //Generates (Boxed) FileURLIO.readValueFromFile(source) for a variable of the given type
+    private Value readValue(Expr source, Types.Type type) throws Exception {
+        Class<?> boxed = boxedType.get(type);
+        if(boxed == null){
+            throw new Unsupported("reading a value of type " + type);
+        }
+        Value value = invokeStatic(FileURLIO.class, "readValueFromFile", value(source));
+        return new Value(new Code().append(value.code()).op2(CHECKCAST, classFile.classRef(internalName(boxed)), 0), boxed);
+    }
+
+    @Override
+    public Object visitReadStatement(ReadStatement readStatement, Object arg) throws Exception {
+        String name = readStatement.getName();
+        Declaration targetDec = readStatement.getTargetDec();
+        if(readStatement.getSource().getType() != Types.Type.STRING){
+            throw new Unsupported("console input");
+        }
+        if(targetDec.getType() == Types.Type.IMAGE){
+            Value source = value(readStatement.getSource());
+            if(targetDec.getDim() != null){
+                Value[] size = (Value[]) targetDec.getDim().visit(this, arg);
+                assign(name, invokeStatic(FileURLIO.class, "readImage", source, size[0], size[1]));
+            }
+            else{
+                assign(name, invokeStatic(FileURLIO.class, "readImage", source));
+            }
+            discard(invokeStatic(FileURLIO.class, "closeFiles"));
+        }
+        else{
+            assign(name, readValue(readStatement.getSource(), targetDec.getType()));
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitProgram(Program program, Object arg) throws Exception {
+        try {
+            return generate(program);
+        } catch (Unsupported | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private byte[] generate(Program program) throws Exception {
+        if(packageName.isEmpty()){
+            throw new Unsupported("no package");
+        }
+        for(String part: packageName.split("\\.", -1)){
+            if(part.isEmpty() || !Character.isJavaIdentifierStart(part.codePointAt(0))
+                    || !part.codePoints().allMatch(Character::isJavaIdentifierPart)){
+                throw new Unsupported("package name " + packageName);
+            }
+            JavaTypes.checkName(part);
+        }
+        JavaTypes.checkName(program.getName());
+        classFile = new ClassFileWriter(packageName.replace('.', '/') + '/' + program.getName());
+
+        //the default constructor javac generates
+        Code constructor = new Code().op1(ALOAD, 0, 1);
+        constructor.op2(INVOKESPECIAL, classFile.methodRef("java/lang/Object", "<init>", "()V"), -1).op(RETURN, 0);
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", constructor, 1);
+
+        params = program.getParams();
+        List<Class<?>> paramTypes = new ArrayList<>();
+        for(NameDef param: params){
+            programNames.add(param.getName());
+            param.visit(this, null);
+            assigned.add(param.getName());
+            paramTypes.add(javaType.get(param.getType()));
+        }
+        for(ASTNode node: program.getDecsAndStatements()){
+            if(node instanceof VarDeclaration declaration){
+                programNames.add(declaration.getName());
+            }
+        }
+        returnType = javaType.get(program.getReturnType());
+        if(returnType == null){
+            throw new Unsupported("return type " + program.getReturnType());
+        }
+
+        code = new Code();
+        for(ASTNode node: program.getDecsAndStatements()){
+            if(returned){
+                throw new Unsupported("unreachable statement");
+            }
+            node.visit(this, null);
+        }
+        if(!returned){
+            if(returnType != void.class){
+                throw new Unsupported("missing return statement");
+            }
+            code.op(RETURN, 0);
+        }
+        String descriptor = MethodType.methodType(returnType, paramTypes).toMethodDescriptorString();
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC, "apply", descriptor, code, maxLocals);
+        return classFile.toByteArray();
+    }
+
+    @Override
+    public Object visitNameDef(NameDef nameDef, Object arg) throws Exception {
+        Class<?> type = javaType.get(nameDef.getType());
+        if(type == null || type == void.class){
+            throw new Unsupported("variable of type " + nameDef.getType());
+        }
+        return declare(nameDef.getName(), type);
+    }
+
+    @Override
+    public Object visitNameDefWithDim(NameDefWithDim nameDefWithDim, Object arg) throws Exception {
+        return visitNameDef(nameDefWithDim, arg);
+    }
+
+    @Override
+    public Object visitReturnStatement(ReturnStatement returnStatement, Object arg) throws Exception {
+        if(returnType == void.class){
+            throw new Unsupported("return with a value in a void program");
+        }
+        code.append(convert(value(returnStatement.getExpr()), returnType).code());
+        code.op(returnType == float.class ? FRETURN : returnType.isPrimitive() ? IRETURN : ARETURN, -1);
+        returned = true;
+        return null;
+    }
+
+    @Override
+    public Object visitVarDeclaration(VarDeclaration declaration, Object arg) throws Exception {
+        String name = declaration.getName();
+        declaration.getNameDef().visit(this, arg);
+        Expr expr = declaration.getExpr();
+        if(expr == null){
+            if(declaration.getType() == Types.Type.IMAGE){
+                if(declaration.getDim() == null){
+                    throw new Unsupported("image declared without a size");
+                }
+                assign(name, newImage(declaration.getDim()));
+            }
+            return null;
+        }
+        IToken.Kind op = declaration.getOp().getKind();
+        if(declaration.getType() == Types.Type.IMAGE){
+            //For read statements
+            if(op == IToken.Kind.LARROW){
+                Value source = value(expr);
+                if(declaration.getDim() != null){
+                    Value[] size = (Value[]) declaration.getDim().visit(this, arg);
+                    assign(name, invokeStatic(FileURLIO.class, "readImage", source, size[0], size[1]));
+                }
+                else{
+                    assign(name, invokeStatic(FileURLIO.class, "readImage", source, nullConstant(), nullConstant()));
+                }
+                discard(invokeStatic(FileURLIO.class, "closeFiles"));
+                return null;
+            }
+            if(op != IToken.Kind.ASSIGN){
+                throw new Unsupported("image declaration with " + op);
+            }
+            //For assign statements
+            if(declaration.getDim() != null){
+                assign(name, newImage(declaration.getDim()));
+                if(expr.getType() == Types.Type.IMAGE){
+                    Value target = variable(name);
+                    assign(name, invokeStatic(ImageOps.class, "resize", value(expr), invokeVirtual(target, "getWidth"),
+                            invokeVirtual(target, "getHeight")));
+                    return null;
+                }
+                boolean wrapColorTuple = !(expr.getFirstToken().getKind() == IToken.Kind.COLOR_CONST
+                        || expr.getCoerceTo() == Types.Type.COLOR);
+                if(!pixelLoop(name, declaration.getNameDef(), "xIdx", "yIdx", false, expr, wrapColorTuple)){
+                    imageLoop(name, "xIdx", "yIdx", expr, wrapColorTuple);
+                }
+                return null;
+            }
+            if(expr.getType() == Types.Type.IMAGE){
+                assign(name, invokeStatic(ImageOps.class, "clone", value(expr)));
+                return null;
+            }
+            assign(name, value(expr));
+            return null;
+        }
+        if(op == IToken.Kind.LARROW){
+            if(expr.getType() == Types.Type.STRING){
+                assign(name, readValue(expr, declaration.getType()));
+            }
+            else{
+                assign(name, value(expr));
+            }
+        }
+        else if(declaration.getType() == Types.Type.COLOR && expr.getType() == Types.Type.INT
+                && expr.getCoerceTo() == Types.Type.COLOR){
+            assign(name, construct(ColorTuple.class, value(expr)));
+        }
+        else if(declaration.getType() == Types.Type.INT && expr.getType() == Types.Type.COLOR
+                && expr.getCoerceTo() == Types.Type.INT && expr.getFirstToken().getKind() == IToken.Kind.COLOR_CONST){
+            assign(name, colorRGB(expr.getText()));
+        }
+        else if(declaration.getType() == Types.Type.INT && expr.getType() == Types.Type.COLOR
+                && expr.getCoerceTo() == Types.Type.INT){
+            assign(name, invokeVirtual(value(expr), "pack"));
+        }
+        else{
+            assign(name, value(expr));
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitUnaryExprPostfix(UnaryExprPostfix unaryExprPostfix, Object arg) throws Exception {
+        Value[] selector = (Value[]) unaryExprPostfix.getSelector().visit(this, arg);
+        Hoisted hoist = hoisted.get(unaryExprPostfix.getText());
+        Value packed;
+        if(hoist != null){ //inside a pixel loop, read from the hoisted array
+            packed = invokeStatic(ImageOps.class, "getPackedColor", load(hoist.pixels()), load(hoist.width()),
+                    load(hoist.height()), selector[0], selector[1]);
+        }
+        else{
+            if(!(unaryExprPostfix.getExpr() instanceof IdentExpr)){
+                throw new Unsupported("pixel selector applied to an expression");
+            }
+            packed = invokeVirtual(variable(unaryExprPostfix.getText()), "getRGB", selector[0], selector[1]);
+        }
+        return invokeStatic(ColorTuple.class, "unpack", packed);
+    }
+}
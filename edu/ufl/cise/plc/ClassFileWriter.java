@@ -0,0 +1,288 @@
+package edu.ufl.cise.plc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Writes a class file containing methods assembled with Code, for BytecodeGenVisitor.
+//Class files are written with version 49 (Java 5), the last version that the JVM verifies without StackMapTable
+//attributes, so methods with branches do not need type information at their branch targets.
+//Throws IllegalStateException if a limit of the class file format is exceeded.
+class ClassFileWriter {
+    static final int VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+    private final List<byte[]> methods = new ArrayList<>();
+
+    //internalName uses '/' to separate package names, as in java/lang/Object
+    ClassFileWriter(String internalName){
+        thisClass = classRef(internalName);
+        superClass = classRef("java/lang/Object");
+    }
+
+    private int constant(String key, int tag, DataWriter writer){
+        Integer index = constants.get(key);
+        if(index != null){
+            return index;
+        }
+        if(poolCount >= 0xffff){
+            throw new IllegalStateException("too many constants");
+        }
+        try {
+            pool.writeByte(tag);
+            writer.write(pool);
+        } catch (IOException e) { //thrown by writeUTF for strings longer than 65535 bytes
+            throw new IllegalStateException(e.getMessage());
+        }
+        constants.put(key, poolCount);
+        return poolCount++;
+    }
+
+    private interface DataWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    int utf8(String s){
+        return constant("U" + s, 1, out -> out.writeUTF(s));
+    }
+
+    int integer(int value){
+        return constant("I" + value, 3, out -> out.writeInt(value));
+    }
+
+    int floatConstant(float value){
+        int bits = Float.floatToRawIntBits(value);
+        return constant("F" + bits, 4, out -> out.writeInt(bits));
+    }
+
+    int classRef(String internalName){
+        int name = utf8(internalName);
+        return constant("C" + internalName, 7, out -> out.writeShort(name));
+    }
+
+    int string(String s){
+        int value = utf8(s);
+        return constant("S" + s, 8, out -> out.writeShort(value));
+    }
+
+    private int nameAndType(String name, String descriptor){
+        int n = utf8(name);
+        int d = utf8(descriptor);
+        return constant("N" + name + ' ' + descriptor, 12, out -> {
+            out.writeShort(n);
+            out.writeShort(d);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor){
+        int c = classRef(owner);
+        int nt = nameAndType(name, descriptor);
+        return constant("R" + owner + '.' + name + ' ' + descriptor, 9, out -> {
+            out.writeShort(c);
+            out.writeShort(nt);
+        });
+    }
+
+    int methodRef(String owner, String name, String descriptor){
+        int c = classRef(owner);
+        int nt = nameAndType(name, descriptor);
+        return constant("M" + owner + '.' + name + descriptor, 10, out -> {
+            out.writeShort(c);
+            out.writeShort(nt);
+        });
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code, int maxLocals){
+        if(code.length > 0xffff || maxLocals > 0xffff || code.maxDepth > 0xffff){
+            throw new IllegalStateException("method too large");
+        }
+        code.checkLabels();
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeIndex = utf8("Code");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1); //attributes
+            out.writeShort(codeIndex);
+            out.writeInt(12 + code.length);
+            out.writeShort(code.maxDepth);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code.bytes, 0, code.length);
+            out.writeShort(0); //exception table
+            out.writeShort(0); //attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e); //not thrown by ByteArrayOutputStream
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray(){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); //interfaces
+            out.writeShort(0); //fields
+            out.writeShort(methods.size());
+            for(byte[] method: methods){
+                out.write(method);
+            }
+            out.writeShort(0); //attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    //A branch target within a Code.
+    static final class Label {
+        private int position = -1;
+        private final List<Integer> branches = new ArrayList<>();
+    }
+
+    //The instructions of a method body, or of part of one. Each instruction records its effect on the operand stack
+    //so that the maximum stack depth is known when the method is written. Branch offsets are relative to the branch
+    //instruction, so once all of its labels are placed, a Code can be appended to another at any position.
+    static final class Code {
+        private byte[] bytes = new byte[64];
+        private int length;
+        private int depth;
+        private int maxDepth;
+        private final List<Label> labels = new ArrayList<>();
+
+        private void put(int b){
+            if(length == bytes.length){
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        private void putShort(int s){
+            put(s >> 8);
+            put(s);
+        }
+
+        private void adjust(int stackDelta){
+            depth += stackDelta;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        int depth(){
+            return depth;
+        }
+
+        //Sets the stack depth, for code following an unconditional branch
+        void setDepth(int depth){
+            this.depth = depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        Code op(int opcode, int stackDelta){
+            put(opcode);
+            adjust(stackDelta);
+            return this;
+        }
+
+        Code op1(int opcode, int operand, int stackDelta){
+            put(opcode);
+            put(operand);
+            adjust(stackDelta);
+            return this;
+        }
+
+        Code op2(int opcode, int operand, int stackDelta){
+            put(opcode);
+            putShort(operand);
+            adjust(stackDelta);
+            return this;
+        }
+
+        Code iinc(int slot, int increment){
+            put(0x84);
+            put(slot);
+            put(increment);
+            return this;
+        }
+
+        Code branch(int opcode, Label label, int stackDelta){
+            int at = length;
+            put(opcode);
+            putShort(0);
+            if(label.position >= 0){
+                patch(at, label.position);
+            }
+            else{
+                if(!labels.contains(label)){
+                    labels.add(label);
+                }
+                label.branches.add(at);
+            }
+            adjust(stackDelta);
+            return this;
+        }
+
+        void place(Label label){
+            label.position = length;
+            for(int at: label.branches){
+                patch(at, length);
+            }
+            label.branches.clear();
+        }
+
+        private void patch(int at, int target){
+            int offset = target - at;
+            if(offset != (short) offset){
+                throw new IllegalStateException("branch too far");
+            }
+            bytes[at + 1] = (byte) (offset >> 8);
+            bytes[at + 2] = (byte) offset;
+        }
+
+        private void checkLabels(){
+            for(Label label: labels){
+                if(!label.branches.isEmpty()){
+                    throw new IllegalStateException("label not placed");
+                }
+            }
+        }
+
+        //Appends other, whose labels must all be placed, leaving its result on top of this code's stack
+        Code append(Code other){
+            other.checkLabels();
+            for(int i = 0; i < other.length; i++){
+                put(other.bytes[i]);
+            }
+            maxDepth = Math.max(maxDepth, depth + other.maxDepth);
+            depth += other.depth;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package edu.ufl.cise.plc;
+
+import edu.ufl.cise.plc.runtime.ImageOps;
+
+//Options that change the Java code generated by CodeGenVisitor without changing what programs compute.
+//parallelLoops: generate pixel loops whose iterations are independent so that rows run in parallel on ImageOps.getPool().
+//parallelThreshold: images with fewer pixels than this are still assigned on the calling thread.
+//foldConstants: fold the constant expressions of the program with ConstantFolder before generating it.
+public record CodeGenOptions(boolean parallelLoops, int parallelThreshold, boolean foldConstants) {
+    public static final CodeGenOptions DEFAULT = new CodeGenOptions(false, ImageOps.DEFAULT_PARALLEL_THRESHOLD);
+
+    public CodeGenOptions {
+        if(parallelThreshold < 0){
+            throw new IllegalArgumentException("parallelThreshold must not be negative: " + parallelThreshold);
+        }
+    }
+
+    public CodeGenOptions(boolean parallelLoops, int parallelThreshold){
+        this(parallelLoops, parallelThreshold, true);
+    }
+
+    public static CodeGenOptions parallel(int parallelThreshold){
+        return new CodeGenOptions(true, parallelThreshold);
+    }
+
+    public CodeGenOptions withoutFolding(){
+        return new CodeGenOptions(parallelLoops, parallelThreshold, false);
+    }
+}
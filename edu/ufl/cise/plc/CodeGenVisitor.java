@@ -7,9 +7,14 @@ import edu.ufl.cise.plc.runtime.ConsoleIO;
 import edu.ufl.cise.plc.runtime.ImageOps;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class CodeGenVisitor implements ASTVisitor {
     CodeGenStringBuilder code = new CodeGenStringBuilder();
@@ -63,9 +68,25 @@ public class CodeGenVisitor implements ASTVisitor {
 
     Map<String, Types.Type> vars = new HashMap<>();
 
+    List<NameDef> params = new ArrayList<>();
+    //names declared in the program, so that generated local names do not clash with them
+    Set<String> programNames = new HashSet<>();
+    //images whose pixels are read through hoisted arrays inside the current pixel loop, mapped to the prefix of the array names
+    Map<String, String> hoisted = new LinkedHashMap<>();
+
+    //methods generated for parallel pixel loops, appended to the class after apply
+    CodeGenStringBuilder helpers = new CodeGenStringBuilder();
+    int loopCount = 0;
+
     private String packageName = "";
+    private final CodeGenOptions options;
     public CodeGenVisitor(String packageName){
+        this(packageName, CodeGenOptions.DEFAULT);
+    }
+
+    public CodeGenVisitor(String packageName, CodeGenOptions options){
         this.packageName = packageName;
+        this.options = options;
     }
     @Override
     public Object visitBooleanLitExpr(BooleanLitExpr booleanLitExpr, Object arg) throws Exception {
@@ -389,6 +410,10 @@ public class CodeGenVisitor implements ASTVisitor {
         }
         if(arg instanceof AssignmentStatement assignment){ //left hand side
             if(assignment.getSelector() != null){ //For left hand side
+                if(pixelLoop(assignment.getName(), assignment.getTargetDec(), pixelSelector.getX().getText(),
+                        pixelSelector.getY().getText(), true, assignment.getExpr(), false, arg)){
+                    return null;
+                }
                 code.append("for").lparen().append("int ");
                 pixelSelector.getX().visit(this, arg);
                 code.space().equal().space().append("0").semi().space();
@@ -435,6 +460,10 @@ public class CodeGenVisitor implements ASTVisitor {
         if(assignmentStatement.getSelector() == null){
             if(assignmentStatement.getTargetDec().getType() == Types.Type.IMAGE){
                 if(assignmentStatement.getExpr().getCoerceTo() == Types.Type.COLOR || assignmentStatement.getExpr().getType() == Types.Type.COLOR){ // Can be assumed type is always an INT
+                    if(pixelLoop(assignmentStatement.getName(), assignmentStatement.getTargetDec(), "xIdx", "yIdx", false,
+                            assignmentStatement.getExpr(), false, arg)){
+                        return null;
+                    }
                     code.append("for").lparen().append("int xIdx").space().equal().space().append("0").semi().space()
                             .append("xIdx <").space().append(assignmentStatement.getName()).append(".getWidth()").semi().space()
                             .append("xIdx++").rparen().newline();
@@ -586,7 +615,15 @@ public class CodeGenVisitor implements ASTVisitor {
         code.append("import java.awt.Color").semi().newline();
         code.append("public class " + program.getName() + "{\n");
         code.append("public static " + typeStr.get(program.getReturnType()) + " apply").lparen();
-        List<NameDef> params = program.getParams();
+        params = program.getParams();
+        for(NameDef param: params){
+            programNames.add(param.getName());
+        }
+        for(ASTNode node: program.getDecsAndStatements()){
+            if(node instanceof VarDeclaration declaration){
+                programNames.add(declaration.getName());
+            }
+        }
         if(params.size() > 0){
             for(int i = 0; i < params.size() - 1; i++){
                 code.append(typeStr.get(params.get(i).getType())+ " " + params.get(i).getName()).comma();
@@ -599,7 +636,8 @@ public class CodeGenVisitor implements ASTVisitor {
         for(ASTNode node: decsAndStatements){
             node.visit(this, arg);
         }
-        code.rcurlybracket().newline().rcurlybracket();
+        code.rcurlybracket().newline();
+        code.append(helpers.delegate.toString()).rcurlybracket();
         return code.delegate.toString();
     }
 
@@ -677,6 +715,13 @@ public class CodeGenVisitor implements ASTVisitor {
                         declaration.getDim().visit(this, arg);
                         code.comma().space().append("BufferedImage.TYPE_INT_RGB").rparen().semi().newline();
 
+                        boolean wrapColorTuple = !(declaration.getExpr().getFirstToken().getKind() == IToken.Kind.COLOR_CONST
+                                || declaration.getExpr().getCoerceTo() == Types.Type.COLOR);
+                        if(pixelLoop(declaration.getName(), declaration.getNameDef(), "xIdx", "yIdx", false,
+                                declaration.getExpr(), wrapColorTuple, arg)){
+                            return null;
+                        }
+
                         code.append("for").lparen().append("int xIdx").space().equal().space().append("0").semi().space()
                                 .append("xIdx <").space().append(declaration.getNameDef().getName()).append(".getWidth()").semi().space()
                                 .append("xIdx++").rparen().newline();
@@ -776,8 +821,160 @@ public class CodeGenVisitor implements ASTVisitor {
         return null;
     }
 
+    //Returns name, followed by as many $ as needed to differ from the names declared in the program
+    private String uniqueName(String name){
+        while(programNames.contains(name)){
+            name = name + "$";
+        }
+        return name;
+    }
+
+    //Returns a prefix for the local variables holding the hoisted pixels and size of the given image
+    private String hoistPrefix(String image){
+        String prefix = image + "$";
+        while(programNames.contains(prefix + "px") || programNames.contains(prefix + "w")
+                || programNames.contains(prefix + "h") || programNames.contains(prefix + "row")){
+            prefix = prefix + "$";
+        }
+        return prefix;
+    }
+
+    //Declares the pixel array and size of an image. If the image may be the same object as the target of the loop,
+    //it shares the target's array so that reads see the pixels already written.
+    private void hoistImage(String image, String prefix, String target, String targetPrefix){
+        code.append("int[] " + prefix + "px").space().equal().space();
+        if(targetPrefix != null){
+            code.append(image + " == " + target + " ? " + targetPrefix + "px : ");
+        }
+        code.append("ImageRaster.pixels").lparen().append(image).rparen().semi().newline();
+        code.append("int " + prefix + "w").space().equal().space().append(image).append(".getWidth()").semi().newline();
+        code.append("int " + prefix + "h").space().equal().space().append(image).append(".getHeight()").semi().newline();
+    }
+
+    //Generates a loop assigning expr to every pixel of target, writing to the image's pixel array instead of calling
+    //setRGB for each pixel. Pixels are visited y-outer/x-inner to follow the row-major layout of the array unless
+    //the expression reads pixels of the target other than the one being assigned. In that case the order of the
+    //pixels matters; otherwise the rows are independent and are assigned in parallel if options.parallelLoops() is set.
+    //Returns false without generating anything if the expression cannot be evaluated against hoisted arrays.
+    private boolean pixelLoop(String target, Declaration targetDec, String x, String y, boolean selectorVisible, Expr expr,
+                              boolean wrapColorTuple, Object arg) throws Exception {
+        PixelLoopAnalysis analysis = PixelLoopAnalysis.analyze(expr, target, targetDec,
+                selectorVisible ? x : null, selectorVisible ? y : null, params);
+        if(!analysis.supported){
+            return false;
+        }
+        String t = hoistPrefix(target);
+        code.lcurlybracket().newline();
+        hoistImage(target, t, target, null);
+        hoisted.put(target, t);
+        for(String image: analysis.images.keySet()){
+            if(!image.equals(target)){
+                String prefix = hoistPrefix(image);
+                hoistImage(image, prefix, target, analysis.mayAlias(image) ? t : null);
+                hoisted.put(image, prefix);
+            }
+        }
+
+        if(options.parallelLoops() && analysis.rowMajor){
+            parallelPixelLoop(analysis, t, x, y, expr, wrapColorTuple, arg);
+        }
+        else{
+            pixelLoopBody(analysis.rowMajor, t, x, y, "0", t + "h", expr, wrapColorTuple, arg);
+        }
+        code.append("ImageRaster.commit").lparen().append(target).comma().space().append(t + "px").rparen().semi().newline();
+        code.rcurlybracket().newline();
+        hoisted.clear();
+        return true;
+    }
+
+    //Generates the nested loops that assign expr to the pixels of the target in rows fromRow (inclusive) to toRow
+    //(exclusive) if rowMajor, or to all pixels column by column otherwise.
+    private void pixelLoopBody(boolean rowMajor, String t, String x, String y, String fromRow, String toRow, Expr expr,
+                               boolean wrapColorTuple, Object arg) throws Exception {
+        String index;
+        if(rowMajor){
+            code.append("for").lparen().append("int " + y).space().equal().space().append(fromRow).semi().space()
+                    .append(y + " < " + toRow).semi().space().append(y + "++").rparen().lcurlybracket().newline();
+            code.append("\tint " + t + "row").space().equal().space().append(y + " * " + t + "w").semi().newline();
+            code.append("\tfor").lparen().append("int " + x).space().equal().space().append("0").semi().space()
+                    .append(x + " < " + t + "w").semi().space().append(x + "++").rparen().newline();
+            index = t + "row + " + x;
+        }
+        else{
+            code.append("for").lparen().append("int " + x).space().equal().space().append("0").semi().space()
+                    .append(x + " < " + t + "w").semi().space().append(x + "++").rparen().newline();
+            code.append("\tfor").lparen().append("int " + y).space().equal().space().append("0").semi().space()
+                    .append(y + " < " + t + "h").semi().space().append(y + "++").rparen().newline();
+            index = y + " * " + t + "w + " + x;
+        }
+        code.append("\tImageOps.setColor").lparen().append(t + "px").comma().space().append(index).comma().space();
+        if(wrapColorTuple){
+            code.append("new ColorTuple").lparen();
+            expr.visit(this, arg);
+            code.rparen();
+        }
+        else{
+            expr.visit(this, arg);
+        }
+        code.rparen().semi().newline();
+        if(rowMajor){
+            code.rcurlybracket().newline();
+        }
+    }
+
+    //Generates a call to a new method of the generated class that assigns the rows of the target in bands with
+    //RowBands.forEach. The hoisted arrays and the variables used by expr are passed to the method as parameters
+    //so that the lambda given to RowBands.forEach only captures effectively final variables.
+    private void parallelPixelLoop(PixelLoopAnalysis analysis, String t, String x, String y, Expr expr,
+                                   boolean wrapColorTuple, Object arg) throws Exception {
+        String method = "apply$loop" + loopCount++;
+        List<String> paramDecs = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        Set<String> prefixes = new LinkedHashSet<>();
+        prefixes.add(t);
+        prefixes.addAll(hoisted.values());
+        for(String prefix: prefixes){
+            paramDecs.add("int[] " + prefix + "px");
+            paramDecs.add("int " + prefix + "w");
+            paramDecs.add("int " + prefix + "h");
+            args.add(prefix + "px");
+            args.add(prefix + "w");
+            args.add(prefix + "h");
+        }
+        for(Map.Entry<String, Types.Type> variable: analysis.captured.entrySet()){
+            paramDecs.add(typeStr.get(variable.getValue()) + " " + variable.getKey());
+            args.add(variable.getKey());
+        }
+        code.append(method).lparen().append(String.join(", ", args)).rparen().semi().newline();
+
+        CodeGenStringBuilder caller = code;
+        code = helpers;
+        String fromRow = uniqueName(y + "$from");
+        String toRow = uniqueName(y + "$to");
+        code.append("private static void " + method).lparen().append(String.join(", ", paramDecs)).rparen()
+                .lcurlybracket().newline();
+        code.append("RowBands.forEach").lparen().append(t + "w").comma().space().append(t + "h").comma().space()
+                .append(Integer.toString(options.parallelThreshold())).comma().space()
+                .append("ImageOps.getPool()").comma().space()
+                .lparen().append(fromRow).comma().space().append(toRow).rparen().append(" -> ").lcurlybracket().newline();
+        pixelLoopBody(true, t, x, y, fromRow, toRow, expr, wrapColorTuple, arg);
+        code.rcurlybracket().rparen().semi().newline();
+        code.rcurlybracket().newline();
+        code = caller;
+    }
+
     @Override
     public Object visitUnaryExprPostfix(UnaryExprPostfix unaryExprPostfix, Object arg) throws Exception {
+        String prefix = hoisted.get(unaryExprPostfix.getText());
+        if(prefix != null){ //inside a pixel loop, read from the hoisted array
+            code.append("ColorTuple.unpack").lparen().append("ImageOps.getPackedColor").lparen()
+                    .append(prefix + "px").comma().space()
+                    .append(prefix + "w").comma().space()
+                    .append(prefix + "h").comma().space();
+            unaryExprPostfix.getSelector().visit(this, unaryExprPostfix);
+            code.rparen().rparen();
+            return null;
+        }
         code.append("ColorTuple.unpack").lparen()
             .append(unaryExprPostfix.getText()).append(".getRGB").lparen();
         unaryExprPostfix.getSelector().visit(this, unaryExprPostfix);
@@ -15,19 +15,56 @@ public class CompilerComponentFactory {
 				"CompilerComponentFactory must be modified to return an instance of your lexer");*/
 	}
 
+	//A lazy lexer produces tokens as the parser asks for them, instead of lexing the whole input first.
+	public static ILexer getLexer(String input, boolean lazy) throws LexicalException {
+		return new Lexer(input, lazy);
+	}
+
 	public static IParser getParser(String input) throws PLCException {
-		ILexer lexer = getLexer(input);
+		ILexer lexer = getLexer(input, true);
+		return new Parser(lexer);
+	}
+
+	public static IParser getParser(ILexer lexer) throws PLCException {
 		return new Parser(lexer);
 	}
 
+	//Returns a parser that parses the input again after each edit, keeping the nodes of the declarations and statements
+	//the edit did not touch.
+	public static IncrementalParser getIncrementalParser(String input) {
+		return new IncrementalParser(input);
+	}
+
 	public static ASTVisitor getTypeChecker() throws TypeCheckException {
 		return new TypeCheckVisitor();
 	}
 
+	//Returns a visitor that folds the constant expressions of a type checked program in place, and returns the number
+	//of expressions it folded.
+	public static ASTVisitor getConstantFolder() {
+		return new ConstantFolder();
+	}
+
 	public static ASTVisitor getCodeGenerator(String packageName) {
 		return new CodeGenVisitor(packageName);
 	}
 
+	public static ASTVisitor getCodeGenerator(String packageName, CodeGenOptions options) {
+		return new CodeGenVisitor(packageName, options);
+	}
+
+	//Returns a visitor that generates the class file of a program as a byte[], or null if the program must be
+	//compiled from the Java code generated by getCodeGenerator instead.
+	public static ASTVisitor getBytecodeGenerator(String packageName, CodeGenOptions options) {
+		return new BytecodeGenVisitor(packageName, options);
+	}
+
+	//Returns a visitor that prepares a program to be run without compiling it, as an InterpretedProgram, or null if
+	//the program must be compiled instead.
+	public static ASTVisitor getInterpreter(String packageName, CodeGenOptions options) {
+		return new InterpreterVisitor(packageName, options);
+	}
+
 
 	
 }
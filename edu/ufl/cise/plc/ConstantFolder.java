@@ -0,0 +1,413 @@
+package edu.ufl.cise.plc;
+
+import edu.ufl.cise.plc.ast.*;
+import edu.ufl.cise.plc.runtime.ColorTuple;
+import edu.ufl.cise.plc.runtime.ImageOps;
+
+import java.awt.Color;
+
+//Folds the constant expressions of a type checked program, runs between TypeCheckVisitor and code generation.
+//Arithmetic, comparisons and logic on int, float, boolean and color literals and color constants are replaced by
+//literals, x * 1, x / 1, x - 0 and int x + 0 are replaced by x, and a ConditionalExpr whose condition folds to a literal
+//is replaced by the branch it selects. Every replacement has the type and coerceTo of the expression it replaces, so
+//the code generators produce the same values as before. Visiting an Expr returns the Expr that replaces it, or the
+//Expr itself; visiting the Program returns the number of expressions folded.
+public class ConstantFolder implements ASTVisitor {
+    private int folded;
+
+    public static int fold(Program program) throws Exception {
+        return (Integer) program.visit(new ConstantFolder(), null);
+    }
+
+    private Expr fold(Expr expr) throws Exception {
+        return expr == null ? null : (Expr) expr.visit(this, null);
+    }
+
+    //The value of a literal or color constant after its coercion, as the generated code computes it: Integer, Float,
+    //Boolean or ColorTuple, or null if the expression is not constant
+    private static Object value(Expr expr) {
+        Types.Type type = expr.getCoerceTo() != null ? expr.getCoerceTo() : expr.getType();
+        if(expr instanceof IntLitExpr intLit){
+            int value = intLit.getValue();
+            return switch(type){
+                case INT -> value;
+                case FLOAT -> (float) value;
+                case COLOR -> new ColorTuple(value);
+                default -> null;
+            };
+        }
+        if(expr instanceof FloatLitExpr floatLit){
+            return type == Types.Type.FLOAT ? floatLit.getValue() : null;
+        }
+        if(expr instanceof BooleanLitExpr booleanLit){
+            return booleanLit.getValue();
+        }
+        if(type != Types.Type.COLOR){
+            return null;
+        }
+        if(expr instanceof ColorConstExpr){
+            Color color = colorConstant(expr.getText());
+            return color == null ? null : ColorTuple.unpack(color.getRGB());
+        }
+        if(expr instanceof ColorExpr colorExpr && value(colorExpr.getRed()) instanceof Integer red
+                && value(colorExpr.getGreen()) instanceof Integer green && value(colorExpr.getBlue()) instanceof Integer blue){
+            return new ColorTuple(red, green, blue);
+        }
+        return null;
+    }
+
+    //The java.awt.Color field the generated code reads for a color constant
+    private static Color colorConstant(String name) {
+        try{
+            return Color.class.getField(name).get(null) instanceof Color color ? color : null;
+        } catch (ReflectiveOperationException e){
+            return null;
+        }
+    }
+
+    private static IToken token(IToken.Kind kind, String text, Expr replaced) {
+        IToken.SourceLocation location = replaced.getFirstToken().getSourceLocation();
+        return new Token(kind, text, 0, 0, location.line(), location.column());
+    }
+
+    //Returns the literal for value, or null if the value cannot be written as a literal of the type of replaced
+    private Expr literal(Object value, Expr replaced) {
+        Expr literal;
+        Types.Type type = replaced.getType();
+        if(value instanceof Integer i && type == Types.Type.INT){
+            literal = new IntLitExpr(token(IToken.Kind.INT_LIT, Integer.toString(i), replaced));
+        }
+        else if(value instanceof Float f && type == Types.Type.FLOAT && Float.isFinite(f)){
+            literal = new FloatLitExpr(token(IToken.Kind.FLOAT_LIT, Float.toString(f), replaced));
+        }
+        else if(value instanceof Boolean b && type == Types.Type.BOOLEAN){
+            literal = new BooleanLitExpr(token(IToken.Kind.BOOLEAN_LIT, Boolean.toString(b), replaced));
+        }
+        else if(value instanceof ColorTuple color && type == Types.Type.COLOR){
+            //keeps the first token of the expression it replaces: statements look at its kind to find color constants
+            literal = new ColorExpr(replaced.getFirstToken(), component(color.red, replaced),
+                    component(color.green, replaced), component(color.blue, replaced));
+        }
+        else{
+            return null;
+        }
+        literal.setType(type);
+        literal.setCoerceTo(replaced.getCoerceTo());
+        folded++;
+        return literal;
+    }
+
+    private Expr component(int value, Expr replaced) {
+        Expr component = new IntLitExpr(token(IToken.Kind.INT_LIT, Integer.toString(value), replaced));
+        component.setType(Types.Type.INT);
+        return component;
+    }
+
+    //Returns expr in place of replaced, which computes the same value before coercion, if expr can take the coercion
+    //of replaced, or null. Only an int can take a coercion of another type, to float, as the code generators coerce
+    //every kind of int expression to float the same way.
+    private Expr replaceWith(Expr expr, Expr replaced) {
+        Types.Type coerceTo = replaced.getCoerceTo();
+        boolean coercible = coerceTo == null || coerceTo == expr.getType()
+                || (expr.getType() == Types.Type.INT && coerceTo == Types.Type.FLOAT);
+        boolean colorConst = replaced.getFirstToken().getKind() == IToken.Kind.COLOR_CONST;
+        if(expr.getCoerceTo() != null || expr.getType() != replaced.getType() || !coercible
+                || colorConst != (expr.getFirstToken().getKind() == IToken.Kind.COLOR_CONST)){
+            return null;
+        }
+        expr.setCoerceTo(coerceTo);
+        folded++;
+        return expr;
+    }
+
+    private static Expr typed(Expr expr, Expr like) {
+        expr.setType(like.getType());
+        expr.setCoerceTo(like.getCoerceTo());
+        return expr;
+    }
+
+    private static ImageOps.OP colorOp(IToken.Kind kind) {
+        return switch(kind){
+            case PLUS -> ImageOps.OP.PLUS;
+            case MINUS -> ImageOps.OP.MINUS;
+            case TIMES -> ImageOps.OP.TIMES;
+            case DIV -> ImageOps.OP.DIV;
+            case MOD -> ImageOps.OP.MOD;
+            default -> null;
+        };
+    }
+
+    //The value of the binary operation on constant operands as the generated code computes it, or null if the
+    //operation cannot be folded, for example because it would throw
+    private static Object evaluate(IToken.Kind op, Object left, Object right) {
+        if(left instanceof Integer l && right instanceof Integer r){
+            return switch(op){
+                case PLUS -> l + r;
+                case MINUS -> l - r;
+                case TIMES -> l * r;
+                case DIV -> r == 0 ? null : l / r;
+                case MOD -> r == 0 ? null : l % r;
+                case LT -> l < r;
+                case LE -> l <= r;
+                case GT -> l > r;
+                case GE -> l >= r;
+                case EQUALS -> l.intValue() == r.intValue();
+                case NOT_EQUALS -> l.intValue() != r.intValue();
+                default -> null;
+            };
+        }
+        if(left instanceof Float l && right instanceof Float r){
+            return switch(op){
+                case PLUS -> l + r;
+                case MINUS -> l - r;
+                case TIMES -> l * r;
+                case DIV -> l / r;
+                case MOD -> l % r;
+                case LT -> l < r;
+                case LE -> l <= r;
+                case GT -> l > r;
+                case GE -> l >= r;
+                case EQUALS -> l.floatValue() == r.floatValue();
+                case NOT_EQUALS -> l.floatValue() != r.floatValue();
+                default -> null;
+            };
+        }
+        if(left instanceof Boolean l && right instanceof Boolean r){
+            return switch(op){
+                case AND -> l && r;
+                case OR -> l || r;
+                case EQUALS -> l.booleanValue() == r.booleanValue();
+                case NOT_EQUALS -> l.booleanValue() != r.booleanValue();
+                default -> null;
+            };
+        }
+        if(left instanceof ColorTuple l && right instanceof ColorTuple r){
+            if(op == IToken.Kind.EQUALS || op == IToken.Kind.NOT_EQUALS){
+                return l.equals(r) == (op == IToken.Kind.EQUALS);
+            }
+            ImageOps.OP colorOp = colorOp(op);
+            boolean zero = r.red == 0 || r.green == 0 || r.blue == 0;
+            if(colorOp == null || (zero && (colorOp == ImageOps.OP.DIV || colorOp == ImageOps.OP.MOD))){
+                return null;
+            }
+            return ImageOps.binaryTupleOp(colorOp, l, r);
+        }
+        return null;
+    }
+
+    //Replaces x * 1, 1 * x, x / 1, x - 0, and for ints x + 0 and 0 + x, by x. Adding 0.0 to the float -0.0 gives 0.0,
+    //so float additions are kept.
+    private Expr simplify(BinaryExpr binaryExpr, Expr left, Expr right) {
+        Types.Type type = binaryExpr.getType();
+        if(type != Types.Type.INT && type != Types.Type.FLOAT){
+            return null;
+        }
+        Object one = type == Types.Type.INT ? (Object) 1 : (Object) 1.0f;
+        Object zero = type == Types.Type.INT ? (Object) 0 : (Object) 0.0f;
+        Object leftValue = value(left);
+        Object rightValue = value(right);
+        Expr x = switch(binaryExpr.getOp().getKind()){
+            case TIMES -> one.equals(rightValue) ? left : one.equals(leftValue) ? right : null;
+            case DIV -> one.equals(rightValue) ? left : null;
+            case MINUS -> zero.equals(rightValue) ? left : null;
+            case PLUS -> type != Types.Type.INT ? null : zero.equals(rightValue) ? left : zero.equals(leftValue) ? right : null;
+            default -> null;
+        };
+        return x == null ? null : replaceWith(x, binaryExpr);
+    }
+
+    @Override
+    public Object visitBooleanLitExpr(BooleanLitExpr booleanLitExpr, Object arg) throws Exception {
+        return booleanLitExpr;
+    }
+
+    @Override
+    public Object visitStringLitExpr(StringLitExpr stringLitExpr, Object arg) throws Exception {
+        return stringLitExpr;
+    }
+
+    @Override
+    public Object visitIntLitExpr(IntLitExpr intLitExpr, Object arg) throws Exception {
+        return intLitExpr;
+    }
+
+    @Override
+    public Object visitFloatLitExpr(FloatLitExpr floatLitExpr, Object arg) throws Exception {
+        return floatLitExpr;
+    }
+
+    @Override
+    public Object visitColorConstExpr(ColorConstExpr colorConstExpr, Object arg) throws Exception {
+        return colorConstExpr;
+    }
+
+    @Override
+    public Object visitConsoleExpr(ConsoleExpr consoleExpr, Object arg) throws Exception {
+        return consoleExpr;
+    }
+
+    @Override
+    public Object visitColorExpr(ColorExpr colorExpr, Object arg) throws Exception {
+        Expr red = fold(colorExpr.getRed());
+        Expr green = fold(colorExpr.getGreen());
+        Expr blue = fold(colorExpr.getBlue());
+        if(red == colorExpr.getRed() && green == colorExpr.getGreen() && blue == colorExpr.getBlue()){
+            return colorExpr;
+        }
+        return typed(new ColorExpr(colorExpr.getFirstToken(), red, green, blue), colorExpr);
+    }
+
+    @Override
+    public Object visitUnaryExpr(UnaryExpr unaryExpression, Object arg) throws Exception {
+        Expr expr = fold(unaryExpression.getExpr());
+        Object value = value(expr);
+        Object result = null;
+        switch(unaryExpression.getOp().getKind()){
+            case MINUS -> {
+                if(value instanceof Integer i) result = -i;
+                else if(value instanceof Float f) result = -f;
+            }
+            case BANG -> {
+                if(value instanceof Boolean b) result = !b;
+            }
+            case COLOR_OP -> {
+                ColorTuple color = value instanceof Integer i ? ColorTuple.unpack(i) : value instanceof ColorTuple c ? c : null;
+                if(color != null){
+                    result = switch(unaryExpression.getOp().getText()){
+                        case "getRed" -> color.red;
+                        case "getGreen" -> color.green;
+                        case "getBlue" -> color.blue;
+                        default -> null;
+                    };
+                }
+            }
+            default -> {}
+        }
+        Expr literal = result == null ? null : literal(result, unaryExpression);
+        if(literal != null){
+            return literal;
+        }
+        if(expr == unaryExpression.getExpr()){
+            return unaryExpression;
+        }
+        return typed(new UnaryExpr(unaryExpression.getFirstToken(), unaryExpression.getOp(), expr), unaryExpression);
+    }
+
+    @Override
+    public Object visitBinaryExpr(BinaryExpr binaryExpr, Object arg) throws Exception {
+        Expr left = fold(binaryExpr.getLeft());
+        Expr right = fold(binaryExpr.getRight());
+        Object leftValue = value(left);
+        Object rightValue = value(right);
+        Object result = leftValue == null || rightValue == null ? null : evaluate(binaryExpr.getOp().getKind(), leftValue, rightValue);
+        Expr literal = result == null ? null : literal(result, binaryExpr);
+        if(literal != null){
+            return literal;
+        }
+        Expr simplified = simplify(binaryExpr, left, right);
+        if(simplified != null){
+            return simplified;
+        }
+        if(left == binaryExpr.getLeft() && right == binaryExpr.getRight()){
+            return binaryExpr;
+        }
+        return typed(new BinaryExpr(binaryExpr.getFirstToken(), left, binaryExpr.getOp(), right), binaryExpr);
+    }
+
+    @Override
+    public Object visitIdentExpr(IdentExpr identExpr, Object arg) throws Exception {
+        return identExpr;
+    }
+
+    @Override
+    public Object visitConditionalExpr(ConditionalExpr conditionalExpr, Object arg) throws Exception {
+        Expr condition = fold(conditionalExpr.getCondition());
+        Expr trueCase = fold(conditionalExpr.getTrueCase());
+        Expr falseCase = fold(conditionalExpr.getFalseCase());
+        if(condition instanceof BooleanLitExpr booleanLit){
+            Expr pruned = replaceWith(booleanLit.getValue() ? trueCase : falseCase, conditionalExpr);
+            if(pruned != null){
+                return pruned;
+            }
+        }
+        if(condition == conditionalExpr.getCondition() && trueCase == conditionalExpr.getTrueCase()
+                && falseCase == conditionalExpr.getFalseCase()){
+            return conditionalExpr;
+        }
+        return typed(new ConditionalExpr(conditionalExpr.getFirstToken(), condition, trueCase, falseCase), conditionalExpr);
+    }
+
+    //Dimensions are evaluated once per image, not per pixel, and are left as they are
+    @Override
+    public Object visitDimension(Dimension dimension, Object arg) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object visitPixelSelector(PixelSelector pixelSelector, Object arg) throws Exception {
+        Expr x = fold(pixelSelector.getX());
+        Expr y = fold(pixelSelector.getY());
+        if(x == pixelSelector.getX() && y == pixelSelector.getY()){
+            return pixelSelector;
+        }
+        return new PixelSelector(pixelSelector.getFirstToken(), x, y);
+    }
+
+    //The pixel selector on the left side of an assignment only names the loop variables
+    @Override
+    public Object visitAssignmentStatement(AssignmentStatement assignmentStatement, Object arg) throws Exception {
+        assignmentStatement.setExpr(fold(assignmentStatement.getExpr()));
+        return null;
+    }
+
+    @Override
+    public Object visitWriteStatement(WriteStatement writeStatement, Object arg) throws Exception {
+        writeStatement.setSource(fold(writeStatement.getSource()));
+        return null;
+    }
+
+    @Override
+    public Object visitReadStatement(ReadStatement readStatement, Object arg) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object visitProgram(Program program, Object arg) throws Exception {
+        for(ASTNode node : program.getDecsAndStatements()){
+            node.visit(this, arg);
+        }
+        return folded;
+    }
+
+    @Override
+    public Object visitNameDef(NameDef nameDef, Object arg) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object visitNameDefWithDim(NameDefWithDim nameDefWithDim, Object arg) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object visitReturnStatement(ReturnStatement returnStatement, Object arg) throws Exception {
+        returnStatement.setExpr(fold(returnStatement.getExpr()));
+        return null;
+    }
+
+    @Override
+    public Object visitVarDeclaration(VarDeclaration declaration, Object arg) throws Exception {
+        declaration.setExpr(fold(declaration.getExpr()));
+        return null;
+    }
+
+    @Override
+    public Object visitUnaryExprPostfix(UnaryExprPostfix unaryExprPostfix, Object arg) throws Exception {
+        Expr expr = fold(unaryExprPostfix.getExpr());
+        PixelSelector selector = (PixelSelector) unaryExprPostfix.getSelector().visit(this, arg);
+        if(expr == unaryExprPostfix.getExpr() && selector == unaryExprPostfix.getSelector()){
+            return unaryExprPostfix;
+        }
+        return typed(new UnaryExprPostfix(unaryExprPostfix.getFirstToken(), expr, selector), unaryExprPostfix);
+    }
+}
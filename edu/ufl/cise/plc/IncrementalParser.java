@@ -0,0 +1,241 @@
+package edu.ufl.cise.plc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.ufl.cise.plc.ast.ASTNode;
+import edu.ufl.cise.plc.ast.Program;
+
+//Parses a program, and then parses it again after each edit of its source, keeping the ASTNodes of the
+//declarations and statements that the edit did not touch.
+//
+//The source is split in chunks, one per declaration or statement (or lone ';'), each running from the char after
+//the ';' before it through its own ';'. The last chunk is whatever follows the last ';'. An edit is lexed and
+//parsed again from the start of the chunk it begins in, one chunk at a time, until the lexer reaches the start of an
+//old chunk after the edit in the same state. From there on the old chunks are kept, and their tokens report their
+//new lines and columns. An edit of the program header, or any edit after a failed parse, parses the whole program.
+//
+//Visitors that decorate the AST, like the type checker, must visit the whole Program returned by each edit, as kept
+//nodes may refer to declarations that were parsed again.
+public class IncrementalParser implements IParser {
+
+    private static final class Chunk {
+        //Offset, line and column of the chunk in the source, and the lexer state there
+        int start;
+        int row;
+        int column;
+        Token multilineString;
+        final ASTNode node; //null for a lone ';' and for the last chunk
+        final List<Token> tokens;
+        final Token.Shift shift;
+
+        Chunk(Lexer.Checkpoint from, ASTNode node, List<Token> tokens){
+            this.start = from.index();
+            this.row = from.row();
+            this.column = from.column();
+            this.multilineString = from.multilineString();
+            this.node = node;
+            this.tokens = tokens;
+            this.shift = new Token.Shift(from.row());
+            for(Token token : tokens){
+                token.shift = shift;
+            }
+        }
+
+        Lexer.Checkpoint checkpoint(){
+            return new Lexer.Checkpoint(start, row, column, multilineString);
+        }
+    }
+
+    //Records the tokens read by the parser
+    private static final class RecordingLexer implements ILexer {
+        final Lexer lexer;
+        List<Token> tokens = new ArrayList<>();
+
+        RecordingLexer(Lexer lexer){
+            this.lexer = lexer;
+        }
+
+        @Override
+        public IToken next() throws LexicalException {
+            IToken token = lexer.next();
+            tokens.add((Token) token);
+            return token;
+        }
+
+        @Override
+        public IToken peek() throws LexicalException {
+            return lexer.peek();
+        }
+
+        List<Token> take(){
+            List<Token> taken = tokens;
+            tokens = new ArrayList<>();
+            return taken;
+        }
+    }
+
+    private String input;
+    private Program header;
+    private List<Chunk> chunks = new ArrayList<>();
+    //null until the input has been parsed, and after a failed parse
+    private Program program;
+    //Chunks scanned from the input of the last edit, whose tokens must not keep that input once it is edited again.
+    //Chunks of a whole parse keep its input.
+    private List<Chunk> edited = List.of();
+    private int reparsed;
+
+    public IncrementalParser(String input){
+        this.input = input;
+    }
+
+    public String getInput(){
+        return input;
+    }
+
+    //Number of chunks parsed by the last parse or edit
+    public int reparsed(){
+        return reparsed;
+    }
+
+    @Override
+    public Program parse() throws PLCException {
+        if(program == null){
+            parseAll();
+        }
+        return program;
+    }
+
+    //Replaces removedLength chars at offset in the input with inserted, and returns the program parsed from the new
+    //input. If the new input cannot be parsed, the edit is kept, and the exception thrown.
+    public Program edit(int offset, int removedLength, String inserted) throws PLCException {
+        if(offset < 0 || removedLength < 0 || offset + removedLength > input.length()){
+            throw new IndexOutOfBoundsException("Edit of " + removedLength + " chars at " + offset + " in input of length " + input.length());
+        }
+        input = input.substring(0, offset) + inserted + input.substring(offset + removedLength);
+        if(program == null || offset < chunks.get(0).start){
+            parseAll();
+            return program;
+        }
+        program = null;
+        for(Chunk chunk : edited){
+            for(Token token : chunk.tokens){
+                token.detach();
+            }
+        }
+        edited = List.of();
+
+        //The last chunk starting at or before offset
+        int low = 0;
+        int high = chunks.size() - 1;
+        while(low < high){
+            int middle = (low + high + 1) >>> 1;
+            if(chunks.get(middle).start <= offset)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        int first = low;
+        int delta = inserted.length() - removedLength;
+        int end = offset + removedLength;
+
+        Chunk from = chunks.get(first);
+        Lexer lexer = new Lexer(input, from.checkpoint());
+        RecordingLexer recorder = new RecordingLexer(lexer);
+        Parser parser = new Parser(recorder);
+        List<Chunk> parsed = new ArrayList<>();
+        Lexer.Checkpoint checkpoint = from.checkpoint();
+        //Candidate old chunk to continue with: the first one after the edit whose start has not been passed
+        int next = first;
+        while(true){
+            if(parser.current().getKind() == IToken.Kind.EOF){
+                parsed.add(new Chunk(checkpoint, null, recorder.take()));
+                next = chunks.size();
+                break;
+            }
+            ASTNode node = parser.decOrStatement();
+            Lexer.Checkpoint after = lexer.checkpoint();
+            parsed.add(new Chunk(checkpoint, node, recorder.take()));
+            checkpoint = after;
+            while(next < chunks.size() - 1 && (chunks.get(next).start < end || chunks.get(next).start + delta < after.index())){
+                next++;
+            }
+            if(next < chunks.size() - 1 && chunks.get(next).start + delta == after.index()){
+                keep(next, after, delta);
+                break;
+            }
+            parser.consume();
+        }
+
+        List<Chunk> updated = new ArrayList<>(chunks.size() - (next - first) + parsed.size());
+        updated.addAll(chunks.subList(0, first));
+        updated.addAll(parsed);
+        updated.addAll(chunks.subList(next, chunks.size()));
+        chunks = updated;
+        edited = parsed;
+        reparsed = parsed.size();
+        program = program();
+        return program;
+    }
+
+    //Moves the chunks from index on to the lines and columns they start at when the lexer reaches the first one at
+    //checkpoint. The strings in them that report the location of a string before them now report the one the lexer
+    //has at checkpoint.
+    private void keep(int index, Lexer.Checkpoint checkpoint, int delta){
+        Chunk first = chunks.get(index);
+        int row = first.row;
+        int lines = checkpoint.row() - first.row;
+        int columns = checkpoint.column() - first.column;
+        Token oldString = first.multilineString;
+        Token newString = checkpoint.multilineString();
+        for(int i = index; i < chunks.size(); i++){
+            Chunk chunk = chunks.get(i);
+            chunk.start += delta;
+            if(chunk.row == row){
+                chunk.column += columns;
+                chunk.shift.columns += columns;
+            }
+            chunk.row += lines;
+            chunk.shift.lines += lines;
+            if(oldString != newString && chunk.multilineString == oldString){
+                chunk.multilineString = newString;
+                for(Token token : chunk.tokens){
+                    if(token.origin == oldString)
+                        token.origin = newString;
+                }
+            }
+        }
+    }
+
+    private void parseAll() throws PLCException {
+        program = null;
+        chunks = new ArrayList<>();
+        edited = List.of();
+        Lexer lexer = new Lexer(input, true);
+        RecordingLexer recorder = new RecordingLexer(lexer);
+        Parser parser = new Parser(recorder);
+        header = parser.header();
+        Lexer.Checkpoint checkpoint = lexer.checkpoint();
+        recorder.take();
+        parser.consume();
+        while(parser.current().getKind() != IToken.Kind.EOF){
+            ASTNode node = parser.decOrStatement();
+            Lexer.Checkpoint after = lexer.checkpoint();
+            chunks.add(new Chunk(checkpoint, node, recorder.take()));
+            checkpoint = after;
+            parser.consume();
+        }
+        chunks.add(new Chunk(checkpoint, null, recorder.take()));
+        reparsed = chunks.size();
+        program = program();
+    }
+
+    private Program program(){
+        List<ASTNode> decsAndStatements = new ArrayList<>(chunks.size());
+        for(Chunk chunk : chunks){
+            if(chunk.node != null)
+                decsAndStatements.add(chunk.node);
+        }
+        return new Program(header.getFirstToken(), header.getReturnType(), header.getName(), header.getParams(), decsAndStatements);
+    }
+}
@@ -0,0 +1,72 @@
+package edu.ufl.cise.plc;
+
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+//A program prepared by InterpreterVisitor, which can be run any number of times, also from several threads at once.
+//Each run evaluates the statements of the program against a new array of local variables, which hold int, float and
+//boolean values in their boxes.
+public final class InterpretedProgram {
+    //An expression, evaluated against the local variables of one run
+    interface Eval {
+        Object eval(Object[] frame) throws Exception;
+    }
+
+    //A statement, executed against the local variables of one run
+    interface Exec {
+        void exec(Object[] frame) throws Exception;
+    }
+
+    private final String name;
+    private final MethodType type;
+    private final int frameSize;
+    private final Exec[] body;
+    private final Eval result;
+
+    //result is null if the program returns void
+    InterpretedProgram(String name, MethodType type, int frameSize, List<Exec> body, Eval result){
+        this.name = name;
+        this.type = type;
+        this.frameSize = frameSize;
+        this.body = body.toArray(new Exec[0]);
+        this.result = result;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    //Returns the type of the apply method that would be generated for the program, for example (int,float)boolean
+    public MethodType type(){
+        return type;
+    }
+
+    //Runs the program with the given parameters, boxing int, float and boolean values. Returns the value returned by
+    //the program, boxed, or null if it returns void. Exceptions thrown by the program are thrown as they are.
+    public Object apply(Object... args) throws Exception {
+        if(args == null){
+            args = new Object[0];
+        }
+        if(args.length != type.parameterCount()){
+            throw new IllegalArgumentException(name + " expects " + type.parameterCount() + " arguments, got " + args.length);
+        }
+        Object[] frame = new Object[frameSize];
+        for(int i = 0; i < args.length; i++){
+            Class<?> parameter = type.wrap().parameterType(i);
+            if(args[i] == null ? type.parameterType(i).isPrimitive() : !parameter.isInstance(args[i])){
+                throw new IllegalArgumentException("argument " + i + " of " + name + " must be " + type.parameterType(i)
+                        + ", got " + args[i]);
+            }
+            frame[i] = args[i];
+        }
+        for(Exec statement: body){
+            statement.exec(frame);
+        }
+        return result == null ? null : result.eval(frame);
+    }
+
+    @Override
+    public String toString(){
+        return "InterpretedProgram [" + name + type + "]";
+    }
+}
@@ -0,0 +1,1211 @@
+package edu.ufl.cise.plc;
+
+import edu.ufl.cise.plc.InterpretedProgram.Eval;
+import edu.ufl.cise.plc.InterpretedProgram.Exec;
+import edu.ufl.cise.plc.JavaTypes.NullType;
+import edu.ufl.cise.plc.JavaTypes.Unsupported;
+import edu.ufl.cise.plc.ast.*;
+import edu.ufl.cise.plc.runtime.ColorTuple;
+import edu.ufl.cise.plc.runtime.ColorTupleFloat;
+import edu.ufl.cise.plc.runtime.ConsoleIO;
+import edu.ufl.cise.plc.runtime.FileURLIO;
+import edu.ufl.cise.plc.runtime.ImageOps;
+import edu.ufl.cise.plc.runtime.ImageRaster;
+import edu.ufl.cise.plc.runtime.RowBands;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Runs programs without generating or compiling any code. visitProgram turns the program into an InterpretedProgram, a
+//tree of closures with one closure for each expression and statement, which can then be run directly.
+//Each visit method builds closures that do what the code generated by the same method of CodeGenVisitor does, calling
+//the same runtime methods. The static types of expressions are tracked as javac tracks them in the generated code, so
+//overloads, numeric promotion and boxing are the same, and the program computes the same values with the same side
+//effects. Pixel loops that CodeGenVisitor runs in parallel are also run in parallel, with RowBands.
+//visitProgram returns null if the program uses generated Java code that javac would reject, or that this visitor does
+//not handle, before anything is run. Those programs should be compiled from the Java code generated by CodeGenVisitor.
+public class InterpreterVisitor implements ASTVisitor {
+    Map<Types.Type, Class<?>> javaType = Map.of(
+            Types.Type.INT, int.class,
+            Types.Type.BOOLEAN, boolean.class,
+            Types.Type.STRING, String.class,
+            Types.Type.VOID, void.class,
+            Types.Type.FLOAT, float.class,
+            Types.Type.COLOR, ColorTuple.class,
+            Types.Type.COLORFLOAT, ColorTupleFloat.class,
+            Types.Type.IMAGE, BufferedImage.class
+    );
+
+    Map<Types.Type, Class<?>> boxedType = Map.of(
+            Types.Type.INT, Integer.class,
+            Types.Type.STRING, String.class,
+            Types.Type.BOOLEAN, Boolean.class,
+            Types.Type.FLOAT, Float.class,
+            Types.Type.COLOR, ColorTuple.class
+    );
+
+    Map<Types.Type, String> coerceStr = Map.of(
+            Types.Type.INT, "INT",
+            Types.Type.STRING, "STRING",
+            Types.Type.BOOLEAN, "BOOLEAN",
+            Types.Type.FLOAT, "FLOAT",
+            Types.Type.COLOR, "COLOR"
+    );
+
+    Map<Types.Type, String> promptStr = Map.of(
+            Types.Type.INT, "Enter integer:",
+            Types.Type.STRING, "Enter string:",
+            Types.Type.BOOLEAN, "Enter boolean:",
+            Types.Type.FLOAT, "Enter float:",
+            Types.Type.COLOR, "Enter red, green, and blue components separated with space:"
+    );
+
+    Map<String, String> opStr = Map.of(
+            "+", "PLUS",
+            "-", "MINUS",
+            "*", "TIMES",
+            "/", "DIV",
+            "%", "MOD",
+            "getRed", "Red",
+            "getGreen", "Green",
+            "getBlue", "Blue"
+    );
+
+    //An expression of the generated code: a closure computing its value, and its Java type
+    private record Value(Eval eval, Class<?> type) {
+    }
+
+    //A local variable of the generated code, held in the frame of a run at index slot
+    private record Local(int slot, Class<?> type) {
+    }
+
+    //the local variables holding the pixels and size of an image hoisted out of a pixel loop
+    private record Hoisted(Local pixels, Local width, Local height) {
+    }
+
+    private final String packageName;
+    private final CodeGenOptions options;
+
+    //the statements being built; pixel loops collect their bodies in a list of their own
+    List<Exec> code;
+    //local variables in scope, and those that are definitely assigned
+    Map<String, Local> locals = new HashMap<>();
+    Set<String> assigned = new HashSet<>();
+    int frameSize = 0;
+    Class<?> returnType;
+    Eval result;
+    boolean returned = false;
+
+    List<NameDef> params = new ArrayList<>();
+    //names declared in the program, which CodeGenVisitor avoids when naming hoisted arrays
+    Set<String> programNames = new HashSet<>();
+    //images whose pixels are read through hoisted arrays inside the current pixel loop
+    Map<String, Hoisted> hoisted = new HashMap<>();
+
+    public InterpreterVisitor(String packageName){
+        this(packageName, CodeGenOptions.DEFAULT);
+    }
+
+    public InterpreterVisitor(String packageName, CodeGenOptions options){
+        this.packageName = packageName;
+        this.options = options;
+    }
+
+    private Value value(Expr expr) throws Exception {
+        return (Value) expr.visit(this, null);
+    }
+
+    private static Value constant(Object value, Class<?> type){
+        return new Value(frame -> value, type);
+    }
+
+    private Local newLocal(Class<?> type){
+        return new Local(frameSize++, type);
+    }
+
+    //Declares a variable of the generated code
+    private Local declare(String name, Class<?> type) throws Unsupported {
+        JavaTypes.checkName(name);
+        if(locals.containsKey(name)){
+            throw new Unsupported("variable already defined: " + name);
+        }
+        Local local = newLocal(type);
+        locals.put(name, local);
+        return local;
+    }
+
+    private static Value load(Local local){
+        int slot = local.slot();
+        return new Value(frame -> frame[slot], local.type());
+    }
+
+    private void store(Local local, Value value){
+        int slot = local.slot();
+        Eval eval = value.eval();
+        code.add(frame -> frame[slot] = eval.eval(frame));
+    }
+
+    //Reads a variable, which javac requires to be definitely assigned
+    private Value variable(String name) throws Unsupported {
+        Local local = locals.get(name);
+        if(local == null || !assigned.contains(name)){
+            throw new Unsupported("variable not defined or not assigned: " + name);
+        }
+        return load(local);
+    }
+
+    //Builds the statement name = value;
+    private void assign(String name, Value value) throws Unsupported {
+        Local local = locals.get(name);
+        if(local == null){
+            throw new Unsupported("variable not defined: " + name);
+        }
+        store(local, convert(value, local.type()));
+        assigned.add(name);
+    }
+
+    //Builds an expression statement, discarding its value
+    private void discard(Value value){
+        Eval eval = value.eval();
+        code.add(eval::eval);
+    }
+
+    //Converts a boxed primitive value to the box of the primitive type to, which it widens to
+    private static Object widen(Object value, Class<?> to){
+        Number number = (Number) value;
+        if(to == int.class){
+            return number.intValue();
+        }
+        if(to == long.class){
+            return number.longValue();
+        }
+        if(to == float.class){
+            return number.floatValue();
+        }
+        return number.doubleValue();
+    }
+
+    //Converts value to type as in an assignment or method invocation context
+    private static Value convert(Value value, Class<?> to) throws Unsupported {
+        Class<?> from = value.type();
+        if(!JavaTypes.convertible(from, to, true)){
+            throw new Unsupported("cannot convert " + from + " to " + to);
+        }
+        Eval eval = value.eval();
+        if(from == to || from == NullType.class || (!from.isPrimitive() && !to.isPrimitive())){
+            return new Value(eval, to);
+        }
+        if(from.isPrimitive() && to.isPrimitive()){
+            return new Value(frame -> widen(eval.eval(frame), to), to);
+        }
+        if(from.isPrimitive()){
+            //primitive values are already held in their boxes
+            return new Value(eval, to);
+        }
+        //unboxing, which throws a NullPointerException for null
+        Class<?> primitive = JavaTypes.unboxed(from);
+        if(primitive == to){
+            return new Value(frame -> requireNonNull(eval.eval(frame)), to);
+        }
+        return new Value(frame -> widen(requireNonNull(eval.eval(frame)), to), to);
+    }
+
+    private static Object requireNonNull(Object value){
+        if(value == null){
+            throw new NullPointerException();
+        }
+        return value;
+    }
+
+    //Casts a value to the type generated by CodeGenVisitor for to, as in (float) x. Only casts between int and float,
+    //and casts that do not change the type, are generated.
+    private Value cast(Value value, Types.Type to) throws Unsupported {
+        Class<?> type = javaType.get(to);
+        if(type == null || to == Types.Type.VOID){
+            throw new Unsupported("cast to " + to);
+        }
+        if(value.type() == type){
+            return value;
+        }
+        Eval eval = value.eval();
+        if(value.type() == int.class && type == float.class){
+            return new Value(frame -> (float) (Integer) eval.eval(frame), float.class);
+        }
+        if(value.type() == float.class && type == int.class){
+            return new Value(frame -> (int) (float) (Float) eval.eval(frame), int.class);
+        }
+        throw new Unsupported("cast from " + value.type() + " to " + type);
+    }
+
+    //Method invocation, with the method resolved as javac resolves it in the generated code
+
+    private interface Builder {
+        void build() throws Exception;
+    }
+
+    private static Class<?>[] types(Value[] args){
+        Class<?>[] types = new Class<?>[args.length];
+        for(int i = 0; i < args.length; i++){
+            types[i] = args[i].type();
+        }
+        return types;
+    }
+
+    //Returns the arguments, converted to the parameter types of the resolved method
+    private static Eval[] arguments(Executable executable, Value[] args) throws Unsupported {
+        Class<?>[] parameters = executable.getParameterTypes();
+        Eval[] arguments = new Eval[args.length];
+        for(int i = 0; i < args.length; i++){
+            arguments[i] = convert(args[i], parameters[i]).eval();
+        }
+        return arguments;
+    }
+
+    //Evaluates the arguments from left to right
+    private static Object[] evaluate(Eval[] arguments, Object[] frame) throws Exception {
+        Object[] values = new Object[arguments.length];
+        for(int i = 0; i < arguments.length; i++){
+            values[i] = arguments[i].eval(frame);
+        }
+        return values;
+    }
+
+    //Returns a handle on the resolved method or constructor that takes and returns Objects, so that the closures invoke
+    //it without reflection. The arguments are already converted to the parameter types, so the handle only unboxes them.
+    private static MethodHandle handle(Executable executable) throws Unsupported {
+        MethodHandle handle;
+        try {
+            handle = executable instanceof Method method ? MethodHandles.publicLookup().unreflect(method)
+                    : MethodHandles.publicLookup().unreflectConstructor((Constructor<?>) executable);
+        } catch (IllegalAccessException e) {
+            throw new Unsupported("cannot access " + executable);
+        }
+        return handle.asType(handle.type().generic());
+    }
+
+    //Invokes a handle returned by handle with the arguments evaluated from left to right. Calls with up to six
+    //arguments, such as the five of ImageOps.getPackedColor(pixels, width, height, x, y) in pixel loops, do not need an
+    //array of arguments.
+    private static Object invoke(MethodHandle handle, Eval[] arguments, Object[] frame) throws Exception {
+        try {
+            return switch(arguments.length){
+                case 0 -> handle.invokeExact();
+                case 1 -> handle.invokeExact(arguments[0].eval(frame));
+                case 2 -> handle.invokeExact(arguments[0].eval(frame), arguments[1].eval(frame));
+                case 3 -> handle.invokeExact(arguments[0].eval(frame), arguments[1].eval(frame), arguments[2].eval(frame));
+                case 4 -> handle.invokeExact(arguments[0].eval(frame), arguments[1].eval(frame), arguments[2].eval(frame),
+                        arguments[3].eval(frame));
+                case 5 -> handle.invokeExact(arguments[0].eval(frame), arguments[1].eval(frame), arguments[2].eval(frame),
+                        arguments[3].eval(frame), arguments[4].eval(frame));
+                case 6 -> handle.invokeExact(arguments[0].eval(frame), arguments[1].eval(frame), arguments[2].eval(frame),
+                        arguments[3].eval(frame), arguments[4].eval(frame), arguments[5].eval(frame));
+                default -> handle.invokeWithArguments(evaluate(arguments, frame));
+            };
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private Value invokeStatic(Class<?> owner, String name, Value... args) throws Unsupported {
+        List<Method> candidates = Arrays.stream(owner.getMethods()).filter(m -> m.getName().equals(name)).toList();
+        Method method = JavaTypes.resolve(candidates, types(args));
+        if(!Modifier.isStatic(method.getModifiers())){
+            throw new Unsupported("not a static method: " + name);
+        }
+        Eval[] arguments = arguments(method, args);
+        MethodHandle handle = handle(method);
+        return new Value(frame -> invoke(handle, arguments, frame), method.getReturnType());
+    }
+
+    //The receiver is the first argument of the handle, which throws a NullPointerException for a null receiver after
+    //the other arguments are evaluated, as the generated code does
+    private Value invokeVirtual(Value receiver, String name, Value... args) throws Unsupported {
+        Class<?> owner = receiver.type();
+        if(owner.isPrimitive() || owner.isInterface() || owner == NullType.class){
+            throw new Unsupported("cannot invoke " + name + " on " + owner);
+        }
+        List<Method> candidates = Arrays.stream(owner.getMethods()).filter(m -> m.getName().equals(name)).toList();
+        Method method = JavaTypes.resolve(candidates, types(args));
+        if(Modifier.isStatic(method.getModifiers())){
+            throw new Unsupported("static method invoked on a value: " + name);
+        }
+        Eval[] parameters = arguments(method, args);
+        Eval[] arguments = new Eval[parameters.length + 1];
+        arguments[0] = receiver.eval();
+        System.arraycopy(parameters, 0, arguments, 1, parameters.length);
+        MethodHandle handle = handle(method);
+        return new Value(frame -> invoke(handle, arguments, frame), method.getReturnType());
+    }
+
+    private Value construct(Class<?> type, Value... args) throws Unsupported {
+        Constructor<?> constructor = JavaTypes.resolve(Arrays.asList(type.getConstructors()), types(args));
+        Eval[] arguments = arguments(constructor, args);
+        MethodHandle handle = handle(constructor);
+        return new Value(frame -> invoke(handle, arguments, frame), type);
+    }
+
+    private Value staticField(Class<?> owner, String name) throws Unsupported {
+        Field field;
+        try {
+            field = owner.getField(name);
+        } catch (NoSuchFieldException e) {
+            throw new Unsupported("no field " + name);
+        }
+        if(!Modifier.isStatic(field.getModifiers())){
+            throw new Unsupported("not a static field: " + name);
+        }
+        return new Value(frame -> field.get(null), field.getType());
+    }
+
+    //Builds Color.name.getRGB()
+    private Value colorRGB(String name) throws Unsupported {
+        Value color = staticField(Color.class, name);
+        if(color.type() != Color.class){
+            throw new Unsupported("not a color: " + name);
+        }
+        return invokeVirtual(color, "getRGB");
+    }
+
+    private Value opConstant(String op) throws Unsupported {
+        String name = opStr.get(op);
+        if(name == null){
+            throw new Unsupported("no ImageOps.OP for " + op);
+        }
+        return staticField(ImageOps.OP.class, name);
+    }
+
+    //Builds (type) value for a reference type, which throws a ClassCastException if value is not a type
+    private static Value checkCast(Value value, Class<?> type){
+        Eval eval = value.eval();
+        return new Value(frame -> type.cast(eval.eval(frame)), type);
+    }
+
+    private static Value not(Value value) throws Unsupported {
+        if(value.type() != boolean.class){
+            throw new Unsupported("! applied to " + value.type());
+        }
+        Eval eval = value.eval();
+        return new Value(frame -> !(Boolean) eval.eval(frame), boolean.class);
+    }
+
+    private interface IntOp {
+        Object apply(int left, int right);
+    }
+
+    private interface FloatOp {
+        Object apply(float left, float right);
+    }
+
+    private interface BooleanOp {
+        Object apply(boolean left, boolean right);
+    }
+
+    //Builds left op right with the Java meaning of op (JLS 15.17 to 15.22); & and | are not short circuit
+    private Value javaBinary(String op, Value left, Value right) throws Unsupported {
+        Class<?> l = left.type();
+        Class<?> r = right.type();
+        boolean numeric = (l == int.class || l == float.class) && (r == int.class || r == float.class);
+        Class<?> promoted = l == float.class || r == float.class ? float.class : int.class;
+        if(numeric){
+            Eval a = convert(left, promoted).eval();
+            Eval b = convert(right, promoted).eval();
+            if(promoted == float.class){
+                FloatOp f = switch(op){
+                    case "+" -> (x, y) -> x + y;
+                    case "-" -> (x, y) -> x - y;
+                    case "*" -> (x, y) -> x * y;
+                    case "/" -> (x, y) -> x / y;
+                    case "%" -> (x, y) -> x % y;
+                    case "<" -> (x, y) -> x < y;
+                    case "<=" -> (x, y) -> x <= y;
+                    case ">" -> (x, y) -> x > y;
+                    case ">=" -> (x, y) -> x >= y;
+                    case "==" -> (x, y) -> x == y;
+                    case "!=" -> (x, y) -> x != y;
+                    default -> throw new Unsupported(op + " applied to float");
+                };
+                Class<?> type = "+-*/%".contains(op) ? float.class : boolean.class;
+                return new Value(frame -> f.apply((Float) a.eval(frame), (Float) b.eval(frame)), type);
+            }
+            IntOp f = switch(op){
+                case "+" -> (x, y) -> x + y;
+                case "-" -> (x, y) -> x - y;
+                case "*" -> (x, y) -> x * y;
+                case "/" -> (x, y) -> x / y;
+                case "%" -> (x, y) -> x % y;
+                case "&" -> (x, y) -> x & y;
+                case "|" -> (x, y) -> x | y;
+                case "<" -> (x, y) -> x < y;
+                case "<=" -> (x, y) -> x <= y;
+                case ">" -> (x, y) -> x > y;
+                case ">=" -> (x, y) -> x >= y;
+                case "==" -> (x, y) -> x == y;
+                case "!=" -> (x, y) -> x != y;
+                default -> throw new Unsupported("operator " + op);
+            };
+            Class<?> type = "+-*/%&|".contains(op) ? int.class : boolean.class;
+            return new Value(frame -> f.apply((Integer) a.eval(frame), (Integer) b.eval(frame)), type);
+        }
+        Eval a = left.eval();
+        Eval b = right.eval();
+        if(l == boolean.class && r == boolean.class){
+            BooleanOp f = switch(op){
+                case "&" -> (x, y) -> x & y;
+                case "|" -> (x, y) -> x | y;
+                case "==" -> (x, y) -> x == y;
+                case "!=" -> (x, y) -> x != y;
+                default -> null;
+            };
+            if(f != null){
+                return new Value(frame -> f.apply((Boolean) a.eval(frame), (Boolean) b.eval(frame)), boolean.class);
+            }
+        }
+        else if(!l.isPrimitive() && !r.isPrimitive() && l != NullType.class && (l.isAssignableFrom(r) || r.isAssignableFrom(l))
+                && JavaTypes.unboxed(l) == null && JavaTypes.unboxed(r) == null){
+            switch(op){
+                case "==" -> { return new Value(frame -> a.eval(frame) == b.eval(frame), boolean.class); }
+                case "!=" -> { return new Value(frame -> a.eval(frame) != b.eval(frame), boolean.class); }
+            }
+        }
+        throw new Unsupported("operator " + op + " applied to " + l + " and " + r);
+    }
+
+    @Override
+    public Object visitBooleanLitExpr(BooleanLitExpr booleanLitExpr, Object arg) throws Exception {
+        return constant(booleanLitExpr.getValue(), boolean.class);
+    }
+
+    @Override
+    public Object visitStringLitExpr(StringLitExpr stringLitExpr, Object arg) throws Exception {
+        //CodeGenVisitor generates a text block. Its value is the text with line terminators normalized and incidental
+        //white space removed, unless the text contains escapes or quotes that would change or end the text block.
+        String text = stringLitExpr.getValue();
+        if(text.contains("\\") || text.contains("\"\"\"") || text.endsWith("\"")){
+            throw new Unsupported("text block");
+        }
+        return constant(text.replace("\r\n", "\n").replace('\r', '\n').stripIndent(), String.class);
+    }
+
+    @Override
+    public Object visitIntLitExpr(IntLitExpr intLitExpr, Object arg) throws Exception {
+        int value = intLitExpr.getValue();
+        if(!intLitExpr.getText().equals(Integer.toString(value))){
+            throw new Unsupported("int literal " + intLitExpr.getText());
+        }
+        if(intLitExpr.getCoerceTo() != null && intLitExpr.getCoerceTo() == Types.Type.COLOR){
+            return construct(ColorTuple.class, constant(value, int.class));
+        }
+        if(intLitExpr.getCoerceTo() != null && intLitExpr.getCoerceTo() != Types.Type.INT){
+            return cast(constant(value, int.class), intLitExpr.getCoerceTo());
+        }
+        return constant(value, int.class);
+    }
+
+    @Override
+    public Object visitFloatLitExpr(FloatLitExpr floatLitExpr, Object arg) throws Exception {
+        float value = floatLitExpr.getValue();
+        if(Float.isInfinite(value) || Float.isNaN(value)){
+            throw new Unsupported("float literal " + floatLitExpr.getText());
+        }
+        if(floatLitExpr.getCoerceTo() != null && floatLitExpr.getCoerceTo() == Types.Type.COLORFLOAT){
+            //the text of the literal is used, which javac rejects if it is not a decimal or rounds to zero
+            String text = floatLitExpr.getText();
+            if(!text.matches("[0-9]+\\.[0-9]+") || (value == 0 && text.matches(".*[1-9].*"))){
+                throw new Unsupported("float literal " + text);
+            }
+            return construct(ColorTupleFloat.class, constant(value, float.class));
+        }
+        if(floatLitExpr.getCoerceTo() != null && floatLitExpr.getCoerceTo() != Types.Type.FLOAT){
+            return cast(constant(value, float.class), floatLitExpr.getCoerceTo());
+        }
+        return constant(value, float.class);
+    }
+
+    @Override
+    public Object visitColorConstExpr(ColorConstExpr colorConstExpr, Object arg) throws Exception {
+        return invokeStatic(ColorTuple.class, "unpack", colorRGB(colorConstExpr.getFirstToken().getText()));
+    }
+
+    @Override
+    public Object visitConsoleExpr(ConsoleExpr consoleExpr, Object arg) throws Exception {
+        Types.Type type = consoleExpr.getCoerceTo();
+        if(type == null || !boxedType.containsKey(type)){
+            throw new Unsupported("console input of type " + type);
+        }
+        Value read = invokeStatic(ConsoleIO.class, "readValueFromConsole", constant(coerceStr.get(type), String.class),
+                constant(promptStr.get(type), String.class));
+        return checkCast(read, boxedType.get(type));
+    }
+
+    @Override
+    public Object visitColorExpr(ColorExpr colorExpr, Object arg) throws Exception {
+        Class<?> type;
+        if(colorExpr.getType() == Types.Type.COLOR){
+            type = ColorTuple.class;
+        }
+        else if(colorExpr.getType() == Types.Type.COLORFLOAT){
+            type = ColorTupleFloat.class;
+        }
+        else{
+            throw new Unsupported("color expression of type " + colorExpr.getType());
+        }
+        Value red = value(colorExpr.getRed());
+        Value green = value(colorExpr.getGreen());
+        Value blue = value(colorExpr.getBlue());
+        return construct(type, red, green, blue);
+    }
+
+    @Override
+    public Object visitUnaryExpr(UnaryExpr unaryExpression, Object arg) throws Exception {
+        String op = unaryExpression.getOp().getText();
+        Expr expr = unaryExpression.getExpr();
+        if(unaryExpression.getOp().getKind() == IToken.Kind.COLOR_OP){
+            if(expr.getType() == Types.Type.IMAGE){
+                return invokeStatic(ImageOps.class, "extract" + opStr.get(op), value(expr));
+            }
+            if(expr.getType() == Types.Type.INT || expr.getType() == Types.Type.COLOR){
+                return invokeStatic(ColorTuple.class, op, value(expr));
+            }
+        }
+
+        if(unaryExpression.getOp().getKind() == IToken.Kind.IMAGE_OP){
+            return invokeVirtual(value(expr), op.equals("getWidth") ? "getWidth" : "getHeight");
+        }
+
+        //the operator is followed directly by the text of the operand, so - followed by another - would be --
+        if(op.equals("-") && expr instanceof UnaryExpr){
+            throw new Unsupported("nested unary minus");
+        }
+        Value operand = value(expr);
+        Eval eval = operand.eval();
+        Value result;
+        if(op.equals("-") && operand.type() == int.class){
+            result = new Value(frame -> -(Integer) eval.eval(frame), int.class);
+        }
+        else if(op.equals("-") && operand.type() == float.class){
+            result = new Value(frame -> -(Float) eval.eval(frame), float.class);
+        }
+        else if(op.equals("!")){
+            result = not(operand);
+        }
+        else{
+            throw new Unsupported("unary " + op + " applied to " + operand.type());
+        }
+        if(unaryExpression.getCoerceTo() != null){
+            return cast(result, unaryExpression.getCoerceTo());
+        }
+        return result;
+    }
+
+    @Override
+    public Object visitBinaryExpr(BinaryExpr binaryExpr, Object arg) throws Exception {
+        String op = binaryExpr.getOp().getText();
+        IToken.Kind kind = binaryExpr.getOp().getKind();
+        Types.Type left = binaryExpr.getLeft().getType();
+        Types.Type right = binaryExpr.getRight().getType();
+
+        //For colors
+        if(binaryExpr.getType() == Types.Type.COLOR || binaryExpr.getType() == Types.Type.COLORFLOAT){
+            Value operation = opConstant(op);
+            return invokeStatic(ImageOps.class, "binaryTupleOp", operation, value(binaryExpr.getLeft()),
+                    value(binaryExpr.getRight()));
+        }
+
+        if(binaryExpr.getType() == Types.Type.IMAGE){
+            if(left == Types.Type.IMAGE && (right == Types.Type.INT || right == Types.Type.IMAGE)){
+                Value operation = opConstant(op);
+                String method = right == Types.Type.INT ? "binaryImageScalarOp" : "binaryImageImageOp";
+                return invokeStatic(ImageOps.class, method, operation, value(binaryExpr.getLeft()),
+                        value(binaryExpr.getRight()));
+            }
+            throw new Unsupported("image operation with " + right);
+        }
+
+        //For comparing colors
+        if(left == Types.Type.COLOR && right == Types.Type.COLOR && binaryExpr.getType() == Types.Type.BOOLEAN){
+            if(kind == IToken.Kind.EQUALS || kind == IToken.Kind.NOT_EQUALS){
+                Value equals = invokeVirtual(value(binaryExpr.getLeft()), "equals", value(binaryExpr.getRight()));
+                return kind == IToken.Kind.EQUALS ? equals : not(equals);
+            }
+        }
+
+        if(left == Types.Type.IMAGE && right == Types.Type.IMAGE && binaryExpr.getType() == Types.Type.BOOLEAN){
+            if(kind == IToken.Kind.EQUALS || kind == IToken.Kind.NOT_EQUALS){
+                Value equals = invokeStatic(ImageOps.class, "equals", value(binaryExpr.getLeft()),
+                        value(binaryExpr.getRight()));
+                return kind == IToken.Kind.EQUALS ? equals : not(equals);
+            }
+            throw new Unsupported("image comparison " + op);
+        }
+
+        Types.Type castTo = null;
+        if(binaryExpr.getCoerceTo() != null){
+            if(binaryExpr.getCoerceTo() == Types.Type.COLOR){
+                Value operation = javaBinary(op, value(binaryExpr.getLeft()), value(binaryExpr.getRight()));
+                return construct(ColorTuple.class, operation);
+            }
+            castTo = binaryExpr.getCoerceTo();
+        }
+        Value result;
+        if(left == Types.Type.STRING && right == Types.Type.STRING){
+            if(kind != IToken.Kind.EQUALS && kind != IToken.Kind.NOT_EQUALS){
+                throw new Unsupported("string operator " + op);
+            }
+            Value equals = invokeVirtual(value(binaryExpr.getLeft()), "equals", value(binaryExpr.getRight()));
+            result = kind == IToken.Kind.EQUALS ? equals : not(equals);
+        }
+        else{
+            result = javaBinary(op, value(binaryExpr.getLeft()), value(binaryExpr.getRight()));
+        }
+        return castTo == null ? result : cast(result, castTo);
+    }
+
+    @Override
+    public Object visitIdentExpr(IdentExpr identExpr, Object arg) throws Exception {
+        Value variable = variable(identExpr.getText());
+        Types.Type type = identExpr.getType();
+        Types.Type coerceTo = identExpr.getCoerceTo();
+        if(coerceTo != null && (coerceTo == Types.Type.COLOR || coerceTo == Types.Type.COLORFLOAT)){
+            if(type == Types.Type.COLOR && coerceTo == Types.Type.COLORFLOAT){
+                return construct(ColorTupleFloat.class, variable);
+            }
+            if(type == Types.Type.COLORFLOAT && coerceTo == Types.Type.COLORFLOAT){
+                return construct(ColorTuple.class, variable);
+            }
+            return variable;
+        }
+        if(type == Types.Type.COLOR && coerceTo == Types.Type.INT){
+            return variable;
+        }
+        if(coerceTo != null && coerceTo != type){
+            return cast(variable, coerceTo);
+        }
+        return variable;
+    }
+
+    @Override
+    public Object visitConditionalExpr(ConditionalExpr conditionalExpr, Object arg) throws Exception {
+        Value condition = value(conditionalExpr.getCondition());
+        Value trueCase = value(conditionalExpr.getTrueCase());
+        Value falseCase = value(conditionalExpr.getFalseCase());
+        if(condition.type() != boolean.class){
+            throw new Unsupported("condition of type " + condition.type());
+        }
+        Class<?> type;
+        if(trueCase.type() == falseCase.type() && trueCase.type() != NullType.class){
+            type = trueCase.type();
+        }
+        else if((trueCase.type() == int.class || trueCase.type() == float.class)
+                && (falseCase.type() == int.class || falseCase.type() == float.class)){
+            type = float.class;
+        }
+        else{
+            throw new Unsupported("conditional of " + trueCase.type() + " and " + falseCase.type());
+        }
+        Eval test = condition.eval();
+        Eval ifTrue = convert(trueCase, type).eval();
+        Eval ifFalse = convert(falseCase, type).eval();
+        Value result = new Value(frame -> (Boolean) test.eval(frame) ? ifTrue.eval(frame) : ifFalse.eval(frame), type);
+        if(conditionalExpr.getCoerceTo() != null){
+            return cast(result, conditionalExpr.getCoerceTo());
+        }
+        return result;
+    }
+
+    @Override
+    public Object visitDimension(Dimension dimension, Object arg) throws Exception {
+        return new Value[]{value(dimension.getWidth()), value(dimension.getHeight())};
+    }
+
+    //Builds new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+    private Value newImage(Dimension dimension) throws Exception {
+        Value[] size = (Value[]) dimension.visit(this, null);
+        return construct(BufferedImage.class, size[0], size[1], staticField(BufferedImage.class, "TYPE_INT_RGB"));
+    }
+
+    @Override
+    public Object visitPixelSelector(PixelSelector pixelSelector, Object arg) throws Exception {
+        return new Value[]{value(pixelSelector.getX()), value(pixelSelector.getY())};
+    }
+
+    //Builds for(int x = start; x < bound; x++) body, where bound is evaluated before every iteration
+    private void forLoop(String x, Local variable, Value start, Value bound, Builder body) throws Exception {
+        List<Exec> outer = code;
+        code = new ArrayList<>();
+        locals.put(x, variable);
+        assigned.add(x);
+        body.build();
+        locals.remove(x);
+        assigned.remove(x);
+        Exec[] statements = code.toArray(new Exec[0]);
+        code = outer;
+        int slot = variable.slot();
+        Eval from = start.eval();
+        Eval to = bound.eval();
+        code.add(frame -> {
+            for(int i = (Integer) from.eval(frame); i < (Integer) to.eval(frame); i++){
+                frame[slot] = i;
+                for(Exec statement: statements){
+                    statement.exec(frame);
+                }
+            }
+        });
+    }
+
+    //Checks that the loop variables can be declared
+    private void checkLoopVariables(String x, String y) throws Unsupported {
+        JavaTypes.checkName(x);
+        JavaTypes.checkName(y);
+        if(locals.containsKey(x) || locals.containsKey(y) || x.equals(y)){
+            throw new Unsupported("loop variable already defined");
+        }
+    }
+
+    //Builds the loops CodeGenVisitor generates when the expression cannot be evaluated against hoisted arrays:
+    //ImageOps.setColor(target, x, y, expr) for every pixel, column by column.
+    private void imageLoop(String target, String x, String y, Expr expr, boolean wrapColorTuple) throws Exception {
+        checkLoopVariables(x, y);
+        Local xLocal = newLocal(int.class);
+        Local yLocal = newLocal(int.class);
+        Value image = variable(target);
+        Value zero = constant(0, int.class);
+        forLoop(x, xLocal, zero, invokeVirtual(image, "getWidth"), () ->
+            forLoop(y, yLocal, zero, invokeVirtual(image, "getHeight"), () -> {
+                Value color = value(expr);
+                if(wrapColorTuple){
+                    color = construct(ColorTuple.class, color);
+                }
+                discard(invokeStatic(ImageOps.class, "setColor", image, load(xLocal), load(yLocal), color));
+            }));
+    }
+
+    //Returns a prefix for the local variables holding the hoisted pixels and size of the given image, as
+    //CodeGenVisitor names them
+    private String hoistPrefix(String image){
+        String prefix = image + "$";
+        while(programNames.contains(prefix + "px") || programNames.contains(prefix + "w")
+                || programNames.contains(prefix + "h") || programNames.contains(prefix + "row")){
+            prefix = prefix + "$";
+        }
+        return prefix;
+    }
+
+    private Hoisted hoistImage(String image, Hoisted target, String targetName, boolean mayAlias) throws Exception {
+        Hoisted hoist = new Hoisted(newLocal(int[].class), newLocal(int.class), newLocal(int.class));
+        Value imageValue = variable(image);
+        Value pixels = invokeStatic(ImageRaster.class, "pixels", imageValue);
+        if(mayAlias){
+            //image == target ? target pixels : ImageRaster.pixels(image)
+            Eval same = javaBinary("==", imageValue, variable(targetName)).eval();
+            Eval targetPixels = load(target.pixels()).eval();
+            Eval imagePixels = pixels.eval();
+            pixels = new Value(frame -> (Boolean) same.eval(frame) ? targetPixels.eval(frame) : imagePixels.eval(frame),
+                    int[].class);
+        }
+        store(hoist.pixels(), pixels);
+        store(hoist.width(), invokeVirtual(imageValue, "getWidth"));
+        store(hoist.height(), invokeVirtual(imageValue, "getHeight"));
+        return hoist;
+    }
+
+    //Builds the loop CodeGenVisitor.pixelLoop generates, or returns false if CodeGenVisitor would not generate one.
+    private boolean pixelLoop(String target, Declaration targetDec, String x, String y, boolean selectorVisible,
+                              Expr expr, boolean wrapColorTuple) throws Exception {
+        PixelLoopAnalysis analysis = PixelLoopAnalysis.analyze(expr, target, targetDec,
+                selectorVisible ? x : null, selectorVisible ? y : null, params);
+        if(!analysis.supported){
+            return false;
+        }
+        checkLoopVariables(x, y);
+        //javac rejects the loop if two of the local variables it declares have the same name
+        Set<String> names = new HashSet<>(List.of(x, y));
+        List<String> images = new ArrayList<>();
+        images.add(target);
+        for(String image: analysis.images.keySet()){
+            if(!image.equals(target)){
+                images.add(image);
+            }
+        }
+        String t = hoistPrefix(target);
+        for(String image: images){
+            String prefix = hoistPrefix(image);
+            for(String suffix: List.of("px", "w", "h")){
+                if(!names.add(prefix + suffix)){
+                    throw new Unsupported("hoisted variable already defined: " + prefix + suffix);
+                }
+            }
+        }
+        if(analysis.rowMajor && !names.add(t + "row")){
+            throw new Unsupported("hoisted variable already defined: " + t + "row");
+        }
+
+        Hoisted th = hoistImage(target, null, target, false);
+        hoisted.put(target, th);
+        for(String image: images.subList(1, images.size())){
+            hoisted.put(image, hoistImage(image, th, target, analysis.mayAlias(image)));
+        }
+        Local xLocal = newLocal(int.class);
+        Local yLocal = newLocal(int.class);
+        Value zero = constant(0, int.class);
+        if(analysis.rowMajor){
+            Local row = newLocal(int.class);
+            Builder rows = () -> {
+                store(row, javaBinary("*", load(yLocal), load(th.width())));
+                forLoop(x, xLocal, zero, load(th.width()),
+                        () -> setPixel(th, javaBinary("+", load(row), load(xLocal)), expr, wrapColorTuple));
+            };
+            if(options.parallelLoops()){
+                parallelRows(th, y, yLocal, rows);
+            }
+            else{
+                forLoop(y, yLocal, zero, load(th.height()), rows);
+            }
+        }
+        else{
+            forLoop(x, xLocal, zero, load(th.width()), () ->
+                forLoop(y, yLocal, zero, load(th.height()), () ->
+                    setPixel(th, javaBinary("+", javaBinary("*", load(yLocal), load(th.width())), load(xLocal)),
+                            expr, wrapColorTuple)));
+        }
+        discard(invokeStatic(ImageRaster.class, "commit", variable(target), load(th.pixels())));
+        hoisted.clear();
+        return true;
+    }
+
+    //Builds the rows of a pixel loop as CodeGenVisitor.parallelPixelLoop generates them, in bands given to
+    //RowBands.forEach. Each band runs with its own copy of the frame, so that the loop variables of the bands are
+    //separate, while the pixel arrays are shared.
+    private void parallelRows(Hoisted target, String y, Local yLocal, Builder rows) throws Exception {
+        Local fromRow = newLocal(int.class);
+        Local toRow = newLocal(int.class);
+        List<Exec> outer = code;
+        code = new ArrayList<>();
+        forLoop(y, yLocal, load(fromRow), load(toRow), rows);
+        Exec[] band = code.toArray(new Exec[0]);
+        code = outer;
+        int width = target.width().slot();
+        int height = target.height().slot();
+        int threshold = options.parallelThreshold();
+        code.add(frame -> RowBands.forEach((Integer) frame[width], (Integer) frame[height], threshold, ImageOps.getPool(),
+                (from, to) -> {
+                    Object[] bandFrame = frame.clone();
+                    bandFrame[fromRow.slot()] = from;
+                    bandFrame[toRow.slot()] = to;
+                    try {
+                        for(Exec statement: band){
+                            statement.exec(bandFrame);
+                        }
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) { //not thrown by the runtime methods, which declare no checked exceptions
+                        throw new IllegalStateException(e);
+                    }
+                }));
+    }
+
+    //Builds ImageOps.setColor(pixels, index, expr)
+    private void setPixel(Hoisted target, Value index, Expr expr, boolean wrapColorTuple) throws Exception {
+        Value color = value(expr);
+        if(wrapColorTuple){
+            color = construct(ColorTuple.class, color);
+        }
+        discard(invokeStatic(ImageOps.class, "setColor", load(target.pixels()), index, color));
+    }
+
+    @Override
+    public Object visitAssignmentStatement(AssignmentStatement assignmentStatement, Object arg) throws Exception {
+        String name = assignmentStatement.getName();
+        Declaration targetDec = assignmentStatement.getTargetDec();
+        Expr expr = assignmentStatement.getExpr();
+        if(assignmentStatement.getSelector() == null){
+            if(targetDec.getType() == Types.Type.IMAGE){
+                if(expr.getCoerceTo() == Types.Type.COLOR || expr.getType() == Types.Type.COLOR){
+                    if(!pixelLoop(name, targetDec, "xIdx", "yIdx", false, expr, false)){
+                        imageLoop(name, "xIdx", "yIdx", expr, false);
+                    }
+                }
+                else if(expr.getType() == Types.Type.IMAGE && expr.getCoerceTo() != Types.Type.INT){
+                    Value image = value(expr);
+                    if(targetDec.getDim() != null){
+                        Value target = variable(name);
+                        assign(name, invokeStatic(ImageOps.class, "resize", image, invokeVirtual(target, "getWidth"),
+                                invokeVirtual(target, "getHeight")));
+                    }
+                    else{
+                        assign(name, invokeStatic(ImageOps.class, "clone", image));
+                    }
+                }
+                //CodeGenVisitor generates an empty statement for other expressions
+                return null;
+            }
+            if(targetDec.getType() == Types.Type.COLOR && expr.getType() == Types.Type.INT
+                    && expr.getCoerceTo() == Types.Type.COLOR){
+                throw new Unsupported("assignment without semicolon");
+            }
+            if(targetDec.getType() == Types.Type.INT && expr.getType() == Types.Type.COLOR
+                    && expr.getCoerceTo() == Types.Type.INT && expr.getFirstToken().getKind() == IToken.Kind.COLOR_CONST){
+                assign(name, colorRGB(expr.getText()));
+                return null;
+            }
+            assign(name, value(expr));
+            return null;
+        }
+        PixelSelector selector = assignmentStatement.getSelector();
+        String x = selector.getX().getText();
+        String y = selector.getY().getText();
+        if(!pixelLoop(name, targetDec, x, y, true, expr, false)){
+            imageLoop(name, x, y, expr, false);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitWriteStatement(WriteStatement writeStatement, Object arg) throws Exception {
+        Types.Type source = writeStatement.getSource().getType();
+        Types.Type dest = writeStatement.getDest().getType();
+        if(source == Types.Type.IMAGE && dest == Types.Type.CONSOLE){
+            discard(invokeStatic(ConsoleIO.class, "displayImageOnScreen", value(writeStatement.getSource())));
+        }
+        else if(source == Types.Type.IMAGE && dest == Types.Type.STRING){
+            discard(invokeStatic(FileURLIO.class, "writeImage", value(writeStatement.getSource()),
+                    value(writeStatement.getDest())));
+        }
+        else if(dest == Types.Type.STRING){
+            discard(invokeStatic(FileURLIO.class, "writeValue", value(writeStatement.getSource()),
+                    value(writeStatement.getDest())));
+        }
+        else{
+            discard(invokeVirtual(staticField(ConsoleIO.class, "console"), "println", value(writeStatement.getSource())));
+        }
+        return null;
+    }
+
+    //Builds (Boxed) FileURLIO.readValueFromFile(source) for a variable of the given type
+    private Value readValue(Expr source, Types.Type type) throws Exception {
+        Class<?> boxed = boxedType.get(type);
+        if(boxed == null){
+            throw new Unsupported("reading a value of type " + type);
+        }
+        return checkCast(invokeStatic(FileURLIO.class, "readValueFromFile", value(source)), boxed);
+    }
+
+    @Override
+    public Object visitReadStatement(ReadStatement readStatement, Object arg) throws Exception {
+        String name = readStatement.getName();
+        Declaration targetDec = readStatement.getTargetDec();
+        if(readStatement.getSource().getType() != Types.Type.STRING){
+            //console input
+            assign(name, value(readStatement.getSource()));
+            return null;
+        }
+        if(targetDec.getType() == Types.Type.IMAGE){
+            Value source = value(readStatement.getSource());
+            if(targetDec.getDim() != null){
+                Value[] size = (Value[]) targetDec.getDim().visit(this, arg);
+                assign(name, invokeStatic(FileURLIO.class, "readImage", source, size[0], size[1]));
+            }
+            else{
+                assign(name, invokeStatic(FileURLIO.class, "readImage", source));
+            }
+            discard(invokeStatic(FileURLIO.class, "closeFiles"));
+        }
+        else{
+            assign(name, readValue(readStatement.getSource(), targetDec.getType()));
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitProgram(Program program, Object arg) throws Exception {
+        try {
+            return prepare(program);
+        } catch (Unsupported | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private InterpretedProgram prepare(Program program) throws Exception {
+        //no class is defined, but javac would reject a program in a package it cannot name
+        for(String part: packageName.isEmpty() ? new String[0] : packageName.split("\\.", -1)){
+            if(part.isEmpty() || !Character.isJavaIdentifierStart(part.codePointAt(0))
+                    || !part.codePoints().allMatch(Character::isJavaIdentifierPart)){
+                throw new Unsupported("package name " + packageName);
+            }
+            JavaTypes.checkName(part);
+        }
+        JavaTypes.checkName(program.getName());
+
+        //parameters are held in the first slots of the frame, in order
+        params = program.getParams();
+        List<Class<?>> paramTypes = new ArrayList<>();
+        for(NameDef param: params){
+            programNames.add(param.getName());
+            param.visit(this, null);
+            assigned.add(param.getName());
+            paramTypes.add(javaType.get(param.getType()));
+        }
+        for(ASTNode node: program.getDecsAndStatements()){
+            if(node instanceof VarDeclaration declaration){
+                programNames.add(declaration.getName());
+            }
+        }
+        returnType = javaType.get(program.getReturnType());
+        if(returnType == null){
+            throw new Unsupported("return type " + program.getReturnType());
+        }
+
+        code = new ArrayList<>();
+        for(ASTNode node: program.getDecsAndStatements()){
+            if(returned){
+                throw new Unsupported("unreachable statement");
+            }
+            node.visit(this, null);
+        }
+        if(!returned && returnType != void.class){
+            throw new Unsupported("missing return statement");
+        }
+        return new InterpretedProgram(program.getName(), MethodType.methodType(returnType, paramTypes), frameSize, code,
+                result);
+    }
+
+    @Override
+    public Object visitNameDef(NameDef nameDef, Object arg) throws Exception {
+        Class<?> type = javaType.get(nameDef.getType());
+        if(type == null || type == void.class){
+            throw new Unsupported("variable of type " + nameDef.getType());
+        }
+        return declare(nameDef.getName(), type);
+    }
+
+    @Override
+    public Object visitNameDefWithDim(NameDefWithDim nameDefWithDim, Object arg) throws Exception {
+        return visitNameDef(nameDefWithDim, arg);
+    }
+
+    @Override
+    public Object visitReturnStatement(ReturnStatement returnStatement, Object arg) throws Exception {
+        if(returnType == void.class){
+            throw new Unsupported("return with a value in a void program");
+        }
+        result = convert(value(returnStatement.getExpr()), returnType).eval();
+        returned = true;
+        return null;
+    }
+
+    @Override
+    public Object visitVarDeclaration(VarDeclaration declaration, Object arg) throws Exception {
+        String name = declaration.getName();
+        declaration.getNameDef().visit(this, arg);
+        Expr expr = declaration.getExpr();
+        if(expr == null){
+            if(declaration.getType() == Types.Type.IMAGE){
+                if(declaration.getDim() == null){
+                    throw new Unsupported("image declared without a size");
+                }
+                assign(name, newImage(declaration.getDim()));
+            }
+            return null;
+        }
+        IToken.Kind op = declaration.getOp().getKind();
+        if(declaration.getType() == Types.Type.IMAGE){
+            //For read statements
+            if(op == IToken.Kind.LARROW){
+                Value source = value(expr);
+                if(declaration.getDim() != null){
+                    Value[] size = (Value[]) declaration.getDim().visit(this, arg);
+                    assign(name, invokeStatic(FileURLIO.class, "readImage", source, size[0], size[1]));
+                }
+                else{
+                    Value none = new Value(frame -> null, NullType.class);
+                    assign(name, invokeStatic(FileURLIO.class, "readImage", source, none, none));
+                }
+                discard(invokeStatic(FileURLIO.class, "closeFiles"));
+                return null;
+            }
+            if(op != IToken.Kind.ASSIGN){
+                throw new Unsupported("image declaration with " + op);
+            }
+            //For assign statements
+            if(declaration.getDim() != null){
+                assign(name, newImage(declaration.getDim()));
+                if(expr.getType() == Types.Type.IMAGE){
+                    Value target = variable(name);
+                    assign(name, invokeStatic(ImageOps.class, "resize", value(expr), invokeVirtual(target, "getWidth"),
+                            invokeVirtual(target, "getHeight")));
+                    return null;
+                }
+                boolean wrapColorTuple = !(expr.getFirstToken().getKind() == IToken.Kind.COLOR_CONST
+                        || expr.getCoerceTo() == Types.Type.COLOR);
+                if(!pixelLoop(name, declaration.getNameDef(), "xIdx", "yIdx", false, expr, wrapColorTuple)){
+                    imageLoop(name, "xIdx", "yIdx", expr, wrapColorTuple);
+                }
+                return null;
+            }
+            if(expr.getType() == Types.Type.IMAGE){
+                assign(name, invokeStatic(ImageOps.class, "clone", value(expr)));
+                return null;
+            }
+            assign(name, value(expr));
+            return null;
+        }
+        if(op == IToken.Kind.LARROW){
+            if(expr.getType() == Types.Type.STRING){
+                assign(name, readValue(expr, declaration.getType()));
+            }
+            else{
+                assign(name, value(expr));
+            }
+        }
+        else if(declaration.getType() == Types.Type.COLOR && expr.getType() == Types.Type.INT
+                && expr.getCoerceTo() == Types.Type.COLOR){
+            assign(name, construct(ColorTuple.class, value(expr)));
+        }
+        else if(declaration.getType() == Types.Type.INT && expr.getType() == Types.Type.COLOR
+                && expr.getCoerceTo() == Types.Type.INT && expr.getFirstToken().getKind() == IToken.Kind.COLOR_CONST){
+            assign(name, colorRGB(expr.getText()));
+        }
+        else if(declaration.getType() == Types.Type.INT && expr.getType() == Types.Type.COLOR
+                && expr.getCoerceTo() == Types.Type.INT){
+            assign(name, invokeVirtual(value(expr), "pack"));
+        }
+        else{
+            assign(name, value(expr));
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitUnaryExprPostfix(UnaryExprPostfix unaryExprPostfix, Object arg) throws Exception {
+        Value[] selector = (Value[]) unaryExprPostfix.getSelector().visit(this, arg);
+        Hoisted hoist = hoisted.get(unaryExprPostfix.getText());
+        Value packed;
+        if(hoist != null){ //inside a pixel loop, read from the hoisted array
+            packed = invokeStatic(ImageOps.class, "getPackedColor", load(hoist.pixels()), load(hoist.width()),
+                    load(hoist.height()), selector[0], selector[1]);
+        }
+        else{
+            if(!(unaryExprPostfix.getExpr() instanceof IdentExpr)){
+                throw new Unsupported("pixel selector applied to an expression");
+            }
+            packed = invokeVirtual(variable(unaryExprPostfix.getText()), "getRGB", selector[0], selector[1]);
+        }
+        return invokeStatic(ColorTuple.class, "unpack", packed);
+    }
+}
@@ -0,0 +1,140 @@
+package edu.ufl.cise.plc;
+
+import java.lang.reflect.Executable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//The rules javac applies to the Java code generated by CodeGenVisitor, for the visitors that run programs without
+//compiling that code: which names can be used, which conversions are allowed in assignment and method invocation
+//contexts (JLS 5.2, 5.3), and which overload of a runtime method is invoked (JLS 15.12.2).
+final class JavaTypes {
+    //Java keywords and restricted identifiers, which cannot be used as names in the generated code
+    static final Set<String> JAVA_RESERVED = Set.of("abstract", "assert", "boolean", "break", "byte", "case",
+            "catch", "char", "class", "const", "continue", "default", "do", "double", "else", "enum", "extends", "final",
+            "finally", "float", "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long",
+            "native", "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile",
+            "while", "true", "false", "null", "_", "var", "yield", "record", "sealed", "permits");
+    //types named in the generated code; a program name equal to one of these would hide the type
+    static final Set<String> TYPE_NAMES = Set.of("String", "Integer", "Float", "Boolean", "Object", "Color",
+            "BufferedImage", "ColorTuple", "ColorTupleFloat", "ImageOps", "ConsoleIO", "FileURLIO", "ImageRaster",
+            "RowBands");
+
+    private JavaTypes(){
+    }
+
+    //Thrown when a program uses something that javac would reject in the generated code, or that the visitor does not
+    //handle. The program should then be compiled from the Java code generated by CodeGenVisitor.
+    @SuppressWarnings("serial")
+    static class Unsupported extends Exception {
+        Unsupported(String message){
+            super(message, null, false, false);
+        }
+    }
+
+    //the type of the null literal
+    static final class NullType {
+    }
+
+    static void checkName(String name) throws Unsupported {
+        if(JAVA_RESERVED.contains(name) || TYPE_NAMES.contains(name)){
+            throw new Unsupported("name cannot be used in Java: " + name);
+        }
+    }
+
+    //Conversions allowed in assignment and method invocation contexts (JLS 5.2, 5.3)
+
+    private static final List<Class<?>> WIDENING = List.of(byte.class, short.class, int.class, long.class,
+            float.class, double.class);
+
+    static boolean widensTo(Class<?> from, Class<?> to){
+        if(from == to){
+            return true;
+        }
+        if(from == char.class){
+            return WIDENING.indexOf(to) >= WIDENING.indexOf(int.class);
+        }
+        int f = WIDENING.indexOf(from);
+        int t = WIDENING.indexOf(to);
+        return f >= 0 && t > f && !(from == byte.class && to == char.class);
+    }
+
+    static final Map<Class<?>, Class<?>> BOXES = Map.of(int.class, Integer.class, float.class, Float.class,
+            boolean.class, Boolean.class, long.class, Long.class, double.class, Double.class, char.class,
+            Character.class, byte.class, Byte.class, short.class, Short.class);
+
+    static Class<?> unboxed(Class<?> type){
+        for(Map.Entry<Class<?>, Class<?>> box: BOXES.entrySet()){
+            if(box.getValue() == type){
+                return box.getKey();
+            }
+        }
+        return null;
+    }
+
+    static boolean convertible(Class<?> from, Class<?> to, boolean boxing){
+        if(from == NullType.class){
+            return !to.isPrimitive();
+        }
+        if(from.isPrimitive() && to.isPrimitive()){
+            return from != void.class && widensTo(from, to);
+        }
+        if(!from.isPrimitive() && !to.isPrimitive()){
+            return to.isAssignableFrom(from);
+        }
+        if(!boxing || from == void.class || to == void.class){
+            return false;
+        }
+        if(from.isPrimitive()){
+            return to.isAssignableFrom(BOXES.get(from));
+        }
+        Class<?> primitive = unboxed(from);
+        return primitive != null && widensTo(primitive, to);
+    }
+
+    //Method resolution (JLS 15.12.2), without variable arity invocation
+
+    private static boolean moreSpecific(Executable m, Executable n){
+        Class<?>[] mTypes = m.getParameterTypes();
+        Class<?>[] nTypes = n.getParameterTypes();
+        for(int i = 0; i < mTypes.length; i++){
+            if(!convertible(mTypes[i], nTypes[i], false)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static <E extends Executable> E resolve(List<E> candidates, Class<?>[] args) throws Unsupported {
+        for(boolean boxing: new boolean[]{false, true}){
+            List<E> applicable = new ArrayList<>();
+            for(E candidate: candidates){
+                Class<?>[] parameters = candidate.getParameterTypes();
+                boolean ok = parameters.length == args.length && !candidate.isSynthetic();
+                for(int i = 0; ok && i < args.length; i++){
+                    ok = convertible(args[i], parameters[i], boxing);
+                }
+                if(ok){
+                    applicable.add(candidate);
+                }
+            }
+            if(applicable.isEmpty()){
+                continue;
+            }
+            List<E> maximal = new ArrayList<>();
+            for(E m: applicable){
+                if(applicable.stream().allMatch(n -> moreSpecific(m, n))){
+                    maximal.add(m);
+                }
+            }
+            if(maximal.size() != 1){
+                throw new Unsupported("ambiguous invocation of " + applicable.get(0).getName());
+            }
+            return maximal.get(0);
+        }
+        throw new Unsupported("no applicable method for " + Arrays.toString(args));
+    }
+}
@@ -2,877 +2,460 @@ package edu.ufl.cise.plc;
 
 import java.util.*;
 
-import static java.util.Map.entry;
-
 public class Lexer implements ILexer{
 
-    private int stringPos;
-    private int startingColumn;
-    private int startingRow;
     private String code;
     private int tokenPosition;
     public ArrayList<IToken> tokens;
-    private State currState;
     private int codeLength;
-    private enum State {
-        START,
-        IN_IDENT,
-        HAVE_ZERO,
-        HAVE_DOT,
-        IN_FLOAT,
-        IN_NUM,
-        IN_STRING,
-        IN_COMMENT,
-        HAVE_EQ,
-        HAVE_MINUS,
-        HAVE_LT,
-        HAVE_GT,
-        HAVE_BANG,
-        HAS_ERROR,
-        IN_BSLASH_CHECK
+    //In lazy mode, tokens only holds the tokens scanned but not yet returned by next
+    private final boolean lazy;
+    //Position of the scan
+    private int row;
+    private int column;
+    private int index;
+    private boolean scanned;
+    //Last string with a '\n' in it, whose location is reported by the strings after it
+    private Token multilineString = NO_MULTILINE_STRING;
+
+    //Character classes. Non-ASCII chars are letters, digits (only valid inside an identifier) or OTHER
+    private static final int OTHER = 0, LETTER = 1, ESC_LETTER = 2, T = 3, NONZERO = 4, ZERO = 5, UNICODE_DIGIT = 6,
+            DOT = 7, QUOTE = 8, APOSTROPHE = 9, BSLASH = 10, HASH = 11, NEWLINE = 12, CR = 13, TAB = 14, SPACE = 15,
+            EQ = 16, LT = 17, GT = 18, MINUS = 19, BANG = 20, SINGLE = 21;
+    private static final int CLASSES = 22;
+
+    //States of the DFA, in which the scan of a token continues with the next char
+    private static final int START = 0, IN_IDENT = 1, HAVE_ZERO = 2, IN_NUM = 3, HAVE_DOT = 4, IN_FLOAT = 5,
+            HAVE_EQ = 6, HAVE_LT = 7, HAVE_GT = 8, HAVE_MINUS = 9, HAVE_BANG = 10, IN_STRING = 11,
+            IN_BSLASH_CHECK = 12, IN_COMMENT = 13;
+    private static final int STATES = 14;
+
+    //Actions, which end the scan of a token (or of whitespace). "Excluding" actions leave the current char to the next token
+    private static final int SKIP_SPACE = 14, SKIP_TAB = 15, SKIP_NEWLINE = 16, SKIP_CR = 17, END_COMMENT = 18,
+            SINGLE_TOKEN = 19, OPERATOR = 20, END_STRING = 21, ERROR_CHAR = 22, //Including the current char
+            END_IDENT = 23, END_INT = 24, END_FLOAT = 25, SHORT_OPERATOR = 26, //Excluding the current char
+            ERROR_DOT = 27, ERROR_ESCAPE = 28;
+
+    private static final byte[] CHAR_CLASS = new byte[128];
+    //Next state or action, indexed by state * CLASSES + class
+    private static final byte[] TRANSITIONS = new byte[STATES * CLASSES];
+    //Kind and text of the operators ended by OPERATOR or SHORT_OPERATOR, with the same index as TRANSITIONS
+    private static final IToken.Kind[] OPERATOR_KINDS = new IToken.Kind[STATES * CLASSES];
+    private static final String[] OPERATOR_TEXTS = new String[STATES * CLASSES];
+    //Kind and text of the tokens of one char, indexed by the char
+    private static final IToken.Kind[] SINGLE_KINDS = new IToken.Kind[128];
+    private static final String[] SINGLE_TEXTS = new String[128];
+
+    //Perfect hash table of the reserved words, indexed by keywordHash
+    private static final String[] KEYWORDS = new String[64];
+    private static final IToken.Kind[] KEYWORD_KINDS = new IToken.Kind[64];
+
+    //Location reported by the strings before the first string with a '\n' in it
+    private static final Token NO_MULTILINE_STRING = new Token(IToken.Kind.STRING_LIT, "", 0, 0, 0, 0);
+
+    //Where a lazy lexer can resume scanning, between two tokens
+    record Checkpoint(int index, int row, int column, Token multilineString) { }
+
+    static {
+        for(char c = 'a'; c <= 'z'; c++){
+            CHAR_CLASS[c] = LETTER;
+            CHAR_CLASS[Character.toUpperCase(c)] = LETTER;
+        }
+        CHAR_CLASS['_'] = CHAR_CLASS['$'] = LETTER;
+        CHAR_CLASS['b'] = CHAR_CLASS['f'] = CHAR_CLASS['n'] = CHAR_CLASS['r'] = ESC_LETTER;
+        CHAR_CLASS['t'] = T;
+        for(char c = '1'; c <= '9'; c++){
+            CHAR_CLASS[c] = NONZERO;
+        }
+        CHAR_CLASS['0'] = ZERO;
+        CHAR_CLASS['.'] = DOT;
+        CHAR_CLASS['"'] = QUOTE;
+        CHAR_CLASS['\''] = APOSTROPHE;
+        CHAR_CLASS['\\'] = BSLASH;
+        CHAR_CLASS['#'] = HASH;
+        CHAR_CLASS['\n'] = NEWLINE;
+        CHAR_CLASS['\r'] = CR;
+        CHAR_CLASS['\t'] = TAB;
+        CHAR_CLASS[' '] = SPACE;
+        CHAR_CLASS['='] = EQ;
+        CHAR_CLASS['<'] = LT;
+        CHAR_CLASS['>'] = GT;
+        CHAR_CLASS['-'] = MINUS;
+        CHAR_CLASS['!'] = BANG;
+
+        single('+', IToken.Kind.PLUS, "+");
+        single('&', IToken.Kind.AND, "&");
+        single(',', IToken.Kind.COMMA, "");
+        single('/', IToken.Kind.DIV, "/");
+        single('(', IToken.Kind.LPAREN, "(");
+        single(')', IToken.Kind.RPAREN, ")");
+        single('[', IToken.Kind.LSQUARE, "[");
+        single(']', IToken.Kind.RSQUARE, "]");
+        single('%', IToken.Kind.MOD, "%");
+        single('|', IToken.Kind.OR, "|");
+        single('^', IToken.Kind.RETURN, "");
+        single(';', IToken.Kind.SEMI, ";");
+        single('*', IToken.Kind.TIMES, "*");
+
+        //START
+        Arrays.fill(TRANSITIONS, START * CLASSES, (START + 1) * CLASSES, (byte) ERROR_CHAR);
+        transition(START, IN_IDENT, LETTER, ESC_LETTER, T);
+        transition(START, IN_NUM, NONZERO);
+        transition(START, HAVE_ZERO, ZERO);
+        transition(START, IN_STRING, QUOTE);
+        transition(START, IN_COMMENT, HASH);
+        transition(START, SKIP_NEWLINE, NEWLINE);
+        transition(START, SKIP_CR, CR);
+        transition(START, SKIP_TAB, TAB);
+        transition(START, SKIP_SPACE, SPACE);
+        transition(START, HAVE_EQ, EQ);
+        transition(START, HAVE_LT, LT);
+        transition(START, HAVE_GT, GT);
+        transition(START, HAVE_MINUS, MINUS);
+        transition(START, HAVE_BANG, BANG);
+        transition(START, SINGLE_TOKEN, SINGLE);
+        // [a..z, A..Z, _, $] [a..z, A..Z, _, $, 0..9]*
+        Arrays.fill(TRANSITIONS, IN_IDENT * CLASSES, (IN_IDENT + 1) * CLASSES, (byte) END_IDENT);
+        transition(IN_IDENT, IN_IDENT, LETTER, ESC_LETTER, T, NONZERO, ZERO, UNICODE_DIGIT);
+        // '0' -> '.'
+        Arrays.fill(TRANSITIONS, HAVE_ZERO * CLASSES, (HAVE_ZERO + 1) * CLASSES, (byte) END_INT);
+        transition(HAVE_ZERO, HAVE_DOT, DOT);
+        // '1'..'9' -> '0'..'9' | '.'
+        Arrays.fill(TRANSITIONS, IN_NUM * CLASSES, (IN_NUM + 1) * CLASSES, (byte) END_INT);
+        transition(IN_NUM, IN_NUM, NONZERO, ZERO);
+        transition(IN_NUM, HAVE_DOT, DOT);
+        // '.' -> '0'..'9'
+        Arrays.fill(TRANSITIONS, HAVE_DOT * CLASSES, (HAVE_DOT + 1) * CLASSES, (byte) ERROR_DOT);
+        transition(HAVE_DOT, IN_FLOAT, NONZERO, ZERO);
+        // '0'..'9' -> '0'..'9'
+        Arrays.fill(TRANSITIONS, IN_FLOAT * CLASSES, (IN_FLOAT + 1) * CLASSES, (byte) END_FLOAT);
+        transition(IN_FLOAT, IN_FLOAT, NONZERO, ZERO);
+        // '=' -> '==' | '='
+        operator(HAVE_EQ, IToken.Kind.ASSIGN, "=");
+        operator(HAVE_EQ, EQ, IToken.Kind.EQUALS, "==");
+        // '<' -> '<<' | '<=' | '<' | '<-'
+        operator(HAVE_LT, IToken.Kind.LT, "<");
+        operator(HAVE_LT, LT, IToken.Kind.LANGLE, "<<");
+        operator(HAVE_LT, EQ, IToken.Kind.LE, "<=");
+        operator(HAVE_LT, MINUS, IToken.Kind.LARROW, "<-");
+        // '>' -> '>>' | '>=' | '>'
+        operator(HAVE_GT, IToken.Kind.GT, ">");
+        operator(HAVE_GT, GT, IToken.Kind.RANGLE, ">>");
+        operator(HAVE_GT, EQ, IToken.Kind.GE, ">=");
+        // '-' -> '->' | '-'
+        operator(HAVE_MINUS, IToken.Kind.MINUS, "-");
+        operator(HAVE_MINUS, GT, IToken.Kind.RARROW, "->");
+        // '!' -> '!=' | '!'
+        operator(HAVE_BANG, IToken.Kind.BANG, "!");
+        operator(HAVE_BANG, EQ, IToken.Kind.NOT_EQUALS, "!=");
+        // '"' [  '\' ( 'b' | 't' | 'n' | 'f' | 'r' | '"' | ' ' ' | '\')  |  NOT(  '\'  |  '"'  ) ]* '"'
+        Arrays.fill(TRANSITIONS, IN_STRING * CLASSES, (IN_STRING + 1) * CLASSES, (byte) IN_STRING);
+        transition(IN_STRING, END_STRING, QUOTE);
+        transition(IN_STRING, IN_BSLASH_CHECK, BSLASH);
+        Arrays.fill(TRANSITIONS, IN_BSLASH_CHECK * CLASSES, (IN_BSLASH_CHECK + 1) * CLASSES, (byte) ERROR_ESCAPE);
+        transition(IN_BSLASH_CHECK, IN_STRING, ESC_LETTER, T, QUOTE, APOSTROPHE, BSLASH);
+        // Runs to the end of the line
+        Arrays.fill(TRANSITIONS, IN_COMMENT * CLASSES, (IN_COMMENT + 1) * CLASSES, (byte) IN_COMMENT);
+        transition(IN_COMMENT, END_COMMENT, NEWLINE, CR);
+
+        keyword("string", IToken.Kind.TYPE);
+        keyword("int", IToken.Kind.TYPE);
+        keyword("float", IToken.Kind.TYPE);
+        keyword("boolean", IToken.Kind.TYPE);
+        keyword("color", IToken.Kind.TYPE);
+        keyword("image", IToken.Kind.TYPE);
+        keyword("void", IToken.Kind.KW_VOID);
+        keyword("getWidth", IToken.Kind.IMAGE_OP);
+        keyword("getHeight", IToken.Kind.IMAGE_OP);
+        keyword("getRed", IToken.Kind.COLOR_OP);
+        keyword("getGreen", IToken.Kind.COLOR_OP);
+        keyword("getBlue", IToken.Kind.COLOR_OP);
+        keyword("BLACK", IToken.Kind.COLOR_CONST);
+        keyword("BLUE", IToken.Kind.COLOR_CONST);
+        keyword("CYAN", IToken.Kind.COLOR_CONST);
+        keyword("DARK_GRAY", IToken.Kind.COLOR_CONST);
+        keyword("GRAY", IToken.Kind.COLOR_CONST);
+        keyword("GREEN", IToken.Kind.COLOR_CONST);
+        keyword("LIGHT_GRAY", IToken.Kind.COLOR_CONST);
+        keyword("MAGENTA", IToken.Kind.COLOR_CONST);
+        keyword("ORANGE", IToken.Kind.COLOR_CONST);
+        keyword("PINK", IToken.Kind.COLOR_CONST);
+        keyword("RED", IToken.Kind.COLOR_CONST);
+        keyword("WHITE", IToken.Kind.COLOR_CONST);
+        keyword("YELLOW", IToken.Kind.COLOR_CONST);
+        keyword("true", IToken.Kind.BOOLEAN_LIT);
+        keyword("false", IToken.Kind.BOOLEAN_LIT);
+        keyword("if", IToken.Kind.KW_IF);
+        keyword("else", IToken.Kind.KW_ELSE);
+        keyword("fi", IToken.Kind.KW_FI);
+        keyword("write", IToken.Kind.KW_WRITE);
+        keyword("console", IToken.Kind.KW_CONSOLE);
     }
-    private final Map<String, IToken.Kind> reserved = Map.ofEntries(
-            entry("string", IToken.Kind.TYPE),
-            entry("int", IToken.Kind.TYPE),
-            entry("float", IToken.Kind.TYPE),
-            entry("boolean", IToken.Kind.TYPE),
-            entry("color", IToken.Kind.TYPE),
-            entry("image", IToken.Kind.TYPE),
-            entry("void", IToken.Kind.KW_VOID),
-            entry("getWidth", IToken.Kind.IMAGE_OP),
-            entry("getHeight", IToken.Kind.IMAGE_OP),
-            entry("getRed", IToken.Kind.COLOR_OP),
-            entry("getGreen", IToken.Kind.COLOR_OP),
-            entry("getBlue", IToken.Kind.COLOR_OP),
-            entry("BLACK", IToken.Kind.COLOR_CONST),
-            entry("BLUE", IToken.Kind.COLOR_CONST),
-            entry("CYAN", IToken.Kind.COLOR_CONST),
-            entry("DARK_GRAY", IToken.Kind.COLOR_CONST),
-            entry("GRAY", IToken.Kind.COLOR_CONST),
-            entry("GREEN", IToken.Kind.COLOR_CONST),
-            entry("LIGHT_GRAY", IToken.Kind.COLOR_CONST),
-            entry("MAGENTA", IToken.Kind.COLOR_CONST),
-            entry("ORANGE", IToken.Kind.COLOR_CONST),
-            entry("PINK", IToken.Kind.COLOR_CONST),
-            entry("RED", IToken.Kind.COLOR_CONST),
-            entry("WHITE", IToken.Kind.COLOR_CONST),
-            entry("YELLOW", IToken.Kind.COLOR_CONST),
-            entry("true", IToken.Kind.BOOLEAN_LIT),
-            entry("false", IToken.Kind.BOOLEAN_LIT),
-            entry("if", IToken.Kind.KW_IF),
-            entry("else", IToken.Kind.KW_ELSE),
-            entry("fi", IToken.Kind.KW_FI),
-            entry("write", IToken.Kind.KW_WRITE),
-            entry("console", IToken.Kind.KW_CONSOLE)
-    );
-
-    public Lexer(String code){
-        this.code = code;
-        this.tokenPosition = 0;
-        this.tokens = new ArrayList<>();
-        this.currState = State.START;
-        this.codeLength = code.length();
 
-
-        dfa();
+    private static void single(char c, IToken.Kind kind, String text){
+        CHAR_CLASS[c] = SINGLE;
+        SINGLE_KINDS[c] = kind;
+        SINGLE_TEXTS[c] = text;
     }
 
-    private void dfa(){
-        StringBuilder currentToken = new StringBuilder();
-        int row = 0;
-        int column = 0;
-        int idx = 0;
-        if(codeLength > 0 && code.charAt(codeLength - 1) != '\n'){ //If input is not a string literal
-            code = code + '\n';
-            codeLength++;
-        }
-
-        while(idx < codeLength) {
-            char currentChar = code.charAt(idx);
-            if(currState == State.HAS_ERROR){
-                break;
-            }
-            switch(currState){
-                case START -> {
-                    ArrayList<Integer> positions = startState(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                    if(currState == State.START){
-                        currentToken.setLength(0); //Resets string to start creating new token
-                    }
-                }
-                case IN_IDENT -> {
-                    ArrayList<Integer> positions = inIdentState(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case HAVE_ZERO -> {
-                    ArrayList<Integer> positions = haveZero(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case IN_BSLASH_CHECK -> {
-                    ArrayList<Integer> positions = inBSlashCheck(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case HAVE_DOT -> {
-                    ArrayList<Integer> positions = haveDot(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case IN_FLOAT -> {
-                    ArrayList<Integer> positions = inFloat(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case IN_NUM -> {
-                    ArrayList<Integer> positions = inNum(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case IN_STRING -> {
-                    ArrayList<Integer> positions = inString(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case HAVE_EQ -> {
-                    ArrayList<Integer> positions = haveEqualState(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case HAVE_MINUS -> {
-                    ArrayList<Integer> positions = haveMinusState(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case HAVE_BANG -> {
-                    ArrayList<Integer> positions = haveBangState(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case HAVE_GT -> {
-                    ArrayList<Integer> positions = haveGTState(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case HAVE_LT -> {
-                    ArrayList<Integer> positions = haveLTState(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-                case IN_COMMENT -> {
-                    ArrayList<Integer> positions = commentState(idx, row, column, currentToken);
-                    row = positions.get(0);
-                    column = positions.get(1);
-                    idx = positions.get(2);
-                }
-            }
-
+    private static void transition(int state, int next, int... classes){
+        for(int c : classes){
+            TRANSITIONS[state * CLASSES + c] = (byte) next;
         }
+    }
 
+    //The operator of one char, ended by any char that does not make an operator of two chars
+    private static void operator(int state, IToken.Kind kind, String text){
+        Arrays.fill(TRANSITIONS, state * CLASSES, (state + 1) * CLASSES, (byte) SHORT_OPERATOR);
+        Arrays.fill(OPERATOR_KINDS, state * CLASSES, (state + 1) * CLASSES, kind);
+        Arrays.fill(OPERATOR_TEXTS, state * CLASSES, (state + 1) * CLASSES, text);
+    }
 
+    private static void operator(int state, int second, IToken.Kind kind, String text){
+        TRANSITIONS[state * CLASSES + second] = OPERATOR;
+        OPERATOR_KINDS[state * CLASSES + second] = kind;
+        OPERATOR_TEXTS[state * CLASSES + second] = text;
+    }
 
-
-
-        //Check to see that you didn't end at a string:
-        if(currState == State.IN_STRING){
-            tokens.add(new Token(IToken.Kind.ERROR, "", 0, 0, 0, 0));
+    private static void keyword(String word, IToken.Kind kind){
+        int hash = keywordHash(word.charAt(0), word.charAt(1), word.charAt(word.length() - 1));
+        if(KEYWORDS[hash] != null){
+            throw new IllegalStateException("Keywords " + word + " and " + KEYWORDS[hash] + " have the same hash");
         }
-        //Sentinel value representing end of file
-        tokens.add(new Token(IToken.Kind.EOF, "sentinel", 0, 0, 0, 0));
+        KEYWORDS[hash] = word;
+        KEYWORD_KINDS[hash] = kind;
     }
 
-    // WITH [b], t, n, f, r, ", ', \
-    private ArrayList<Integer> inBSlashCheck(int index, int row, int column, StringBuilder currentToken) {
-        char currentChar = code.charAt(index);
-        switch(currentChar) {
-            case '\\' -> {
-                currentToken.append((char)92);
-                currentToken.append((char)92);
-                column++;
-                index++;
-                currState = State.IN_STRING;
-            }
-            case 't' -> {
-                currentToken.append('\\');
-                currentToken.append(currentChar);
-                column += 3;
-                index++;
-                currState = State.IN_STRING;
-            }
-            case 'b', 'f', 'r', '\'', '"', 'n' -> {
-                currentToken.append('\\');
-                currentToken.append(currentChar);
-                column++;
-                index++;
-                currState = State.IN_STRING;
-            }
+    //Has no collisions among the reserved words, which all have at least two chars
+    private static int keywordHash(char first, char second, char last){
+        return (first * 3 + second + last * 27) & 63;
+    }
 
-            default -> {
-                currState = State.HAS_ERROR;
-                tokens.add(new Token(IToken.Kind.ERROR, "", 0, 0, 0, 0));
-            }
+    private static int charClass(char c){
+        if(c < 128){
+            return CHAR_CLASS[c];
         }
-        return new ArrayList<>(Arrays.asList(row, column, index));
+        return Character.isLetter(c) ? LETTER : Character.isDigit(c) ? UNICODE_DIGIT : OTHER;
     }
-    // '"' [  '\' ( 'b' | 't' | 'n' | 'f' | 'r' | '"' | ' ' ' | '\')  |  NOT(  '\'  |  '"'  ) ]* '"'
-    private ArrayList<Integer> inString(int index, int row, int column, StringBuilder currentToken) {
-        char currentChar = code.charAt(index);
-        switch(currentChar){
-            case '\\' -> {
-                column++;
-                index++;
-                currState = State.IN_BSLASH_CHECK;
-            }
-            case '"' -> {
-                currentToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.STRING_LIT, currentToken.toString(), index - (currentToken.length() - 1), currentToken.length(), startingRow, startingColumn));
-                stringPos = 0;
-                column++;
-                index++;
-                currState = State.START;
-                currentToken.setLength(0);
-            }
-            case '\n' -> {
-                stringPos++;
-                if(stringPos == 1){
-                    startingColumn = column - (currentToken.length());
-                    startingRow = row;
-                }
-                currentToken.append(currentChar);
-                index++;
-                column = 0;
-                row++;
-            }
 
-            default -> {
-                currentToken.append(currentChar);
-                column++;
-                index++;
-            }
-        }
-        return new ArrayList<>(Arrays.asList(row, column, index));
+    public Lexer(String code){
+        this(code, false);
     }
 
-    private ArrayList<Integer> inIdentState(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        if (Character.isLetter(currentChar) || currentChar == '_' || currentChar == '$' || Character.isDigit(currentChar)){
-            currToken.append(currentChar);
-            index++;
-            column++;
-            return new ArrayList<>(Arrays.asList(row, column, index));
+    //A lazy lexer scans the input only as far as needed for the tokens asked for by next and peek, and keeps no
+    //tokens that next has returned, so a large input can be parsed while it is lexed, in bounded memory.
+    //An eager lexer scans the whole input when it is created.
+    public Lexer(String code, boolean lazy){
+        this.code = code;
+        this.tokenPosition = 0;
+        this.tokens = new ArrayList<>();
+        this.lazy = lazy;
+        this.codeLength = code.length();
+        if(codeLength > 0 && code.charAt(codeLength - 1) != '\n'){ //If input is not a string literal
+            codeLength++; //charAt reads a '\n' after the end of the input
         }
 
-        String strToken = currToken.toString();
-        //CHECK FOR RESERVED WORDS HERE
-        if(reserved.containsKey(strToken)){
-            tokens.add(new Token(reserved.get(strToken), strToken, index - strToken.length(), strToken.length(), row, column - strToken.length()));
-        }
-        else{
-            tokens.add(new Token(IToken.Kind.IDENT, currToken.toString(), index - currToken.length(), currToken.length(), row, column - currToken.length()));
+        if(!lazy){
+            dfa(Integer.MAX_VALUE);
         }
+    }
 
-        switch(currentChar){
-            case '\n' -> {
-                row++;
-                index++;
-                column = 0;
+    //A lazy lexer that scans code from the checkpoint of another lexer, as that lexer would have
+    Lexer(String code, Checkpoint checkpoint){
+        this(code, true);
+        this.index = checkpoint.index();
+        this.row = checkpoint.row();
+        this.column = checkpoint.column();
+        this.multilineString = checkpoint.multilineString();
+    }
 
-            }
-            case '\t' -> {
-                column += 3;
-                index++;
-            }
-            case '\r' -> {
-                index++;
-                column++;
-            }
+    //Returns where the scan is, which is right after the last token returned by next if there are no pending tokens
+    Checkpoint checkpoint(){
+        if(!lazy || !tokens.isEmpty()){
+            throw new IllegalStateException("Lexer has pending tokens");
         }
-
-
-        currState = State.START;
-        currToken.setLength(0);
-        return new ArrayList<>(Arrays.asList(row, column, index));
+        return new Checkpoint(index, row, column, multilineString);
     }
 
-    // '<' -> '<<' | '<=' | '<' | '<-'
-    private ArrayList<Integer> haveLTState(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        switch(currentChar){
-            case '<' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.LANGLE, currToken.toString(), index - 1, 2, row, column - 1));
-                column++;
-                index++;
-            }
-            case '=' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.LE, currToken.toString(), index - 1, 2, row, column - 1));
-                column++;
-                index++;
-            }
-            case '-' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.LARROW, currToken.toString(), index - 1, 2, row, column - 1));
-                column++;
-                index++;
-            }
-            case '\n' -> {
-                tokens.add(new Token(IToken.Kind.LT, currToken.toString(), index - 1, 1, row, column - 1));
-                row++;
-                index++;
-                column = 0;
-
-            }
-            case '\t' -> {
-                tokens.add(new Token(IToken.Kind.LT, currToken.toString(), index - 1, 1, row, column - 1));
-                column += 3;
-                index++;
-            }
-            case '\r' -> {
-                tokens.add(new Token(IToken.Kind.LT, currToken.toString(), index - 1, 2, row, column - 1));
-                column++;
-                index++;
-            }
-            default -> {
-                tokens.add(new Token(IToken.Kind.LT, currToken.toString(), index - 1, 1, row, column - 1));
-            }
+    private char charAt(int index){
+        return index < code.length() ? code.charAt(index) : '\n';
+    }
 
+    //Scans until tokens holds tokenCount tokens, or to the end of the input
+    private void dfa(int tokenCount){
+        while(tokens.size() < tokenCount && !scanned) {
+            scanToken();
         }
-        currState = State.START;
-        currToken.setLength(0);
-
-        return new ArrayList<>(Arrays.asList(row, column, index));
     }
 
-    // '!' -> '!=' | '!'
-    private ArrayList<Integer> haveBangState(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        switch(currentChar){
-            case '=' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.NOT_EQUALS, currToken.toString(), index - 1, 2, row, column - 1));
-                column++;
-                index++;
-            }
-            case '\n'-> {
-                tokens.add(new Token(IToken.Kind.BANG, currToken.toString(), index - 1, 1, row, column - 1));
-                row++;
-                index++;
-                column = 0;
-
-            }
-            case '\t' -> {
-                tokens.add(new Token(IToken.Kind.BANG, currToken.toString(), index - 1, 1, row, column - 1));
-                column += 3;
-                index++;
-            }
-            case '\r' -> {
-                tokens.add(new Token(IToken.Kind.BANG, currToken.toString(), index - 1, 1, row, column - 1));
-                column++;
-                index++;
+    //Runs the DFA from START until it ends a token, skips whitespace or a comment, or reaches the end of the input
+    private void scanToken(){
+        int start = index;
+        int state = START;
+        int action;
+        char currentChar;
+        while(true){
+            if(index >= codeLength){ //Only a string can be unterminated, the input ends with a '\n'
+                if(state == IN_STRING){
+                    tokens.add(new Token(IToken.Kind.ERROR, "", 0, 0, 0, 0));
+                }
+                finish();
+                return;
             }
-            default -> {
-                tokens.add(new Token(IToken.Kind.BANG, currToken.toString(), index - 1, 1, row, column - 1));
+            currentChar = charAt(index);
+            action = TRANSITIONS[state * CLASSES + charClass(currentChar)];
+            if(action >= STATES){
+                break;
             }
+            state = action;
+            index++;
         }
-        currState = State.START;
-        currToken.setLength(0);
-
-        return new ArrayList<>(Arrays.asList(row, column, index));
-    }
 
-    //HAVE_GT, '>' -> '>>' | '>=' | '>'
-    private ArrayList<Integer> haveGTState(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        switch(currentChar) {
-            case '>' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.RANGLE, currToken.toString(), index - 1, 2, row, column - 1));
-                column++;
+        int length = index - start;
+        switch(action){
+            case SKIP_SPACE -> {
                 index++;
-            }
-            case '=' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.GE, currToken.toString(), index - 1, 2, row, column - 1));
                 column++;
-                index++;
             }
-            case '\n' -> {
-                tokens.add(new Token(IToken.Kind.GT, currToken.toString(), index - 1, 1, row, column - 1));
-                row++;
+            case SKIP_TAB -> {
                 index++;
-                column = 0;
-
-            }
-            case '\t' -> {
-                tokens.add(new Token(IToken.Kind.GT, currToken.toString(), index - 1, 1, row, column - 1));
                 column += 3;
-                index++;
             }
-            case '\r' -> {
-                tokens.add(new Token(IToken.Kind.GT, currToken.toString(), index - 1, 1, row, column - 1));
-                column++;
-                index++;
-            }
-            default -> {
-                tokens.add(new Token(IToken.Kind.GT, currToken.toString(), index - 1, 1, row, column - 1));
-            }
-        }
-        currState = State.START;
-        currToken.setLength(0);
-        return new ArrayList<>(Arrays.asList(row, column, index));
-    }
-
-    //HAVE_EQ, // '=' -> '==' | '='
-    private ArrayList<Integer> haveEqualState(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        switch(currentChar){
-            case '=' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.EQUALS, currToken.toString(), index - 1, 2, row, column - 1));
-                column++;
-                index++;
-            }
-            case '\n' -> {
-                tokens.add(new Token(IToken.Kind.ASSIGN, currToken.toString(), index - 1, 1, row, column - 1));
+            case SKIP_NEWLINE, SKIP_CR, END_COMMENT -> { // for \r\n, the char after a \r is skipped too
+                index += currentChar == '\r' ? 2 : 1;
                 row++;
-                index++;
                 column = 0;
-
             }
-            case '\t' -> {
-                tokens.add(new Token(IToken.Kind.ASSIGN, currToken.toString(), index - 1, 1, row, column - 1));
-                column += 3;
+            case SINGLE_TOKEN -> {
+                tokens.add(new Token(SINGLE_KINDS[currentChar], code, start, 1, row, column, SINGLE_TEXTS[currentChar]));
                 index++;
-            }
-            case '\r' -> {
-                tokens.add(new Token(IToken.Kind.ASSIGN, currToken.toString(), index - 1, 1, row, column - 1));
                 column++;
-                index++;
-            }
-            default -> {
-                tokens.add(new Token(IToken.Kind.ASSIGN, currToken.toString(), index - 1, 1, row, column - 1));
             }
-        }
-        currState = State.START;
-        currToken.setLength(0);
-        return new ArrayList<Integer>(Arrays.asList(row, column, index));
-    }
-    // HAVE_MINUS, // '-' -> '->' | '-'
-    private ArrayList<Integer> haveMinusState(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        switch(currentChar){
-            case '>' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.RARROW, currToken.toString(), index, 2, row, column - 1));
-                column++;
+            case OPERATOR -> {
+                int transition = state * CLASSES + charClass(currentChar);
+                tokens.add(new Token(OPERATOR_KINDS[transition], code, start, 2, row, column, OPERATOR_TEXTS[transition]));
                 index++;
+                column += 2;
             }
-            case '\n' -> {
-                tokens.add(new Token(IToken.Kind.MINUS, currToken.toString(), index, 1, row, column - 1));
-                row++;
-                column = 0;
+            case END_STRING -> {
                 index++;
+                endString(start);
             }
-            case '\t' -> {
-                tokens.add(new Token(IToken.Kind.MINUS, currToken.toString(), index, 1, row, column - 1));
-                column += 3;
-                index++;
+            case END_IDENT -> {
+                int keyword = keyword(start, length);
+                if(keyword >= 0){
+                    tokens.add(new Token(KEYWORD_KINDS[keyword], code, start, length, row, column, KEYWORDS[keyword]));
+                }
+                else{
+                    tokens.add(new Token(IToken.Kind.IDENT, code, start, length, row, column, null));
+                }
+                endToken(currentChar, length);
             }
-            case '\r' -> {
-                tokens.add(new Token(IToken.Kind.MINUS, currToken.toString(), index, 1, row, column - 1));
-                column++;
-                index++;
+            case END_INT -> {
+                //Digits of an int greater than Integer.MAX_VALUE
+                if(length > 10 || length == 10 && Long.parseLong(code, start, index, 10) > Integer.MAX_VALUE){
+                    error(code.substring(start, index));
+                    return;
+                }
+                tokens.add(new Token(IToken.Kind.INT_LIT, code, start, length, row, column, null));
+                endToken(currentChar, length);
+            }
+            case END_FLOAT -> {
+                tokens.add(new Token(IToken.Kind.FLOAT_LIT, code, start, length, row, column, null));
+                endToken(currentChar, length);
             }
-            default -> {
-                tokens.add(new Token(IToken.Kind.MINUS, currToken.toString(), index, 1, row, column - 1));
+            case SHORT_OPERATOR -> {
+                int transition = state * CLASSES + charClass(currentChar);
+                tokens.add(new Token(OPERATOR_KINDS[transition], code, start, 1, row, column, OPERATOR_TEXTS[transition]));
+                endToken(currentChar, length);
             }
+            case ERROR_CHAR -> error(String.valueOf(currentChar)); //For a char that cannot belong as a start token
+            case ERROR_DOT -> error(code.substring(start, index)); // If it catches anything that isn't a number after the dot
+            case ERROR_ESCAPE -> error("");
         }
-
-        currToken.setLength(0);
-        currState = State.START;
-
-        return new ArrayList<Integer>(Arrays.asList(row, column, index));
     }
 
-    // '0' -> '.'
-    private ArrayList<Integer> haveZero(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        if(currentChar == '.'){ //Means it is going to be a float
-            currToken.append(currentChar);
-            column++;
+    //After a token ended by currentChar, which is skipped if it is a '\r'
+    private void endToken(char currentChar, int length){
+        column += length;
+        if(currentChar == '\r'){
             index++;
-            currState = State.HAVE_DOT;
-            return new ArrayList<Integer>(Arrays.asList(row, column, index));
-        }
-        switch(currentChar){ // For any end state
-            case '\n' -> {
-                tokens.add(new Token(IToken.Kind.INT_LIT, currToken.toString(), index, 1, row, column - 1));
-                row++;
-                column = 0;
-                index++;
-                currState = State.START;
-            }
-            case '\t' -> {
-                tokens.add(new Token(IToken.Kind.INT_LIT, currToken.toString(), index, 1, row, column - 1));
-                column += 3;
-                index++;
-                currState = State.START;
-            }
-            case '\r' -> {
-                tokens.add(new Token(IToken.Kind.INT_LIT, currToken.toString(), index, 1, row, column - 1));
-                column++;
-                index++;
-                currState = State.START;
-            }
-            default -> {
-                tokens.add(new Token(IToken.Kind.INT_LIT, currToken.toString(), index, 1, row, column - 1));
-                currState = State.START;
-            }
+            column++;
         }
-        currToken.setLength(0);
-        return new ArrayList<Integer>(Arrays.asList(row, column, index));
     }
 
-    // '.' -> '0'..'9'
-    private ArrayList<Integer> haveDot(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-            switch (currentChar) {
-                case '1', '2', '3', '4', '5', '6', '7', '8', '9', '0' -> {
-                    currToken.append(currentChar);
-                    column++;
-                    index++;
-                    currState = State.IN_FLOAT;
-                }
-                default -> { // If it catches anything that isn't a number, should throw an error
-                    tokens.add(new Token(IToken.Kind.ERROR, currToken.toString(), 0, 0, 0, 0));
-                    currState = State.HAS_ERROR;
-                    currToken.setLength(0);
+    //A string with a '\n' in it is located where it starts, with \t escapes before the '\n' counted as 4 chars. Any
+    //other string reports the location of the last string with a '\n' before it, or (0, 0)
+    private void endString(int start){
+        int startColumn = column;
+        int startRow = row;
+        boolean newline = false;
+        column++;
+        for(int i = start + 1; i < index - 1; i++){
+            char currentChar = code.charAt(i);
+            if(currentChar == '\\'){
+                column += code.charAt(++i) == 't' ? 4 : 2;
+            }
+            else if(currentChar == '\n'){
+                if(!newline){
+                    newline = true;
+                    startColumn = column - (i - start);
                 }
-
-        }
-        return new ArrayList<Integer>(Arrays.asList(row, column, index));
-    }
-
-    // '0'..'9' -> '0'..'9'
-    private ArrayList<Integer> inFloat(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        switch(currentChar){
-            case '1', '2', '3', '4', '5', '6', '7', '8', '9', '0' -> {
-                currToken.append(currentChar);
-                column++;
-                index++;
-            }
-            case '\n'-> {
-                tokens.add(new Token(IToken.Kind.FLOAT_LIT, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
                 row++;
-                index++;
                 column = 0;
-                currState = State.START;
-                currToken.setLength(0);
-            }
-            case '\t' -> {
-                tokens.add(new Token(IToken.Kind.FLOAT_LIT, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
-                column += 3;
-                index++;
-                currState = State.START;
-                currToken.setLength(0);
             }
-            case '\r' -> {
-                tokens.add(new Token(IToken.Kind.FLOAT_LIT, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
+            else{
                 column++;
-                index++;
-                currState = State.START;
-                currToken.setLength(0);
-            }
-
-            default -> {
-                tokens.add(new Token(IToken.Kind.FLOAT_LIT, currToken.toString(), index - (currToken.length()), currToken.length(), row, column - (currToken.length())));
-                currState = State.START;
-                currToken.setLength(0);
             }
-
         }
-        return new ArrayList<Integer>(Arrays.asList(row, column, index));
-    }
-
-    // '1'..'9' -> '0'..'9' | '.' | 'a'..'Z'
-    private ArrayList<Integer> inNum(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        switch(currentChar){
-            case '1', '2', '3', '4', '5', '6', '7', '8', '9', '0' -> {
-                currToken.append(currentChar);
-                column++;
-                index++;
-            }
-            case '.' -> {
-                //if transitioning to a float
-                currToken.append(currentChar);
-                column++;
-                index++;
-                currState = State.HAVE_DOT;
-            }
-            case '\n' -> {
-                try{
-                    int value = Integer.parseInt(currToken.toString());
-                    tokens.add(new Token(IToken.Kind.INT_LIT, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
-                    row++;
-                    index++;
-                    column = 0;
-                    currState = State.START;
-                    currToken.setLength(0);
-                }
-                catch(Exception e){
-                    tokens.add(new Token(IToken.Kind.ERROR, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
-                    index++;
-                    currState = State.HAS_ERROR;
-                    currToken.setLength(0);
-                }
-            }
-            case '\t' -> {
-                try{
-                    int value = Integer.parseInt(currToken.toString());
-                    tokens.add(new Token(IToken.Kind.INT_LIT, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
-                    column += 3;
-                    index++;
-                    currState = State.START;
-                    currToken.setLength(0);
-                }
-                catch(Exception e){
-                    tokens.add(new Token(IToken.Kind.ERROR, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
-                    index++;
-                    currState = State.HAS_ERROR;
-                    currToken.setLength(0);
-                }
-            }
-            case '\r' -> {
-                try {
-                    int value = Integer.parseInt(currToken.toString());
-                    tokens.add(new Token(IToken.Kind.INT_LIT, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
-                    column++;
-                    index++;
-                    currState = State.START;
-                    currToken.setLength(0);
-                }
-                catch(Exception e){
-                    tokens.add(new Token(IToken.Kind.ERROR, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
-                    index++;
-                    currState = State.HAS_ERROR;
-                    currToken.setLength(0);
-                }
-            }
-            default -> {
-                try { // Changed wording of logic to make it more readable
-                    int value = Integer.parseInt(currToken.toString());
-                    tokens.add(new Token(IToken.Kind.INT_LIT, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
-                    currState = State.START;
-                    currToken.setLength(0);
-                }
-                catch(Exception e){
-                    tokens.add(new Token(IToken.Kind.ERROR, currToken.toString(), index - (currToken.length() - 1), currToken.length(), row, column - (currToken.length())));
-                    currState = State.HAS_ERROR;
-                }
-            }
-        }
-        return new ArrayList<Integer>(Arrays.asList(row, column, index));
-    }
-    // Different then other comments, will run to the end of a new line
-    private ArrayList<Integer> commentState(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        index++;
         column++;
-        if(currentChar == '\n' || currentChar == '\r'){
-            column = 0;
-            row++;
-            if(currentChar == '\r') // for \r\n
-                index++;
-            currToken.setLength(0); // Comments are ignored, so not tokenized
-            currState = State.START;
-            return new ArrayList<>(Arrays.asList(row, column, index));
+        Token token = new Token(IToken.Kind.STRING_LIT, code, start, index - start, startRow, startColumn, null);
+        if(newline){
+            multilineString = token;
         }
-        currToken.append(currentChar);
-        return new ArrayList<>(Arrays.asList(row, column, index));
+        else{
+            token.origin = multilineString;
+        }
+        tokens.add(token);
     }
 
-    private ArrayList<Integer> startState(int index, int row, int column, StringBuilder currToken){
-        char currentChar = code.charAt(index);
-        if(currentChar == '\t' && currState == State.START){
-            index++;
-            column += 3;
-            return new ArrayList<>(Arrays.asList(row, column, index));
-        }
-        if((currentChar == '\n' || currentChar == '\r' )&& currState == State.START){
-            index++;
-            row++;
-            if(currentChar == '\r')
-                index++;
-            column = 0;
-            return new ArrayList<>(Arrays.asList(row, column, index));
+    //Index of the reserved word at start in KEYWORDS, found without creating a String, or -1
+    private int keyword(int start, int length){
+        if(length < 2){
+            return -1;
         }
-        //For idents:
-        if ((Character.isLetter(currentChar) || currentChar == '_' || currentChar == '$') && currState == State.START){
-            index++;
-            column++;
-            currToken.append(currentChar);
-            currState = State.IN_IDENT;
-            return new ArrayList<>(Arrays.asList(row, column, index));
+        int hash = keywordHash(code.charAt(start), code.charAt(start + 1), code.charAt(start + length - 1));
+        String keyword = KEYWORDS[hash];
+        if(keyword != null && keyword.length() == length && code.regionMatches(start, keyword, 0, length)){
+            return hash;
         }
+        return -1;
+    }
 
-        switch(currentChar){
-
-            /**Everything below this line is to process symbols**/
-            case '+' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.PLUS, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case ' ' -> {
-                currState = State.START;
-            }
-            case '&' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.AND, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-
-            case ',' -> {
-                tokens.add(new Token(IToken.Kind.COMMA, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case '/' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.DIV, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case '(', ')' -> {
-                currToken.append(currentChar);
-                if(currentChar == '(')
-                    tokens.add(new Token(IToken.Kind.LPAREN, currToken.toString(), index, 1, row, column));
-                else
-                    tokens.add(new Token(IToken.Kind.RPAREN, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case '[', ']' -> {
-                currToken.append(currentChar);
-                if(currentChar == '[')
-                    tokens.add(new Token(IToken.Kind.LSQUARE, currToken.toString(), index, 1, row, column));
-                else
-                    tokens.add(new Token(IToken.Kind.RSQUARE, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case '%' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.MOD, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case '|' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.OR, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case '^' -> {
-                tokens.add(new Token(IToken.Kind.RETURN, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case ';' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.SEMI, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case '*' -> {
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.TIMES, currToken.toString(), index, 1, row, column));
-                currState = State.START;
-            }
-            case '=' -> {
-                if(currState == State.START){
-                    currState = State.HAVE_EQ;
-                }
-                currToken.append(currentChar);
-            }
-            case '>' -> {
-                if(currState == State.START){
-                    currState = State.HAVE_GT;
-                }
-
-                currToken.append(currentChar);
-            }
-            case '<' -> {
-                if(currState == State.START){
-                    currState = State.HAVE_LT;
-                }
-                currToken.append(currentChar);
-            }
-            case '!' -> {
-                currToken.append(currentChar);
-                currState = State.HAVE_BANG;
-            }
-            case '-' -> {
-                if(currState == State.START){
-                    currState = State.HAVE_MINUS;
-                }
-                currToken.append(currentChar);
-            }
-
-            // Case NUMS
-            case '1', '2', '3', '4', '5', '6', '7', '8', '9', '0' -> {
-                if(currentChar == '0'){
-                    currToken.append(currentChar);  //If there's a zero, prepare for a dot or not
-                    currState = State.HAVE_ZERO;
-                }
-                else {
-                    currToken.append(currentChar);      //If there's no zero, prepare for more numbers
-                    currState = State.IN_NUM;
-                }
-            }
-            case '"' -> {
-                currToken.append(currentChar);
-                currState = State.IN_STRING;
-            }
-            // for commments
-            case '#' -> {
-                currToken.append(currentChar);
-                currState = State.IN_COMMENT;
-            }
-            default -> { //For a char that cannot belong as a start token
-                currToken.append(currentChar);
-                tokens.add(new Token(IToken.Kind.ERROR, currToken.toString(), index, currToken.length(), row, column - currToken.length()));
-                currToken.setLength(0);
-                currState = State.HAS_ERROR;
-            }
-        }
-        index++;
-        column++;
-        return new ArrayList<>(Arrays.asList(row, column, index));
+    private void error(String text){
+        tokens.add(new Token(IToken.Kind.ERROR, text, 0, 0, 0, 0));
+        finish();
     }
 
+    private void finish(){
+        //Sentinel value representing end of file
+        tokens.add(new Token(IToken.Kind.EOF, "sentinel", 0, 0, 0, 0));
+        scanned = true;
+    }
 
     @Override
     public IToken next() throws LexicalException {
+       dfa(tokenPosition + 1);
        if(tokens.get(tokenPosition).getKind() == IToken.Kind.ERROR){
            throw new LexicalException("Cannot have token " + tokens.get(tokenPosition).getText() + " here!");
        }
 
-       return tokens.get(tokenPosition++);
+       return lazy ? tokens.remove(tokenPosition) : tokens.get(tokenPosition++);
     }
 
     @Override
     public IToken peek() throws LexicalException {
+        dfa(tokenPosition + 1);
         if(tokens.get(tokenPosition).getKind() == IToken.Kind.ERROR){
             throw new LexicalException("Cannot have token " + tokens.get(tokenPosition).getText() + " here!");
         }
@@ -0,0 +1,184 @@
+package edu.ufl.cise.plc;
+
+import edu.ufl.cise.plc.ast.*;
+
+//Counts the nodes of an AST: the node it visits and every node below it.
+public class NodeCounter implements ASTVisitor {
+    private int count;
+
+    public static int count(ASTNode node) throws Exception {
+        NodeCounter counter = new NodeCounter();
+        node.visit(counter, null);
+        return counter.count;
+    }
+
+    //null children, like a missing initializer or pixel selector, are not counted
+    private void visit(ASTNode node) throws Exception {
+        if(node != null){
+            node.visit(this, null);
+        }
+    }
+
+    @Override
+    public Object visitBooleanLitExpr(BooleanLitExpr booleanLitExpr, Object arg) throws Exception {
+        count++;
+        return null;
+    }
+
+    @Override
+    public Object visitStringLitExpr(StringLitExpr stringLitExpr, Object arg) throws Exception {
+        count++;
+        return null;
+    }
+
+    @Override
+    public Object visitIntLitExpr(IntLitExpr intLitExpr, Object arg) throws Exception {
+        count++;
+        return null;
+    }
+
+    @Override
+    public Object visitFloatLitExpr(FloatLitExpr floatLitExpr, Object arg) throws Exception {
+        count++;
+        return null;
+    }
+
+    @Override
+    public Object visitColorConstExpr(ColorConstExpr colorConstExpr, Object arg) throws Exception {
+        count++;
+        return null;
+    }
+
+    @Override
+    public Object visitConsoleExpr(ConsoleExpr consoleExpr, Object arg) throws Exception {
+        count++;
+        return null;
+    }
+
+    @Override
+    public Object visitColorExpr(ColorExpr colorExpr, Object arg) throws Exception {
+        count++;
+        visit(colorExpr.getRed());
+        visit(colorExpr.getGreen());
+        visit(colorExpr.getBlue());
+        return null;
+    }
+
+    @Override
+    public Object visitUnaryExpr(UnaryExpr unaryExpression, Object arg) throws Exception {
+        count++;
+        visit(unaryExpression.getExpr());
+        return null;
+    }
+
+    @Override
+    public Object visitBinaryExpr(BinaryExpr binaryExpr, Object arg) throws Exception {
+        count++;
+        visit(binaryExpr.getLeft());
+        visit(binaryExpr.getRight());
+        return null;
+    }
+
+    @Override
+    public Object visitIdentExpr(IdentExpr identExpr, Object arg) throws Exception {
+        count++;
+        return null;
+    }
+
+    @Override
+    public Object visitConditionalExpr(ConditionalExpr conditionalExpr, Object arg) throws Exception {
+        count++;
+        visit(conditionalExpr.getCondition());
+        visit(conditionalExpr.getTrueCase());
+        visit(conditionalExpr.getFalseCase());
+        return null;
+    }
+
+    @Override
+    public Object visitDimension(Dimension dimension, Object arg) throws Exception {
+        count++;
+        visit(dimension.getWidth());
+        visit(dimension.getHeight());
+        return null;
+    }
+
+    @Override
+    public Object visitPixelSelector(PixelSelector pixelSelector, Object arg) throws Exception {
+        count++;
+        visit(pixelSelector.getX());
+        visit(pixelSelector.getY());
+        return null;
+    }
+
+    @Override
+    public Object visitAssignmentStatement(AssignmentStatement assignmentStatement, Object arg) throws Exception {
+        count++;
+        visit(assignmentStatement.getSelector());
+        visit(assignmentStatement.getExpr());
+        return null;
+    }
+
+    @Override
+    public Object visitWriteStatement(WriteStatement writeStatement, Object arg) throws Exception {
+        count++;
+        visit(writeStatement.getSource());
+        visit(writeStatement.getDest());
+        return null;
+    }
+
+    @Override
+    public Object visitReadStatement(ReadStatement readStatement, Object arg) throws Exception {
+        count++;
+        visit(readStatement.getSelector());
+        visit(readStatement.getSource());
+        return null;
+    }
+
+    @Override
+    public Object visitProgram(Program program, Object arg) throws Exception {
+        count++;
+        for(NameDef param : program.getParams()){
+            visit(param);
+        }
+        for(ASTNode node : program.getDecsAndStatements()){
+            visit(node);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitNameDef(NameDef nameDef, Object arg) throws Exception {
+        count++;
+        return null;
+    }
+
+    @Override
+    public Object visitNameDefWithDim(NameDefWithDim nameDefWithDim, Object arg) throws Exception {
+        count++;
+        visit(nameDefWithDim.getDim());
+        return null;
+    }
+
+    @Override
+    public Object visitReturnStatement(ReturnStatement returnStatement, Object arg) throws Exception {
+        count++;
+        visit(returnStatement.getExpr());
+        return null;
+    }
+
+    @Override
+    public Object visitVarDeclaration(VarDeclaration declaration, Object arg) throws Exception {
+        count++;
+        visit(declaration.getNameDef());
+        visit(declaration.getExpr());
+        return null;
+    }
+
+    @Override
+    public Object visitUnaryExprPostfix(UnaryExprPostfix unaryExprPostfix, Object arg) throws Exception {
+        count++;
+        visit(unaryExprPostfix.getExpr());
+        visit(unaryExprPostfix.getSelector());
+        return null;
+    }
+}
@@ -57,6 +57,15 @@ public class Parser implements IParser {
     }
 
     private Program program() throws PLCException {
+        Program header = header();
+        consume();
+        List<ASTNode> decsAndStatements = decsAndStatementsList();
+
+        return new Program(header.getFirstToken(), header.getReturnType(), header.getName(), header.getParams(), decsAndStatements);
+    }
+
+    //Parses the program up to its ')', which is left as the current token. The program has no decsAndStatements
+    Program header() throws PLCException {
         IToken firstToken = current;
         Types.Type returnType;
         try {
@@ -74,10 +83,8 @@ public class Parser implements IParser {
         consume();
         List<NameDef> parameters = paramList();
         match(IToken.Kind.RPAREN);
-        consume();
-        List<ASTNode> decsAndStatements = decsAndStatementsList();
 
-        return new Program(firstToken, returnType, programName, parameters, decsAndStatements);
+        return new Program(firstToken, returnType, programName, parameters, List.of());
     }
 
     private List<NameDef> paramList() throws PLCException {
@@ -144,20 +151,31 @@ public class Parser implements IParser {
     private List<ASTNode> decsAndStatementsList() throws PLCException {
         List<ASTNode> decsAndStatements = new ArrayList<>();
         while(current.getKind() != IToken.Kind.EOF){
-            if(current.getKind() == IToken.Kind.TYPE || current.getKind() == IToken.Kind.KW_CONSOLE){ // Declaration
-                ASTNode declaration = declaration();
-                decsAndStatements.add(declaration);
-            }
-            else if(current.getKind() == IToken.Kind.IDENT || current.getKind() == IToken.Kind.KW_WRITE || current.getKind() == IToken.Kind.RETURN){ // Statement
-                ASTNode statement = statement();
-                decsAndStatements.add(statement);
-            }
-            match(IToken.Kind.SEMI);
+            ASTNode decOrStatement = decOrStatement();
+            if(decOrStatement != null)
+                decsAndStatements.add(decOrStatement);
             consume();
         }
         return decsAndStatements;
     }
 
+    //Parses a declaration or statement up to its ';', which is left as the current token. Returns null for a lone ';'
+    ASTNode decOrStatement() throws PLCException {
+        ASTNode decOrStatement = null;
+        if(current.getKind() == IToken.Kind.TYPE || current.getKind() == IToken.Kind.KW_CONSOLE){ // Declaration
+            decOrStatement = declaration();
+        }
+        else if(current.getKind() == IToken.Kind.IDENT || current.getKind() == IToken.Kind.KW_WRITE || current.getKind() == IToken.Kind.RETURN){ // Statement
+            decOrStatement = statement();
+        }
+        match(IToken.Kind.SEMI);
+        return decOrStatement;
+    }
+
+    IToken current() {
+        return current;
+    }
+
     private ASTNode declaration() throws PLCException {
         IToken firstToken = current;
         NameDef nameDef = nameDef();
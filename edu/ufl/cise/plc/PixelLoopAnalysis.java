@@ -0,0 +1,214 @@
+package edu.ufl.cise.plc;
+
+import edu.ufl.cise.plc.ast.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Examines the expression assigned to every pixel of an image to decide how CodeGenVisitor can generate the loop.
+//Pixels read with a pixel selector are read from int arrays hoisted out of the loop, and the loop runs y-outer/x-inner
+//unless that could change what the expression reads from the target image. When rowMajor is true, the value assigned to
+//each pixel does not depend on the order of the pixels, so the rows may also be assigned in parallel.
+class PixelLoopAnalysis implements ASTVisitor {
+    //mark image IdentExprs that are used as the base of a pixel selector or with getWidth/getHeight
+    private static final Object PIXEL_BASE = new Object();
+    private static final Object IMAGE_SIZE = new Object();
+
+    final String target;
+    final boolean targetIsParam;
+    final String xName;
+    final String yName;
+    final List<NameDef> params;
+
+    //images read with a pixel selector, in order of first use
+    final Map<String, Declaration> images = new LinkedHashMap<>();
+    //variables other than x and y whose values are used directly, with their declared types
+    final Map<String, Types.Type> captured = new LinkedHashMap<>();
+    boolean supported = true;
+    boolean rowMajor = true;
+
+    //xName and yName are null when the loop variables are not visible to the expression
+    PixelLoopAnalysis(String target, Declaration targetDec, String xName, String yName, List<NameDef> params){
+        this.target = target;
+        this.targetIsParam = params.stream().anyMatch(param -> param == targetDec);
+        this.xName = xName;
+        this.yName = yName;
+        this.params = params;
+    }
+
+    static PixelLoopAnalysis analyze(Expr expr, String target, Declaration targetDec, String xName, String yName,
+                                     List<NameDef> params) throws Exception {
+        PixelLoopAnalysis analysis = new PixelLoopAnalysis(target, targetDec, xName, yName, params);
+        expr.visit(analysis, null);
+        return analysis;
+    }
+
+    //True if the named image may be the same object as the target. Images declared in the program are always
+    //new objects, but two parameters may refer to the same image.
+    boolean mayAlias(String name){
+        if(name.equals(target)){
+            return true;
+        }
+        Declaration dec = images.get(name);
+        return targetIsParam && params.stream().anyMatch(param -> param == dec);
+    }
+
+    private boolean isLoopVariable(Expr expr, String name){
+        return name != null && expr instanceof IdentExpr && expr.getText().equals(name);
+    }
+
+    @Override
+    public Object visitBooleanLitExpr(BooleanLitExpr booleanLitExpr, Object arg) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object visitStringLitExpr(StringLitExpr stringLitExpr, Object arg) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object visitIntLitExpr(IntLitExpr intLitExpr, Object arg) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object visitFloatLitExpr(FloatLitExpr floatLitExpr, Object arg) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object visitColorConstExpr(ColorConstExpr colorConstExpr, Object arg) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object visitConsoleExpr(ConsoleExpr consoleExpr, Object arg) throws Exception {
+        //console input is read once per pixel, so the pixels must be visited in the original order
+        supported = false;
+        return null;
+    }
+
+    @Override
+    public Object visitColorExpr(ColorExpr colorExpr, Object arg) throws Exception {
+        colorExpr.getRed().visit(this, null);
+        colorExpr.getGreen().visit(this, null);
+        colorExpr.getBlue().visit(this, null);
+        return null;
+    }
+
+    @Override
+    public Object visitUnaryExpr(UnaryExpr unaryExpression, Object arg) throws Exception {
+        //the size of an image does not change when its pixels are assigned
+        boolean sizeOnly = unaryExpression.getOp().getKind() == IToken.Kind.IMAGE_OP;
+        unaryExpression.getExpr().visit(this, sizeOnly ? IMAGE_SIZE : null);
+        return null;
+    }
+
+    @Override
+    public Object visitBinaryExpr(BinaryExpr binaryExpr, Object arg) throws Exception {
+        binaryExpr.getLeft().visit(this, null);
+        binaryExpr.getRight().visit(this, null);
+        return null;
+    }
+
+    @Override
+    public Object visitIdentExpr(IdentExpr identExpr, Object arg) throws Exception {
+        //an image used as a whole would see pixels that have only been written to the hoisted array
+        if(identExpr.getType() == Types.Type.IMAGE && arg != PIXEL_BASE && arg != IMAGE_SIZE){
+            supported = false;
+        }
+        String name = identExpr.getText();
+        if(arg != PIXEL_BASE && !name.equals(xName) && !name.equals(yName)){
+            captured.putIfAbsent(name, identExpr.getDec().getType());
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitConditionalExpr(ConditionalExpr conditionalExpr, Object arg) throws Exception {
+        conditionalExpr.getCondition().visit(this, null);
+        conditionalExpr.getTrueCase().visit(this, null);
+        conditionalExpr.getFalseCase().visit(this, null);
+        return null;
+    }
+
+    @Override
+    public Object visitDimension(Dimension dimension, Object arg) throws Exception {
+        dimension.getWidth().visit(this, null);
+        dimension.getHeight().visit(this, null);
+        return null;
+    }
+
+    @Override
+    public Object visitPixelSelector(PixelSelector pixelSelector, Object arg) throws Exception {
+        pixelSelector.getX().visit(this, null);
+        pixelSelector.getY().visit(this, null);
+        return null;
+    }
+
+    @Override
+    public Object visitUnaryExprPostfix(UnaryExprPostfix unaryExprPostfix, Object arg) throws Exception {
+        if(!(unaryExprPostfix.getExpr() instanceof IdentExpr image)){
+            supported = false;
+            return null;
+        }
+        image.visit(this, PIXEL_BASE);
+        images.putIfAbsent(image.getText(), image.getDec());
+
+        //reading the target at [x,y] sees the same value in any order, since each pixel is written once after it is read
+        PixelSelector selector = unaryExprPostfix.getSelector();
+        boolean atLoopPixel = isLoopVariable(selector.getX(), xName) && isLoopVariable(selector.getY(), yName);
+        if(!atLoopPixel && mayAlias(image.getText())){
+            rowMajor = false;
+        }
+        selector.visit(this, null);
+        return null;
+    }
+
+    //The analysis is only given the expression assigned to the pixels, which contains no statements or declarations
+    private static Object notAnExpression(ASTNode node) {
+        throw new IllegalStateException("PixelLoopAnalysis only visits expressions, not " + node.getClass().getSimpleName());
+    }
+
+    @Override
+    public Object visitAssignmentStatement(AssignmentStatement assignmentStatement, Object arg) throws Exception {
+        return notAnExpression(assignmentStatement);
+    }
+
+    @Override
+    public Object visitWriteStatement(WriteStatement writeStatement, Object arg) throws Exception {
+        return notAnExpression(writeStatement);
+    }
+
+    @Override
+    public Object visitReadStatement(ReadStatement readStatement, Object arg) throws Exception {
+        return notAnExpression(readStatement);
+    }
+
+    @Override
+    public Object visitProgram(Program program, Object arg) throws Exception {
+        return notAnExpression(program);
+    }
+
+    @Override
+    public Object visitNameDef(NameDef nameDef, Object arg) throws Exception {
+        return notAnExpression(nameDef);
+    }
+
+    @Override
+    public Object visitNameDefWithDim(NameDefWithDim nameDefWithDim, Object arg) throws Exception {
+        return notAnExpression(nameDefWithDim);
+    }
+
+    @Override
+    public Object visitReturnStatement(ReturnStatement returnStatement, Object arg) throws Exception {
+        return notAnExpression(returnStatement);
+    }
+
+    @Override
+    public Object visitVarDeclaration(VarDeclaration declaration, Object arg) throws Exception {
+        return notAnExpression(declaration);
+    }
+}
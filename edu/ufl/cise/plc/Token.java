@@ -2,17 +2,46 @@ package edu.ufl.cise.plc;
 
 public class Token implements IToken {
     final Kind kind;
-    final String input;
+    String source; //Input the token was scanned from, or null if the token only has a text
     final int pos;
     final int length;
-    final SourceLocation location;
+    final int line;
+    final int column;
+    //Created from the source when first asked for, unless the token was given its text
+    private String input;
+    //Value of a literal, parsed when first asked for
+    private Object value;
+    //Token whose location is reported for this one instead of its own (a string literal reports the location of the
+    //last string literal before it with a '\n' in it), or null
+    Token origin;
+    //Moves the location of the token once the source before it has been edited, or null
+    Shift shift;
+
+    //The lines of tokens move by lines, and tokens on line also move by columns
+    static final class Shift {
+        final int line;
+        int lines;
+        int columns;
+
+        Shift(int line){
+            this.line = line;
+        }
+    }
+
     public Token(Kind kind, String input, int pos, int length, int line, int column){
+        this(kind, null, pos, length, line, column, input);
+    }
+
+    //A token whose text is the length chars at pos in source, or the given text if it is not null
+    public Token(Kind kind, String source, int pos, int length, int line, int column, String text){
 
         this.kind = kind;
-        this.input = input;
+        this.source = source;
+        this.input = text;
         this.pos = pos; //Position within string where token starts
         this.length = length;
-        this.location = new SourceLocation(line, column);
+        this.line = line;
+        this.column = column;
 
     }
 
@@ -23,12 +52,27 @@ public class Token implements IToken {
 
     @Override
     public String getText() {
+        if(input == null){
+            input = source.substring(pos, pos + length);
+        }
         return input;
     }
 
     @Override
     public IToken.SourceLocation getSourceLocation() {
-        return location;
+        if(origin != null){
+            return origin.getSourceLocation();
+        }
+        if(shift != null){
+            return new SourceLocation(line + shift.lines, line == shift.line ? column + shift.columns : column);
+        }
+        return new SourceLocation(line, column);
+    }
+
+    //Keeps the text of the token, and no longer the source it was scanned from
+    void detach() {
+        getText();
+        source = null;
     }
 
     @Override
@@ -36,7 +80,10 @@ public class Token implements IToken {
         if (kind != Kind.INT_LIT){
             throw new UnsupportedOperationException();
         }
-        return Integer.parseInt(input);
+        if(value == null){
+            value = source != null ? Integer.parseInt(source, pos, pos + length, 10) : Integer.parseInt(input);
+        }
+        return (Integer) value;
     }
 
     @Override
@@ -44,7 +91,10 @@ public class Token implements IToken {
         if(kind != Kind.FLOAT_LIT){
             throw new UnsupportedOperationException();
         }
-        return Float.parseFloat(input);
+        if(value == null){
+            value = Float.parseFloat(getText());
+        }
+        return (Float) value;
 
     }
 
@@ -53,18 +103,25 @@ public class Token implements IToken {
         if(kind != Kind.BOOLEAN_LIT){
             throw new UnsupportedOperationException();
         }
-        return input.equals("true"); }
+        return getText().equals("true"); }
 
     @Override
     public String getStringValue() {
         if(kind != Kind.STRING_LIT){
             throw new UnsupportedOperationException();
         }
+        if(value == null){
+            value = stringValue(getText());
+        }
+        return (String) value;
+    }
+
+    private static String stringValue(String input) {
         StringBuilder output = new StringBuilder();
-        for (int i = 0; i < this.input.length(); i++) {
-            if (i != 0 && i != this.input.length()-1) {
-                if (this.input.charAt(i - 1) == '\\') {
-                    switch (this.input.charAt(i)) {
+        for (int i = 0; i < input.length(); i++) {
+            if (i != 0 && i != input.length()-1) {
+                if (input.charAt(i - 1) == '\\') {
+                    switch (input.charAt(i)) {
                         case 'b' -> {
                             output.append((char) 8);
                         }
@@ -90,15 +147,15 @@ public class Token implements IToken {
                             output.append((char)92);
                         }
                         default -> {
-                            output.append(this.input.charAt(i));
+                            output.append(input.charAt(i));
                         }
                     }
                 }
-                else if(this.input.charAt(i) != '\\')
-                    output.append(this.input.charAt(i));
+                else if(input.charAt(i) != '\\')
+                    output.append(input.charAt(i));
             }
-            else if (this.input.charAt(i) != '\\' && this.input.charAt(i) != '\"') {
-                output.append(this.input.charAt(i));
+            else if (input.charAt(i) != '\\' && input.charAt(i) != '\"') {
+                output.append(input.charAt(i));
             }
         }
         return output.toString();
@@ -7,7 +7,7 @@ public class AssignmentStatement extends Statement {
 
 	final String name;
 	final PixelSelector selector;
-	final Expr expr;
+	Expr expr;
 //	Type targetType;
 	Declaration targetDec;
 
@@ -30,6 +30,10 @@ public class AssignmentStatement extends Statement {
 	public Expr getExpr() {
 		return expr;
 	}
+
+	public void setExpr(Expr expr) {
+		this.expr = expr;
+	}
 	
 	
 	
@@ -4,7 +4,7 @@ import edu.ufl.cise.plc.IToken;
 
 public class ReturnStatement extends Statement {
 	
-	final Expr expr;
+	Expr expr;
 
 	public ReturnStatement(IToken firstToken, Expr expr) {
 		super(firstToken);
@@ -15,6 +15,10 @@ public class ReturnStatement extends Statement {
 		return expr;
 	}
 
+	public void setExpr(Expr expr) {
+		this.expr = expr;
+	}
+
 	@Override
 	public Object visit(ASTVisitor v, Object arg) throws Exception {
 		return v.visitReturnStatement(this,arg);
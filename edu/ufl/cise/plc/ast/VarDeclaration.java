@@ -6,7 +6,7 @@ import edu.ufl.cise.plc.ast.Types.Type;
 public class VarDeclaration extends Declaration {
 		
 	final NameDef nameDef;
-	final Expr expr;
+	Expr expr;
 	final IToken op;
 	
 
@@ -30,6 +30,10 @@ public class VarDeclaration extends Declaration {
 		return expr;
 	}
 
+	public void setExpr(Expr expr) {
+		this.expr = expr;
+	}
+
 	
 	public String getName() {
 		return nameDef.getName();
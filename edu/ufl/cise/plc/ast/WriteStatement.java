@@ -4,7 +4,7 @@ import edu.ufl.cise.plc.IToken;
 
 public class WriteStatement extends Statement {
 
-	final Expr source;
+	Expr source;
 	final Expr dest;
 	
 	
@@ -19,6 +19,10 @@ public class WriteStatement extends Statement {
 		return source;
 	}
 
+	public void setSource(Expr source) {
+		this.source = source;
+	}
+
 	public Expr getDest() {
 		return dest;
 	}
@@ -6,7 +6,9 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
@@ -77,14 +79,54 @@ public class FileURLIO {
 	 * @return BufferedImage representing the indicated image
 	 */
 	static BufferedImage readFromURL(URL url) {
+		ImageIOEvent event = new ImageIOEvent();
+		event.begin();
 		try {
 			System.err.println("reading image from url:  " + url);
-			return ImageIO.read(url);
+			try (CountingInputStream in = new CountingInputStream(url.openStream())) {
+				BufferedImage image = ImageIO.read(in);
+				event.commitURL(url, image, in.count);
+				return image;
+			}
 		} catch (IOException e) {
 			throw new PLCRuntimeException(e);
 		}
 	}
 	
+	//counts the bytes read from a URL, which has no length to ask for like a file
+	private static class CountingInputStream extends FilterInputStream {
+		long count;
+		
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+	
 	/**
 	 * Reads and returns the image from the given file
 	 * 
@@ -94,6 +136,8 @@ public class FileURLIO {
 	 * @return
 	 */
 	static BufferedImage readFromFile(String filename) {
+		ImageIOEvent event = new ImageIOEvent();
+		event.begin();
 		File f = new File(filename);
 		BufferedImage bi;
 		try {
@@ -101,6 +145,7 @@ public class FileURLIO {
 		} catch (IOException e) {
 			throw new PLCRuntimeException(e.getMessage() + " " + filename, e);
 		}
+		event.commitFile("read", f, bi);
 		return bi;
 	}
 	
@@ -115,10 +160,13 @@ public class FileURLIO {
 	 * @param filename
 	 */
 	public static void writeImage(BufferedImage image, String filename) {
+		ImageIOEvent event = new ImageIOEvent();
+		event.begin();
 		Path path = Paths.get(filename + ".jpeg");
 		try {
 			File f = path.toFile();
 			boolean success = ImageIO.write(image, "jpeg", f);
+			event.commitFile("write", f, image);
 			if (!success) {
 				System.err.println("success = " + success + " for image file  " + filename);
 			}
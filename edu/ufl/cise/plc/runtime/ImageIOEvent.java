@@ -0,0 +1,77 @@
+package edu.ufl.cise.plc.runtime;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URL;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event for each image read or written by FileURLIO, lasting as long as the
+ * read or write.
+ *
+ * As with ImageOpEvent, nothing but creating and beginning the event is done unless a
+ * recording that enables edu.ufl.cise.plc.ImageIO is running.
+ */
+@Name("edu.ufl.cise.plc.ImageIO")
+@Label("PLCLang Image I/O")
+@Category({ "PLCLang", "Runtime" })
+@Description("An image read or written by FileURLIO")
+final class ImageIOEvent extends jdk.jfr.Event {
+
+	@Label("Operation")
+	@Description("read or write")
+	String operation;
+
+	@Label("Source")
+	@Description("file or url")
+	String source;
+
+	@Label("Location")
+	@Description("The path of the file or the URL")
+	String location;
+
+	@Label("Width")
+	int width;
+
+	@Label("Height")
+	int height;
+
+	@Label("Bytes")
+	@DataAmount
+	@Description("Bytes read or written, or -1 if the file does not exist")
+	long bytes;
+
+	/** Ends the event and commits it, for a file, if a recording enables it. image may be null. */
+	void commitFile(String operation, File file, BufferedImage image) {
+		if (shouldCommit()) {
+			this.source = "file";
+			this.location = file.getPath();
+			this.bytes = file.exists() ? file.length() : -1;
+			commit(operation, image);
+		}
+	}
+
+	/** Ends the event and commits it, for a URL, if a recording enables it. image may be null. */
+	void commitURL(URL url, BufferedImage image, long bytes) {
+		if (shouldCommit()) {
+			this.source = "url";
+			this.location = url.toString();
+			this.bytes = bytes;
+			commit("read", image);
+		}
+	}
+
+	private void commit(String operation, BufferedImage image) {
+		this.operation = operation;
+		if (image != null) {
+			this.width = image.getWidth();
+			this.height = image.getHeight();
+		}
+		commit();
+	}
+}
@@ -0,0 +1,63 @@
+package edu.ufl.cise.plc.runtime;
+
+import java.awt.image.BufferedImage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import edu.ufl.cise.plc.runtime.ImageOps.OP;
+
+/**
+ * A JFR event for each whole-image operation of ImageOps, lasting as long as the
+ * operation.
+ *
+ * The event is created and begun before the operation and committed after it. When
+ * no recording is running, or the recording disables edu.ufl.cise.plc.ImageOp,
+ * shouldCommit is false and nothing else is done, so the event costs next to nothing.
+ * Recordings started with jcmd JFR.start record it, as it is enabled unless its
+ * settings say otherwise.
+ */
+@Name("edu.ufl.cise.plc.ImageOp")
+@Label("PLCLang Image Operation")
+@Category({ "PLCLang", "Runtime" })
+@Description("A whole-image operation of ImageOps")
+@StackTrace(false)
+final class ImageOpEvent extends jdk.jfr.Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Operator")
+	@Description("The operator of binaryImageImageOp and binaryImageScalarOp")
+	String op;
+
+	@Label("Width")
+	int width;
+
+	@Label("Height")
+	int height;
+
+	@Label("Image Type")
+	@Description("The BufferedImage type of the image operated on")
+	int imageType;
+
+	@Label("Parallel")
+	@Description("True if the image has enough pixels to be processed in row bands on ImageOps.getPool()")
+	boolean parallel;
+
+	/** Ends the event and commits it if a recording enables it. op may be null. */
+	void commit(String operation, OP op, BufferedImage image) {
+		if (shouldCommit()) {
+			this.operation = operation;
+			this.op = op == null ? null : op.name();
+			this.width = image.getWidth();
+			this.height = image.getHeight();
+			this.imageType = image.getType();
+			this.parallel = (long) width * height >= ImageOps.getParallelThreshold() && height > 1;
+			commit();
+		}
+	}
+}
@@ -5,6 +5,8 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * An image is represented by a 2D array of pixels. An image is implemented 
@@ -25,10 +27,70 @@ import java.util.Arrays;
  * class provides methods for converting between a ColorTuple and packed int 
  * representation. 
  * 
+ * The whole-image operations (extractRed, extractGreen, extractBlue, binaryImageImageOp, 
+ * binaryImageScalarOp, equals, and clone) process images with at least 
+ * getParallelThreshold() pixels in row bands on the pool returned by getPool().  The 
+ * results are identical to processing the image sequentially.
+ * 
+ * Each whole-image operation, and resize, is recorded as an ImageOpEvent in Java Flight 
+ * Recorder recordings.
+ * 
  */
 
 public class ImageOps {
 	
+	/**
+	 * Default minimum number of pixels for a whole-image operation to run in parallel.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 20;
+	
+	private static volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	
+	private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+	
+	/**
+	 * Sets the minimum number of pixels an image must have for whole-image operations 
+	 * on it to run in parallel.  0 parallelizes every image with more than one row; 
+	 * Integer.MAX_VALUE effectively disables parallel execution.
+	 * 
+	 * @param threshold
+	 */
+	public static void setParallelThreshold(int threshold) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("parallel threshold must not be negative: " + threshold);
+		}
+		parallelThreshold = threshold;
+	}
+	
+	public static int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	
+	/**
+	 * Sets the pool used to run whole-image operations in parallel.  By default, this is 
+	 * ForkJoinPool.commonPool().
+	 * 
+	 * @param forkJoinPool
+	 */
+	public static void setPool(ForkJoinPool forkJoinPool) {
+		if (forkJoinPool == null) {
+			throw new IllegalArgumentException("pool must not be null");
+		}
+		pool = forkJoinPool;
+	}
+	
+	public static ForkJoinPool getPool() {
+		return pool;
+	}
+	
+	/**
+	 * Applies band to the rows of an image with the given size, using the current 
+	 * parallel threshold and pool.
+	 */
+	private static void forEachRowBand(int width, int height, RowBands.Band band) {
+		RowBands.forEach(width, height, parallelThreshold, pool, band);
+	}
+	
 	/**  
 	 * returns the pixel at the x,y location in the given image in packed int form.
 	 * 
@@ -82,6 +144,47 @@ public class ImageOps {
 		image.setRGB(x, y, colorTuple.pack());
 	}
 
+	/**
+	 * returns the pixel at the x,y location in packed int form, where pixels is the 
+	 * array obtained from ImageRaster.pixels for an image with the given width and height.
+	 * 
+	 * Like BufferedImage.getRGB, throws an ArrayIndexOutOfBoundsException if x,y is 
+	 * outside of the image.
+	 * 
+	 * @param pixels
+	 * @param width
+	 * @param height
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public static int getPackedColor(int[] pixels, int width, int height, int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+		}
+		return pixels[y * width + x];
+	}
+	
+	/**
+	 * sets the pixel at the given index of an array obtained from ImageRaster.pixels 
+	 * to the given int value.  The pixel at x,y is at index y * width + x.
+	 * 
+	 * @param pixels
+	 * @param index
+	 * @param packedColor
+	 */
+	public static void setColor(int[] pixels, int index, int packedColor) {
+		pixels[index] = packedColor;
+	}
+	
+	public static void setColor(int[] pixels, int index, ColorTuple colorTuple) {
+		pixels[index] = colorTuple.pack();
+	}
+	
+	public static void setColor(int[] pixels, int index, ColorTupleFloat colorTuple) {
+		pixels[index] = colorTuple.pack();
+	}
+
 	
 	/**
 	 * Returns a new image containing only the red component of the given image.  
@@ -91,18 +194,11 @@ public class ImageOps {
 	 * @return
 	 */
 	public static BufferedImage extractRed(BufferedImage image) {
-		int width = image.getWidth();
-		int height = image.getHeight();
-		BufferedImage newImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				int pixel = getPackedColor(image, x, y);
-				int red = ColorTuple.getRed(pixel);
-				int redPixel = ColorTuple.makePackedColor(red, 0, 0);
-				newImage.setRGB(x, y, redPixel);
-			}
-		}
-		return newImage;
+		ImageOpEvent event = new ImageOpEvent();
+		event.begin();
+		BufferedImage result = extractComponent(image, ColorTuple.SELECT_RED);
+		event.commit("extractRed", null, image);
+		return result;
 	}
 
 	/**
@@ -113,18 +209,11 @@ public class ImageOps {
 	 * @return
 	 */
 	public static BufferedImage extractGreen(BufferedImage image) {
-		int width = image.getWidth();
-		int height = image.getHeight();
-		BufferedImage newImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				int pixel = getPackedColor(image, x, y);
-				int green = ColorTuple.getGreen(pixel);
-				int greenPixel = ColorTuple.makePackedColor(0, green, 0);
-				newImage.setRGB(x, y, greenPixel);
-			}
-		}
-		return newImage;
+		ImageOpEvent event = new ImageOpEvent();
+		event.begin();
+		BufferedImage result = extractComponent(image, ColorTuple.SELECT_GRN);
+		event.commit("extractGreen", null, image);
+		return result;
 	}
 
 	/**
@@ -135,17 +224,37 @@ public class ImageOps {
 	 * @return
 	 */	
 	public static BufferedImage extractBlue(BufferedImage image) {
+		ImageOpEvent event = new ImageOpEvent();
+		event.begin();
+		BufferedImage result = extractComponent(image, ColorTuple.SELECT_BLU);
+		event.commit("extractBlue", null, image);
+		return result;
+	}
+
+	/**
+	 * Returns a new image where each pixel keeps only the color component selected by
+	 * the given mask (one of ColorTuple.SELECT_RED, SELECT_GRN, or SELECT_BLU).
+	 * 
+	 * @param image
+	 * @param select
+	 * @return
+	 */
+	private static BufferedImage extractComponent(BufferedImage image, int select) {
 		int width = image.getWidth();
 		int height = image.getHeight();
 		BufferedImage newImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				int pixel = getPackedColor(image, x, y);
-				int blue = ColorTuple.getBlue(pixel);
-				int bluePixel = ColorTuple.makePackedColor(0, 0, blue);
-				newImage.setRGB(x, y, bluePixel);
+		int[] dst = ImageRaster.backingArray(newImage);
+		forEachRowBand(width, height, (fromRow, toRow) -> {
+			ImageRaster.Rows rows = new ImageRaster.Rows(image);
+			for (int y = fromRow; y < toRow; y++) {
+				int srcOffset = rows.load(y);
+				int[] src = rows.array();
+				int dstOffset = y * width;
+				for (int x = 0; x < width; x++) {
+					dst[dstOffset + x] = ColorTuple.SELECT_ALPHA | (src[srcOffset + x] & select);
+				}
 			}
-		}
+		});
 		return newImage;
 	}
 
@@ -228,6 +337,8 @@ public class ImageOps {
 	 */
 	
 	public static BufferedImage binaryImageImageOp(OP op, BufferedImage left, BufferedImage right) {
+		ImageOpEvent event = new ImageOpEvent();
+		event.begin();
 		int lwidth = left.getWidth();
 		int rwidth = right.getWidth();
 		int lheight = left.getHeight();
@@ -236,14 +347,19 @@ public class ImageOps {
 			throw new PLCRuntimeException("Attempting binary operation on images with unequal sizes");
 		}
 		BufferedImage result = new BufferedImage(lwidth, lheight, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < lwidth; x++) {
-			for (int y = 0; y < lheight; y++) {
-				ColorTuple leftColor = ColorTuple.unpack(left.getRGB(x, y));
-				ColorTuple rightColor = ColorTuple.unpack(right.getRGB(x, y));
-				ColorTuple newColor = binaryTupleOp(op, leftColor, rightColor);
-				result.setRGB(x, y, newColor.pack());
+		int[] dst = ImageRaster.backingArray(result);
+		forEachRowBand(lwidth, lheight, (fromRow, toRow) -> {
+			ImageRaster.Rows leftRows = new ImageRaster.Rows(left);
+			ImageRaster.Rows rightRows = new ImageRaster.Rows(right);
+			for (int y = fromRow; y < toRow; y++) {
+				int leftOffset = leftRows.load(y);
+				int rightOffset = rightRows.load(y);
+				int[] leftPixels = leftRows.array();
+				int[] rightPixels = rightRows.array();
+				PackedPixelOps.imageImage(op, leftPixels, leftOffset, rightPixels, rightOffset, dst, y * lwidth, lwidth);
 			}
-		}
+		});
+		event.commit("binaryImageImageOp", op, left);
 		return result;
 	}
 	
@@ -257,17 +373,20 @@ public class ImageOps {
 	 * @return
 	 */
 	public static BufferedImage binaryImageScalarOp(OP op, BufferedImage left, int right) {
+		ImageOpEvent event = new ImageOpEvent();
+		event.begin();
 		int lwidth = left.getWidth();
 		int lheight = left.getHeight();
 		BufferedImage result = new BufferedImage(lwidth, lheight, BufferedImage.TYPE_INT_RGB);
-		ColorTuple rightColor = new ColorTuple(right);
-		for (int x = 0; x < lwidth; x++) {
-			for (int y = 0; y < lheight; y++) {
-				ColorTuple leftColor = ColorTuple.unpack(left.getRGB(x, y));
-				ColorTuple newColor = binaryTupleOp(op, leftColor, rightColor);
-				result.setRGB(x, y, newColor.pack());
+		int[] dst = ImageRaster.backingArray(result);
+		forEachRowBand(lwidth, lheight, (fromRow, toRow) -> {
+			ImageRaster.Rows leftRows = new ImageRaster.Rows(left);
+			for (int y = fromRow; y < toRow; y++) {
+				int leftOffset = leftRows.load(y);
+				PackedPixelOps.imageScalar(op, leftRows.array(), leftOffset, right, dst, y * lwidth, lwidth);
 			}
-		}
+		});
+		event.commit("binaryImageScalarOp", op, left);
 		return result;
 	}
 	
@@ -312,9 +431,50 @@ public class ImageOps {
 //	}
 //
 	public static boolean equals(BufferedImage image0, BufferedImage image1) {
-		int[] pixels0 = image0.getRGB(0,0,image0.getWidth(), image0.getHeight(), null,0,image0.getWidth());
-		int[] pixels1 = image1.getRGB(0,0,image1.getWidth(), image1.getHeight(), null,0,image1.getWidth());
-		return Arrays.equals(pixels0, pixels1);
+		ImageOpEvent event = new ImageOpEvent();
+		event.begin();
+		boolean equal = equalPixels(image0, image1);
+		event.commit("equals", null, image0);
+		return equal;
+	}
+
+	private static boolean equalPixels(BufferedImage image0, BufferedImage image1) {
+		int width = image0.getWidth();
+		int height = image0.getHeight();
+		if (width != image1.getWidth() || height != image1.getHeight()) {
+			//images with different shapes but the same number of pixels are compared as flat arrays of pixels
+			if ((long) width * height != (long) image1.getWidth() * image1.getHeight()) {
+				return false;
+			}
+			return Arrays.equals(getRGBPixels(image0), getRGBPixels(image1));
+		}
+		//set by the first band that finds a difference so that the remaining bands can stop early
+		AtomicBoolean different = new AtomicBoolean();
+		forEachRowBand(width, height, (fromRow, toRow) -> {
+			ImageRaster.Rows rows0 = new ImageRaster.Rows(image0);
+			ImageRaster.Rows rows1 = new ImageRaster.Rows(image1);
+			boolean rgb0 = rows0.isRGB();
+			boolean rgb1 = rows1.isRGB();
+			for (int y = fromRow; y < toRow && !different.get(); y++) {
+				int offset0 = rows0.load(y);
+				int offset1 = rows1.load(y);
+				int[] pixels0 = rows0.array();
+				int[] pixels1 = rows1.array();
+				if (rgb0 && rgb1) {
+					if (!Arrays.equals(pixels0, offset0, offset0 + width, pixels1, offset1, offset1 + width)) {
+						different.set(true);
+					}
+					continue;
+				}
+				for (int x = 0; x < width; x++) {
+					if (ImageRaster.toRGB(pixels0[offset0 + x], rgb0) != ImageRaster.toRGB(pixels1[offset1 + x], rgb1)) {
+						different.set(true);
+						break;
+					}
+				}
+			}
+		});
+		return !different.get();
 	}
 
 	/**
@@ -323,8 +483,25 @@ public class ImageOps {
 	 * @return new image that is copy of the given image
 	 */
 	public static final BufferedImage clone(BufferedImage image) {
+	    ImageOpEvent event = new ImageOpEvent();
+	    event.begin();
+	    BufferedImage clone = copy(image);
+	    event.commit("clone", null, image);
+	    return clone;
+	}
+
+	private static BufferedImage copy(BufferedImage image) {
 	    BufferedImage clone = new BufferedImage(image.getWidth(),
 	            image.getHeight(), image.getType());
+	    //opaque int images can be copied directly; others are drawn to keep the existing compositing behavior
+	    int[] data = image.getType() == BufferedImage.TYPE_INT_RGB ? ImageRaster.backingArray(image) : null;
+	    if (data != null) {
+	    	int[] dst = ImageRaster.backingArray(clone);
+	    	int width = image.getWidth();
+	    	forEachRowBand(width, image.getHeight(), (fromRow, toRow) -> 
+	    		System.arraycopy(data, fromRow * width, dst, fromRow * width, (toRow - fromRow) * width));
+	    	return clone;
+	    }
 	    Graphics2D g2d = clone.createGraphics();
 	    g2d.drawImage(image, 0, 0, null);
 	    g2d.dispose();
@@ -341,6 +518,8 @@ public class ImageOps {
 	 */
 	public static BufferedImage resize(BufferedImage image, int maxX,
 			int maxY) {
+		ImageOpEvent event = new ImageOpEvent();
+		event.begin();
 		int w = image.getWidth();
 		int h = image.getHeight();
 		AffineTransform at = new AffineTransform();
@@ -349,6 +528,7 @@ public class ImageOps {
 				AffineTransformOp.TYPE_BILINEAR);
 		BufferedImage newResizedImage= null;
 		newResizedImage = scaleOp.filter(image, newResizedImage);
+		event.commit("resize", null, image);
 		return newResizedImage;
 	}
 	
@@ -363,7 +543,17 @@ public class ImageOps {
 	 * @return array of ints representing the packed pixels of the given image
 	 */
 	public static int[] getRGBPixels(BufferedImage result) {
-		return result.getRGB(0,0,result.getWidth(), result.getHeight(), null,0,result.getWidth());
+		int[] data = ImageRaster.backingArray(result);
+		if (data == null) {
+			return result.getRGB(0,0,result.getWidth(), result.getHeight(), null,0,result.getWidth());
+		}
+		int[] pixels = data.clone();
+		if (!ImageRaster.hasAlpha(result)) {
+			for (int i = 0; i < pixels.length; i++) {
+				pixels[i] |= ColorTuple.SELECT_ALPHA;
+			}
+		}
+		return pixels;
 	}
 	
 }
@@ -0,0 +1,161 @@
+package edu.ufl.cise.plc.runtime;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Provides access to the pixels of a BufferedImage as a flat, row-major array of
+ * packed ints.
+ *
+ * Images of type TYPE_INT_RGB and TYPE_INT_ARGB keep their pixels in an int[]
+ * (a DataBufferInt) with exactly this layout, so the array can be used directly
+ * instead of going through getRGB and setRGB for every pixel. For all other image
+ * types, pixels are copied in bulk with getRGB(startX, startY, w, h, rgbArray,
+ * offset, scansize).
+ *
+ * The value stored in the backing array of a TYPE_INT_RGB image does not carry an
+ * alpha component, so the high byte may differ from the value returned by getRGB.
+ * Only the red, green, and blue components of values obtained from this class
+ * should be used, or the value should be passed through toRGB first.
+ *
+ * Note that obtaining the backing array of an image prevents Java2D from
+ * accelerating that image.
+ */
+public final class ImageRaster {
+
+	private ImageRaster() {
+	}
+
+	/**
+	 * Returns the int[] holding the pixels of the given image, or null if the image
+	 * is not a TYPE_INT_RGB or TYPE_INT_ARGB image whose pixels are stored
+	 * contiguously in row-major order starting at index 0.
+	 *
+	 * @param image
+	 * @return the backing array of the image, or null
+	 */
+	public static int[] backingArray(BufferedImage image) {
+		int type = image.getType();
+		if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) {
+			return null;
+		}
+		WritableRaster raster = image.getRaster();
+		DataBuffer buffer = raster.getDataBuffer();
+		if (!(buffer instanceof DataBufferInt) || buffer.getNumBanks() != 1 || buffer.getOffset() != 0) {
+			return null;
+		}
+		if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel)
+				|| sampleModel.getScanlineStride() != image.getWidth()
+				|| raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+			return null;
+		}
+		return ((DataBufferInt) buffer).getData();
+	}
+
+	/**
+	 * Returns the pixels of the given image in a row-major int array, where the pixel
+	 * at x,y is at index y * width + x. This is the backing array of the image if
+	 * there is one, so changes to the array are changes to the image. Otherwise it
+	 * is a copy, and changes must be written back with commit.
+	 *
+	 * @param image
+	 * @return array containing the packed pixels of the image
+	 */
+	public static int[] pixels(BufferedImage image) {
+		int[] data = backingArray(image);
+		if (data != null) {
+			return data;
+		}
+		int width = image.getWidth();
+		return image.getRGB(0, 0, width, image.getHeight(), null, 0, width);
+	}
+
+	/**
+	 * Writes pixels obtained from the pixels method back into the image. This does
+	 * nothing if pixels is the backing array of the image.
+	 *
+	 * @param image
+	 * @param pixels
+	 */
+	public static void commit(BufferedImage image, int[] pixels) {
+		if (pixels == backingArray(image)) {
+			return;
+		}
+		int width = image.getWidth();
+		image.setRGB(0, 0, width, image.getHeight(), pixels, 0, width);
+	}
+
+	/**
+	 * Returns true if the given image stores an alpha value for each pixel. If not,
+	 * getRGB always reports an alpha of 0xff.
+	 *
+	 * @param image
+	 * @return
+	 */
+	static boolean hasAlpha(BufferedImage image) {
+		return image.getColorModel().hasAlpha();
+	}
+
+	/**
+	 * Converts a value read from the backing array of an image into the value
+	 * getRGB would return for that pixel.
+	 *
+	 * @param value
+	 * @param hasAlpha
+	 * @return
+	 */
+	static int toRGB(int value, boolean hasAlpha) {
+		return hasAlpha ? value : value | ColorTuple.SELECT_ALPHA;
+	}
+
+	/**
+	 * Reads the rows of an image one at a time. For images with a backing array, the
+	 * rows are read in place; otherwise each row is copied into a scratch buffer
+	 * that is reused for every row.
+	 *
+	 * Usage: int offset = rows.load(y); then the pixels of row y are
+	 * rows.array()[offset] to rows.array()[offset + width - 1].
+	 *
+	 * Instances are not thread safe.
+	 */
+	static final class Rows {
+		final BufferedImage image;
+		final int width;
+		final int[] data;
+		final boolean hasAlpha;
+		int[] scratch;
+
+		Rows(BufferedImage image) {
+			this.image = image;
+			this.width = image.getWidth();
+			this.data = backingArray(image);
+			this.hasAlpha = hasAlpha(image);
+		}
+
+		int load(int y) {
+			if (data != null) {
+				return y * width;
+			}
+			if (scratch == null) {
+				scratch = new int[width];
+			}
+			image.getRGB(0, y, width, 1, scratch, 0, width);
+			return 0;
+		}
+
+		int[] array() {
+			return data != null ? data : scratch;
+		}
+
+		/**
+		 * True if the values returned by array() are exactly the values getRGB would
+		 * return.
+		 */
+		boolean isRGB() {
+			return data == null || hasAlpha;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package edu.ufl.cise.plc.runtime;
+
+import edu.ufl.cise.plc.runtime.ImageOps.OP;
+
+/**
+ * Kernels that apply a binary operator to runs of packed pixels without creating
+ * ColorTuple objects.
+ *
+ * The color components are extracted from the packed ints with shifts and masks,
+ * combined with int arithmetic, and packed again with ColorTuple.makePackedColor,
+ * which truncates the components to [0,256). This gives exactly the same result as
+ * unpacking both pixels, applying ImageOps.binaryTupleOp, and packing the result,
+ * including the ArithmeticException thrown by DIV and MOD when a right component is
+ * 0.
+ *
+ * The operator is dispatched once per run, not once per pixel.
+ */
+final class PackedPixelOps {
+
+	private PackedPixelOps() {
+	}
+
+	private static int red(int pixel) {
+		return (pixel >> ColorTuple.SHIFT_RED) & 0xff;
+	}
+
+	private static int green(int pixel) {
+		return (pixel >> ColorTuple.SHIFT_GRN) & 0xff;
+	}
+
+	private static int blue(int pixel) {
+		return pixel & 0xff;
+	}
+
+	/**
+	 * Sets dst[dstOffset + i] to the result of applying op to left[leftOffset + i]
+	 * and right[rightOffset + i], for i in [0,length).
+	 *
+	 * @param op
+	 * @param left
+	 * @param leftOffset
+	 * @param right
+	 * @param rightOffset
+	 * @param dst
+	 * @param dstOffset
+	 * @param length
+	 */
+	static void imageImage(OP op, int[] left, int leftOffset, int[] right, int rightOffset, int[] dst,
+			int dstOffset, int length) {
+		switch (op) {
+		case PLUS -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				int r = right[rightOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) + red(r), green(l) + green(r),
+						blue(l) + blue(r));
+			}
+		}
+		case MINUS -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				int r = right[rightOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) - red(r), green(l) - green(r),
+						blue(l) - blue(r));
+			}
+		}
+		case TIMES -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				int r = right[rightOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) * red(r), green(l) * green(r),
+						blue(l) * blue(r));
+			}
+		}
+		case DIV -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				int r = right[rightOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) / red(r), green(l) / green(r),
+						blue(l) / blue(r));
+			}
+		}
+		case MOD -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				int r = right[rightOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) % red(r), green(l) % green(r),
+						blue(l) % blue(r));
+			}
+		}
+		default -> throw new IllegalArgumentException("Compiler/runtime error Unexpected value: " + op);
+		}
+	}
+
+	/**
+	 * Sets dst[dstOffset + i] to the result of applying op to each color component
+	 * of left[leftOffset + i] and the given int value, for i in [0,length).
+	 *
+	 * @param op
+	 * @param left
+	 * @param leftOffset
+	 * @param right
+	 * @param dst
+	 * @param dstOffset
+	 * @param length
+	 */
+	static void imageScalar(OP op, int[] left, int leftOffset, int right, int[] dst, int dstOffset, int length) {
+		switch (op) {
+		case PLUS -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) + right, green(l) + right, blue(l) + right);
+			}
+		}
+		case MINUS -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) - right, green(l) - right, blue(l) - right);
+			}
+		}
+		case TIMES -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) * right, green(l) * right, blue(l) * right);
+			}
+		}
+		case DIV -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) / right, green(l) / right, blue(l) / right);
+			}
+		}
+		case MOD -> {
+			for (int i = 0; i < length; i++) {
+				int l = left[leftOffset + i];
+				dst[dstOffset + i] = ColorTuple.makePackedColor(red(l) % right, green(l) % right, blue(l) % right);
+			}
+		}
+		default -> throw new IllegalArgumentException("Compiler/runtime error Unexpected value: " + op);
+		}
+	}
+}
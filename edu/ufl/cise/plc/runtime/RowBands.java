@@ -0,0 +1,82 @@
+package edu.ufl.cise.plc.runtime;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the rows of an image into bands and processes the bands on a
+ * ForkJoinPool.
+ *
+ * Images with fewer pixels than the given threshold are processed sequentially
+ * on the calling thread as a single band covering every row.
+ *
+ * A Band must only write to the rows it is given, so that bands can run
+ * concurrently. If a band throws a RuntimeException, it is rethrown to the caller
+ * of forEach.
+ */
+public final class RowBands {
+
+	/**
+	 * Work done on the rows fromRow (inclusive) to toRow (exclusive) of an image.
+	 */
+	@FunctionalInterface
+	public interface Band {
+		void rows(int fromRow, int toRow);
+	}
+
+	//number of bands created per worker thread, so that uneven bands can be balanced by work stealing
+	static final int BANDS_PER_THREAD = 4;
+
+	private RowBands() {
+	}
+
+	/**
+	 * Applies band to all rows of an image with the given width and height. If the
+	 * image has at least threshold pixels and there is more than one row, the rows
+	 * are split into bands that are run on the given pool. Otherwise band is applied
+	 * to all rows on the calling thread.
+	 *
+	 * @param width
+	 * @param height
+	 * @param threshold
+	 * @param pool
+	 * @param band
+	 */
+	public static void forEach(int width, int height, int threshold, ForkJoinPool pool, Band band) {
+		int parallelism = pool.getParallelism();
+		if (height < 2 || parallelism < 2 || (long) width * height < threshold) {
+			if (height > 0) {
+				band.rows(0, height);
+			}
+			return;
+		}
+		int grain = Math.max(1, height / (parallelism * BANDS_PER_THREAD));
+		pool.invoke(new BandTask(band, 0, height, grain));
+	}
+
+	static final class BandTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final Band band;
+		final int fromRow;
+		final int toRow;
+		final int grain;
+
+		BandTask(Band band, int fromRow, int toRow, int grain) {
+			this.band = band;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (toRow - fromRow <= grain) {
+				band.rows(fromRow, toRow);
+				return;
+			}
+			int mid = (fromRow + toRow) >>> 1;
+			invokeAll(new BandTask(band, fromRow, mid, grain), new BandTask(band, mid, toRow, grain));
+		}
+	}
+}
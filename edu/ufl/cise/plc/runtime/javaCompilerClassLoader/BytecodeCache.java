@@ -0,0 +1,201 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.ufl.cise.plc.runtime.ColorTuple;
+import edu.ufl.cise.plc.runtime.ColorTupleFloat;
+import edu.ufl.cise.plc.runtime.ConsoleIO;
+import edu.ufl.cise.plc.runtime.FileURLIO;
+import edu.ufl.cise.plc.runtime.ImageOps;
+import edu.ufl.cise.plc.runtime.ImageRaster;
+import edu.ufl.cise.plc.runtime.PLCRuntimeException;
+import edu.ufl.cise.plc.runtime.RowBands;
+
+/**
+ * A directory of class files produced by DynamicCompiler, so that generated code
+ * compiled by an earlier process does not need to be compiled again.
+ *
+ * Each class file is stored in a file named by the SHA-256 hash of the fully
+ * qualified class name, the Java source, the version of the running JDK, the javac
+ * options, and a fingerprint of the runtime library. Generated code links against
+ * the methods of edu.ufl.cise.plc.runtime, so a class file compiled against another
+ * version of the runtime is never reused. The fingerprint is the implementation
+ * version of the runtime package and the SHA-256 hash of its public classes; if
+ * their class files cannot be read, nothing is cached.
+ * Files are written to a temporary file in the same directory and then renamed
+ * with an atomic move, so processes sharing the directory never read a partially
+ * written class file.
+ *
+ * The cache never causes compilation to fail: files that cannot be read or
+ * written are treated as misses.
+ */
+public class BytecodeCache {
+
+	/**
+	 * System property naming a directory to use as the cache of DynamicCompiler when
+	 * no cache has been set with DynamicCompiler.setBytecodeCache.
+	 */
+	public static final String DIRECTORY_PROPERTY = "plc.bytecodeCache";
+
+	private static final String EXTENSION = ".class";
+
+	/** The public classes of edu.ufl.cise.plc.runtime, which generated code imports. */
+	private static final Class<?>[] RUNTIME_CLASSES = { ColorTuple.class, ColorTupleFloat.class, ConsoleIO.class,
+			FileURLIO.class, ImageOps.class, ImageRaster.class, PLCRuntimeException.class, RowBands.class };
+
+	private static final String RUNTIME_FINGERPRINT = runtimeFingerprint();
+
+	final Path directory;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong writes = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+
+	public BytecodeCache(Path directory) throws IOException {
+		this.directory = Files.createDirectories(directory);
+	}
+
+	/**
+	 * Returns a cache for the directory named by the plc.bytecodeCache system
+	 * property, or null if the property is not set or the directory cannot be
+	 * created.
+	 */
+	static BytecodeCache fromSystemProperty() {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if (directory == null || directory.isBlank()) {
+			return null;
+		}
+		try {
+			return new BytecodeCache(Paths.get(directory));
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the hash of the implementation version of the runtime package and of the
+	 * class files of RUNTIME_CLASSES, or null if a class file cannot be read.
+	 */
+	static String runtimeFingerprint() {
+		String[] parts = new String[RUNTIME_CLASSES.length + 1];
+		parts[0] = String.valueOf(ImageOps.class.getPackage().getImplementationVersion());
+		for (int i = 0; i < RUNTIME_CLASSES.length; i++) {
+			Class<?> c = RUNTIME_CLASSES[i];
+			try (InputStream in = c.getResourceAsStream(c.getSimpleName() + EXTENSION)) {
+				if (in == null) {
+					return null;
+				}
+				parts[i + 1] = c.getName() + ":" + new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		return ProgramCache.key(parts);
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	Path file(String fullyQualifiedName, String sourceCode) {
+		String key = ProgramCache.key(fullyQualifiedName, sourceCode, Runtime.version().toString(),
+				String.join(" ", CompilerPool.OPTIONS), RUNTIME_FINGERPRINT);
+		return directory.resolve(key + EXTENSION);
+	}
+
+	/**
+	 * Returns the cached class file for the given class, or null if there is none.
+	 *
+	 * @param fullyQualifiedName
+	 * @param sourceCode
+	 * @return
+	 */
+	public byte[] get(String fullyQualifiedName, String sourceCode) {
+		if (RUNTIME_FINGERPRINT == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		try {
+			byte[] bytes = Files.readAllBytes(file(fullyQualifiedName, sourceCode));
+			if (isClassFile(bytes)) {
+				hits.incrementAndGet();
+				return bytes;
+			}
+		} catch (NoSuchFileException e) {
+			// not cached yet
+		} catch (IOException e) {
+			errors.incrementAndGet();
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Stores the class file compiled from the given source.
+	 *
+	 * @param fullyQualifiedName
+	 * @param sourceCode
+	 * @param bytes
+	 */
+	public void put(String fullyQualifiedName, String sourceCode, byte[] bytes) {
+		if (RUNTIME_FINGERPRINT == null) {
+			return;
+		}
+		Path target = file(fullyQualifiedName, sourceCode);
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+			Files.write(temp, bytes);
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			temp = null;
+			writes.incrementAndGet();
+		} catch (IOException e) {
+			// includes AtomicMoveNotSupportedException: the file is not cached rather than written non-atomically
+			errors.incrementAndGet();
+		} finally {
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException e) {
+					errors.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	private static boolean isClassFile(byte[] bytes) {
+		return bytes.length > 4 && (bytes[0] & 0xff) == 0xca && (bytes[1] & 0xff) == 0xfe && (bytes[2] & 0xff) == 0xba
+				&& (bytes[3] & 0xff) == 0xbe;
+	}
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	public long writes() {
+		return writes.get();
+	}
+
+	public long errors() {
+		return errors.get();
+	}
+
+	@Override
+	public String toString() {
+		return "BytecodeCache [directory=" + directory + ", hits=" + hits + ", misses=" + misses + ", writes=" + writes
+				+ ", errors=" + errors + "]";
+	}
+}
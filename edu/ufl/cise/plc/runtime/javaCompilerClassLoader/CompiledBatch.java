@@ -0,0 +1,107 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The result of compiling a list of programs together.
+ *
+ * Programs are identified by their position in the list that was compiled. Each
+ * program either has a class file, or an error explaining why it could not be
+ * compiled; an error in one program does not prevent the others from being
+ * compiled.
+ */
+public class CompiledBatch {
+
+	private final String[] classNames;
+	private final Map<String, Integer> programs = new HashMap<>();
+	private final Map<String, byte[]> classFiles = new LinkedHashMap<>();
+	private final Map<Integer, Exception> errors = new TreeMap<>();
+
+	CompiledBatch(int size) {
+		classNames = new String[size];
+	}
+
+	/**
+	 * Records the fully qualified class name of program i. If another program already has
+	 * the same class name, program i is given an error instead.
+	 *
+	 * @return whether the name was recorded
+	 */
+	boolean setClassName(int i, String fullyQualifiedName) {
+		Integer earlier = programs.putIfAbsent(fullyQualifiedName, i);
+		if (earlier != null) {
+			addError(i, new Exception("duplicate class name " + fullyQualifiedName + " (also program " + earlier + ")"));
+			return false;
+		}
+		classNames[i] = fullyQualifiedName;
+		return true;
+	}
+
+	void addClassFile(int i, byte[] bytes) {
+		classFiles.put(classNames[i], bytes);
+	}
+
+	void addError(int i, Exception e) {
+		errors.put(i, e);
+	}
+
+	/** Number of programs in the batch. */
+	public int size() {
+		return classNames.length;
+	}
+
+	/**
+	 * Returns the fully qualified class name of program i, or null if it failed
+	 * before its name was known or had the same name as an earlier program.
+	 */
+	public String getClassName(int i) {
+		return classNames[i];
+	}
+
+	/** Returns the class file of program i, or null if program i has an error. */
+	public byte[] getClassFile(int i) {
+		return errors.containsKey(i) ? null : classFiles.get(classNames[i]);
+	}
+
+	/** Returns the class files of the programs that compiled, keyed by fully qualified class name. */
+	public Map<String, byte[]> getClassFiles() {
+		return Collections.unmodifiableMap(classFiles);
+	}
+
+	/** Returns the error of program i, or null if program i compiled. */
+	public Exception getError(int i) {
+		return errors.get(i);
+	}
+
+	/** Returns the errors of the programs that did not compile, keyed by position in the batch. */
+	public Map<Integer, Exception> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+
+	/**
+	 * Defines every compiled class in one new class loader.
+	 *
+	 * @return the loaded classes, keyed by fully qualified class name
+	 */
+	public Map<String, Class<?>> loadClasses() {
+		DynamicClassLoader loader = new DynamicClassLoader(Thread.currentThread().getContextClassLoader());
+		Map<String, Class<?>> classes = new LinkedHashMap<>();
+		for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+			classes.put(classFile.getKey(), loader.define(classFile.getKey(), classFile.getValue()));
+		}
+		return classes;
+	}
+
+	@Override
+	public String toString() {
+		return "CompiledBatch [size=" + classNames.length + ", compiled=" + classFiles.size() + ", errors=" + errors.keySet() + "]";
+	}
+}
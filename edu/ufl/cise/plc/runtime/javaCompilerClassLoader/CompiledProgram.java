@@ -0,0 +1,240 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import edu.ufl.cise.plc.InterpretedProgram;
+
+/**
+ * The apply method of a loaded program, looked up once so that the program can be
+ * run any number of times without reflection.
+ *
+ * invoke takes the arguments as an Object[] like Method.invoke, boxing them.
+ * Callers that know the parameter types can avoid boxing either by calling
+ * handle().invokeExact with the exact types, or by implementing a functional
+ * interface with as, for example
+ *
+ * <pre>
+ * IntBinaryOperator f = program.as(IntBinaryOperator.class);
+ * int result = f.applyAsInt(2, 3);
+ * </pre>
+ *
+ * Exceptions thrown by the program are thrown as they are, not wrapped in an
+ * InvocationTargetException.
+ *
+ * A program run by the interpreter has no class; its handle calls
+ * InterpretedProgram.apply, boxing the arguments. The handle of a program run by a
+ * TieredCompiler calls the interpreter until the program is compiled, and the
+ * compiled apply method afterwards.
+ */
+public final class CompiledProgram {
+
+	private final Class<?> programClass;
+	private final String name;
+	private final TieredProgram tiered;
+	private final MethodHandle apply;
+	// apply adapted to take an Object[] and return an Object
+	private final MethodHandle invoker;
+
+	/**
+	 * @param programClass a class generated from a PLCLang program, with a single
+	 *                     public static apply method
+	 * @throws IllegalArgumentException if programClass has no such method
+	 */
+	public CompiledProgram(Class<?> programClass) {
+		this.programClass = programClass;
+		this.name = programClass.getName();
+		this.tiered = null;
+		Method method = null;
+		for (Method m : programClass.getDeclaredMethods()) {
+			if (m.getName().equals("apply") && Modifier.isStatic(m.getModifiers())) {
+				method = m;
+			}
+		}
+		if (method == null) {
+			throw new IllegalArgumentException("Method apply not found in " + programClass.getName());
+		}
+		try {
+			apply = MethodHandles.publicLookup().unreflect(method);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+		invoker = apply.asSpreader(Object[].class, apply.type().parameterCount())
+				.asType(MethodType.methodType(Object.class, Object[].class));
+	}
+
+	/**
+	 * @param program a program prepared by the interpreter
+	 */
+	public CompiledProgram(InterpretedProgram program) {
+		this.programClass = null;
+		this.name = program.getName();
+		this.tiered = null;
+		try {
+			MethodHandle apply = MethodHandles.publicLookup()
+					.findVirtual(InterpretedProgram.class, "apply", MethodType.methodType(Object.class, Object[].class))
+					.asFixedArity().bindTo(program);
+			this.apply = apply.asCollector(Object[].class, program.type().parameterCount()).asType(program.type());
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new IllegalStateException(e); // InterpretedProgram.apply is public
+		}
+		invoker = apply.asSpreader(Object[].class, apply.type().parameterCount())
+				.asType(MethodType.methodType(Object.class, Object[].class));
+	}
+
+	CompiledProgram(TieredProgram program) {
+		this.programClass = null;
+		this.name = program.getName();
+		this.tiered = program;
+		apply = program.handle();
+		invoker = apply.asSpreader(Object[].class, apply.type().parameterCount())
+				.asType(MethodType.methodType(Object.class, Object[].class));
+	}
+
+	/**
+	 * Returns the class of the program, or null if it is run by the interpreter. A
+	 * program run by a TieredCompiler has a class once it has been compiled.
+	 */
+	public Class<?> getProgramClass() {
+		if (tiered != null) {
+			CompiledProgram compiled = tiered.compiledProgram();
+			return compiled == null ? null : compiled.getProgramClass();
+		}
+		return programClass;
+	}
+
+	/** Returns the name of the program, as declared in its source. */
+	public String getName() {
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	/** Returns the tiers of the program if it is run by a TieredCompiler, and null otherwise. */
+	public TieredProgram getTieredProgram() {
+		return tiered;
+	}
+
+	/** Returns the type of the apply method, for example (int,float)boolean. */
+	public MethodType type() {
+		return apply.type();
+	}
+
+	/** Returns a handle to the apply method, with exactly its parameter and return types. */
+	public MethodHandle handle() {
+		return apply;
+	}
+
+	/**
+	 * Runs the program. args contains the parameters of the program, or may be null
+	 * if it does not have parameters.
+	 *
+	 * @return the value returned by the program, or null if it returns void
+	 * @throws Exception if thrown by the program, or if args do not match its parameters
+	 */
+	public Object invoke(Object[] args) throws Exception {
+		try {
+			return invoker.invokeExact(args);
+		} catch (Exception | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new Exception(e);
+		}
+	}
+
+	/**
+	 * Returns an instance of the given functional interface that calls the program
+	 * directly. The method of the interface must accept the program's parameters
+	 * and return its result; int, float and boolean values are converted to and
+	 * from their boxes only if the interface method uses the box or Object.
+	 *
+	 * The interface must be public and visible from the class loader that loaded
+	 * the program, and the program must have been loaded by a DynamicClassLoader.
+	 * For a program defined as a hidden class or run by the interpreter, the
+	 * instance is a proxy made by MethodHandleProxies, which boxes the arguments.
+	 *
+	 * @throws IllegalArgumentException if the interface is not a functional interface
+	 *                                  compatible with the program
+	 */
+	public <F> F as(Class<F> functionalInterface) {
+		if (programClass != null && !(programClass.getClassLoader() instanceof DynamicClassLoader)) {
+			throw new IllegalArgumentException(programClass.getName() + " was not loaded by a DynamicClassLoader");
+		}
+		Method sam = singleAbstractMethod(functionalInterface);
+		MethodType samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+		if (samType.parameterCount() != apply.type().parameterCount()) {
+			throw new IllegalArgumentException(functionalInterface.getName() + " cannot implement " + apply.type());
+		}
+		if (programClass == null || programClass.isHidden()) {
+			// classes spun by LambdaMetafactory refer to the implementation by name, which neither a hidden class
+			// nor the bound handle of an interpreted program has
+			try {
+				return MethodHandleProxies.asInterfaceInstance(functionalInterface, apply);
+			} catch (WrongMethodTypeException e) {
+				throw new IllegalArgumentException(functionalInterface.getName() + " cannot implement " + apply.type(), e);
+			}
+		}
+		DynamicClassLoader loader = (DynamicClassLoader) programClass.getClassLoader();
+		// where the interface method takes or returns a reference and the program a primitive,
+		// the interface is instantiated with the box, as in BiFunction<Integer, Integer, Integer>
+		MethodType instantiatedType = samType;
+		for (int i = 0; i < samType.parameterCount(); i++) {
+			if (!samType.parameterType(i).isPrimitive() && apply.type().parameterType(i).isPrimitive()) {
+				instantiatedType = instantiatedType.changeParameterType(i, apply.type().wrap().parameterType(i));
+			}
+		}
+		if (!samType.returnType().isPrimitive() && apply.type().returnType().isPrimitive()) {
+			instantiatedType = instantiatedType.changeReturnType(apply.type().wrap().returnType());
+		}
+		try {
+			CallSite site = LambdaMetafactory.metafactory(loader.lookup(), sam.getName(),
+					MethodType.methodType(functionalInterface), samType, apply, instantiatedType);
+			return functionalInterface.cast(site.getTarget().invoke());
+		} catch (LambdaConversionException e) {
+			throw new IllegalArgumentException(functionalInterface.getName() + " cannot implement " + apply.type(), e);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Method singleAbstractMethod(Class<?> functionalInterface) {
+		if (!functionalInterface.isInterface()) {
+			throw new IllegalArgumentException(functionalInterface.getName() + " is not an interface");
+		}
+		Method sam = null;
+		for (Method m : functionalInterface.getMethods()) {
+			if (Modifier.isAbstract(m.getModifiers()) && !isObjectMethod(m)) {
+				if (sam != null) {
+					throw new IllegalArgumentException(functionalInterface.getName() + " has more than one abstract method");
+				}
+				sam = m;
+			}
+		}
+		if (sam == null) {
+			throw new IllegalArgumentException(functionalInterface.getName() + " has no abstract method");
+		}
+		return sam;
+	}
+
+	// an interface may redeclare public methods of Object, such as equals, without them counting as abstract
+	private static boolean isObjectMethod(Method m) {
+		try {
+			return Modifier.isPublic(Object.class.getMethod(m.getName(), m.getParameterTypes()).getModifiers());
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CompiledProgram [" + name + apply.type() + "]";
+	}
+}
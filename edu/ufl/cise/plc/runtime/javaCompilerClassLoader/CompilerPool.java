@@ -0,0 +1,279 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles Java source with a single system JavaCompiler and a pool of file
+ * managers that are reused from one compilation to the next.
+ *
+ * Creating a StandardJavaFileManager opens and indexes the platform classes, which
+ * takes longer than compiling a typical generated class. Keeping warmed file
+ * managers avoids paying that cost for every compilation.
+ *
+ * A file manager is only used by one compilation at a time. Threads that find no
+ * idle file manager create a new one, so compilations never wait for each other;
+ * at most maxIdle file managers are kept when they are returned, and the rest are
+ * closed.
+ */
+public class CompilerPool {
+
+	public static final int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Options given to javac for every compilation. They are part of the key of
+	 * BytecodeCache, so class files compiled with other options are not reused.
+	 */
+	static final List<String> OPTIONS = List.of();
+
+	private final JavaCompiler compiler;
+	private final ConcurrentLinkedDeque<InMemoryClassFileManager> idle = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private volatile int maxIdle;
+
+	private final AtomicLong compilations = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong reused = new AtomicLong();
+	private final AtomicLong discarded = new AtomicLong();
+	private final AtomicLong compileNanos = new AtomicLong();
+
+	public CompilerPool(int maxIdle) {
+		this(ToolProvider.getSystemJavaCompiler(), maxIdle);
+	}
+
+	public CompilerPool(JavaCompiler compiler, int maxIdle) {
+		checkMaxIdle(maxIdle);
+		this.compiler = compiler;
+		this.maxIdle = maxIdle;
+	}
+
+	private static void checkMaxIdle(int maxIdle) {
+		if (maxIdle < 0) {
+			throw new IllegalArgumentException("maxIdle must not be negative: " + maxIdle);
+		}
+	}
+
+	/**
+	 * Compiles java source code provided in the form a String and returns the class
+	 * file in the form of a byte array.
+	 *
+	 * @param fullyQualifiedName
+	 * @param sourceCode
+	 * @return
+	 * @throws Exception if the source does not compile
+	 */
+	public byte[] compile(String fullyQualifiedName, String sourceCode) throws Exception {
+		checkCompiler();
+		List<JavaFileObject> sourceFiles = List.of(new StringJavaFileObject(fullyQualifiedName, sourceCode));
+		InMemoryClassFileManager fileManager = borrow();
+		boolean reusable = false;
+		long start = System.nanoTime();
+		try {
+			boolean success = compiler.getTask(null, fileManager, null, OPTIONS, null, sourceFiles).call();
+			reusable = true;
+			compilations.incrementAndGet();
+			if (!success) {
+				failures.incrementAndGet();
+				throw new Exception("error compiling generated code");
+			}
+			return fileManager.byteCodeObject.getBytes();
+		} finally {
+			compileNanos.addAndGet(System.nanoTime() - start);
+			giveBack(fileManager, reusable);
+		}
+	}
+
+	/**
+	 * Compiles the given sources of batch, keyed by their position in the batch,
+	 * with a single javac task, and adds the class files or errors to batch. The
+	 * class names of the sources must already be recorded in batch.
+	 *
+	 * javac does not generate any class files if one source has an error, so when
+	 * the task fails, the sources with errors are given their error messages and
+	 * the remaining sources are compiled again with another task.
+	 *
+	 * @param batch
+	 * @param sources
+	 */
+	void compileAll(CompiledBatch batch, Map<Integer, String> sources) {
+		checkCompiler();
+		Map<Integer, JavaFileObject> remaining = new LinkedHashMap<>();
+		for (Map.Entry<Integer, String> source : sources.entrySet()) {
+			remaining.put(source.getKey(), new StringJavaFileObject(batch.getClassName(source.getKey()), source.getValue()));
+		}
+		while (!remaining.isEmpty()) {
+			DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+			InMemoryClassFileManager fileManager = borrow();
+			boolean reusable = false;
+			long start = System.nanoTime();
+			try {
+				boolean success = compiler.getTask(null, fileManager, diagnostics, OPTIONS, null, remaining.values()).call();
+				reusable = true;
+				compilations.incrementAndGet();
+				if (success) {
+					for (Integer i : remaining.keySet()) {
+						batch.addClassFile(i, fileManager.getBytes(batch.getClassName(i)));
+					}
+					return;
+				}
+				failures.incrementAndGet();
+			} finally {
+				compileNanos.addAndGet(System.nanoTime() - start);
+				giveBack(fileManager, reusable);
+			}
+			Map<JavaFileObject, StringBuilder> messages = new IdentityHashMap<>();
+			StringBuilder unattributed = new StringBuilder();
+			for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+				if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+					StringBuilder message = diagnostic.getSource() == null ? unattributed
+							: messages.computeIfAbsent(diagnostic.getSource(), source -> new StringBuilder());
+					message.append('\n').append(diagnostic);
+				}
+			}
+			boolean removed = remaining.entrySet().removeIf(source -> {
+				StringBuilder message = messages.get(source.getValue());
+				if (message == null) {
+					return false;
+				}
+				batch.addError(source.getKey(), new Exception("error compiling generated code" + message));
+				return true;
+			});
+			if (!removed) {
+				//the errors do not belong to any one source, so none of them can be compiled
+				for (Integer i : remaining.keySet()) {
+					batch.addError(i, new Exception("error compiling generated code" + unattributed));
+				}
+				return;
+			}
+		}
+	}
+
+	private void checkCompiler() {
+		if (compiler == null) {
+			throw new IllegalStateException("no system Java compiler available; run with a JDK rather than a JRE");
+		}
+	}
+
+	private InMemoryClassFileManager borrow() {
+		InMemoryClassFileManager fileManager = idle.pollFirst();
+		if (fileManager != null) {
+			idleCount.decrementAndGet();
+			reused.incrementAndGet();
+			return fileManager;
+		}
+		created.incrementAndGet();
+		return new InMemoryClassFileManager(compiler.getStandardFileManager(null, null, null));
+	}
+
+	private void giveBack(InMemoryClassFileManager fileManager, boolean reusable) {
+		if (reusable) {
+			release(fileManager);
+		} else {
+			discard(fileManager); // javac failed with an unexpected exception, so its state is unknown
+		}
+	}
+
+	private void release(InMemoryClassFileManager fileManager) {
+		fileManager.reset();
+		if (idleCount.incrementAndGet() <= maxIdle) {
+			idle.offerFirst(fileManager);
+		} else {
+			idleCount.decrementAndGet();
+			discard(fileManager);
+		}
+	}
+
+	private void discard(InMemoryClassFileManager fileManager) {
+		discarded.incrementAndGet();
+		try {
+			fileManager.close();
+		} catch (IOException e) {
+			// nothing else holds the file manager, so there is nothing to recover
+		}
+	}
+
+	/**
+	 * Closes idle file managers until at most maxIdle remain.
+	 */
+	private void trim() {
+		while (idleCount.get() > maxIdle) {
+			InMemoryClassFileManager fileManager = idle.pollLast();
+			if (fileManager == null) {
+				return;
+			}
+			idleCount.decrementAndGet();
+			discard(fileManager);
+		}
+	}
+
+	public void setMaxIdle(int maxIdle) {
+		checkMaxIdle(maxIdle);
+		this.maxIdle = maxIdle;
+		trim();
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	/** Closes all idle file managers.  The pool remains usable. */
+	public void clear() {
+		InMemoryClassFileManager fileManager;
+		while ((fileManager = idle.pollFirst()) != null) {
+			idleCount.decrementAndGet();
+			discard(fileManager);
+		}
+	}
+
+	public int idle() {
+		return idleCount.get();
+	}
+
+	/** Number of javac tasks, including each task of a batch. */
+	public long compilations() {
+		return compilations.get();
+	}
+
+	public long failures() {
+		return failures.get();
+	}
+
+	/** Number of file managers created because none was idle. */
+	public long created() {
+		return created.get();
+	}
+
+	/** Number of compilations that used an idle file manager. */
+	public long reused() {
+		return reused.get();
+	}
+
+	public long discarded() {
+		return discarded.get();
+	}
+
+	/** Total time spent in javac, including compilations that failed. */
+	public long compileNanos() {
+		return compileNanos.get();
+	}
+
+	@Override
+	public String toString() {
+		return "CompilerPool [idle=" + idleCount + ", maxIdle=" + maxIdle + ", compilations=" + compilations
+				+ ", failures=" + failures + ", created=" + created + ", reused=" + reused + ", discarded=" + discarded
+				+ ", compileMillis=" + compileNanos.get() / 1_000_000 + "]";
+	}
+}
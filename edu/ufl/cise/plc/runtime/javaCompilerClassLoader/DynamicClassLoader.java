@@ -1,5 +1,8 @@
 package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 
 public class DynamicClassLoader extends ClassLoader {
@@ -7,6 +10,8 @@ public class DynamicClassLoader extends ClassLoader {
 		super(parent);
 	}
 
+	private MethodHandles.Lookup lookup;
+
 
 	
 	/**
@@ -37,10 +42,22 @@ public class DynamicClassLoader extends ClassLoader {
 		throw new RuntimeException("Method " + name + " not found in generated bytecode");
 	}
 
+	private static volatile ProgramLoader programLoader = new ProgramLoader(ProgramLoader.Strategy.LOADER_PER_PROGRAM);
+
+	/**
+	 * Sets the ProgramLoader that defines the classes of programs loaded by getClass,
+	 * and so by PLCLangExec.  Initially, each program is given its own class loader.
+	 */
+	public static void setProgramLoader(ProgramLoader loader) {
+		programLoader = loader;
+	}
+
+	public static ProgramLoader getProgramLoader() {
+		return programLoader;
+	}
+
 	static Class<?> getClass(byte[] bytecode, String className) throws Exception {
-		DynamicClassLoader loader = new DynamicClassLoader(Thread.currentThread().getContextClassLoader());
-		Class<?> testClass = loader.define(className, bytecode);
-		return testClass;
+		return programLoader.define(className, bytecode);
 	}
 
 	public Class<?> define(String className, byte[] bytecode) {
@@ -53,5 +70,25 @@ public class DynamicClassLoader extends ClassLoader {
 		return m.invoke(null, args);
 	}
 
+	/**
+	 * Returns a Lookup with full access in this class loader, made by defining a copy
+	 * of ProgramLookup in it.
+	 */
+	synchronized MethodHandles.Lookup lookup() {
+		if (lookup == null) {
+			String name = ProgramLookup.class.getName();
+			try (InputStream in = ProgramLookup.class.getResourceAsStream(ProgramLookup.class.getSimpleName() + ".class")) {
+				if (in == null) {
+					throw new IllegalStateException("class file of " + name + " not found");
+				}
+				Class<?> copy = define(name, in.readAllBytes());
+				lookup = (MethodHandles.Lookup) copy.getMethod("lookup").invoke(null);
+			} catch (IOException | ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return lookup;
+	}
+
 	
 }
@@ -1,30 +1,100 @@
 package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import javax.tools.JavaCompiler;
-import javax.tools.JavaFileObject;
-import javax.tools.ToolProvider;
+import java.util.Map;
 
 public class DynamicCompiler {
 	
+	private static final CompilerPool compilerPool = new CompilerPool(CompilerPool.DEFAULT_MAX_IDLE);
+	
+	private static volatile BytecodeCache bytecodeCache = BytecodeCache.fromSystemProperty();
+	
+	/**
+	 * Sets the on-disk cache consulted before invoking the Java compiler, or disables it 
+	 * if cache is null.  Initially, this is a cache in the directory named by the 
+	 * plc.bytecodeCache system property, if set.
+	 */
+	public static void setBytecodeCache(BytecodeCache cache) {
+		bytecodeCache = cache;
+	}
+	
+	public static BytecodeCache getBytecodeCache() {
+		return bytecodeCache;
+	}
+	
+	/** Returns the pool of file managers used to invoke the Java compiler. */
+	public static CompilerPool getCompilerPool() {
+		return compilerPool;
+	}
 	
 	/** Compiles java source code provided in the form a  String and returns the class file in the form of a byte array. */
 	public static byte[] compile(String fullyQualifiedName, String sourceCode) throws Exception {
 		
-		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-		InMemoryClassFileManager fileManager = new InMemoryClassFileManager(compiler.getStandardFileManager(null, null, null));
-		
-		List<JavaFileObject> sourceFiles = new ArrayList<>();
-		sourceFiles.add(new StringJavaFileObject(fullyQualifiedName, sourceCode));
+		BytecodeCache cache = bytecodeCache;
+		if (cache != null) {
+			byte[] cached = cache.get(fullyQualifiedName, sourceCode);
+			if (cached != null) {
+				return cached;
+			}
+		}
 		
-		boolean success = compiler.getTask(null, fileManager, null, null, null, sourceFiles).call();
-		if (success) {
-			return fileManager.byteCodeObject.getBytes();
+		byte[] bytes = compilerPool.compile(fullyQualifiedName, sourceCode);
+		if (cache != null) {
+			cache.put(fullyQualifiedName, sourceCode, bytes);
 		}
-		else throw new Exception("error compiling generated code");
+		return bytes;
 		}
+	
+	/**
+	 * Compiles several classes with a single invocation of the Java compiler.  The names and sources 
+	 * are given in two lists of the same length, and the programs of the result are in the same order.
+	 * A class that does not compile, or has the same name as an earlier class, does not prevent the 
+	 * others from being compiled.
+	 */
+	public static CompiledBatch compileAll(List<String> fullyQualifiedNames, List<String> sourceCodes) {
+		if (fullyQualifiedNames.size() != sourceCodes.size()) {
+			throw new IllegalArgumentException("expected one source for each of " + fullyQualifiedNames.size() + " classes, got " + sourceCodes.size());
+		}
+		CompiledBatch batch = new CompiledBatch(fullyQualifiedNames.size());
+		Map<Integer, String> sources = new LinkedHashMap<>();
+		for (int i = 0; i < fullyQualifiedNames.size(); i++) {
+			if (batch.setClassName(i, fullyQualifiedNames.get(i))) {
+				sources.put(i, sourceCodes.get(i));
+			}
+		}
+		compileAll(batch, sources);
+		return batch;
+	}
+	
+	/** Compiles the sources whose class names are recorded in batch, using the bytecode cache if there is one. */
+	static void compileAll(CompiledBatch batch, Map<Integer, String> sources) {
+		BytecodeCache cache = bytecodeCache;
+		Map<Integer, String> uncached = sources;
+		if (cache != null) {
+			uncached = new LinkedHashMap<>();
+			for (Map.Entry<Integer, String> source : sources.entrySet()) {
+				byte[] cached = cache.get(batch.getClassName(source.getKey()), source.getValue());
+				if (cached != null) {
+					batch.addClassFile(source.getKey(), cached);
+				} else {
+					uncached.put(source.getKey(), source.getValue());
+				}
+			}
+		}
+		if (uncached.isEmpty()) {
+			return;
+		}
+		compilerPool.compileAll(batch, uncached);
+		if (cache != null) {
+			for (Map.Entry<Integer, String> source : uncached.entrySet()) {
+				byte[] bytes = batch.getClassFile(source.getKey());
+				if (bytes != null) {
+					cache.put(batch.getClassName(source.getKey()), source.getValue(), bytes);
+				}
+			}
+		}
+	}
 	}
 	
 
@@ -0,0 +1,25 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+/**
+ * How PLCLangExec turns a type checked program into something it can run.
+ */
+public enum ExecutionMode {
+	/** Generate Java code and compile it with the Java compiler. */
+	COMPILE,
+	/**
+	 * Generate the class file directly, without the Java compiler. Programs the
+	 * bytecode generator does not handle are compiled as in COMPILE.
+	 */
+	BYTECODE,
+	/**
+	 * Run the program with the interpreter, without generating any class. Programs
+	 * the interpreter does not handle are compiled as in BYTECODE.
+	 */
+	INTERPRET,
+	/**
+	 * Run the program with the interpreter until it is hot, while it is compiled as in
+	 * COMPILE in the background, and then run the compiled program. See
+	 * TieredCompiler.
+	 */
+	TIERED
+}
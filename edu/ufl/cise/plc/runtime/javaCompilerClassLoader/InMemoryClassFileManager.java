@@ -4,6 +4,8 @@ package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
 
 import java.io.IOException;
 import java.security.SecureClassLoader;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.tools.FileObject;
 import javax.tools.ForwardingJavaFileManager;
@@ -13,7 +15,9 @@ import javax.tools.StandardJavaFileManager;
 
 public class InMemoryClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
 	
-	InMemoryBytecodeObject byteCodeObject;
+	InMemoryBytecodeObject byteCodeObject;  //the most recent output
+	
+	final Map<String, InMemoryBytecodeObject> byteCodeObjects = new LinkedHashMap<>();  //every output, keyed by class name
 	
 	public InMemoryClassFileManager(StandardJavaFileManager standardManager) {
 		super(standardManager);
@@ -24,7 +28,11 @@ public class InMemoryClassFileManager extends ForwardingJavaFileManager<Standard
 		return new SecureClassLoader() {
 			@Override
 			protected Class<?> findClass(String name) throws ClassNotFoundException {
-				byte[] b = byteCodeObject.getBytes();
+				InMemoryBytecodeObject output = byteCodeObjects.get(name);
+				if (output == null) {
+					throw new ClassNotFoundException(name);
+				}
+				byte[] b = output.getBytes();
 				return super.defineClass(name, b, 0, b.length);
 			}
 		};
@@ -32,7 +40,20 @@ public class InMemoryClassFileManager extends ForwardingJavaFileManager<Standard
 	
 	public JavaFileObject getJavaFileForOutput(Location location, String name, Kind kind, FileObject sibling) throws IOException{
 		byteCodeObject = new InMemoryBytecodeObject(name, kind);
+		byteCodeObjects.put(name, byteCodeObject);
 		return byteCodeObject;
 	}
 
+	/** Returns the class file written for the named class, or null if there is none. */
+	public byte[] getBytes(String className) {
+		InMemoryBytecodeObject output = byteCodeObjects.get(className);
+		return output == null ? null : output.getBytes();
+	}
+	
+	/** Forgets the output of the previous compilation so that this file manager can be used for another. */
+	public void reset() {
+		byteCodeObject = null;
+		byteCodeObjects.clear();
+	}
+
 }
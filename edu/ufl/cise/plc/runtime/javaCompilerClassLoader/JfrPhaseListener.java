@@ -0,0 +1,61 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A PhaseListener that commits each phase as a JFR event named
+ * edu.ufl.cise.plc.Phase, so that the phases of programs appear in flight recordings
+ * next to the garbage collections and threads of the JVM, for example with
+ *
+ * <pre>
+ * PLCLangExec.setPhaseListener(new JfrPhaseListener());
+ * </pre>
+ *
+ * and the JVM started with -XX:StartFlightRecording. The event is committed when
+ * the phase ends, so its time in the phase is in the phaseNanos field rather than in
+ * the duration of the event.
+ */
+public class JfrPhaseListener implements PhaseListener {
+
+	@Name("edu.ufl.cise.plc.Phase")
+	@Label("PLCLang Phase")
+	@Category("PLCLang")
+	@Description("A phase of compiling or running a PLCLang program")
+	static class PhaseJfrEvent extends Event {
+		@Label("Phase")
+		String phase;
+
+		@Label("Program")
+		String program;
+
+		@Label("Phase Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long phaseNanos;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocatedBytes;
+
+		@Label("Size")
+		long size;
+	}
+
+	@Override
+	public void phaseEnded(PhaseEvent event) {
+		PhaseJfrEvent jfrEvent = new PhaseJfrEvent();
+		if (jfrEvent.shouldCommit()) {
+			jfrEvent.phase = event.phase().name();
+			jfrEvent.program = event.programName();
+			jfrEvent.phaseNanos = event.nanos();
+			jfrEvent.allocatedBytes = event.allocatedBytes();
+			jfrEvent.size = event.size();
+			jfrEvent.commit();
+		}
+	}
+}
@@ -1,43 +1,260 @@
 package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import edu.ufl.cise.plc.CodeGenOptions;
 import edu.ufl.cise.plc.CompilerComponentFactory;
+import edu.ufl.cise.plc.ILexer;
+import edu.ufl.cise.plc.InterpretedProgram;
+import edu.ufl.cise.plc.Lexer;
+import edu.ufl.cise.plc.NodeCounter;
 import edu.ufl.cise.plc.ast.ASTNode;
 import edu.ufl.cise.plc.ast.Program;
 
 public class PLCLangExec {
 	
+	/**
+	 * Default number of compiled programs kept by the program cache.
+	 */
+	public static final int DEFAULT_CACHE_CAPACITY = 256;
+	
+	//compiled programs, keyed by a hash of the package name, code generation options, execution mode, and source
+	private static final ProgramCache<CompiledProgram> programCache = new ProgramCache<>(DEFAULT_CACHE_CAPACITY);
+	
+	/**
+	 * Returns the cache of compiled programs shared by all PLCLangExec instances.
+	 * Its capacity can be changed with setCapacity; a capacity of 0 disables caching.
+	 */
+	public static ProgramCache<CompiledProgram> getProgramCache() {
+		return programCache;
+	}
+	
+	private static volatile TieredCompiler tieredCompiler = new TieredCompiler(
+			TieredCompiler.DEFAULT_INVOCATION_THRESHOLD, TieredCompiler.DEFAULT_TIME_THRESHOLD_NANOS);
+	
+	/**
+	 * Returns the TieredCompiler that runs the programs loaded in TIERED mode.
+	 */
+	public static TieredCompiler getTieredCompiler() {
+		return tieredCompiler;
+	}
+	
+	/**
+	 * Sets the TieredCompiler used for programs loaded in TIERED mode from now on. 
+	 * Programs taken from the program cache keep the TieredCompiler they were loaded with.
+	 */
+	public static void setTieredCompiler(TieredCompiler compiler) {
+		if (compiler == null) {
+			throw new IllegalArgumentException("compiler must not be null");
+		}
+		tieredCompiler = compiler;
+	}
+	
+	private static volatile PhaseListener phaseListener;
+	
+	/**
+	 * Sets the listener that receives the time, allocated bytes and size of each phase of 
+	 * the programs compiled and run from now on, or stops reporting phases if listener is null.  
+	 * Initially, there is no listener.
+	 * 
+	 * While there is a listener, the whole input is lexed before it is parsed, so that the two 
+	 * phases are timed separately.  Programs taken from the program cache only report RUN, and 
+	 * compileAll reports the phases of each program up to CODEGEN, as the Java compiler then 
+	 * compiles all of them at once.
+	 */
+	public static void setPhaseListener(PhaseListener listener) {
+		phaseListener = listener;
+	}
+	
+	public static PhaseListener getPhaseListener() {
+		return phaseListener;
+	}
+	
 	public final String packageName;
 	
 	public PLCLangExec(String packageName, boolean VERBOSE) {
+		this(packageName, VERBOSE, CodeGenOptions.DEFAULT);
+	}
+
+	public PLCLangExec(String packageName, boolean VERBOSE, CodeGenOptions options) {
+		this(packageName, VERBOSE, options, ExecutionMode.COMPILE);
+	}
+
+	public PLCLangExec(String packageName, boolean VERBOSE, CodeGenOptions options, ExecutionMode mode) {
 		super();
 		this.packageName = packageName;
 		this.VERBOSE = VERBOSE;
+		this.options = options;
+		this.mode = mode;
 	}
 
 	final boolean VERBOSE;
+	
+	final CodeGenOptions options;
+	
+	final ExecutionMode mode;
 
 	private void show(Object obj) throws IOException {
 		if (VERBOSE)
 			System.out.println(obj);
 	}
 	
+	/**
+	 * Compiles and runs the given PLCLang program.  Programs that were already compiled 
+	 * with the same package name and options are taken from the program cache.
+	 */
 	public Object exec(String input, Object[] params) throws Exception {
+		CompiledProgram program = load(input);
+		PhaseRecorder phases = new PhaseRecorder(phaseListener, program.getName());
+		try {
+			return program.invoke(params);
+		} finally {
+			phases.end(Phase.RUN, 0);
+		}
+	}
+	
+	/**
+	 * Compiles and loads the given PLCLang program, or takes it from the program cache, 
+	 * and returns it ready to be run any number of times.
+	 */
+	public CompiledProgram load(String input) throws Exception {
+		String key = ProgramCache.key(packageName, options.toString(), mode.name(), input);
+		return programCache.get(key, () -> compile(input));
+	}
+	
+	private CompiledProgram compile(String input) throws Exception {
+		PhaseRecorder phases = new PhaseRecorder(phaseListener, null);
+		Program program = check(input, phases);
+		InterpretedProgram interpreted = interpret(program);
+		if (interpreted != null && mode == ExecutionMode.TIERED) {
+			phases.end(Phase.CODEGEN, 0);
+			//the class is compiled later, on the thread of the TieredCompiler
+			return tieredCompiler.tier(interpreted, () -> compileClass(program, new PhaseRecorder(phaseListener, program.getName())));
+		}
+		if (interpreted != null) {
+			phases.end(Phase.CODEGEN, 0);
+			return new CompiledProgram(interpreted);
+		}
+		return compileClass(program, phases);
+	}
+	
+	private CompiledProgram compileClass(Program program, PhaseRecorder phases) throws Exception {
+		String fullyQualifiedName = fullyQualifiedName(program);
+		byte[] byteCode = generateBytecode(program);
+		if (byteCode == null) {
+			String javaCode = generate(program);
+			phases.end(Phase.CODEGEN, javaCode.length());
+			//Invoke Java compiler to obtain bytecode
+			byteCode = DynamicCompiler.compile(fullyQualifiedName, javaCode);
+			phases.end(Phase.JAVAC, byteCode.length);
+		} else {
+			phases.end(Phase.CODEGEN, byteCode.length);
+		}
+		//Load generated classfile and look up its apply method.
+		CompiledProgram compiled = new CompiledProgram(DynamicClassLoader.getClass(byteCode, fullyQualifiedName));
+		phases.end(Phase.CLASS_LOAD, byteCode.length);
+		return compiled;
+	}
+	
+	/**
+	 * Compiles the given PLCLang programs, generating Java code for each of them and then 
+	 * invoking the Java compiler once for all of them.  In BYTECODE and INTERPRET modes, only 
+	 * the programs whose class files cannot be generated directly are given to the Java compiler.
+	 * Programs that fail to lex, parse, 
+	 * type check, or compile, or that have the same name as an earlier program, are 
+	 * reported in the errors of the result and do not prevent the others from being compiled.
+	 * 
+	 * The program cache is not used.
+	 */
+	public CompiledBatch compileAll(List<String> inputs) {
+		CompiledBatch batch = new CompiledBatch(inputs.size());
+		Map<Integer, String> javaCodes = new LinkedHashMap<>();
+		for (int i = 0; i < inputs.size(); i++) {
+			try {
+				PhaseRecorder phases = new PhaseRecorder(phaseListener, null);
+				Program program = check(inputs.get(i), phases);
+				if (batch.setClassName(i, fullyQualifiedName(program))) {
+					byte[] byteCode = generateBytecode(program);
+					if (byteCode != null) {
+						batch.addClassFile(i, byteCode);
+						phases.end(Phase.CODEGEN, byteCode.length);
+					} else {
+						String javaCode = generate(program);
+						javaCodes.put(i, javaCode);
+						phases.end(Phase.CODEGEN, javaCode.length());
+					}
+				}
+			} catch (Exception e) {
+				batch.addError(i, e);
+			}
+		}
+		DynamicCompiler.compileAll(batch, javaCodes);
+		return batch;
+	}
+	
+	private Program check(String input, PhaseRecorder phases) throws Exception {
 		//Lex and parse to obtain AST
-		ASTNode ast = CompilerComponentFactory.getParser(input).parse();
+		ASTNode ast;
+		if (phases.isRecording()) {
+			ILexer lexer = CompilerComponentFactory.getLexer(input);
+			phases.end(Phase.LEX, lexer instanceof Lexer scanned ? scanned.tokens.size() - 1 : -1);
+			ast = CompilerComponentFactory.getParser(lexer).parse();
+			phases.stop();
+			phases.setProgramName(((Program) ast).getName());
+			phases.report(Phase.PARSE, NodeCounter.count(ast));
+		} else {
+			ast = CompilerComponentFactory.getParser(input).parse();
+		}
 		//Type check and decorate AST with declaration and type info
 		ast.visit(CompilerComponentFactory.getTypeChecker(), null);
+		phases.end(Phase.TYPE_CHECK, 0);
+		if (options.foldConstants()) {
+			//Fold constant expressions, so that they are not computed each time the program runs
+			int folded = (Integer) ast.visit(CompilerComponentFactory.getConstantFolder(), null);
+			phases.end(Phase.FOLD, folded);
+		}
+		return (Program) ast;
+	}
+	
+	private String fullyQualifiedName(Program program) {
+		String className = program.getName();
+		return packageName != "" ? packageName + '.' + className : className;
+	}
+	
+	private String generate(Program program) throws Exception {
 		//Generate Java code
-		String className = ((Program) ast).getName();
-		String fullyQualifiedName = packageName != "" ? packageName + '.' + className : className;
-		String javaCode = (String) ast.visit(CompilerComponentFactory.getCodeGenerator(packageName), null);
+		String javaCode = (String) program.visit(CompilerComponentFactory.getCodeGenerator(packageName, options), null);
 		show(javaCode);
-		//Invoke Java compiler to obtain bytecode
-		byte[] byteCode = DynamicCompiler.compile(fullyQualifiedName, javaCode);
-		//Load generated classfile and execute its apply method.
-		Object result = DynamicClassLoader.loadClassAndRunMethod(byteCode, fullyQualifiedName, "apply", params);
-		return result;
+		return javaCode;
+	}
+	
+	//Returns the program prepared by the interpreter, or null if the mode is not INTERPRET or 
+	//TIERED or the interpreter does not handle the program
+	private InterpretedProgram interpret(Program program) throws Exception {
+		if (mode != ExecutionMode.INTERPRET && mode != ExecutionMode.TIERED) {
+			return null;
+		}
+		InterpretedProgram interpreted = (InterpretedProgram) program.visit(CompilerComponentFactory.getInterpreter(packageName, options), null);
+		if (interpreted == null) {
+			show("interpreter does not handle " + program.getName() + ", compiling it");
+		}
+		return interpreted;
+	}
+	
+	//Returns the class file of the program generated without the Java compiler, or null if 
+	//the mode is COMPILE or TIERED or the bytecode generator does not handle the program
+	private byte[] generateBytecode(Program program) throws Exception {
+		if (mode == ExecutionMode.COMPILE || mode == ExecutionMode.TIERED) {
+			return null;
+		}
+		byte[] byteCode = (byte[]) program.visit(CompilerComponentFactory.getBytecodeGenerator(packageName, options), null);
+		if (byteCode == null) {
+			show("bytecode generator does not handle " + program.getName() + ", compiling generated Java code");
+		}
+		return byteCode;
 	}
 
 }
@@ -0,0 +1,34 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+/**
+ * A phase of compiling or running a program in PLCLangExec, as reported to a
+ * PhaseListener. The size of each phase is described with its constant.
+ */
+public enum Phase {
+	/** Lexing the whole input. The size is the number of tokens, not counting EOF. */
+	LEX,
+	/** Parsing the tokens. The size is the number of nodes of the AST. */
+	PARSE,
+	/** Type checking and decorating the AST. The size is 0. */
+	TYPE_CHECK,
+	/**
+	 * Folding the constant expressions of the AST with ConstantFolder, unless the
+	 * CodeGenOptions do not fold constants. The size is the number of expressions folded.
+	 */
+	FOLD,
+	/**
+	 * Generating the program. The size is the length of the generated Java code, the
+	 * length of the class file generated in BYTECODE mode, or 0 for a program prepared
+	 * by the interpreter.
+	 */
+	CODEGEN,
+	/**
+	 * Compiling the generated Java code, or taking its class file from the bytecode
+	 * cache. The size is the length of the class file.
+	 */
+	JAVAC,
+	/** Defining the class and looking up its apply method. The size is the length of the class file. */
+	CLASS_LOAD,
+	/** Running the program with the arguments given to exec. The size is 0. */
+	RUN
+}
@@ -0,0 +1,16 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+/**
+ * The cost of one phase of compiling or running a program.
+ *
+ * @param phase          the phase
+ * @param programName    the name of the program, or null in LEX events, as the name
+ *                       is only known once the program is parsed
+ * @param nanos          the wall time spent in the phase
+ * @param allocatedBytes the bytes allocated by the thread that ran the phase, or -1
+ *                       if the JVM does not measure them. Bytes allocated by other
+ *                       threads, like those of ImageOps.getPool(), are not counted.
+ * @param size           the size of what the phase produced, as described in Phase
+ */
+public record PhaseEvent(Phase phase, String programName, long nanos, long allocatedBytes, long size) {
+}
@@ -0,0 +1,16 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+/**
+ * Receives the cost of each phase of compiling and running programs in PLCLangExec.
+ * See PLCLangExec.setPhaseListener.
+ *
+ * phaseEnded is called on the thread that ran the phase, right after it ends, so the
+ * phases of one program arrive in order. Programs loaded in TIERED mode are compiled
+ * on the thread of the TieredCompiler, and programs compiled on different threads may
+ * report their phases at the same time.
+ */
+@FunctionalInterface
+public interface PhaseListener {
+
+	void phaseEnded(PhaseEvent event);
+}
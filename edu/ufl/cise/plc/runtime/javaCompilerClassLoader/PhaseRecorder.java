@@ -0,0 +1,79 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures consecutive phases on the current thread and reports each of them to a
+ * PhaseListener. A phase starts when the recorder is created or the phase before it
+ * ends. Without a listener, nothing is measured.
+ */
+final class PhaseRecorder {
+
+	// null if the JVM cannot measure the bytes allocated by a thread
+	private static final com.sun.management.ThreadMXBean threads = allocationBean();
+
+	private final PhaseListener listener;
+	private String programName;
+	// when the current phase started, and how long it took once it is stopped
+	private long start;
+	private long nanos;
+	// bytes allocated by the thread when the current phase started, or in the phase once it is stopped
+	private long allocated;
+
+	PhaseRecorder(PhaseListener listener, String programName) {
+		this.listener = listener;
+		this.programName = programName;
+		restart();
+	}
+
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()
+				&& threads.isThreadAllocatedMemoryEnabled()) {
+			return threads;
+		}
+		return null;
+	}
+
+	boolean isRecording() {
+		return listener != null;
+	}
+
+	void setProgramName(String programName) {
+		this.programName = programName;
+	}
+
+	/** Starts the next phase now, leaving out the time since the last one ended. */
+	void restart() {
+		if (listener != null) {
+			allocated = threads != null ? threads.getCurrentThreadAllocatedBytes() : -1;
+			start = System.nanoTime();
+		}
+	}
+
+	/** Reports the phase that started when the last one ended, and starts the next one. */
+	void end(Phase phase, long size) {
+		stop();
+		report(phase, size);
+	}
+
+	/**
+	 * Ends the current phase without reporting it yet, so that its size can be measured
+	 * without adding to its time.
+	 */
+	void stop() {
+		if (listener != null) {
+			nanos = System.nanoTime() - start;
+			allocated = threads != null ? threads.getCurrentThreadAllocatedBytes() - allocated : -1;
+		}
+	}
+
+	/** Reports the phase ended by stop, and starts the next one. */
+	void report(Phase phase, long size) {
+		if (listener != null) {
+			listener.phaseEnded(new PhaseEvent(phase, programName, nanos, allocated, size));
+			restart();
+		}
+	}
+}
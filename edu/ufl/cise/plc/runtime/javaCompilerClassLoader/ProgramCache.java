@@ -0,0 +1,176 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread safe cache with least-recently-used eviction, used to avoid
+ * compiling the same program more than once.
+ *
+ * Values are loaded outside of the cache's lock, so a slow load does not block
+ * threads asking for other keys. A miss stores a future for the key before
+ * loading, so threads that ask for the same key during the load wait for it
+ * instead of loading the value again; they count as hits. A load that throws an
+ * exception stores nothing, and the threads waiting for it throw the same
+ * exception. A cache with capacity 0 stores nothing and loads on every call.
+ *
+ * @param <V> type of the cached values
+ */
+public class ProgramCache<V> {
+
+	private final LinkedHashMap<String, CompletableFuture<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private int capacity;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	public ProgramCache(int capacity) {
+		checkCapacity(capacity);
+		this.capacity = capacity;
+	}
+
+	private static void checkCapacity(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+		}
+	}
+
+	/**
+	 * Returns the value cached for key, or calls loader to obtain the value and
+	 * caches it.
+	 *
+	 * @param key
+	 * @param loader
+	 * @return
+	 * @throws Exception if thrown by loader
+	 */
+	public V get(String key, Callable<? extends V> loader) throws Exception {
+		CompletableFuture<V> future;
+		CompletableFuture<V> loading = null;
+		synchronized (this) {
+			future = entries.get(key);
+			if (future != null) {
+				hits.incrementAndGet();
+			} else {
+				misses.incrementAndGet();
+				if (capacity > 0) {
+					loading = new CompletableFuture<>();
+					entries.put(key, loading);
+					evictToCapacity();
+				}
+			}
+		}
+		if (future == null) {
+			return load(key, loader, loading);
+		}
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error error) {
+				throw error;
+			}
+			throw (Exception) cause;
+		}
+	}
+
+	/**
+	 * Loads the value of a miss and completes future with it, or only loads it if
+	 * future is null because the cache stores nothing.
+	 */
+	private V load(String key, Callable<? extends V> loader, CompletableFuture<V> future) throws Exception {
+		if (future == null) {
+			return loader.call();
+		}
+		try {
+			V value = loader.call();
+			future.complete(value);
+			return value;
+		} catch (Exception | Error e) {
+			synchronized (this) {
+				entries.remove(key, future);
+			}
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private void evictToCapacity() {
+		Iterator<CompletableFuture<V>> eldest = entries.values().iterator();
+		while (entries.size() > capacity) {
+			eldest.next();
+			eldest.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	public synchronized void setCapacity(int capacity) {
+		checkCapacity(capacity);
+		this.capacity = capacity;
+		evictToCapacity();
+	}
+
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	public long evictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Returns the hex encoded SHA-256 hash of the given strings. Each string is
+	 * preceded by its length, so different lists of strings have different keys.
+	 *
+	 * @param parts
+	 * @return
+	 */
+	public static String key(String... parts) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every Java platform is required to support SHA-256
+		}
+		for (String part : parts) {
+			byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+			digest.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+			digest.update(bytes);
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ProgramCache [size=" + entries.size() + ", capacity=" + capacity + ", hits=" + hits + ", misses="
+				+ misses + ", evictions=" + evictions + "]";
+	}
+}
@@ -0,0 +1,212 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Defines the classes of compiled programs, and counts how many of them are still
+ * loaded.
+ *
+ * With LOADER_PER_PROGRAM, each program is defined in a new DynamicClassLoader, so
+ * every program costs a class loader. With HIDDEN_CLASS, each program is defined as
+ * a hidden class by a DynamicClassLoader shared by all programs in the same package.
+ * Hidden classes are not registered with their class loader by name, so programs
+ * with the same name can be loaded at the same time, and each one can be unloaded
+ * as soon as it is unreachable, while the shared loader stays.
+ *
+ * In both cases, a program is unloaded by the garbage collector once nothing refers
+ * to its class, for example after its CompiledProgram has been evicted from the
+ * program cache of PLCLangExec. clear forgets the shared loaders, so that they are
+ * unloaded too once their programs are.
+ */
+public class ProgramLoader {
+
+	public enum Strategy {
+		LOADER_PER_PROGRAM, HIDDEN_CLASS
+	}
+
+	//simple name of the class that is defined in each package to define the hidden classes of that package
+	static final String HOST_NAME = "ProgramHost";
+
+	public final Strategy strategy;
+
+	//lookups with full access in the host class of each package, keyed by package name
+	private final Map<String, MethodHandles.Lookup> hosts = new HashMap<>();
+
+	//weak references to the defined classes that have not been unloaded
+	private final Set<Reference<Class<?>>> live = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final ReferenceQueue<Class<?>> unloaded = new ReferenceQueue<>();
+
+	private final AtomicLong defined = new AtomicLong();
+	private final AtomicLong loadersCreated = new AtomicLong();
+
+	public ProgramLoader(Strategy strategy) {
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Defines the class with the given name from its class file and initializes it.
+	 *
+	 * @param fullyQualifiedName
+	 * @param bytecode
+	 * @return
+	 * @throws IllegalAccessException if a hidden class cannot be defined in its package
+	 */
+	public Class<?> define(String fullyQualifiedName, byte[] bytecode) throws IllegalAccessException {
+		Class<?> programClass;
+		if (strategy == Strategy.HIDDEN_CLASS) {
+			programClass = host(packageName(fullyQualifiedName)).defineHiddenClass(bytecode, true).lookupClass();
+		} else {
+			DynamicClassLoader loader = new DynamicClassLoader(Thread.currentThread().getContextClassLoader());
+			loadersCreated.incrementAndGet();
+			programClass = loader.define(fullyQualifiedName, bytecode);
+		}
+		defined.incrementAndGet();
+		synchronized (live) {
+			expunge();
+			live.add(new WeakReference<>(programClass, unloaded));
+		}
+		return programClass;
+	}
+
+	private static String packageName(String fullyQualifiedName) {
+		int dot = fullyQualifiedName.lastIndexOf('.');
+		return dot < 0 ? "" : fullyQualifiedName.substring(0, dot);
+	}
+
+	//Returns a lookup in which hidden classes of the given package can be defined, creating a new loader
+	//with a host class in that package the first time. The lookup of the loader's copy of ProgramLookup
+	//is in the same module as the host class, so privateLookupIn gives full access to the host.
+	private synchronized MethodHandles.Lookup host(String packageName) throws IllegalAccessException {
+		MethodHandles.Lookup host = hosts.get(packageName);
+		if (host == null) {
+			String hostName = packageName.isEmpty() ? HOST_NAME : packageName + '.' + HOST_NAME;
+			DynamicClassLoader loader = new DynamicClassLoader(Thread.currentThread().getContextClassLoader());
+			loadersCreated.incrementAndGet();
+			Class<?> hostClass = loader.define(hostName, hostClassFile(hostName.replace('.', '/')));
+			host = MethodHandles.privateLookupIn(hostClass, loader.lookup());
+			hosts.put(packageName, host);
+		}
+		return host;
+	}
+
+	//Returns the class file of an empty public final class with no members
+	static byte[] hostClassFile(String internalName) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(49);
+			out.writeShort(5); //constant pool count, one more than the number of constants
+			out.writeByte(1); //#1 Utf8
+			out.writeUTF(internalName);
+			out.writeByte(7); //#2 Class #1
+			out.writeShort(1);
+			out.writeByte(1); //#3 Utf8
+			out.writeUTF("java/lang/Object");
+			out.writeByte(7); //#4 Class #3
+			out.writeShort(3);
+			out.writeShort(0x0001 | 0x0010 | 0x0020); //ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+			out.writeShort(2); //this class
+			out.writeShort(4); //super class
+			out.writeShort(0); //interfaces
+			out.writeShort(0); //fields
+			out.writeShort(0); //methods
+			out.writeShort(0); //attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e); //not thrown by ByteArrayOutputStream
+		}
+		return bytes.toByteArray();
+	}
+
+	private void expunge() {
+		Reference<? extends Class<?>> reference;
+		while ((reference = unloaded.poll()) != null) {
+			live.remove(reference);
+		}
+	}
+
+	/**
+	 * Forgets the shared class loaders of HIDDEN_CLASS, so that they can be unloaded
+	 * once the programs they define are. Programs defined afterwards get new loaders.
+	 */
+	public synchronized void clear() {
+		hosts.clear();
+	}
+
+	/** Number of classes defined by this ProgramLoader. */
+	public long defined() {
+		return defined.get();
+	}
+
+	/**
+	 * Number of classes defined by this ProgramLoader that have not been unloaded
+	 * yet, as far as the garbage collector has reported.
+	 */
+	public int live() {
+		synchronized (live) {
+			expunge();
+			return live.size();
+		}
+	}
+
+	/** Number of class loaders created by this ProgramLoader. */
+	public long loadersCreated() {
+		return loadersCreated.get();
+	}
+
+	/** Number of class loaders of HIDDEN_CLASS currently shared, one for each package. */
+	public synchronized int hosts() {
+		return hosts.size();
+	}
+
+	/** Number of classes currently loaded in the JVM, including those of programs. */
+	public static int loadedClassCount() {
+		return classLoading().getLoadedClassCount();
+	}
+
+	/** Number of classes unloaded since the JVM started. */
+	public static long unloadedClassCount() {
+		return classLoading().getUnloadedClassCount();
+	}
+
+	private static ClassLoadingMXBean classLoading() {
+		return ManagementFactory.getClassLoadingMXBean();
+	}
+
+	/**
+	 * Returns the number of bytes of metaspace used by the JVM, where the metadata of
+	 * loaded classes and class loaders is kept, or -1 if the JVM has no memory pool
+	 * named Metaspace.
+	 */
+	public static long metaspaceUsed() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getName().equals("Metaspace")) {
+				return pool.getUsage().getUsed();
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "ProgramLoader [strategy=" + strategy + ", defined=" + defined + ", live=" + live() + ", loadersCreated="
+				+ loadersCreated + ", hosts=" + hosts() + ", loadedClasses=" + loadedClassCount() + ", metaspaceUsed="
+				+ metaspaceUsed() + "]";
+	}
+}
@@ -0,0 +1,20 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Provides a Lookup with full access in the class loader of a generated program.
+ *
+ * DynamicClassLoader defines a copy of this class from its own class file, so the
+ * Lookup returned by the copy's lookup method belongs to the DynamicClassLoader
+ * and can link against the programs it defined. This class is not otherwise used.
+ */
+public final class ProgramLookup {
+
+	private ProgramLookup() {
+	}
+
+	public static MethodHandles.Lookup lookup() {
+		return MethodHandles.lookup();
+	}
+}
@@ -0,0 +1,164 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.ufl.cise.plc.InterpretedProgram;
+
+/**
+ * Runs programs in the interpreter until they are hot, and then compiles them in
+ * the background, as the JVM does with methods.
+ *
+ * A program is hot once it has been invoked invocationThreshold times, or once the
+ * interpreter has spent timeThresholdNanos running it, whichever comes first. It is
+ * then compiled on the executor while it keeps running in the interpreter, and
+ * invocations switch to the compiled program as soon as it is loaded. A threshold
+ * of 0 compiles every program as soon as it is loaded.
+ *
+ * The counters record the transitions of all programs of this TieredCompiler from
+ * one tier to the next.
+ */
+public class TieredCompiler {
+
+	public static final int DEFAULT_INVOCATION_THRESHOLD = 10;
+	public static final long DEFAULT_TIME_THRESHOLD_NANOS = 20_000_000;
+
+	private final ExecutorService executor;
+	private volatile int invocationThreshold;
+	private volatile long timeThresholdNanos;
+
+	private final AtomicLong programs = new AtomicLong();
+	private final AtomicLong interpretedInvocations = new AtomicLong();
+	private final AtomicLong compileRequests = new AtomicLong();
+	private final AtomicLong compiled = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong compileNanos = new AtomicLong();
+
+	/**
+	 * Creates a TieredCompiler that compiles programs one at a time on a daemon
+	 * thread of its own.
+	 */
+	public TieredCompiler(int invocationThreshold, long timeThresholdNanos) {
+		this(invocationThreshold, timeThresholdNanos, Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "PLCLang tiered compiler");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	public TieredCompiler(int invocationThreshold, long timeThresholdNanos, ExecutorService executor) {
+		setInvocationThreshold(invocationThreshold);
+		setTimeThresholdNanos(timeThresholdNanos);
+		this.executor = executor;
+	}
+
+	public int getInvocationThreshold() {
+		return invocationThreshold;
+	}
+
+	public void setInvocationThreshold(int invocationThreshold) {
+		if (invocationThreshold < 0) {
+			throw new IllegalArgumentException("invocationThreshold must not be negative: " + invocationThreshold);
+		}
+		this.invocationThreshold = invocationThreshold;
+	}
+
+	public long getTimeThresholdNanos() {
+		return timeThresholdNanos;
+	}
+
+	public void setTimeThresholdNanos(long timeThresholdNanos) {
+		if (timeThresholdNanos < 0) {
+			throw new IllegalArgumentException("timeThresholdNanos must not be negative: " + timeThresholdNanos);
+		}
+		this.timeThresholdNanos = timeThresholdNanos;
+	}
+
+	/**
+	 * Returns a program that runs the given interpreted program until it is hot, and
+	 * then the program returned by compiler.
+	 *
+	 * @param program
+	 * @param compiler compiles the same program; called at most once, on the executor
+	 * @return
+	 */
+	public CompiledProgram tier(InterpretedProgram program, Callable<CompiledProgram> compiler) {
+		programs.incrementAndGet();
+		TieredProgram tiered = new TieredProgram(this, program, compiler);
+		if (invocationThreshold == 0 || timeThresholdNanos == 0) {
+			tiered.requestCompile();
+		}
+		return new CompiledProgram(tiered);
+	}
+
+	//Called by a TieredProgram after each invocation in the interpreter
+	boolean interpreted(long invocations, long nanos) {
+		interpretedInvocations.incrementAndGet();
+		return invocations >= invocationThreshold || nanos >= timeThresholdNanos;
+	}
+
+	//Runs the compilation of a hot program on the executor
+	void submit(TieredProgram program) {
+		compileRequests.incrementAndGet();
+		try {
+			executor.execute(program::compile);
+		} catch (RejectedExecutionException e) {
+			program.failed(e);
+		}
+	}
+
+	void compiled(long nanos) {
+		compiled.incrementAndGet();
+		compileNanos.addAndGet(nanos);
+	}
+
+	void failed() {
+		failures.incrementAndGet();
+	}
+
+	/** Stops the executor. Programs that become hot afterwards stay in the interpreter. */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/** Number of programs started in the interpreter. */
+	public long programs() {
+		return programs.get();
+	}
+
+	/** Number of invocations run in the interpreter. */
+	public long interpretedInvocations() {
+		return interpretedInvocations.get();
+	}
+
+	/** Number of programs that became hot and were queued for compilation. */
+	public long compileRequests() {
+		return compileRequests.get();
+	}
+
+	/** Number of programs that switched to their compiled code. */
+	public long compiled() {
+		return compiled.get();
+	}
+
+	/** Number of programs that could not be compiled, and stay in the interpreter. */
+	public long failures() {
+		return failures.get();
+	}
+
+	/** Total time spent compiling the programs that were compiled, in nanoseconds. */
+	public long compileNanos() {
+		return compileNanos.get();
+	}
+
+	@Override
+	public String toString() {
+		return "TieredCompiler [invocationThreshold=" + invocationThreshold + ", timeThresholdNanos="
+				+ timeThresholdNanos + ", programs=" + programs + ", interpretedInvocations=" + interpretedInvocations
+				+ ", compileRequests=" + compileRequests + ", compiled=" + compiled + ", failures=" + failures
+				+ ", compileNanos=" + compileNanos + "]";
+	}
+}
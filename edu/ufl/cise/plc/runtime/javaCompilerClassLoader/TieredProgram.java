@@ -0,0 +1,156 @@
+package edu.ufl.cise.plc.runtime.javaCompilerClassLoader;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.ufl.cise.plc.InterpretedProgram;
+
+/**
+ * A program run by a TieredCompiler: in the interpreter at first, and compiled once
+ * it is hot.
+ *
+ * Invocations go through a MutableCallSite whose target is the interpreter until
+ * the compiled program is loaded, and its apply method afterwards. The target is
+ * replaced in one step, so each invocation runs entirely in one tier or the other.
+ */
+public final class TieredProgram {
+
+	public enum Tier {
+		INTERPRETED, COMPILING, COMPILED
+	}
+
+	private final TieredCompiler compiler;
+	private final InterpretedProgram interpreted;
+	private final Callable<CompiledProgram> compile;
+	private final MutableCallSite site;
+
+	private final AtomicLong invocations = new AtomicLong();
+	private final AtomicLong interpretedNanos = new AtomicLong();
+	private final AtomicBoolean requested = new AtomicBoolean();
+	private final CompletableFuture<CompiledProgram> compiled = new CompletableFuture<>();
+	private final long created = System.nanoTime();
+	private volatile CompiledProgram compiledProgram;
+	private volatile long timeToCompiledNanos = -1;
+	private volatile Tier tier = Tier.INTERPRETED;
+
+	TieredProgram(TieredCompiler compiler, InterpretedProgram interpreted, Callable<CompiledProgram> compile) {
+		this.compiler = compiler;
+		this.interpreted = interpreted;
+		this.compile = compile;
+		MethodHandle interpret;
+		try {
+			interpret = MethodHandles.lookup()
+					.findVirtual(TieredProgram.class, "interpret", MethodType.methodType(Object.class, Object[].class))
+					.bindTo(this);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new IllegalStateException(e); // interpret is declared below
+		}
+		MethodType type = interpreted.type();
+		site = new MutableCallSite(interpret.asCollector(Object[].class, type.parameterCount()).asType(type));
+	}
+
+	//Runs the program in the interpreter, and requests its compilation once it is hot
+	private Object interpret(Object[] args) throws Exception {
+		long start = System.nanoTime();
+		try {
+			return interpreted.apply(args);
+		} finally {
+			long nanos = interpretedNanos.addAndGet(System.nanoTime() - start);
+			if (compiler.interpreted(invocations.incrementAndGet(), nanos)) {
+				requestCompile();
+			}
+		}
+	}
+
+	void requestCompile() {
+		if (requested.compareAndSet(false, true)) {
+			tier = Tier.COMPILING;
+			compiler.submit(this);
+		}
+	}
+
+	//Compiles the program and switches the call site to it; runs on the executor of the TieredCompiler
+	void compile() {
+		long start = System.nanoTime();
+		try {
+			CompiledProgram program = compile.call();
+			site.setTarget(program.handle());
+			MutableCallSite.syncAll(new MutableCallSite[] { site });
+			long now = System.nanoTime();
+			compiledProgram = program;
+			timeToCompiledNanos = now - created;
+			tier = Tier.COMPILED;
+			compiler.compiled(now - start);
+			compiled.complete(program);
+		} catch (Throwable e) {
+			failed(e);
+		}
+	}
+
+	void failed(Throwable e) {
+		tier = Tier.INTERPRETED;
+		compiler.failed();
+		compiled.completeExceptionally(e);
+	}
+
+	/** Returns a handle whose target is the tier the program currently runs in. */
+	MethodHandle handle() {
+		return site.dynamicInvoker();
+	}
+
+	/** Returns the compiled program, or null if invocations have not switched to it. */
+	CompiledProgram compiledProgram() {
+		return compiledProgram;
+	}
+
+	public String getName() {
+		return interpreted.getName();
+	}
+
+	public MethodType type() {
+		return interpreted.type();
+	}
+
+	/** Returns the tier invocations currently run in. */
+	public Tier tier() {
+		return tier;
+	}
+
+	/** Number of invocations run in the interpreter. */
+	public long interpretedInvocations() {
+		return invocations.get();
+	}
+
+	/** Time spent running the program in the interpreter, in nanoseconds. */
+	public long interpretedNanos() {
+		return interpretedNanos.get();
+	}
+
+	/**
+	 * Time from the creation of this program to the switch to its compiled code, in
+	 * nanoseconds, or -1 if it has not switched.
+	 */
+	public long timeToCompiledNanos() {
+		return timeToCompiledNanos;
+	}
+
+	/**
+	 * Returns a future completed with the compiled program once invocations have
+	 * switched to it, or completed exceptionally if it could not be compiled.
+	 */
+	public CompletableFuture<CompiledProgram> compiled() {
+		return compiled.copy();
+	}
+
+	@Override
+	public String toString() {
+		return "TieredProgram [" + interpreted.getName() + interpreted.type() + ", tier=" + tier
+				+ ", interpretedInvocations=" + invocations + "]";
+	}
+}
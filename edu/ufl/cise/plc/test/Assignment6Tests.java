@@ -23,6 +23,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 
+import edu.ufl.cise.plc.CodeGenOptions;
 import edu.ufl.cise.plc.LexicalException;
 import edu.ufl.cise.plc.SyntaxException;
 import edu.ufl.cise.plc.TypeCheckException;
@@ -1302,6 +1303,93 @@ public class Assignment6Tests {
 		checkProgram(input, refImage, widthAndHeight);
 	}
 
+	@Test
+	void testImageOpReadTargetInPlace() throws Exception {
+		String input = """
+				image f(int w, int h)
+				image[w,h] a;
+				a[x,y] = <<x, y, 0>>;
+				a[x,y] = if (x > 0 & y > 0) a[x-1,y-1] else a[x,y] fi;
+				^ a;
+				""";
+		int w = 40;
+		int h = 30;
+		BufferedImage refImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < w; x++) {
+			for (int y = 0; y < h; y++) {
+				ImageOps.setColor(refImage, x, y, new ColorTuple(x, y, 0));
+			}
+		}
+		for (int x = 0; x < w; x++) {
+			for (int y = 0; y < h; y++) {
+				if (x > 0 && y > 0) {
+					ImageOps.setColor(refImage, x, y, refImage.getRGB(x - 1, y - 1));
+				}
+			}
+		}
+		checkProgram(input, refImage, w, h);
+	}
+
+	@Test
+	void testImageOpSameImageParams() throws Exception {
+		String input = """
+				image f(image a, image b)
+				a[x,y] = b[(getWidth b) - 1 - x, y];
+				^ a;
+				""";
+		BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_3BYTE_BGR);
+		BufferedImage refImage = new BufferedImage(20, 10, BufferedImage.TYPE_3BYTE_BGR);
+		for (int x = 0; x < 20; x++) {
+			for (int y = 0; y < 10; y++) {
+				ImageOps.setColor(image, x, y, new ColorTuple(x * 10, y * 20, 100));
+				ImageOps.setColor(refImage, x, y, new ColorTuple(x * 10, y * 20, 100));
+			}
+		}
+		for (int x = 0; x < 20; x++) {
+			for (int y = 0; y < 10; y++) {
+				ImageOps.setColor(refImage, x, y, refImage.getRGB(19 - x, y));
+			}
+		}
+		checkProgram(input, refImage, image, image);
+	}
+
+	@Test
+	void testImageOpReadOutOfBounds() throws Exception {
+		String input = """
+				image f(int w)
+				image[w,w] a = RED;
+				image[w,w] b;
+				b[x,y] = a[x+1,y];
+				^ b;
+				""";
+		assertThrows(ArrayIndexOutOfBoundsException.class, () -> {
+			exec(input, 10);
+		});
+	}
+
+	@Test
+	void testImageOpParallelLoops() throws Exception {
+		String input = """
+				image f(image b, int k)
+				image[300,200] a;
+				color c = <<k, 0, 0>>;
+				a[x,y] = <<x, y, k>>;
+				a[x,y] = a[x,y] + b[x,y] * <<2,2,2>> - c;
+				a = if (k > 0) a[0,0] else RED fi;
+				^ a;
+				""";
+		BufferedImage b = new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR);
+		for (int x = 0; x < 300; x++) {
+			for (int y = 0; y < 200; y++) {
+				ImageOps.setColor(b, x, y, new ColorTuple(x, y, x + y));
+			}
+		}
+		BufferedImage sequential = (BufferedImage) exec(input, b, 7);
+		BufferedImage parallel = (BufferedImage) new PLCLangExec(packageName, VERBOSE, CodeGenOptions.parallel(0))
+				.exec(input, new Object[] { b, 7 });
+		checkEqual(sequential, parallel);
+	}
+
 	@Test
 	void testImageOp5() throws Exception {
 		String input = """
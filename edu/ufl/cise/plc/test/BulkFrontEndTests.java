@@ -0,0 +1,106 @@
+package edu.ufl.cise.plc.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.plc.BulkFrontEnd;
+import edu.ufl.cise.plc.LexicalException;
+import edu.ufl.cise.plc.SyntaxException;
+import edu.ufl.cise.plc.TypeCheckException;
+
+//Checks that programs checked concurrently get the results they get when checked one at a time
+class BulkFrontEndTests {
+
+	static final String[] PROGRAMS = { """
+			int f(int w)
+			int x = w * 2;
+			^ x + 1;
+			""", """
+			image g(int w, int h)
+			image[w, h] a;
+			a[x, y] = << x, y, 255 >>;
+			^ a;
+			""", """
+			int f()
+			int x = 1 @ 2;
+			^ x;
+			""", """
+			int f()
+			int x = ;
+			^ x;
+			""", """
+			int f()
+			string s = "a";
+			^ s;
+			""" };
+
+	static List<String> inputs(int count) {
+		List<String> inputs = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			inputs.add(PROGRAMS[i % PROGRAMS.length].replace("int x", "int x" + i).replace("^ x", "^ x" + i).replace("* 2", "* " + i));
+		}
+		return inputs;
+	}
+
+	static void assertSameResults(List<String> inputs, BulkFrontEnd.Report report) throws IllegalAccessException {
+		assertEquals(inputs.size(), report.results().size());
+		for (int i = 0; i < inputs.size(); i++) {
+			BulkFrontEnd.Result result = report.results().get(i);
+			BulkFrontEnd.Result serial = BulkFrontEnd.check(i, inputs.get(i));
+			assertEquals(i, result.index());
+			assertEquals(IncrementalParserTests.dump(serial.program()), IncrementalParserTests.dump(result.program()));
+			assertEquals(serial.failed(), result.failed());
+			if (serial.failed()) {
+				assertEquals(serial.error().getClass(), result.error().getClass());
+				assertEquals(serial.error().getMessage(), result.error().getMessage());
+			}
+		}
+	}
+
+	@Test
+	void testResultsOfEachProgram() throws Exception {
+		try (BulkFrontEnd frontEnd = BulkFrontEnd.withThreads(2)) {
+			BulkFrontEnd.Report report = frontEnd.check(List.of(PROGRAMS));
+			List<BulkFrontEnd.Result> results = report.results();
+			assertNull(results.get(0).error());
+			assertNull(results.get(1).error());
+			assertTrue(results.get(2).error() instanceof LexicalException);
+			assertTrue(results.get(3).error() instanceof SyntaxException);
+			assertTrue(results.get(4).error() instanceof TypeCheckException);
+			assertEquals(3, report.failures().size());
+			// phases after the failing one are not run
+			assertEquals(0, results.get(2).typeCheckNanos());
+			assertEquals(0, results.get(3).typeCheckNanos());
+			assertTrue(results.get(0).typeCheckNanos() > 0);
+		}
+	}
+
+	@Test
+	void testManyProgramsOnManyThreads() throws Exception {
+		List<String> inputs = inputs(2000);
+		try (BulkFrontEnd frontEnd = BulkFrontEnd.withThreads(8)) {
+			assertSameResults(inputs, frontEnd.check(inputs));
+			assertSameResults(inputs, frontEnd.check(inputs));
+		}
+	}
+
+	@Test
+	void testGivenExecutor() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		List<String> inputs = inputs(50);
+		try (BulkFrontEnd frontEnd = new BulkFrontEnd(executor)) {
+			assertSameResults(inputs, frontEnd.check(inputs));
+		}
+		// the executor belongs to the caller
+		assertTrue(!executor.isShutdown());
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,221 @@
+package edu.ufl.cise.plc.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.plc.CodeGenOptions;
+import edu.ufl.cise.plc.CompilerComponentFactory;
+import edu.ufl.cise.plc.ConstantFolder;
+import edu.ufl.cise.plc.ast.BinaryExpr;
+import edu.ufl.cise.plc.ast.BooleanLitExpr;
+import edu.ufl.cise.plc.ast.ColorExpr;
+import edu.ufl.cise.plc.ast.ConditionalExpr;
+import edu.ufl.cise.plc.ast.Expr;
+import edu.ufl.cise.plc.ast.FloatLitExpr;
+import edu.ufl.cise.plc.ast.IdentExpr;
+import edu.ufl.cise.plc.ast.IntLitExpr;
+import edu.ufl.cise.plc.ast.Program;
+import edu.ufl.cise.plc.ast.ReturnStatement;
+import edu.ufl.cise.plc.ast.Types.Type;
+import edu.ufl.cise.plc.runtime.ImageOps;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.ExecutionMode;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.PLCLangExec;
+
+//Checks the expressions ConstantFolder replaces, and that programs compute the same values with and without folding
+class ConstantFolderTests {
+
+	static final String packageName = "cop4020sp22Package";
+
+	static final ExecutionMode[] MODES = { ExecutionMode.COMPILE, ExecutionMode.BYTECODE, ExecutionMode.INTERPRET };
+
+	static Program fold(String input) throws Exception {
+		Program program = (Program) CompilerComponentFactory.getParser(input).parse();
+		program.visit(CompilerComponentFactory.getTypeChecker(), null);
+		ConstantFolder.fold(program);
+		return program;
+	}
+
+	//The expression of the last statement, which returns it
+	static Expr returned(Program program) {
+		return ((ReturnStatement) program.getDecsAndStatements().get(program.getDecsAndStatements().size() - 1)).getExpr();
+	}
+
+	static Object exec(String input, CodeGenOptions options, ExecutionMode mode, Object... params) throws Exception {
+		return new PLCLangExec(packageName, false, options, mode).exec(input, params);
+	}
+
+	static void assertSameResult(String input, Object... params) throws Exception {
+		Object expected = exec(input, CodeGenOptions.DEFAULT.withoutFolding(), ExecutionMode.COMPILE, params);
+		for (ExecutionMode mode : MODES) {
+			Object actual = exec(input, CodeGenOptions.DEFAULT, mode, params);
+			if (expected instanceof BufferedImage image) {
+				assertTrue(ImageOps.equals(image, (BufferedImage) actual), mode.name());
+			} else {
+				assertEquals(expected, actual, mode.name());
+			}
+		}
+	}
+
+	@Test
+	void testIntArithmetic() throws Exception {
+		Expr expr = returned(fold("""
+				int intArithmetic()
+				^ 2 * 3 + 10 / 4 - 7 % 4;
+				"""));
+		assertTrue(expr instanceof IntLitExpr);
+		assertEquals(5, ((IntLitExpr) expr).getValue());
+		assertEquals(Type.INT, expr.getType());
+	}
+
+	@Test
+	void testCoercedToFloat() throws Exception {
+		Expr expr = returned(fold("""
+				float coerced()
+				^ 1.5 + 7 / 2;
+				"""));
+		assertTrue(expr instanceof FloatLitExpr);
+		assertEquals(4.5f, ((FloatLitExpr) expr).getValue());
+		assertSameResult("""
+				float coerced()
+				^ 1.5 + 7 / 2;
+				""");
+		assertSameResult("""
+				float declared()
+				float f = 7 / 2 - 10;
+				^ f * -1000.5;
+				""");
+	}
+
+	@Test
+	void testColors() throws Exception {
+		Expr expr = returned(fold("""
+				color colors()
+				^ <<255, 0, 0>> * 2 + BLUE;
+				"""));
+		assertTrue(expr instanceof ColorExpr);
+		assertEquals(Type.COLOR, expr.getType());
+		ColorExpr color = (ColorExpr) expr;
+		// components are not truncated until the color is packed
+		assertEquals(510, ((IntLitExpr) color.getRed()).getValue());
+		assertEquals(255, ((IntLitExpr) color.getBlue()).getValue());
+		assertSameResult("""
+				color colors()
+				^ <<255, 0, 0>> * 2 + BLUE;
+				""");
+		assertSameResult("""
+				int component()
+				^ getGreen (<<1, 2, 3>> * 4 - <<1, 1, 1>>) + getBlue ORANGE;
+				""");
+		assertSameResult("""
+				boolean equalColors()
+				^ RED == <<255, 0, 0>> & <<1, 1, 1>> != <<1, 1, 1>> * 2;
+				""");
+	}
+
+	@Test
+	void testImage() throws Exception {
+		assertSameResult("""
+				image halfRed(int size)
+				image[size, size] a;
+				a = <<255, 0, 0>> * 2 / 4;
+				a[x, y] = a[x * 1, y - 0] + <<0, 10 * 10, 0>>;
+				^ a;
+				""", 16);
+	}
+
+	@Test
+	void testIdentities() throws Exception {
+		Expr expr = returned(fold("""
+				int identities(int a)
+				^ (1 * a + 0) / 1 - 0;
+				"""));
+		assertTrue(expr instanceof IdentExpr);
+		assertEquals("a", expr.getText());
+		assertSameResult("""
+				int identities(int a)
+				^ (1 * a + 0) / 1 - 0;
+				""", 7);
+		// -0.0 + 0.0 is 0.0, so a float plus 0.0 is kept
+		expr = returned(fold("""
+				float plusZero(float a)
+				^ a + 0.0;
+				"""));
+		assertTrue(expr instanceof BinaryExpr);
+		// an int that is coerced to float is kept with its coercion
+		assertSameResult("""
+				float coercedIdentity(int a)
+				^ 0.5 + a * 1;
+				""", 3);
+	}
+
+	@Test
+	void testConditional() throws Exception {
+		Expr expr = returned(fold("""
+				int conditional(int a)
+				^ if (3 > 2 & !false) a else a * 2 fi;
+				"""));
+		assertTrue(expr instanceof IdentExpr);
+		assertSameResult("""
+				int conditional(int a)
+				^ if (3 > 2 & !false) a else a * 2 fi;
+				""", 5);
+		assertSameResult("""
+				float conditionalFloat(int a)
+				^ 0.5 * (if (1.0 == 2.0) 2 else a fi);
+				""", 5);
+		assertSameResult("""
+				image conditionalImage(int size)
+				image[size, size] a = RED;
+				image[size, size] b = GREEN;
+				image c = if (1 < 0) a else b fi;
+				^ c;
+				""", 4);
+	}
+
+	@Test
+	void testNotFolded() throws Exception {
+		Program program = fold("""
+				int divideByZero()
+				^ 1 / 0;
+				""");
+		assertTrue(returned(program) instanceof BinaryExpr);
+		assertThrows(ArithmeticException.class, () -> exec("""
+				int divideByZero()
+				^ 1 / 0;
+				""", CodeGenOptions.DEFAULT, ExecutionMode.COMPILE));
+		// the condition is not constant
+		Expr expr = returned(fold("""
+				int notConstant(int a)
+				^ if (a > 2) 1 + 1 else 3 fi;
+				"""));
+		assertTrue(((ConditionalExpr) expr).getTrueCase() instanceof IntLitExpr);
+		Expr unchanged = returned(fold("""
+				boolean unchanged(int a)
+				^ a > 2;
+				"""));
+		assertTrue(unchanged instanceof BinaryExpr);
+		assertEquals(Type.BOOLEAN, unchanged.getType());
+		assertTrue(returned(fold("""
+				boolean literal()
+				^ 1.5 >= 2;
+				""")) instanceof BooleanLitExpr);
+	}
+
+	@Test
+	void testFoldedCount() throws Exception {
+		Program program = (Program) CompilerComponentFactory.getParser("""
+				int counted(int a)
+				int b = 1 + 2;
+				^ a * 1 + b * (3 - 1);
+				""").parse();
+		program.visit(CompilerComponentFactory.getTypeChecker(), null);
+		// 1 + 2, a * 1 and 3 - 1
+		assertEquals(3, ConstantFolder.fold(program));
+		assertEquals(0, ConstantFolder.fold(program));
+	}
+}
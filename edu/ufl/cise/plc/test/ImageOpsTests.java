@@ -0,0 +1,232 @@
+package edu.ufl.cise.plc.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.plc.runtime.ColorTuple;
+import edu.ufl.cise.plc.runtime.FileURLIO;
+import edu.ufl.cise.plc.runtime.ImageOps;
+import edu.ufl.cise.plc.runtime.ImageOps.OP;
+import edu.ufl.cise.plc.runtime.ImageRaster;
+
+class ImageOpsTests {
+
+	static final int[] TYPES = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_BGR };
+
+	Random random = new Random(4020);
+
+	BufferedImage randomImage(int type, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt() | ColorTuple.SELECT_ALPHA);
+			}
+		}
+		return image;
+	}
+
+	//reference implementation of binaryImageImageOp using getRGB and ColorTuple for every pixel
+	BufferedImage referenceImageOp(OP op, BufferedImage left, BufferedImage right) {
+		BufferedImage result = new BufferedImage(left.getWidth(), left.getHeight(), BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < left.getWidth(); x++) {
+			for (int y = 0; y < left.getHeight(); y++) {
+				ColorTuple color = ImageOps.binaryTupleOp(op, ColorTuple.unpack(left.getRGB(x, y)),
+						ColorTuple.unpack(right.getRGB(x, y)));
+				result.setRGB(x, y, color.pack());
+			}
+		}
+		return result;
+	}
+
+	@Test
+	void testBackingArray() {
+		assertTrue(ImageRaster.backingArray(new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB)) != null);
+		assertTrue(ImageRaster.backingArray(new BufferedImage(4, 3, BufferedImage.TYPE_INT_ARGB)) != null);
+		assertNull(ImageRaster.backingArray(new BufferedImage(4, 3, BufferedImage.TYPE_3BYTE_BGR)));
+		BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+		assertNull(ImageRaster.backingArray(image.getSubimage(2, 2, 5, 5)));
+	}
+
+	@Test
+	void testPixelsAndCommit() {
+		for (int type : TYPES) {
+			BufferedImage image = randomImage(type, 13, 7);
+			int[] pixels = ImageRaster.pixels(image);
+			pixels[3 * 13 + 5] = 0xff102030;
+			ImageRaster.commit(image, pixels);
+			assertEquals(0xff102030, image.getRGB(5, 3));
+		}
+	}
+
+	@Test
+	void testExtract() {
+		for (int type : TYPES) {
+			BufferedImage image = randomImage(type, 17, 9);
+			BufferedImage red = ImageOps.extractRed(image);
+			BufferedImage green = ImageOps.extractGreen(image);
+			BufferedImage blue = ImageOps.extractBlue(image);
+			for (int x = 0; x < 17; x++) {
+				for (int y = 0; y < 9; y++) {
+					int pixel = image.getRGB(x, y);
+					assertEquals(ColorTuple.makePackedColor(ColorTuple.getRed(pixel), 0, 0), red.getRGB(x, y));
+					assertEquals(ColorTuple.makePackedColor(0, ColorTuple.getGreen(pixel), 0), green.getRGB(x, y));
+					assertEquals(ColorTuple.makePackedColor(0, 0, ColorTuple.getBlue(pixel)), blue.getRGB(x, y));
+				}
+			}
+		}
+	}
+
+	@Test
+	void testBinaryImageImageOp() {
+		for (int leftType : TYPES) {
+			for (int rightType : TYPES) {
+				BufferedImage left = randomImage(leftType, 11, 6);
+				BufferedImage right = randomImage(rightType, 11, 6);
+				for (OP op : new OP[] { OP.PLUS, OP.MINUS, OP.TIMES }) {
+					assertArrayEquals(ImageOps.getRGBPixels(referenceImageOp(op, left, right)),
+							ImageOps.getRGBPixels(ImageOps.binaryImageImageOp(op, left, right)));
+				}
+			}
+		}
+	}
+
+	@Test
+	void testBinaryImageScalarOp() {
+		for (int type : TYPES) {
+			BufferedImage left = randomImage(type, 9, 4);
+			for (OP op : OP.values()) {
+				for (int scalar : new int[] { 1, 3, -7, 300 }) {
+					BufferedImage expected = new BufferedImage(9, 4, BufferedImage.TYPE_INT_RGB);
+					for (int x = 0; x < 9; x++) {
+						for (int y = 0; y < 4; y++) {
+							ColorTuple color = ImageOps.binaryTupleOp(op, ColorTuple.unpack(left.getRGB(x, y)),
+									new ColorTuple(scalar));
+							expected.setRGB(x, y, color.pack());
+						}
+					}
+					assertArrayEquals(ImageOps.getRGBPixels(expected),
+							ImageOps.getRGBPixels(ImageOps.binaryImageScalarOp(op, left, scalar)));
+				}
+			}
+			assertThrows(ArithmeticException.class, () -> ImageOps.binaryImageScalarOp(OP.DIV, left, 0));
+			assertThrows(ArithmeticException.class, () -> ImageOps.binaryImageScalarOp(OP.MOD, left, 0));
+		}
+	}
+
+	@Test
+	void testDivideImageByZeroComponent() {
+		BufferedImage left = randomImage(BufferedImage.TYPE_INT_RGB, 5, 5);
+		BufferedImage right = randomImage(BufferedImage.TYPE_INT_RGB, 5, 5);
+		right.setRGB(4, 4, 0xff010000);
+		assertThrows(ArithmeticException.class, () -> ImageOps.binaryImageImageOp(OP.DIV, left, right));
+		assertThrows(ArithmeticException.class, () -> ImageOps.binaryImageImageOp(OP.MOD, left, right));
+	}
+
+	@Test
+	void testParallelMatchesSequential() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int type : TYPES) {
+				BufferedImage left = randomImage(type, 37, 101);
+				BufferedImage right = randomImage(type, 37, 101);
+				BufferedImage copy = ImageOps.clone(left);
+				ImageOps.setParallelThreshold(Integer.MAX_VALUE);
+				BufferedImage[] sequential = { ImageOps.extractRed(left), ImageOps.extractGreen(left),
+						ImageOps.extractBlue(left), ImageOps.binaryImageImageOp(OP.TIMES, left, right),
+						ImageOps.binaryImageScalarOp(OP.MINUS, left, 42), ImageOps.clone(left) };
+				ImageOps.setParallelThreshold(0);
+				ImageOps.setPool(pool);
+				BufferedImage[] parallel = { ImageOps.extractRed(left), ImageOps.extractGreen(left),
+						ImageOps.extractBlue(left), ImageOps.binaryImageImageOp(OP.TIMES, left, right),
+						ImageOps.binaryImageScalarOp(OP.MINUS, left, 42), ImageOps.clone(left) };
+				for (int i = 0; i < sequential.length; i++) {
+					assertArrayEquals(ImageOps.getRGBPixels(sequential[i]), ImageOps.getRGBPixels(parallel[i]));
+				}
+				assertTrue(ImageOps.equals(left, copy));
+				copy.setRGB(0, 100, ~copy.getRGB(0, 100));
+				assertFalse(ImageOps.equals(left, copy));
+				assertThrows(ArithmeticException.class, () -> ImageOps.binaryImageScalarOp(OP.DIV, left, 0));
+			}
+		} finally {
+			ImageOps.setParallelThreshold(ImageOps.DEFAULT_PARALLEL_THRESHOLD);
+			ImageOps.setPool(ForkJoinPool.commonPool());
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void testEqualsAndClone() {
+		for (int type : TYPES) {
+			BufferedImage image = randomImage(type, 8, 5);
+			BufferedImage clone = ImageOps.clone(image);
+			assertTrue(ImageOps.equals(image, clone));
+			clone.setRGB(7, 4, ~clone.getRGB(7, 4));
+			assertFalse(ImageOps.equals(image, clone));
+		}
+		BufferedImage rgb = randomImage(BufferedImage.TYPE_INT_RGB, 6, 6);
+		BufferedImage bgr = new BufferedImage(6, 6, BufferedImage.TYPE_INT_BGR);
+		bgr.setRGB(0, 0, 6, 6, ImageOps.getRGBPixels(rgb), 0, 6);
+		assertTrue(ImageOps.equals(rgb, bgr));
+	}
+
+	@Test
+	void testFlightRecorderEvents() throws Exception {
+		Path directory = Files.createTempDirectory("ImageOpsTests");
+		Path recorded = directory.resolve("events.jfr");
+		String written = directory.resolve("image").toString();
+		try (Recording recording = new Recording()) {
+			recording.enable("edu.ufl.cise.plc.ImageOp");
+			recording.enable("edu.ufl.cise.plc.ImageIO");
+			recording.start();
+			BufferedImage image = randomImage(BufferedImage.TYPE_INT_RGB, 30, 20);
+			ImageOps.extractRed(image);
+			ImageOps.binaryImageImageOp(OP.MINUS, image, image);
+			FileURLIO.writeImage(image, written);
+			FileURLIO.readImage(written + ".jpeg", 15, 10);
+			recording.stop();
+			recording.dump(recorded);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(recorded);
+		List<String> ops = events.stream().filter(event -> event.getEventType().getName().equals("edu.ufl.cise.plc.ImageOp"))
+				.map(event -> event.getString("operation") + " " + event.getString("op") + " " + event.getInt("width") + "x"
+						+ event.getInt("height"))
+				.toList();
+		assertEquals(List.of("extractRed null 30x20", "binaryImageImageOp MINUS 30x20", "resize null 30x20"), ops);
+		List<RecordedEvent> io = events.stream().filter(event -> event.getEventType().getName().equals("edu.ufl.cise.plc.ImageIO"))
+				.toList();
+		assertEquals(2, io.size());
+		long size = Files.size(Path.of(written + ".jpeg"));
+		for (RecordedEvent event : io) {
+			assertEquals("file", event.getString("source"));
+			assertEquals(written + ".jpeg", event.getString("location"));
+			assertEquals(30, event.getInt("width"));
+			assertEquals(size, event.getLong("bytes"));
+		}
+		assertEquals("write", io.get(0).getString("operation"));
+		assertEquals("read", io.get(1).getString("operation"));
+		try (var files = Files.list(directory)) {
+			for (Path file : files.toList()) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+}
@@ -0,0 +1,149 @@
+package edu.ufl.cise.plc.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.plc.CompilerComponentFactory;
+import edu.ufl.cise.plc.IToken;
+import edu.ufl.cise.plc.IncrementalParser;
+import edu.ufl.cise.plc.PLCException;
+import edu.ufl.cise.plc.SyntaxException;
+import edu.ufl.cise.plc.ast.ASTNode;
+import edu.ufl.cise.plc.ast.AssignmentStatement;
+import edu.ufl.cise.plc.ast.Program;
+
+//Checks that the programs parsed after edits are the ones parsed from scratch, down to the locations of their tokens
+class IncrementalParserTests {
+
+	static final String INPUT = """
+			image f(int w, string url)
+			image[w, w] a <- url;
+			int x = 3; int y = x * (2 + w);
+			string s = "one
+			two";
+			\tstring t = "a\\tb";   # comment
+			a[i, j] = << i, j, 255 >>;
+			write s -> console;
+			^ if (x >= 2 & !(y != 3)) a else a fi;
+			""";
+
+	//Returns the class, tokens and children of the node, and of the values and nodes in its fields
+	static String dump(Object value) throws IllegalAccessException {
+		if (value instanceof IToken token) {
+			return token.getKind() + " " + token.getText() + " " + token.getSourceLocation();
+		}
+		if (value instanceof List<?> list) {
+			StringBuilder dump = new StringBuilder("[");
+			for (Object element : list) {
+				dump.append(dump(element)).append(", ");
+			}
+			return dump.append("]").toString();
+		}
+		if (!(value instanceof ASTNode)) {
+			return String.valueOf(value);
+		}
+		StringBuilder dump = new StringBuilder(value.getClass().getSimpleName()).append(" {");
+		for (Class<?> c = value.getClass(); c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers())) {
+					field.setAccessible(true);
+					dump.append(field.getName()).append('=').append(dump(field.get(value))).append("; ");
+				}
+			}
+		}
+		return dump.append("}").toString();
+	}
+
+	//The program parsed from scratch, or the message of the exception thrown
+	static String parse(String input) throws IllegalAccessException {
+		try {
+			return dump(CompilerComponentFactory.getParser(input).parse());
+		} catch (PLCException e) {
+			return e.getClass().getSimpleName() + ": " + e.getMessage();
+		}
+	}
+
+	static String edit(IncrementalParser parser, int offset, int removed, String inserted) throws IllegalAccessException {
+		try {
+			return dump(parser.edit(offset, removed, inserted));
+		} catch (PLCException e) {
+			return e.getClass().getSimpleName() + ": " + e.getMessage();
+		}
+	}
+
+	@Test
+	void testRandomEdits() throws Exception {
+		String[] insertions = { "", " ", "\n", "\t", "\r\n", "x", "1", ";", " = ", "int z = 4;", "x = y;\n", "\"", "#",
+				"string m = \"p\nq\";", "write \"r\" -> console;", "\"u\nv\"", "<<", "2.5", "!" };
+		Random random = new Random(4020);
+		for (int run = 0; run < 50; run++) {
+			String input = INPUT;
+			IncrementalParser parser = CompilerComponentFactory.getIncrementalParser(input);
+			assertEquals(parse(input), dump(parser.parse()));
+			for (int i = 0; i < 60; i++) {
+				int offset = random.nextInt(input.length() + 1);
+				int removed = random.nextInt(4) == 0 ? random.nextInt(Math.min(8, input.length() - offset) + 1) : 0;
+				String inserted = insertions[random.nextInt(insertions.length)];
+				// most edits insert or remove whole statements, so that the program still parses
+				int semi = input.indexOf(';', offset);
+				if (random.nextInt(4) != 0 && semi >= 0) {
+					offset = semi + 1;
+					int nextSemi = input.indexOf(';', offset);
+					removed = random.nextBoolean() && nextSemi >= 0 ? nextSemi + 1 - offset : 0;
+					inserted = random.nextBoolean() ? insertions[random.nextInt(5)] : insertions[9 + random.nextInt(2) * 4];
+				}
+				input = input.substring(0, offset) + inserted + input.substring(offset + removed);
+				assertEquals(parse(input), edit(parser, offset, removed, inserted), input);
+				assertEquals(input, parser.getInput());
+			}
+		}
+	}
+
+	@Test
+	void testEditKeepsOtherNodes() throws Exception {
+		StringBuilder input = new StringBuilder("int f(int w)\n");
+		for (int i = 0; i < 1000; i++) {
+			input.append("int v").append(i).append(" = w * ").append(i).append(";\n");
+		}
+		input.append("^ v999;\n");
+		IncrementalParser parser = new IncrementalParser(input.toString());
+		Program before = parser.parse();
+		int offset = input.indexOf("v500 = w") + "v500 = w".length();
+		Program after = parser.edit(offset, 0, " + 1");
+		assertEquals(1, parser.reparsed());
+		assertEquals(before.getDecsAndStatements().size(), after.getDecsAndStatements().size());
+		for (int i = 0; i < before.getDecsAndStatements().size(); i++) {
+			if (i != 500) {
+				assertSame(before.getDecsAndStatements().get(i), after.getDecsAndStatements().get(i));
+			}
+		}
+		assertEquals(parse(parser.getInput()), dump(after));
+
+		// the nodes after a new line report the lines they are on now
+		after = parser.edit(input.indexOf("\n") + 1, 0, "\n\n");
+		assertEquals(1, parser.reparsed());
+		assertEquals(new IToken.SourceLocation(1003, 0), after.getDecsAndStatements().get(1000).getSourceLoc());
+		assertEquals(parse(parser.getInput()), dump(after));
+	}
+
+	@Test
+	void testEditThatJoinsStatements() throws Exception {
+		IncrementalParser parser = new IncrementalParser("void f()\nint a = 1;\nint b = 2;\nwrite a -> console;\n");
+		parser.parse();
+		// removing the ';' makes "int a = 1\nint b = 2;" one invalid declaration
+		assertThrows(SyntaxException.class, () -> parser.edit(18, 1, ""));
+		Program program = parser.edit(18, 0, "; x = a;");
+		assertEquals(4, program.getDecsAndStatements().size());
+		assertTrue(program.getDecsAndStatements().get(1) instanceof AssignmentStatement);
+		assertEquals(parse(parser.getInput()), dump(program));
+	}
+}
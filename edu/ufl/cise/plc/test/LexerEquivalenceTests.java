@@ -0,0 +1,129 @@
+package edu.ufl.cise.plc.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.plc.ILexer;
+import edu.ufl.cise.plc.IToken;
+import edu.ufl.cise.plc.IToken.Kind;
+import edu.ufl.cise.plc.Lexer;
+import edu.ufl.cise.plc.LexicalException;
+
+//Checks that the lexers produce the same tokens in all their modes
+class LexerEquivalenceTests {
+
+	static final List<String> INPUTS = List.of("", "abc", "abc\n", "  int a = 3;\n\t^ a + 0.25;", """
+			image f(int w, string url)
+			image[w, w] a <- url;
+			a[x, y] = << x, y, 255 >>;    # comment
+			write a -> console;
+			if (w >= 2 & !(w != 3)) ^ -a; else ^ a * 2; fi
+			""", "string s = \"a\\tb\\\"c\\\\\";\r\nint i = 0;\r\n", "a <- b -> c << >> <= == = !", "1.5 0.25 007 12",
+			"\"unterminated\n", "a ~ b", "99999999999 x", "0. x", "a\t\tb\r\n-\n<\n>\n=\n!\n0\n1.\n");
+
+	//Returns the kind, text and location of all tokens up to EOF, and the error that ends them, if any
+	static List<String> tokens(ILexer lexer) {
+		List<String> tokens = new ArrayList<>();
+		try {
+			IToken token;
+			do {
+				token = lexer.next();
+				tokens.add(token.getKind() + " " + token.getText() + " " + token.getSourceLocation());
+			} while (token.getKind() != Kind.EOF);
+		} catch (LexicalException e) {
+			tokens.add(e.getMessage());
+		}
+		return tokens;
+	}
+
+	static String randomInput(Random random) {
+		String alphabet = "abcxyz_$019.+-*/%&|!<>=()[],;^#\" \t\r\n\\";
+		StringBuilder input = new StringBuilder();
+		int length = random.nextInt(60);
+		for (int i = 0; i < length; i++) {
+			input.append(random.nextInt(10) == 0 ? " int " : String.valueOf(alphabet.charAt(random.nextInt(alphabet.length()))));
+		}
+		return input.toString();
+	}
+
+	@Test
+	void testLazyLexerProducesSameTokens() {
+		List<String> inputs = new ArrayList<>(INPUTS);
+		Random random = new Random(4020);
+		for (int i = 0; i < 2000; i++) {
+			inputs.add(randomInput(random));
+		}
+		for (String input : inputs) {
+			assertEquals(tokens(new Lexer(input)), tokens(new Lexer(input, true)), input);
+		}
+	}
+
+	@Test
+	void testReservedWordsAndIdentifiers() {
+		String input = "string int float boolean color image void getWidth getHeight getRed getGreen getBlue BLACK BLUE CYAN "
+				+ "DARK_GRAY GRAY GREEN LIGHT_GRAY MAGENTA ORANGE PINK RED WHITE YELLOW true false if else fi write console "
+				+ "strinG in floats Boolean colour imag getwidth getReds BLUEs fI fii truee consol x \u00e91\u0663";
+		List<String> tokens = tokens(new Lexer(input));
+		assertEquals("TYPE int SourceLocation[line=0, column=7]", tokens.get(1));
+		Kind[] kinds = { Kind.TYPE, Kind.TYPE, Kind.TYPE, Kind.TYPE, Kind.TYPE, Kind.TYPE, Kind.KW_VOID, Kind.IMAGE_OP,
+				Kind.IMAGE_OP, Kind.COLOR_OP, Kind.COLOR_OP, Kind.COLOR_OP };
+		for (int i = 0; i < tokens.size() - 1; i++) {
+			Kind kind = i < kinds.length ? kinds[i]
+					: i < 25 ? Kind.COLOR_CONST
+					: i < 27 ? Kind.BOOLEAN_LIT
+					: i < 32 ? List.of(Kind.KW_IF, Kind.KW_ELSE, Kind.KW_FI, Kind.KW_WRITE, Kind.KW_CONSOLE).get(i - 27)
+					: Kind.IDENT;
+			assertTrue(tokens.get(i).startsWith(kind + " "), tokens.get(i));
+		}
+		assertEquals(32 + 15 + 1, tokens.size());
+	}
+
+	@Test
+	void testLiteralValues() throws LexicalException {
+		Lexer lexer = new Lexer("x 2147483647 0.25 \"a\\tb\\\"\" true");
+		IToken ident = lexer.next();
+		assertSame(ident.getText(), ident.getText());
+		assertEquals("x", ident.getText());
+		assertEquals(Integer.MAX_VALUE, lexer.next().getIntValue());
+		assertEquals(0.25f, lexer.next().getFloatValue());
+		IToken string = lexer.next();
+		assertEquals("a\tb\"", string.getStringValue());
+		// the value is parsed once
+		assertSame(string.getStringValue(), string.getStringValue());
+		assertEquals("\"a\\tb\\\"\"", string.getText());
+		assertTrue(lexer.next().getBooleanValue());
+	}
+
+	@Test
+	void testLazyLexerPeek() throws LexicalException {
+		Lexer lexer = new Lexer("a b ~", true);
+		assertEquals("a", lexer.peek().getText());
+		assertEquals("a", lexer.next().getText());
+		assertEquals("b", lexer.next().getText());
+		// the error is only reported when its token is reached
+		assertThrows(LexicalException.class, () -> lexer.peek());
+	}
+
+	@Test
+	void testLazyLexerKeepsOnlyPendingTokens() throws LexicalException {
+		StringBuilder input = new StringBuilder("void big()\n");
+		for (int i = 0; i < 20000; i++) {
+			input.append("int v").append(i).append(" = ").append(i).append(" * (v0 + 2);\n");
+		}
+		Lexer lexer = new Lexer(input.toString(), true);
+		int count = 0;
+		while (lexer.next().getKind() != Kind.EOF) {
+			count++;
+			assertTrue(lexer.tokens.size() <= 1);
+		}
+		assertEquals(4 + 20000 * 11, count);
+	}
+}
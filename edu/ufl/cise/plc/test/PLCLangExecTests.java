@@ -0,0 +1,638 @@
+package edu.ufl.cise.plc.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ufl.cise.plc.CodeGenOptions;
+import edu.ufl.cise.plc.CompilerComponentFactory;
+import edu.ufl.cise.plc.SyntaxException;
+import edu.ufl.cise.plc.TypeCheckException;
+import edu.ufl.cise.plc.ast.ASTNode;
+import edu.ufl.cise.plc.runtime.ColorTuple;
+import edu.ufl.cise.plc.runtime.ImageOps;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.BytecodeCache;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.CompiledBatch;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.CompiledProgram;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.CompilerPool;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.DynamicClassLoader;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.DynamicCompiler;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.ExecutionMode;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.JfrPhaseListener;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.PLCLangExec;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.Phase;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.PhaseEvent;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.ProgramCache;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.ProgramLoader;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.TieredCompiler;
+import edu.ufl.cise.plc.runtime.javaCompilerClassLoader.TieredProgram;
+
+class PLCLangExecTests {
+	String packageName = "cop4020sp22Package";
+
+	@Test
+	void testProgramCacheHit() throws Exception {
+		String input = """
+				int f(int a, int b)
+				^ a * b + 17;
+				""";
+		ProgramCache<CompiledProgram> cache = PLCLangExec.getProgramCache();
+		long misses = cache.misses();
+		long hits = cache.hits();
+		PLCLangExec exec = new PLCLangExec(packageName, false);
+		assertEquals(23, exec.exec(input, new Object[] { 2, 3 }));
+		assertEquals(97, new PLCLangExec(packageName, false).exec(input, new Object[] { 8, 10 }));
+		assertEquals(misses + 1, cache.misses());
+		assertEquals(hits + 1, cache.hits());
+	}
+
+	@Test
+	void testProgramCacheMissForOtherOptions() throws Exception {
+		String input = """
+				int g(int a)
+				^ a - 1;
+				""";
+		ProgramCache<CompiledProgram> cache = PLCLangExec.getProgramCache();
+		long misses = cache.misses();
+		assertEquals(4, new PLCLangExec(packageName, false).exec(input, new Object[] { 5 }));
+		assertEquals(4, new PLCLangExec(packageName, false, CodeGenOptions.parallel(0)).exec(input, new Object[] { 5 }));
+		assertEquals(4, new PLCLangExec("otherPackage", false).exec(input, new Object[] { 5 }));
+		assertEquals(misses + 3, cache.misses());
+	}
+
+	@Test
+	void testProgramCacheDoesNotCacheErrors() throws Exception {
+		String input = """
+				int h()
+				^ "not an int";
+				""";
+		ProgramCache<CompiledProgram> cache = PLCLangExec.getProgramCache();
+		int size = cache.size();
+		assertThrows(Exception.class, () -> new PLCLangExec(packageName, false).exec(input, null));
+		assertThrows(Exception.class, () -> new PLCLangExec(packageName, false).exec(input, null));
+		assertEquals(size, cache.size());
+	}
+
+	@Test
+	void testProgramCacheEviction() throws Exception {
+		ProgramCache<String> cache = new ProgramCache<>(2);
+		assertEquals("a", cache.get("a", () -> "a"));
+		assertEquals("b", cache.get("b", () -> "b"));
+		assertEquals("a", cache.get("a", () -> "not loaded"));
+		assertEquals("c", cache.get("c", () -> "c")); // evicts b, the least recently used
+		assertEquals("a", cache.get("a", () -> "not loaded"));
+		assertEquals("b2", cache.get("b", () -> "b2"));
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.hits());
+		assertEquals(4, cache.misses());
+		assertEquals(2, cache.evictions());
+		cache.setCapacity(0);
+		assertEquals(0, cache.size());
+		assertEquals("d", cache.get("d", () -> "d"));
+		assertEquals("d2", cache.get("d", () -> "d2"));
+		assertEquals(0, cache.size());
+		assertEquals(4, cache.evictions());
+	}
+
+	@Test
+	void testProgramCacheLoadsOnce() throws Exception {
+		ProgramCache<String> cache = new ProgramCache<>(2);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch waiting = new CountDownLatch(1);
+		Callable<String> loader = () -> {
+			loads.incrementAndGet();
+			waiting.await();
+			return "loaded";
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> cache.get("k", loader)));
+			}
+			while (cache.hits() + cache.misses() < 8) {
+				Thread.sleep(1);
+			}
+			waiting.countDown();
+			for (Future<String> result : results) {
+				assertEquals("loaded", result.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.misses());
+		assertEquals(7, cache.hits());
+
+		// the threads waiting for a failed load throw its exception, and the next call loads again
+		CountDownLatch failing = new CountDownLatch(1);
+		executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executor.submit(() -> cache.get("e", () -> {
+				failing.await();
+				throw new IllegalStateException("failed");
+			}));
+			while (cache.misses() < 2) {
+				Thread.sleep(1);
+			}
+			Future<String> second = executor.submit(() -> cache.get("e", () -> "not loaded"));
+			while (cache.hits() < 8) {
+				Thread.sleep(1);
+			}
+			failing.countDown();
+			for (Future<String> result : List.of(first, second)) {
+				ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+				assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals("e", cache.get("e", () -> "e"));
+	}
+
+	@Test
+	void testProgramCacheKey() {
+		assertEquals(ProgramCache.key("p", "int f() ^1;"), ProgramCache.key("p", "int f() ^1;"));
+		assertNotEquals(ProgramCache.key("p", "int f() ^1;"), ProgramCache.key("q", "int f() ^1;"));
+		assertNotEquals(ProgramCache.key("ab", "c"), ProgramCache.key("a", "bc"));
+	}
+
+	static void deleteDirectory(Path directory) throws Exception {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	void testBytecodeCache() throws Exception {
+		String source = """
+				package cached;
+				public class C { public static int apply() { return 4020; } }
+				""";
+		Path directory = Files.createTempDirectory("plcBytecodeCache");
+		BytecodeCache previous = DynamicCompiler.getBytecodeCache();
+		try {
+			BytecodeCache cache = new BytecodeCache(directory);
+			DynamicCompiler.setBytecodeCache(cache);
+			assertNull(cache.get("cached.C", source));
+			byte[] compiled = DynamicCompiler.compile("cached.C", source);
+			assertEquals(1, cache.writes());
+			assertArrayEquals(compiled, DynamicCompiler.compile("cached.C", source));
+			assertEquals(1, cache.hits());
+
+			// another process using the same directory sees the class file
+			BytecodeCache other = new BytecodeCache(directory);
+			assertArrayEquals(compiled, other.get("cached.C", source));
+			assertNull(other.get("cached.C", source + " "));
+
+			// a damaged file is ignored and replaced
+			try (Stream<Path> files = Files.list(directory)) {
+				for (Path file : files.toList()) {
+					Files.write(file, new byte[] { 1, 2, 3 });
+				}
+			}
+			assertArrayEquals(compiled, DynamicCompiler.compile("cached.C", source));
+			assertEquals(2, cache.writes());
+		} finally {
+			DynamicCompiler.setBytecodeCache(previous);
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void testCompilerPoolReusesFileManagers() throws Exception {
+		CompilerPool pool = new CompilerPool(1);
+		byte[] first = pool.compile("pooled.A", "package pooled; public class A { public static int apply() { return 1; } }");
+		assertThrows(Exception.class, () -> pool.compile("pooled.B", "package pooled; public class B { int x = \"x\"; }"));
+		byte[] second = pool.compile("pooled.A", "package pooled; public class A { public static int apply() { return 1; } }");
+		assertArrayEquals(first, second);
+		assertEquals(1, pool.created());
+		assertEquals(2, pool.reused());
+		assertEquals(3, pool.compilations());
+		assertEquals(1, pool.failures());
+		assertEquals(1, pool.idle());
+		pool.setMaxIdle(0);
+		assertEquals(0, pool.idle());
+		assertEquals(1, pool.discarded());
+	}
+
+	@Test
+	void testCompilerPoolConcurrentCompiles() throws Exception {
+		CompilerPool pool = new CompilerPool(2);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> results = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				String name = "C" + i;
+				String source = "package pooled; public class " + name + " { public static int apply() { return " + i + "; } }";
+				results.add(executor.submit(() -> pool.compile("pooled." + name, source)));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				Object result = DynamicClassLoader.loadClassAndRunMethod(results.get(i).get(), "pooled.C" + i, "apply", null);
+				assertEquals(i, result);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(16, pool.created() + pool.reused());
+		assertTrue(pool.idle() <= 2);
+	}
+
+	@Test
+	void testCompileAll() throws Exception {
+		List<String> inputs = List.of("""
+				int batchA(int a)
+				^ a + 1;
+				""", """
+				int batchB(int a
+				^ a;
+				""", """
+				string batchC()
+				^ "c";
+				""", """
+				int batchD()
+				^ "not an int";
+				""", """
+				int batchA(int a)
+				^ a + 2;
+				""");
+		CompiledBatch batch = new PLCLangExec(packageName, false).compileAll(inputs);
+		assertEquals(5, batch.size());
+		assertEquals(packageName + ".batchA", batch.getClassName(0));
+		assertTrue(batch.getError(1) instanceof SyntaxException);
+		assertTrue(batch.getError(3) instanceof TypeCheckException);
+		assertNull(batch.getClassName(4));
+		assertEquals(Map.of(1, batch.getError(1), 3, batch.getError(3), 4, batch.getError(4)), batch.getErrors());
+		Map<String, Class<?>> classes = batch.loadClasses();
+		assertEquals(List.of(packageName + ".batchA", packageName + ".batchC"), List.copyOf(classes.keySet()));
+		Method batchA = classes.get(packageName + ".batchA").getMethod("apply", int.class);
+		assertEquals(42, batchA.invoke(null, 41));
+		assertEquals("c", classes.get(packageName + ".batchC").getMethod("apply").invoke(null));
+	}
+
+	@Test
+	void testCompileAllRetriesWithoutBrokenSources() throws Exception {
+		List<String> names = List.of("batch.Good1", "batch.Broken", "batch.Good2");
+		List<String> sources = List.of("package batch; public class Good1 { public static int apply() { return 1; } }",
+				"package batch; public class Broken { public static int apply() { return \"2\"; } }",
+				"package batch; public class Good2 { public static int apply() { return 3; } }");
+		CompiledBatch batch = DynamicCompiler.compileAll(names, sources);
+		assertEquals(Map.of(1, batch.getError(1)), batch.getErrors());
+		assertTrue(batch.getError(1).getMessage().contains("Broken.java"));
+		assertNull(batch.getClassFile(1));
+		assertEquals(3, DynamicClassLoader.loadClassAndRunMethod(batch.getClassFile(2), "batch.Good2", "apply", null));
+		assertEquals(2, batch.getClassFiles().size());
+	}
+
+	static byte[] generateBytecode(String input, CodeGenOptions options) throws Exception {
+		ASTNode ast = CompilerComponentFactory.getParser(input).parse();
+		ast.visit(CompilerComponentFactory.getTypeChecker(), null);
+		return (byte[]) ast.visit(CompilerComponentFactory.getBytecodeGenerator("bytecodePackage", options), null);
+	}
+
+	static Object result(Object value) {
+		return value instanceof BufferedImage image ? List.of(image.getWidth(), image.getHeight(),
+				Arrays.stream(ImageOps.getRGBPixels(image)).boxed().toList()) : value;
+	}
+
+	@Test
+	void testBytecodeMode() throws Exception {
+		List<String> inputs = List.of("""
+				float bytecodeA(int a, float b)
+				float c = a / 2 + b * 3;
+				^ if (a % 2 == 0 & !(c < 0.5)) -c else c - a fi;
+				""", """
+				string bytecodeB(string s, color c)
+				write getRed c -> console;
+				^ if (s != "x" | c == << 255, 0, 0 >>) "y" else s fi;
+				""", """
+				color bytecodeC(color c, int d)
+				color e = c + << d, d * 2, 300 >>;
+				int packed = e;
+				^ e - ORANGE + << getBlue packed, 0, 0 >>;
+				""", """
+				image bytecodeD(image a, int w)
+				image[w, w] b = BLUE;
+				b[x, y] = a[y, x] + b[x, y] * 2;
+				a[x, y] = a[(getWidth a) - 1 - x, y];
+				^ b + a;
+				""");
+		for (String input : inputs) {
+			assertTrue(generateBytecode(input, CodeGenOptions.DEFAULT) != null);
+		}
+		List<Object[]> params = Arrays.asList(new Object[] { 4, 0.25f }, new Object[] { "x", new ColorTuple(255, 0, 0) },
+				new Object[] { new ColorTuple(1, 2, 3), 7 }, null);
+		for (int i = 0; i < inputs.size(); i++) {
+			Object[] compileParams = params.get(i);
+			Object[] bytecodeParams = params.get(i);
+			if (compileParams == null) {
+				BufferedImage image = new BufferedImage(6, 6, BufferedImage.TYPE_INT_RGB);
+				image.setRGB(2, 3, 0x123456);
+				compileParams = new Object[] { image, 6 };
+				bytecodeParams = new Object[] { ImageOps.clone(image), 6 };
+			}
+			Object expected = new PLCLangExec(packageName, false).exec(inputs.get(i), compileParams);
+			Object actual = new PLCLangExec(packageName, false, CodeGenOptions.DEFAULT, ExecutionMode.BYTECODE)
+					.exec(inputs.get(i), bytecodeParams);
+			assertEquals(result(expected), result(actual));
+			assertEquals(result(compileParams[0]), result(bytecodeParams[0]));
+		}
+
+		CompiledBatch batch = new PLCLangExec("bytecodeBatch", false, CodeGenOptions.DEFAULT, ExecutionMode.BYTECODE)
+				.compileAll(inputs);
+		assertTrue(!batch.hasErrors());
+		Method bytecodeA = batch.loadClasses().get("bytecodeBatch.bytecodeA").getMethod("apply", int.class, float.class);
+		assertEquals(-2.25f, bytecodeA.invoke(null, 5, 0.25f));
+	}
+
+	@Test
+	void testBytecodeModeFallsBackToJavac() throws Exception {
+		// parallel pixel loops are only generated as Java code
+		String input = """
+				image bytecodeParallel(int w)
+				image[w, w] a;
+				a[x, y] = << x, y, x * y >>;
+				^ a;
+				""";
+		CodeGenOptions options = CodeGenOptions.parallel(0);
+		assertNull(generateBytecode(input, options));
+		assertTrue(generateBytecode(input, CodeGenOptions.DEFAULT) != null);
+		BufferedImage image = (BufferedImage) new PLCLangExec(packageName, false, options, ExecutionMode.BYTECODE)
+				.exec(input, new Object[] { 5 });
+		assertEquals(new ColorTuple(3, 4, 12), ColorTuple.unpack(image.getRGB(3, 4)));
+	}
+
+	@Test
+	void testCompiledProgram() throws Throwable {
+		CompiledProgram program = new PLCLangExec(packageName, false).load("""
+				int handleA(int a, int b)
+				^ a * b + 1;
+				""");
+		assertEquals(MethodType.methodType(int.class, int.class, int.class), program.type());
+		assertEquals(7, (int) program.handle().invokeExact(2, 3));
+		assertEquals(7, program.invoke(new Object[] { 2, 3 }));
+		IntBinaryOperator f = program.as(IntBinaryOperator.class);
+		assertEquals(21, f.applyAsInt(4, 5));
+		@SuppressWarnings("unchecked")
+		BiFunction<Integer, Integer, Integer> g = program.as(BiFunction.class);
+		assertEquals(Integer.valueOf(31), g.apply(5, 6));
+		assertThrows(IllegalArgumentException.class, () -> program.as(Runnable.class));
+		assertThrows(IllegalArgumentException.class, () -> program.as(List.class));
+
+		CompiledProgram bytecode = new PLCLangExec(packageName, false, CodeGenOptions.DEFAULT, ExecutionMode.BYTECODE)
+				.load("""
+						int handleB(int a)
+						^ 100 / a;
+						""");
+		assertEquals(25, bytecode.as(IntUnaryOperator.class).applyAsInt(4));
+		// exceptions thrown by the program are not wrapped
+		assertThrows(ArithmeticException.class, () -> bytecode.invoke(new Object[] { 0 }));
+	}
+
+	@Test
+	void testHiddenClasses() throws Exception {
+		ProgramLoader previous = DynamicClassLoader.getProgramLoader();
+		ProgramLoader loader = new ProgramLoader(ProgramLoader.Strategy.HIDDEN_CLASS);
+		DynamicClassLoader.setProgramLoader(loader);
+		try {
+			// programs with the same name are separate hidden classes of one class loader
+			CompiledProgram first = new PLCLangExec(packageName, false).load("""
+					int hidden(int a)
+					^ a + 1;
+					""");
+			CompiledProgram second = new PLCLangExec(packageName, false, CodeGenOptions.DEFAULT, ExecutionMode.BYTECODE)
+					.load("""
+							int hidden(int a)
+							^ a + 2;
+							""");
+			assertTrue(first.getProgramClass().isHidden());
+			assertTrue(second.getProgramClass().isHidden());
+			assertEquals(first.getProgramClass().getClassLoader(), second.getProgramClass().getClassLoader());
+			assertEquals(11, first.invoke(new Object[] { 10 }));
+			assertEquals(12, second.as(IntUnaryOperator.class).applyAsInt(10));
+			assertEquals(2, loader.defined());
+			assertEquals(2, loader.live());
+			assertEquals(1, loader.loadersCreated());
+			assertEquals(1, loader.hosts());
+			assertTrue(ProgramLoader.loadedClassCount() > 0);
+			assertTrue(ProgramLoader.metaspaceUsed() != 0);
+			loader.clear();
+			assertEquals(0, loader.hosts());
+		} finally {
+			DynamicClassLoader.setProgramLoader(previous);
+		}
+	}
+
+	@Test
+	void testInterpretMode() throws Throwable {
+		List<String> inputs = List.of("""
+				float interpretA(int a, float b)
+				float c = a / 2 + b * 3;
+				^ if (a % 2 == 0 & !(c < 0.5)) -c else c - a fi;
+				""", """
+				color interpretB(color c, int d)
+				color e = c + << d, d * 2, 300 >>;
+				int packed = e;
+				^ e - ORANGE + << getBlue packed, 0, 0 >>;
+				""", """
+				image interpretC(image a, int w)
+				image[w, w] b = BLUE;
+				b[x, y] = a[y, x] + b[x, y] * 2;
+				a[x, y] = a[(getWidth a) - 1 - x, y];
+				^ b + a;
+				""");
+		List<Object[]> params = Arrays.asList(new Object[] { 4, 0.25f }, new Object[] { new ColorTuple(1, 2, 3), 7 }, null);
+		for (CodeGenOptions options : List.of(CodeGenOptions.DEFAULT, CodeGenOptions.parallel(0))) {
+			for (int i = 0; i < inputs.size(); i++) {
+				Object[] compileParams = params.get(i);
+				Object[] interpretParams = params.get(i);
+				if (compileParams == null) {
+					BufferedImage image = new BufferedImage(6, 6, BufferedImage.TYPE_INT_RGB);
+					image.setRGB(2, 3, 0x123456);
+					compileParams = new Object[] { image, 6 };
+					interpretParams = new Object[] { ImageOps.clone(image), 6 };
+				}
+				CompiledProgram program = new PLCLangExec(packageName, false, options, ExecutionMode.INTERPRET)
+						.load(inputs.get(i));
+				assertNull(program.getProgramClass());
+				Object expected = new PLCLangExec(packageName, false, options).exec(inputs.get(i), compileParams);
+				assertEquals(result(expected), result(program.invoke(interpretParams)));
+				assertEquals(result(compileParams[0]), result(interpretParams[0]));
+			}
+		}
+
+		CompiledProgram program = new PLCLangExec(packageName, false, CodeGenOptions.DEFAULT, ExecutionMode.INTERPRET)
+				.load("""
+						int interpretD(int a)
+						^ 100 / a;
+						""");
+		assertEquals(MethodType.methodType(int.class, int.class), program.type());
+		assertEquals(25, (int) program.handle().invokeExact(4));
+		assertEquals(20, program.as(IntUnaryOperator.class).applyAsInt(5));
+		assertThrows(ArithmeticException.class, () -> program.invoke(new Object[] { 0 }));
+		// arguments are converted to the parameter types as for compiled programs
+		assertThrows(ClassCastException.class, () -> program.invoke(new Object[] { "4" }));
+
+		// the generated code for - -a is --a, which the interpreter leaves to the compiled program
+		String input = """
+				int interpretE(int a)
+				^ - -a;
+				""";
+		CompiledProgram compiled = new PLCLangExec(packageName, false, CodeGenOptions.DEFAULT, ExecutionMode.INTERPRET)
+				.load(input);
+		assertTrue(compiled.getProgramClass() != null);
+		assertEquals(new PLCLangExec(packageName, false).exec(input, new Object[] { 3 }), compiled.invoke(new Object[] { 3 }));
+	}
+
+	@Test
+	void testTieredMode() throws Exception {
+		TieredCompiler previous = PLCLangExec.getTieredCompiler();
+		TieredCompiler compiler = new TieredCompiler(2, Long.MAX_VALUE);
+		PLCLangExec.setTieredCompiler(compiler);
+		try {
+			CompiledProgram program = new PLCLangExec(packageName, false, CodeGenOptions.DEFAULT, ExecutionMode.TIERED)
+					.load("""
+							int tieredA(int a, int b)
+							^ a * b + 1;
+							""");
+			TieredProgram tiered = program.getTieredProgram();
+			assertEquals(TieredProgram.Tier.INTERPRETED, tiered.tier());
+			assertEquals(7, program.invoke(new Object[] { 2, 3 }));
+			assertNull(program.getProgramClass());
+			// the second invocation makes the program hot
+			IntBinaryOperator f = program.as(IntBinaryOperator.class);
+			assertEquals(13, f.applyAsInt(3, 4));
+			CompiledProgram compiled = tiered.compiled().get(30, TimeUnit.SECONDS);
+			assertEquals(TieredProgram.Tier.COMPILED, tiered.tier());
+			assertEquals(compiled.getProgramClass(), program.getProgramClass());
+			assertTrue(tiered.timeToCompiledNanos() > 0);
+			// invocations switch to the compiled program, also through the interface instance
+			assertEquals(21, f.applyAsInt(4, 5));
+			assertEquals(31, program.invoke(new Object[] { 5, 6 }));
+			assertEquals(2, tiered.interpretedInvocations());
+			assertEquals(1, compiler.programs());
+			assertEquals(2, compiler.interpretedInvocations());
+			assertEquals(1, compiler.compileRequests());
+			assertEquals(1, compiler.compiled());
+			assertEquals(0, compiler.failures());
+
+			compiler.setInvocationThreshold(0);
+			CompiledProgram eager = new PLCLangExec(packageName, false, CodeGenOptions.DEFAULT, ExecutionMode.TIERED)
+					.load("""
+							int tieredB(int a)
+							^ 100 / a;
+							""");
+			eager.getTieredProgram().compiled().get(30, TimeUnit.SECONDS);
+			assertEquals(0, eager.getTieredProgram().interpretedInvocations());
+			assertThrows(ArithmeticException.class, () -> eager.invoke(new Object[] { 0 }));
+		} finally {
+			PLCLangExec.setTieredCompiler(previous);
+			compiler.shutdown();
+		}
+	}
+
+	@Test
+	void testPhaseListener() throws Exception {
+		String input = """
+				int phases(int a, int b)
+				int c = a * b;
+				^ c + 1;
+				""";
+		List<PhaseEvent> events = new ArrayList<>();
+		PLCLangExec.setPhaseListener(events::add);
+		try {
+			assertEquals(7, new PLCLangExec(packageName, false).exec(input, new Object[] { 2, 3 }));
+			List<Phase> phases = events.stream().map(PhaseEvent::phase).toList();
+			assertEquals(List.of(Phase.LEX, Phase.PARSE, Phase.TYPE_CHECK, Phase.FOLD, Phase.CODEGEN, Phase.JAVAC, Phase.CLASS_LOAD, Phase.RUN),
+					phases);
+			assertNull(events.get(0).programName());
+			for (PhaseEvent event : events.subList(1, events.size())) {
+				assertEquals("phases", event.programName());
+				assertTrue(event.nanos() > 0);
+			}
+			// int phases ( int a , int b ) int c = a * b ; ^ c + 1 ;
+			assertEquals(21, events.get(0).size());
+			// Program, 2 NameDefs, VarDeclaration, NameDef, BinaryExpr, 2 IdentExprs, ReturnStatement, BinaryExpr, IdentExpr, IntLitExpr
+			assertEquals(12, events.get(1).size());
+			// no constant expressions
+			assertEquals(0, events.get(3).size());
+			assertTrue(events.get(4).size() > 0);
+			assertTrue(events.get(5).size() > 0);
+			assertEquals(events.get(5).size(), events.get(6).size());
+			assertTrue(events.get(4).allocatedBytes() > 0 || events.get(4).allocatedBytes() == -1);
+
+			// a program taken from the cache only runs
+			events.clear();
+			assertEquals(13, new PLCLangExec(packageName, false).exec(input, new Object[] { 3, 4 }));
+			assertEquals(List.of(Phase.RUN), events.stream().map(PhaseEvent::phase).toList());
+
+			// the class file generated in BYTECODE mode is the size of CODEGEN
+			events.clear();
+			new PLCLangExec(packageName, false, CodeGenOptions.DEFAULT, ExecutionMode.BYTECODE).exec(input, new Object[] { 3, 4 });
+			assertEquals(List.of(Phase.LEX, Phase.PARSE, Phase.TYPE_CHECK, Phase.FOLD, Phase.CODEGEN, Phase.CLASS_LOAD, Phase.RUN),
+					events.stream().map(PhaseEvent::phase).toList());
+			assertEquals(events.get(4).size(), events.get(5).size());
+		} finally {
+			PLCLangExec.setPhaseListener(null);
+		}
+	}
+
+	@Test
+	void testJfrPhaseListener() throws Exception {
+		Path file = Files.createTempFile("phases", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("edu.ufl.cise.plc.Phase");
+			recording.start();
+			PLCLangExec.setPhaseListener(new JfrPhaseListener());
+			try {
+				new PLCLangExec(packageName, false).exec("""
+						int jfrPhases(int a)
+						^ a + 1;
+						""", new Object[] { 1 });
+			} finally {
+				PLCLangExec.setPhaseListener(null);
+			}
+			recording.stop();
+			recording.dump(file);
+			List<String> phases = RecordingFile.readAllEvents(file).stream()
+					.filter(event -> "jfrPhases".equals(event.getString("program")))
+					.map(event -> event.getString("phase")).toList();
+			assertEquals(List.of("PARSE", "TYPE_CHECK", "FOLD", "CODEGEN", "JAVAC", "CLASS_LOAD", "RUN"), phases);
+		} finally {
+			Files.delete(file);
+		}
+	}
+}